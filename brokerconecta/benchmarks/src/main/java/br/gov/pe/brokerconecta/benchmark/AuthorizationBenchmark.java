@@ -0,0 +1,86 @@
+package br.gov.pe.brokerconecta.benchmark;
+
+import br.gov.pe.brokerconecta.authorization.ClientAuthorizationResolver;
+import br.gov.pe.brokerconecta.config.ApiConfig;
+import br.gov.pe.brokerconecta.config.ApiPermissionConfig;
+import br.gov.pe.brokerconecta.config.BrokerProperties;
+import br.gov.pe.brokerconecta.config.ClientConfig;
+import br.gov.pe.brokerconecta.snapshot.BrokerSnapshotHolder;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Identificação do cliente X-Road e obtenção da permissão para a API ({@link ClientAuthorizationResolver}),
+ * com 10, 100 e 1.000 clientes configurados: cliente autorizado e cliente desconhecido (cache negativo).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AuthorizationBenchmark {
+
+    private static final String API = "cpf-light-api";
+
+    @Param({"10", "100", "1000"})
+    private int clientCount;
+
+    private ClientAuthorizationResolver resolver;
+    private String knownClient;
+
+    @Setup
+    public void setUp() {
+        ApiConfig api = new ApiConfig();
+        api.setTargetUrl("https://conecta.example/cpf");
+        api.setTokenUrl("https://conecta.example/token");
+
+        Map<String, ClientConfig> clients = new HashMap<>();
+        for (int i = 0; i < clientCount; i++) {
+            ApiPermissionConfig permission = new ApiPermissionConfig();
+            permission.setClientId("client-id-" + i);
+            permission.setClientSecret("secret-" + i);
+            ClientConfig client = new ClientConfig();
+            client.setXRoadId("ORGAO" + i + "/SISTEMA" + i);
+            client.setAuthorizedApis(Map.of(API, permission));
+            clients.put("cliente-" + i, client);
+            knownClient = client.getXRoadId();
+        }
+
+        BrokerProperties properties = new BrokerProperties();
+        properties.setRoutes(List.of());
+        properties.setApis(Map.of(API, api));
+        properties.setClients(clients);
+        resolver = new ClientAuthorizationResolver(
+                new BrokerSnapshotHolder(properties, event -> { }, new SimpleMeterRegistry()));
+    }
+
+    @Benchmark
+    public Object knownClient() {
+        return resolver.resolve(knownClient, API);
+    }
+
+    @Benchmark
+    public Object unknownClient() {
+        try {
+            return resolver.resolve("ORGAO/DESCONHECIDO", API);
+        } catch (SecurityException e) {
+            return e;
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package br.gov.pe.brokerconecta.benchmark;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Gerador de carga para comparar os modos de execução do gateway ({@code broker.proxy.execution-mode}).
+ * <p>
+ * Aplica a carga do {@link LoadGenerator} por {@code duracao} segundos sobre um gateway já no ar e, durante a
+ * carga, registra o pico de threads e de memória do processo do gateway.
+ * <p>
+ * Para executar, com o gateway no ar com o perfil {@code stub}, a partir do módulo benchmarks já empacotado:
+ * {@code java -cp target/benchmarks.jar br.gov.pe.brokerconecta.benchmark.GatewayLoadGenerator
+ * <conexoes> <duracao-em-segundos> <pid-do-gateway> [url-base]}.
+ * Os resultados de referência estão em {@code docs/comparativo-modos-execucao.md}.
+ */
+public class GatewayLoadGenerator {
+
+    public static void main(String[] args) throws Exception {
+        int connections = Integer.parseInt(args[0]);
+        Duration duration = Duration.ofSeconds(Long.parseLong(args[1]));
+        long gatewayPid = Long.parseLong(args[2]);
+        String baseUrl = args.length > 3 ? args[3] : "http://localhost:8080";
+
+        ProcessSampler sampler = new ProcessSampler(gatewayPid);
+        ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+        scheduler.scheduleAtFixedRate(sampler::sample, 0, 500, TimeUnit.MILLISECONDS);
+
+        LoadGenerator.Result result = new LoadGenerator(baseUrl).run(connections, duration);
+        scheduler.shutdownNow();
+        System.out.printf("%s threads do SO (pico)=%d RSS (pico)=%.0f MB%n",
+                result, sampler.peakThreads, sampler.peakRssKb / 1024.0);
+    }
+
+    /**
+     * Pico de threads do sistema operacional e de memória residente (RSS) do processo do gateway, lidos de
+     * {@code /proc/<pid>/status} (Linux). Virtual threads não contam como threads do sistema operacional.
+     */
+    private static final class ProcessSampler {
+        private final Path status;
+        private volatile long peakThreads;
+        private volatile long peakRssKb;
+
+        ProcessSampler(long pid) {
+            this.status = Path.of("/proc", Long.toString(pid), "status");
+        }
+
+        void sample() {
+            try {
+                for (String line : Files.readAllLines(status)) {
+                    if (line.startsWith("Threads:")) {
+                        peakThreads = Math.max(peakThreads, parseValue(line));
+                    } else if (line.startsWith("VmRSS:")) {
+                        peakRssKb = Math.max(peakRssKb, parseValue(line));
+                    }
+                }
+            } catch (Exception e) {
+                // Processo encerrado ou amostra perdida; a próxima tenta de novo
+            }
+        }
+
+        private static long parseValue(String line) {
+            return Long.parseLong(line.replaceAll("\\D+", ""));
+        }
+    }
+}
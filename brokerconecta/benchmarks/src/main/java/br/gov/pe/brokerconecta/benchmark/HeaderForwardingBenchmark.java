@@ -0,0 +1,78 @@
+package br.gov.pe.brokerconecta.benchmark;
+
+import br.gov.pe.brokerconecta.config.HeaderForwardingConfig;
+import br.gov.pe.brokerconecta.header.HeaderFilter;
+import br.gov.pe.brokerconecta.header.HeaderForwarder;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockHttpServletRequest;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Repasse dos headers da requisição do cliente para a API de destino ({@link HeaderForwarder}), com a
+ * quantidade típica de headers de uma chamada vinda do X-Road (10) e com muitos headers (50), com as regras
+ * padrão e com uma lista de headers permitidos na rota. Mede também o header {@code Authorization} do broker.
+ * <p>
+ * A leitura dos headers de um {@link MockHttpServletRequest} custa mais que a do Tomcat, então os números
+ * servem para comparar versões e regras entre si, e não como o custo absoluto em produção.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class HeaderForwardingBenchmark {
+
+    @Param({"10", "50"})
+    private int headerCount;
+
+    private final HeaderForwarder forwarder = new HeaderForwarder();
+    private final String token = "eyJhbGciOiJSUzI1NiJ9." + "x".repeat(800);
+    private MockHttpServletRequest request;
+    private HeaderFilter allowList;
+
+    @Setup
+    public void setUp() {
+        request = new MockHttpServletRequest("POST", "/api/v1/api-cpf/consulta");
+        request.addHeader(HttpHeaders.HOST, "broker.pe.gov.br");
+        request.addHeader(HttpHeaders.CONNECTION, "keep-alive");
+        request.addHeader("X-Road-Client", "SAD/PortalPEGOV");
+        request.addHeader(HttpHeaders.CONTENT_TYPE, "application/json");
+        request.addHeader("x-cpf-usuario", "11122233344");
+        for (int i = 5; i < headerCount; i++) {
+            request.addHeader("X-Header-" + i, "valor-" + i);
+        }
+
+        HeaderForwardingConfig config = new HeaderForwardingConfig();
+        config.setAllow(List.of("X-Road-Client", "Content-Type", "x-cpf-usuario"));
+        allowList = HeaderFilter.of(config);
+    }
+
+    @Benchmark
+    public HttpHeaders defaultRules() {
+        return forwarder.forward(request, HeaderFilter.DEFAULT);
+    }
+
+    @Benchmark
+    public HttpHeaders routeAllowList() {
+        return forwarder.forward(request, allowList);
+    }
+
+    @Benchmark
+    public String bearerHeader() {
+        return forwarder.bearer(token);
+    }
+}
@@ -0,0 +1,140 @@
+package br.gov.pe.brokerconecta.benchmark;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Carga de consultas de CPF sobre o gateway, usada pelo {@link GatewayLoadGenerator} e pelo {@link LoadHarness}.
+ * <p>
+ * Mantém {@code connections} clientes simultâneos (uma virtual thread e uma conexão HTTP/1.1 cada), enviando
+ * consultas em sequência, com CPFs distintos e {@code Cache-Control: no-cache} para que toda requisição chegue
+ * à API de destino (o stub). Respostas fora da faixa 2xx e falhas de conexão contam como erro.
+ */
+public class LoadGenerator {
+
+    private static final String PATH = "/api/v1/api-cpf/consulta";
+    // Cliente sem limite de requisições configurado, para não medir o rate limiter
+    private static final String X_ROAD_CLIENT = "SEE/SGPPE";
+
+    private final HttpClient client = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_1_1)
+            .executor(Executors.newVirtualThreadPerTaskExecutor())
+            .connectTimeout(Duration.ofSeconds(30))
+            .build();
+    private final URI uri;
+    private final AtomicLong sequence = new AtomicLong();
+
+    public LoadGenerator(String baseUrl) {
+        this.uri = URI.create(baseUrl + PATH);
+    }
+
+    /**
+     * Aplica a carga por {@code duration} e devolve a vazão e as latências medidas.
+     */
+    public Result run(int connections, Duration duration) throws InterruptedException {
+        AtomicLong errors = new AtomicLong();
+        List<long[]> latencies = new ArrayList<>(connections);
+        CountDownLatch done = new CountDownLatch(connections);
+        long deadline = System.nanoTime() + duration.toNanos();
+
+        for (int i = 0; i < connections; i++) {
+            LatencyRecorder recorder = new LatencyRecorder();
+            Thread.ofVirtual().start(() -> {
+                try {
+                    while (System.nanoTime() < deadline) {
+                        long start = System.nanoTime();
+                        if (!send()) {
+                            errors.incrementAndGet();
+                        }
+                        recorder.record(System.nanoTime() - start);
+                    }
+                } finally {
+                    synchronized (latencies) {
+                        latencies.add(recorder.toArray());
+                    }
+                    done.countDown();
+                }
+            });
+        }
+
+        done.await();
+        long[] all = latencies.stream().flatMapToLong(Arrays::stream).sorted().toArray();
+        return new Result(connections, duration, all.length, errors.get(),
+                percentile(all, 0.50), percentile(all, 0.90), percentile(all, 0.99), percentile(all, 0.999),
+                all.length == 0 ? 0 : all[all.length - 1]);
+    }
+
+    boolean send() {
+        String cpf = String.format("%011d", sequence.incrementAndGet());
+        HttpRequest request = HttpRequest.newBuilder(uri)
+                .header("X-Road-Client", X_ROAD_CLIENT)
+                .header("Content-Type", "application/json")
+                .header("Cache-Control", "no-cache")
+                .timeout(Duration.ofSeconds(60))
+                .POST(HttpRequest.BodyPublishers.ofString("{\"listaCpf\":[\"" + cpf + "\"]}"))
+                .build();
+        try {
+            HttpResponse<Void> response = client.send(request, HttpResponse.BodyHandlers.discarding());
+            return response.statusCode() / 100 == 2;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        } catch (Exception e) {
+            return false;
+        }
+    }
+
+    private static long percentile(long[] sorted, double percentile) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        return sorted[Math.min(sorted.length - 1, (int) Math.ceil(percentile * sorted.length) - 1)];
+    }
+
+    /**
+     * Resultado de uma medição. Latências em nanossegundos.
+     */
+    public record Result(int connections, Duration duration, long requests, long errors,
+                         long p50, long p90, long p99, long p999, long max) {
+
+        public double throughput() {
+            return requests / (duration.toMillis() / 1000.0);
+        }
+
+        @Override
+        public String toString() {
+            return String.format("conexões=%d duração=%ds requisições=%d erros=%d vazão=%.0f req/s "
+                            + "p50=%.1f ms p90=%.1f ms p99=%.1f ms p99.9=%.1f ms máx=%.1f ms",
+                    connections, duration.toSeconds(), requests, errors, throughput(),
+                    p50 / 1e6, p90 / 1e6, p99 / 1e6, p999 / 1e6, max / 1e6);
+        }
+    }
+
+    /**
+     * Latências (ns) de um cliente; cada cliente tem o seu, sem sincronização durante a carga.
+     */
+    private static final class LatencyRecorder {
+        private long[] values = new long[1024];
+        private int size;
+
+        void record(long nanos) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = nanos;
+        }
+
+        long[] toArray() {
+            return Arrays.copyOf(values, size);
+        }
+    }
+}
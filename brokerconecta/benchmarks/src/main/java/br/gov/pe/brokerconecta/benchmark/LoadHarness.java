@@ -0,0 +1,134 @@
+package br.gov.pe.brokerconecta.benchmark;
+
+import br.gov.pe.brokerconecta.BrokerconectaApplication;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Sobe o broker no próprio processo com o perfil {@code stub}, aplica a carga do {@link LoadGenerator} e
+ * acrescenta o resultado em {@code results/load-harness.csv}, junto com o commit, para comparar versões.
+ * <p>
+ * Argumentos: {@code <conexoes> <duracao-em-segundos> [aquecimento-em-segundos] [rotulo] [-- argumentos do Spring]}.
+ * Os argumentos após {@code --} vão para o broker, por exemplo {@code --broker.stub.latency=50ms
+ * --broker.stub.error-rate=0.01} para simular a latência e os erros da API de destino (ver o
+ * {@code StubController}) ou {@code --broker.proxy.execution-mode=virtual-threads}.
+ * <p>
+ * O broker escuta em uma porta livre e a API de CPF é redirecionada para o stub nessa porta. Logs em {@code WARN}.
+ */
+public class LoadHarness {
+
+    private static final Path RESULTS = Path.of("results", "load-harness.csv");
+    private static final String HEADER = "commit,timestamp,label,connections,duration_s,warmup_s,spring_args,"
+            + "requests,errors,throughput_rps,p50_ms,p90_ms,p99_ms,p999_ms,max_ms";
+
+    public static void main(String[] args) throws Exception {
+        int separator = Arrays.asList(args).indexOf("--");
+        String[] harnessArgs = separator < 0 ? args : Arrays.copyOfRange(args, 0, separator);
+        String[] extraArgs = separator < 0 ? new String[0] : Arrays.copyOfRange(args, separator + 1, args.length);
+        if (harnessArgs.length < 2) {
+            System.err.println("Uso: LoadHarness <conexoes> <duracao-em-segundos> [aquecimento-em-segundos] [rotulo] "
+                    + "[-- argumentos do Spring]");
+            System.exit(2);
+        }
+        int connections = Integer.parseInt(harnessArgs[0]);
+        Duration duration = Duration.ofSeconds(Long.parseLong(harnessArgs[1]));
+        Duration warmup = Duration.ofSeconds(harnessArgs.length > 2 ? Long.parseLong(harnessArgs[2]) : 10);
+        String label = harnessArgs.length > 3 ? harnessArgs[3] : "padrao";
+
+        int port = freePort();
+        String stubUrl = "http://localhost:" + port + "/stubs/conecta";
+        List<String> springArgs = new ArrayList<>(List.of(
+                "--spring.profiles.active=stub",
+                "--server.port=" + port,
+                "--broker.apis.cpf-light-api.target-url=" + stubUrl + "/cpf",
+                "--broker.apis.cpf-light-api.token-url=" + stubUrl + "/token",
+                "--broker.audit.directory=target/audit",
+                "--logging.level.root=WARN",
+                "--logging.level.br.gov.pe.brokerconecta=WARN",
+                "--logging.level.br.gov.pe.brokerconecta.stub=WARN"));
+        springArgs.addAll(List.of(extraArgs));
+
+        LoadGenerator.Result result;
+        try (ConfigurableApplicationContext context =
+                     SpringApplication.run(BrokerconectaApplication.class, springArgs.toArray(String[]::new))) {
+            LoadGenerator generator = new LoadGenerator("http://localhost:" + port);
+            if (!warmup.isZero()) {
+                generator.run(connections, warmup);
+            }
+            result = generator.run(connections, duration);
+        }
+
+        System.out.println(result);
+        append(label, warmup, String.join(" ", extraArgs), result);
+        System.out.println("Resultado acrescentado em " + RESULTS.toAbsolutePath());
+    }
+
+    private static void append(String label, Duration warmup, String extraArgs, LoadGenerator.Result result) throws IOException {
+        Files.createDirectories(RESULTS.getParent());
+        StringBuilder lines = new StringBuilder();
+        if (Files.notExists(RESULTS)) {
+            lines.append(HEADER).append('\n');
+        }
+        lines.append(String.join(",",
+                commit(),
+                OffsetDateTime.now().truncatedTo(ChronoUnit.SECONDS).toString(),
+                csv(label),
+                Integer.toString(result.connections()),
+                Long.toString(result.duration().toSeconds()),
+                Long.toString(warmup.toSeconds()),
+                csv(extraArgs),
+                Long.toString(result.requests()),
+                Long.toString(result.errors()),
+                String.format(Locale.ROOT, "%.1f", result.throughput()),
+                millis(result.p50()),
+                millis(result.p90()),
+                millis(result.p99()),
+                millis(result.p999()),
+                millis(result.max()))).append('\n');
+        Files.writeString(RESULTS, lines, StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+    }
+
+    /**
+     * Commit atual, com o sufixo {@code -dirty} se houver alterações não commitadas.
+     */
+    static String commit() {
+        try {
+            Process git = new ProcessBuilder("git", "describe", "--always", "--dirty").redirectErrorStream(true).start();
+            String output = new String(git.getInputStream().readAllBytes(), StandardCharsets.UTF_8).trim();
+            return git.waitFor() == 0 ? output : "desconhecido";
+        } catch (IOException e) {
+            return "desconhecido";
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return "desconhecido";
+        }
+    }
+
+    static String millis(long nanos) {
+        return String.format(Locale.ROOT, "%.2f", nanos / 1e6);
+    }
+
+    static String csv(String value) {
+        return "\"" + value.replace("\"", "\"\"") + "\"";
+    }
+
+    static int freePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+}
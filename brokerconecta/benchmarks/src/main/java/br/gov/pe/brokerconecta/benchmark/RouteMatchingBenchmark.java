@@ -0,0 +1,122 @@
+package br.gov.pe.brokerconecta.benchmark;
+
+import br.gov.pe.brokerconecta.config.ApiConfig;
+import br.gov.pe.brokerconecta.config.RouteConfig;
+import br.gov.pe.brokerconecta.routing.RouteIndex;
+import br.gov.pe.brokerconecta.routing.RouteMatch;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.http.HttpMethod;
+import org.springframework.util.AntPathMatcher;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compara a varredura linear com {@link AntPathMatcher} (implementação anterior do GatewayController)
+ * com o {@link RouteIndex} pré-compilado, para 10, 100 e 1.000 rotas.
+ * <p>
+ * Metade das rotas é literal e metade tem uma variável de caminho. A requisição procurada é a da
+ * última rota declarada, o pior caso para a varredura linear.
+ * <p>
+ * Para executar, veja o {@code README.md} do módulo benchmarks.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RouteMatchingBenchmark {
+
+    @Param({"10", "100", "1000"})
+    private int routeCount;
+
+    private final AntPathMatcher pathMatcher = new AntPathMatcher();
+    private List<RouteConfig> routes;
+    private Map<String, ApiConfig> apis;
+    private RouteIndex routeIndex;
+    private String literalPath;
+    private String variablePath;
+
+    @Setup
+    public void setUp() {
+        routes = new ArrayList<>(routeCount);
+        apis = new HashMap<>();
+        for (int i = 0; i < routeCount; i++) {
+            String api = "api-" + i;
+            ApiConfig apiConfig = new ApiConfig();
+            apiConfig.setTargetUrl("https://conecta.example/" + api);
+            apis.put(api, apiConfig);
+
+            RouteConfig route = new RouteConfig();
+            route.setId("rota-" + i);
+            route.setApi(api);
+            if (i % 2 == 0) {
+                route.setPath("/api/v1/" + api + "/consulta");
+                route.setMethod(HttpMethod.POST);
+                literalPath = route.getPath();
+            } else {
+                route.setPath("/api/v1/" + api + "/consulta/{documento}");
+                route.setMethod(HttpMethod.GET);
+                variablePath = "/api/v1/" + api + "/consulta/12345678000199";
+            }
+            routes.add(route);
+        }
+        routeIndex = RouteIndex.build(routes, apis);
+    }
+
+    @Benchmark
+    public Object linearScanLiteral() {
+        return linearScan(HttpMethod.POST, literalPath);
+    }
+
+    @Benchmark
+    public Object linearScanVariable() {
+        return linearScan(HttpMethod.GET, variablePath);
+    }
+
+    @Benchmark
+    public Object routeIndexLiteral() {
+        return routeIndex.match(HttpMethod.POST, literalPath).orElseThrow();
+    }
+
+    @Benchmark
+    public Object routeIndexVariable() {
+        return routeIndex.match(HttpMethod.GET, variablePath).orElseThrow();
+    }
+
+    /**
+     * Reproduz o caminho antigo: filtra as rotas com {@code match} e depois extrai as variáveis
+     * com um segundo parse do padrão.
+     */
+    private RouteMatch linearScan(HttpMethod method, String requestPath) {
+        RouteConfig route = routes.stream()
+                .filter(r -> r.getMethod() == method && pathMatcher.match(r.getPath(), requestPath))
+                .findFirst()
+                .orElseThrow();
+        Map<String, String> pathVariables = pathMatcher.extractUriTemplateVariables(route.getPath(), requestPath);
+        return new RouteMatch(route, apis.get(route.getApi()), pathVariables);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(RouteMatchingBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
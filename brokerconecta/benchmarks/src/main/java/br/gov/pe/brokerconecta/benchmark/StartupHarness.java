@@ -0,0 +1,151 @@
+package br.gov.pe.brokerconecta.benchmark;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Mede a subida de uma réplica do broker, iniciada em outro processo com o comando informado (jar comum,
+ * jar do perfil {@code fast-start} com CDS etc.), e acrescenta o resultado em {@code results/startup.csv}:
+ * <ul>
+ *   <li>tempo até a prontidão ({@code /actuator/health/readiness} com 200), contado do início do processo;</li>
+ *   <li>duração da primeira requisição após a prontidão (token, conexão com a API e código ainda frio);</li>
+ *   <li>tempo até a primeira resposta (a soma dos dois);</li>
+ *   <li>vazão e percentis da carga do {@link LoadGenerator} aplicada logo em seguida, por {@code duracao}
+ *   segundos (ex: o primeiro minuto).</li>
+ * </ul>
+ * Argumentos: {@code <conexoes> <duracao-em-segundos> [rotulo] -- <comando do broker>}. O broker recebe ao fim
+ * do comando o perfil {@code stub}, uma porta livre e logs em {@code WARN}, como no {@link LoadHarness}.
+ * <p>
+ * O diretório de trabalho do broker pode ser escolhido com {@code -Dstartup.directory=<dir>}: o arquivo CDS do
+ * perfil {@code fast-start} só é aceito com o mesmo classpath (relativo) da execução de treino, a partir de
+ * {@code target/fast-start}.
+ */
+public class StartupHarness {
+
+    private static final Path RESULTS = Path.of("results", "startup.csv");
+    private static final String HEADER = "commit,timestamp,label,command,ready_ms,first_request_ms,first_response_ms,"
+            + "connections,duration_s,requests,errors,throughput_rps,p50_ms,p99_ms,max_ms";
+    private static final Duration STARTUP_TIMEOUT = Duration.ofMinutes(2);
+
+    public static void main(String[] args) throws Exception {
+        int separator = Arrays.asList(args).indexOf("--");
+        if (separator < 2 || separator == args.length - 1) {
+            System.err.println("Uso: StartupHarness <conexoes> <duracao-em-segundos> [rotulo] -- <comando do broker>");
+            System.exit(2);
+        }
+        int connections = Integer.parseInt(args[0]);
+        Duration duration = Duration.ofSeconds(Long.parseLong(args[1]));
+        String label = separator > 2 ? args[2] : "padrao";
+        List<String> brokerCommand = List.of(Arrays.copyOfRange(args, separator + 1, args.length));
+
+        int port = LoadHarness.freePort();
+        String baseUrl = "http://localhost:" + port;
+        String stubUrl = baseUrl + "/stubs/conecta";
+        List<String> command = new ArrayList<>(brokerCommand);
+        command.addAll(List.of(
+                "--spring.profiles.active=stub",
+                "--server.port=" + port,
+                "--broker.apis.cpf-light-api.target-url=" + stubUrl + "/cpf",
+                "--broker.apis.cpf-light-api.token-url=" + stubUrl + "/token",
+                "--broker.audit.directory=target/audit",
+                "--logging.level.root=WARN",
+                "--logging.level.br.gov.pe.brokerconecta=WARN",
+                "--logging.level.br.gov.pe.brokerconecta.stub=WARN"));
+
+        Path log = Path.of("target", "startup-" + label + ".log").toAbsolutePath();
+        Files.createDirectories(log.getParent());
+        ProcessBuilder builder = new ProcessBuilder(command).redirectErrorStream(true).redirectOutput(log.toFile());
+        String directory = System.getProperty("startup.directory");
+        if (directory != null) {
+            builder.directory(Path.of(directory).toFile());
+        }
+        long start = System.nanoTime();
+        Process broker = builder.start();
+        try {
+            long ready = awaitReadiness(baseUrl, broker) - start;
+            LoadGenerator generator = new LoadGenerator(baseUrl);
+            long firstStart = System.nanoTime();
+            if (!generator.send()) {
+                throw new IllegalStateException("Primeira requisição falhou; veja " + log);
+            }
+            long firstRequest = System.nanoTime() - firstStart;
+            LoadGenerator.Result result = generator.run(connections, duration);
+
+            System.out.printf("prontidão=%.0f ms primeira requisição=%.1f ms primeira resposta=%.0f ms%n%s%n",
+                    ready / 1e6, firstRequest / 1e6, (ready + firstRequest) / 1e6, result);
+            append(label, String.join(" ", brokerCommand), ready, firstRequest, result);
+            System.out.println("Resultado acrescentado em " + RESULTS.toAbsolutePath());
+        } finally {
+            broker.destroy();
+            if (!broker.waitFor(30, TimeUnit.SECONDS)) {
+                broker.destroyForcibly();
+            }
+        }
+    }
+
+    /**
+     * Aguarda a prontidão do broker e devolve o instante ({@link System#nanoTime()}) em que ela foi observada.
+     */
+    private static long awaitReadiness(String baseUrl, Process broker) throws IOException, InterruptedException {
+        HttpClient client = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(1)).build();
+        HttpRequest readiness = HttpRequest.newBuilder(URI.create(baseUrl + "/actuator/health/readiness"))
+                .timeout(Duration.ofSeconds(1))
+                .build();
+        long deadline = System.nanoTime() + STARTUP_TIMEOUT.toNanos();
+        while (System.nanoTime() < deadline) {
+            if (!broker.isAlive()) {
+                throw new IllegalStateException("O broker encerrou durante a subida (código " + broker.exitValue() + ")");
+            }
+            try {
+                if (client.send(readiness, HttpResponse.BodyHandlers.discarding()).statusCode() == 200) {
+                    return System.nanoTime();
+                }
+            } catch (IOException e) {
+                // Porta ainda fechada
+            }
+            Thread.sleep(10);
+        }
+        throw new IllegalStateException("O broker não ficou pronto em " + STARTUP_TIMEOUT);
+    }
+
+    private static void append(String label, String command, long ready, long firstRequest,
+                               LoadGenerator.Result result) throws IOException {
+        Files.createDirectories(RESULTS.getParent());
+        StringBuilder lines = new StringBuilder();
+        if (Files.notExists(RESULTS)) {
+            lines.append(HEADER).append('\n');
+        }
+        lines.append(String.join(",",
+                LoadHarness.commit(),
+                OffsetDateTime.now().truncatedTo(ChronoUnit.SECONDS).toString(),
+                LoadHarness.csv(label),
+                LoadHarness.csv(command),
+                LoadHarness.millis(ready),
+                LoadHarness.millis(firstRequest),
+                LoadHarness.millis(ready + firstRequest),
+                Integer.toString(result.connections()),
+                Long.toString(result.duration().toSeconds()),
+                Long.toString(result.requests()),
+                Long.toString(result.errors()),
+                String.format(Locale.ROOT, "%.1f", result.throughput()),
+                LoadHarness.millis(result.p50()),
+                LoadHarness.millis(result.p99()),
+                LoadHarness.millis(result.max()))).append('\n');
+        Files.writeString(RESULTS, lines, StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+    }
+}
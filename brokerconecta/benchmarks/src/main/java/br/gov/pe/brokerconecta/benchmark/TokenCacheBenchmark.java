@@ -0,0 +1,85 @@
+package br.gov.pe.brokerconecta.benchmark;
+
+import br.gov.pe.brokerconecta.authorization.ResolvedPermission;
+import br.gov.pe.brokerconecta.config.ApiConfig;
+import br.gov.pe.brokerconecta.config.ApiPermissionConfig;
+import br.gov.pe.brokerconecta.config.BrokerProperties;
+import br.gov.pe.brokerconecta.config.CacheConfig;
+import br.gov.pe.brokerconecta.metrics.GatewayMetrics;
+import br.gov.pe.brokerconecta.service.TokenManagerService;
+import br.gov.pe.brokerconecta.service.UpstreamClientRegistry;
+import br.gov.pe.brokerconecta.token.CachedToken;
+import br.gov.pe.brokerconecta.token.LocalTokenStore;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Caminho de uma requisição com o token já em cache ({@link TokenManagerService#getAccessToken}): consulta ao
+ * cache local, métrica de acerto e registro de uso para a renovação antecipada. Sem chamadas ao provedor.
+ * A variante com 4 threads mostra a disputa pela mesma entrada do cache.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TokenCacheBenchmark {
+
+    private TokenManagerService tokenManagerService;
+    private ResolvedPermission permission;
+
+    @Setup
+    public void setUp() {
+        ApiConfig api = new ApiConfig();
+        api.setTargetUrl("https://conecta.example/cpf");
+        api.setTokenUrl("https://conecta.example/token");
+        ApiPermissionConfig credentials = new ApiPermissionConfig();
+        credentials.setClientId("client-id");
+        credentials.setClientSecret("secret");
+        permission = new ResolvedPermission("cpf-light-api", credentials, api, "Basic Y2xpZW50LWlkOnNlY3JldA==");
+
+        LocalTokenStore tokenStore = new LocalTokenStore(new CacheConfig().cacheManager().getCache("tokens"));
+        Instant expiresAt = Instant.now().plus(Duration.ofHours(2));
+        tokenStore.acquire(permission.clientId(), null,
+                        () -> Mono.just(new CachedToken("token", expiresAt, expiresAt.minus(Duration.ofMinutes(5)))))
+                .block();
+
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        tokenManagerService = new TokenManagerService(new UpstreamClientRegistry(WebClient.builder()), tokenStore,
+                new BrokerProperties(), meterRegistry, new GatewayMetrics(meterRegistry));
+    }
+
+    @TearDown
+    public void tearDown() {
+        tokenManagerService.cancelScheduledRefreshes();
+    }
+
+    @Benchmark
+    public String cachedToken() {
+        return tokenManagerService.getAccessToken(permission).block();
+    }
+
+    @Benchmark
+    @Threads(4)
+    public String cachedTokenContended() {
+        return tokenManagerService.getAccessToken(permission).block();
+    }
+}
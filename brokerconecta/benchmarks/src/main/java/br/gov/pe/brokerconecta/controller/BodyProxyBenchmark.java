@@ -0,0 +1,90 @@
+package br.gov.pe.brokerconecta.controller;
+
+import br.gov.pe.brokerconecta.config.ProxyConfig;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.core.io.buffer.NettyDataBufferFactory;
+import org.springframework.http.ResponseEntity;
+import org.springframework.mock.web.MockHttpServletResponse;
+import io.netty.buffer.PooledByteBufAllocator;
+import reactor.core.publisher.Flux;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Repasse do corpo da resposta da API de destino para o cliente, nos dois modos do broker:
+ * <ul>
+ *   <li>{@code buffered}: os blocos recebidos são juntados em um {@code byte[]} e escritos de uma vez
+ *       (modo buffer, {@code broker.proxy.streaming=false});</li>
+ *   <li>{@code streaming}: os blocos são escritos à medida que chegam ({@link StreamingProxyResponse}).</li>
+ * </ul>
+ * Os blocos são buffers do Netty, como os entregues pelo WebClient, e a saída descarta os bytes.
+ * Fica no pacote do controller para usar a {@link StreamingProxyResponse}, visível só no pacote.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BodyProxyBenchmark {
+
+    // Tamanho de um bloco recebido do Reactor Netty
+    private static final int CHUNK_SIZE = 8192;
+
+    @Param({"1024", "65536", "1048576"})
+    private int bodySize;
+
+    private final NettyDataBufferFactory bufferFactory = new NettyDataBufferFactory(PooledByteBufAllocator.DEFAULT);
+    private final ProxyConfig proxyConfig = new ProxyConfig();
+    private byte[] body;
+
+    @Setup
+    public void setUp() {
+        body = new byte[bodySize];
+        ThreadLocalRandom.current().nextBytes(body);
+    }
+
+    @Benchmark
+    public int buffered() throws IOException {
+        DataBuffer joined = DataBufferUtils.join(upstreamBody()).block();
+        byte[] bytes = new byte[joined.readableByteCount()];
+        joined.read(bytes);
+        DataBufferUtils.release(joined);
+        OutputStream.nullOutputStream().write(bytes);
+        return bytes.length;
+    }
+
+    @Benchmark
+    public long streaming() throws IOException {
+        long[] written = new long[1];
+        new StreamingProxyResponse(ResponseEntity.ok(upstreamBody()), new MockHttpServletResponse(), proxyConfig,
+                bytes -> written[0] = bytes)
+                .writeTo(OutputStream.nullOutputStream());
+        return written[0];
+    }
+
+    private Flux<DataBuffer> upstreamBody() {
+        return Flux.range(0, (bodySize + CHUNK_SIZE - 1) / CHUNK_SIZE).map(index -> {
+            int offset = index * CHUNK_SIZE;
+            int length = Math.min(CHUNK_SIZE, bodySize - offset);
+            DataBuffer chunk = bufferFactory.allocateBuffer(length);
+            chunk.write(body, offset, length);
+            return chunk;
+        });
+    }
+}
@@ -0,0 +1,226 @@
+package br.gov.pe.brokerconecta.audit;
+
+import br.gov.pe.brokerconecta.config.AuditConfig;
+import br.gov.pe.brokerconecta.config.BrokerProperties;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.concurrent.locks.LockSupport;
+import java.util.stream.Stream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Auditoria das requisições intermediadas pelo broker: um {@link AuditRecord} por requisição, gravado em
+ * arquivos JSON Lines compactados ({@code audit-<data-hora>.jsonl.gz}) em {@code broker.audit.directory}.
+ * <p>
+ * A thread da requisição só enfileira o registro em um {@link AuditRingBuffer} (sem travas e sem I/O). Uma
+ * única thread de escrita retira os registros em lotes, mascara CPFs e CNPJs, grava e descarrega o gzip
+ * ({@code SYNC_FLUSH}) a cada lote: um arquivo interrompido por uma queda continua legível até o último lote.
+ * O arquivo é trocado ao atingir {@code max-file-size} ou na virada do dia, mantendo {@code max-history} arquivos.
+ * <p>
+ * Com o buffer cheio (disco lento ou pico de carga), o registro é descartado e contado em
+ * {@code broker.audit.records{result=dropped}}: a auditoria nunca atrasa uma requisição.
+ */
+@Component
+@Slf4j
+public class AuditLog {
+
+    private static final String FILE_PREFIX = "audit-";
+    private static final String FILE_SUFFIX = ".jsonl.gz";
+    private static final DateTimeFormatter FILE_TIMESTAMP = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss-SSS");
+    private static final int GZIP_BUFFER_SIZE = 64 * 1024;
+
+    private final AuditConfig config;
+    private final ObjectWriter objectWriter;
+    private final AuditRingBuffer<AuditRecord> buffer;
+    private final Counter written;
+    private final Counter dropped;
+    private final Counter failed;
+    private final Thread writerThread;
+    private volatile boolean running;
+
+    // Estado da thread de escrita
+    private OutputStream output;
+    private CountingOutputStream fileBytes;
+    private LocalDate fileDate;
+
+    public AuditLog(BrokerProperties brokerProperties, ObjectMapper objectMapper, MeterRegistry meterRegistry) {
+        this.config = brokerProperties.getAudit();
+        this.objectWriter = objectMapper.writerFor(AuditRecord.class);
+        this.written = auditCounter(meterRegistry, "written");
+        this.dropped = auditCounter(meterRegistry, "dropped");
+        this.failed = auditCounter(meterRegistry, "failed");
+        if (!config.isEnabled()) {
+            this.buffer = null;
+            this.writerThread = null;
+            return;
+        }
+
+        this.buffer = new AuditRingBuffer<>(config.getBufferSize());
+        Gauge.builder("broker.audit.buffer", buffer, AuditRingBuffer::size)
+                .description("Registros de auditoria aguardando gravação")
+                .register(meterRegistry);
+        this.running = true;
+        this.writerThread = Thread.ofPlatform().name("audit-writer").daemon().start(this::runWriter);
+        log.info("Auditoria ativa: {} (buffer de {} registros)", Path.of(config.getDirectory()).toAbsolutePath(), buffer.capacity());
+    }
+
+    private static Counter auditCounter(MeterRegistry meterRegistry, String result) {
+        return Counter.builder("broker.audit.records")
+                .description("Registros de auditoria gravados, descartados (buffer cheio) ou perdidos (erro de escrita)")
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+
+    /**
+     * Enfileira o registro para gravação, sem bloquear. Não faz nada com a auditoria desativada.
+     */
+    public void record(AuditRecord record) {
+        if (buffer != null && !buffer.offer(record)) {
+            dropped.increment();
+        }
+    }
+
+    private void runWriter() {
+        long idleNanos = config.getFlushInterval().toNanos();
+        while (running || buffer.size() > 0) {
+            if (drainBatch() == 0) {
+                LockSupport.parkNanos(idleNanos);
+            }
+        }
+        closeFile();
+    }
+
+    /**
+     * Grava até {@code batch-size} registros e descarrega o arquivo. Devolve quantos foram retirados do buffer.
+     */
+    private int drainBatch() {
+        int count = 0;
+        try {
+            AuditRecord record;
+            while (count < config.getBatchSize() && (record = buffer.poll()) != null) {
+                count++;
+                byte[] line = objectWriter.writeValueAsBytes(record.masked());
+                currentOutput().write(line);
+                output.write('\n');
+            }
+            if (count > 0) {
+                output.flush();
+                written.increment(count);
+            }
+        } catch (IOException | RuntimeException e) {
+            log.error("Falha ao gravar a auditoria em {}: {}. {} registro(s) perdido(s).", config.getDirectory(), e.getMessage(), count);
+            failed.increment(count);
+            closeFile();
+            // Evita repetir a falha (e o log) em sequência enquanto o disco não se recupera
+            LockSupport.parkNanos(config.getFlushInterval().toNanos());
+        }
+        return count;
+    }
+
+    /**
+     * Arquivo atual, trocado ao atingir o tamanho máximo ou na virada do dia.
+     */
+    private OutputStream currentOutput() throws IOException {
+        LocalDate today = LocalDate.now();
+        if (output != null && today.equals(fileDate) && fileBytes.count < config.getMaxFileSize().toBytes()) {
+            return output;
+        }
+        closeFile();
+
+        Path directory = Path.of(config.getDirectory());
+        Files.createDirectories(directory);
+        Path file = directory.resolve(FILE_PREFIX + FILE_TIMESTAMP.format(Instant.now().atZone(ZoneId.systemDefault())) + FILE_SUFFIX);
+        fileBytes = new CountingOutputStream(Files.newOutputStream(file));
+        output = new BufferedOutputStream(new GZIPOutputStream(fileBytes, GZIP_BUFFER_SIZE, true), GZIP_BUFFER_SIZE);
+        fileDate = today;
+        log.debug("Novo arquivo de auditoria: {}", file);
+        deleteOldFiles(directory);
+        return output;
+    }
+
+    private void deleteOldFiles(Path directory) throws IOException {
+        List<Path> files;
+        try (Stream<Path> listing = Files.list(directory)) {
+            // O nome começa pela data e hora, então a ordem alfabética é a cronológica
+            files = listing.filter(path -> {
+                        String name = path.getFileName().toString();
+                        return name.startsWith(FILE_PREFIX) && name.endsWith(FILE_SUFFIX);
+                    })
+                    .sorted()
+                    .toList();
+        }
+        for (int i = 0; i < files.size() - config.getMaxHistory(); i++) {
+            Files.deleteIfExists(files.get(i));
+        }
+    }
+
+    private void closeFile() {
+        if (output == null) {
+            return;
+        }
+        try {
+            output.close();
+        } catch (IOException e) {
+            log.warn("Falha ao fechar o arquivo de auditoria: {}", e.getMessage());
+        }
+        output = null;
+        fileBytes = null;
+    }
+
+    /**
+     * Interrompe a recepção e aguarda a gravação dos registros já enfileirados.
+     */
+    @PreDestroy
+    public void close() throws InterruptedException {
+        if (writerThread == null) {
+            return;
+        }
+        running = false;
+        LockSupport.unpark(writerThread);
+        if (!writerThread.join(Duration.ofSeconds(10))) {
+            log.warn("Auditoria encerrada com {} registro(s) ainda no buffer.", buffer.size());
+        }
+    }
+
+    /**
+     * Conta os bytes já compactados gravados no arquivo, para a troca por tamanho.
+     */
+    private static final class CountingOutputStream extends FilterOutputStream {
+        private long count;
+
+        private CountingOutputStream(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            count += len;
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package br.gov.pe.brokerconecta.audit;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import java.time.Instant;
+
+/**
+ * Registro de auditoria de uma requisição intermediada pelo broker, gravado como uma linha JSON.
+ * CPFs e CNPJs no caminho e no header do usuário são mascarados pela thread de escrita ({@link #masked()}),
+ * fora da thread da requisição.
+ *
+ * @param timestamp     instante em que a requisição terminou.
+ * @param client        identificador X-Road do cliente.
+ * @param route         ID da rota, ou {@code null} se a requisição foi rejeitada antes de a rota ser identificada.
+ * @param api           API de destino.
+ * @param method        método HTTP.
+ * @param path          caminho da requisição.
+ * @param userCpf       CPF do usuário final ({@code x-cpf-usuario}).
+ * @param status        status HTTP da resposta (da API de destino ou do próprio broker).
+ * @param error         tipo do erro, quando a requisição terminou com uma exceção.
+ * @param durationMs    duração total no broker.
+ * @param routeMs       identificação da rota e autorização do cliente.
+ * @param tokenMs       obtenção do token; ausente quando a requisição não fez chamada própria à API
+ *                      (resposta em cache, requisição idêntica em andamento ou lote agrupado).
+ * @param upstreamMs    chamada à API de destino; ausente nos mesmos casos de {@code tokenMs}.
+ * @param requestBytes  tamanho do corpo da requisição, quando conhecido.
+ * @param responseBytes tamanho do corpo da resposta, quando conhecido.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record AuditRecord(Instant timestamp,
+                          String client,
+                          String route,
+                          String api,
+                          String method,
+                          String path,
+                          String userCpf,
+                          Integer status,
+                          String error,
+                          Double durationMs,
+                          Double routeMs,
+                          Double tokenMs,
+                          Double upstreamMs,
+                          Long requestBytes,
+                          Long responseBytes) {
+
+    AuditRecord masked() {
+        return new AuditRecord(timestamp, client, route, api, method, SensitiveDataMasker.mask(path),
+                SensitiveDataMasker.mask(userCpf), status, error, durationMs, routeMs, tokenMs, upstreamMs,
+                requestBytes, responseBytes);
+    }
+}
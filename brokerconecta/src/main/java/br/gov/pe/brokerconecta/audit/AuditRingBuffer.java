@@ -0,0 +1,82 @@
+package br.gov.pe.brokerconecta.audit;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Fila circular limitada e sem travas, com vários produtores (threads das requisições) e um único consumidor
+ * (thread de escrita da auditoria).
+ * <p>
+ * Cada posição do array guarda um número de sequência que indica se ela está livre para o produtor da volta
+ * atual ou preenchida para o consumidor (algoritmo de D. Vyukov). O produtor reserva a posição com um único
+ * compare-and-set; com a fila cheia, {@link #offer} devolve {@code false} na hora, sem esperar.
+ */
+final class AuditRingBuffer<T> {
+
+    private final Object[] values;
+    private final AtomicLongArray sequences;
+    private final int mask;
+    private final AtomicLong tail = new AtomicLong();
+    // Só o consumidor altera; volátil para a leitura de size() por outras threads
+    private volatile long head;
+
+    AuditRingBuffer(int requestedCapacity) {
+        int capacity = Integer.highestOneBit(Math.max(2, requestedCapacity - 1)) << 1;
+        this.values = new Object[capacity];
+        this.sequences = new AtomicLongArray(capacity);
+        this.mask = capacity - 1;
+        for (int i = 0; i < capacity; i++) {
+            sequences.set(i, i);
+        }
+    }
+
+    /**
+     * Enfileira o valor, ou devolve {@code false} se a fila estiver cheia.
+     */
+    boolean offer(T value) {
+        long position = tail.get();
+        while (true) {
+            int index = (int) (position & mask);
+            long difference = sequences.get(index) - position;
+            if (difference == 0) {
+                if (tail.compareAndSet(position, position + 1)) {
+                    values[index] = value;
+                    // Publica o valor para o consumidor
+                    sequences.set(index, position + 1);
+                    return true;
+                }
+                position = tail.get();
+            } else if (difference < 0) {
+                return false;
+            } else {
+                position = tail.get();
+            }
+        }
+    }
+
+    /**
+     * Retira o próximo valor, ou {@code null} se a fila estiver vazia. Só pode ser chamado pelo consumidor.
+     */
+    @SuppressWarnings("unchecked")
+    T poll() {
+        long position = head;
+        int index = (int) (position & mask);
+        if (sequences.get(index) != position + 1) {
+            return null;
+        }
+        T value = (T) values[index];
+        values[index] = null;
+        // Libera a posição para o produtor da próxima volta
+        sequences.set(index, position + mask + 1);
+        head = position + 1;
+        return value;
+    }
+
+    int size() {
+        return (int) Math.max(0, tail.get() - head);
+    }
+
+    int capacity() {
+        return values.length;
+    }
+}
@@ -0,0 +1,51 @@
+package br.gov.pe.brokerconecta.audit;
+
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Mascara CPFs e CNPJs (com ou sem pontuação) antes de irem para a auditoria: ficam visíveis só os três
+ * primeiros e os dois últimos dígitos, o suficiente para conferir um registro sem expor o documento (LGPD).
+ * Ex: {@code 11122233344} → {@code 111******44}; {@code 12.345.678/0001-90} → {@code 123*********90}.
+ */
+final class SensitiveDataMasker {
+
+    // CNPJ antes de CPF: os 11 primeiros dígitos de um CNPJ também casariam como CPF
+    private static final Pattern DOCUMENT = Pattern.compile(
+            "(?<!\\d)(\\d{2}\\.?\\d{3}\\.?\\d{3}/?\\d{4}-?\\d{2}|\\d{3}\\.?\\d{3}\\.?\\d{3}-?\\d{2})(?!\\d)");
+
+    private static final int VISIBLE_PREFIX = 3;
+    private static final int VISIBLE_SUFFIX = 2;
+
+    private SensitiveDataMasker() {
+    }
+
+    static String mask(String value) {
+        if (value == null || value.isEmpty()) {
+            return value;
+        }
+        Matcher matcher = DOCUMENT.matcher(value);
+        if (!matcher.find()) {
+            return value;
+        }
+        StringBuilder masked = new StringBuilder(value.length());
+        do {
+            matcher.appendReplacement(masked, maskDigits(matcher.group()));
+        } while (matcher.find());
+        matcher.appendTail(masked);
+        return masked.toString();
+    }
+
+    private static String maskDigits(String document) {
+        StringBuilder digits = new StringBuilder(document.length());
+        for (int i = 0; i < document.length(); i++) {
+            if (Character.isDigit(document.charAt(i))) {
+                digits.append(document.charAt(i));
+            }
+        }
+        for (int i = VISIBLE_PREFIX; i < digits.length() - VISIBLE_SUFFIX; i++) {
+            digits.setCharAt(i, '*');
+        }
+        return digits.toString();
+    }
+}
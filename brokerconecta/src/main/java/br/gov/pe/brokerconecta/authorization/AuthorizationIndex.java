@@ -0,0 +1,91 @@
+package br.gov.pe.brokerconecta.authorization;
+
+import br.gov.pe.brokerconecta.config.ApiConfig;
+import br.gov.pe.brokerconecta.config.ApiPermissionConfig;
+import br.gov.pe.brokerconecta.config.ClientConfig;
+import br.gov.pe.brokerconecta.projection.FieldProjection;
+import lombok.extern.slf4j.Slf4j;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.stream.Stream;
+
+/**
+ * Índice imutável de autorização: X-Road ID → nome da API → {@link ResolvedPermission}.
+ * <p>
+ * É montado uma única vez a partir de {@code broker.clients} e {@code broker.apis}, de modo que
+ * identificar o cliente e obter suas credenciais custa duas consultas em {@link HashMap},
+ * independentemente da quantidade de órgãos configurados.
+ */
+@Slf4j
+public final class AuthorizationIndex {
+
+    private final Map<String, Map<String, ResolvedPermission>> byXRoadId;
+    private final Map<String, ClientConfig> clientsByXRoadId;
+
+    private AuthorizationIndex(Map<String, Map<String, ResolvedPermission>> byXRoadId,
+                               Map<String, ClientConfig> clientsByXRoadId) {
+        this.byXRoadId = byXRoadId;
+        this.clientsByXRoadId = clientsByXRoadId;
+    }
+
+    public static AuthorizationIndex build(Map<String, ClientConfig> clients, Map<String, ApiConfig> apis) {
+        Map<String, Map<String, ResolvedPermission>> byXRoadId = new HashMap<>();
+        Map<String, ClientConfig> clientsByXRoadId = new HashMap<>();
+        if (clients == null) {
+            return new AuthorizationIndex(byXRoadId, clientsByXRoadId);
+        }
+
+        clients.forEach((clientKey, clientConfig) -> {
+            String xRoadId = clientConfig.getXRoadId();
+            if (xRoadId == null) {
+                log.warn("Cliente '{}' ignorado: xRoadId não configurado.", clientKey);
+                return;
+            }
+            if (byXRoadId.containsKey(xRoadId)) {
+                // Mantém o comportamento anterior: vale o primeiro cliente declarado com o mesmo X-Road ID.
+                log.warn("Cliente '{}' ignorado: X-Road ID '{}' já pertence a outro cliente.", clientKey, xRoadId);
+                return;
+            }
+
+            Map<String, ResolvedPermission> permissions = new HashMap<>();
+            if (clientConfig.getAuthorizedApis() != null) {
+                clientConfig.getAuthorizedApis().forEach((apiName, permission) -> permissions.put(apiName,
+                        new ResolvedPermission(apiName, permission, apis != null ? apis.get(apiName) : null, basicAuthHeader(permission),
+                                FieldProjection.of(permission.getProjection()))));
+            }
+            byXRoadId.put(xRoadId, Map.copyOf(permissions));
+            clientsByXRoadId.put(xRoadId, clientConfig);
+        });
+        return new AuthorizationIndex(Map.copyOf(byXRoadId), Map.copyOf(clientsByXRoadId));
+    }
+
+    /**
+     * Retorna as permissões do cliente, ou {@code null} se o X-Road ID não estiver configurado.
+     */
+    public Map<String, ResolvedPermission> findClient(String xRoadId) {
+        return byXRoadId.get(xRoadId);
+    }
+
+    /**
+     * Retorna a configuração do cliente (peso e prioridade na fila de admissão), ou {@code null} se o
+     * X-Road ID não estiver configurado.
+     */
+    public ClientConfig findClientConfig(String xRoadId) {
+        return clientsByXRoadId.get(xRoadId);
+    }
+
+    /**
+     * Todas as permissões de todos os clientes.
+     */
+    public Stream<ResolvedPermission> permissions() {
+        return byXRoadId.values().stream().flatMap(permissions -> permissions.values().stream());
+    }
+
+    private static String basicAuthHeader(ApiPermissionConfig permission) {
+        String auth = permission.getClientId() + ":" + permission.getClientSecret();
+        return "Basic " + Base64.getEncoder().encodeToString(auth.getBytes(StandardCharsets.UTF_8));
+    }
+}
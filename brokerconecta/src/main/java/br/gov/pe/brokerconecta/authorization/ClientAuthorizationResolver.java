@@ -0,0 +1,84 @@
+package br.gov.pe.brokerconecta.authorization;
+
+import br.gov.pe.brokerconecta.exception.UnknownClientException;
+import br.gov.pe.brokerconecta.snapshot.BrokerSnapshot;
+import br.gov.pe.brokerconecta.snapshot.BrokerSnapshotHolder;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Map;
+
+/**
+ * Resolve cliente X-Road e permissão de API a partir de um {@link AuthorizationIndex} pré-computado.
+ * <p>
+ * O índice faz parte da configuração em vigor ({@link BrokerSnapshotHolder}), publicada por uma referência
+ * volátil: uma requisição sempre enxerga um índice completo, nunca uma troca pela metade.
+ * <p>
+ * X-Road IDs desconhecidos vão para um cache negativo limitado, que guarda a exceção de rejeição já
+ * montada. Assim um cliente mal configurado repetindo chamadas não gera alocação nem log de aviso a
+ * cada requisição. O cache negativo pertence a uma versão da configuração e é descartado quando ela muda,
+ * pois um cliente antes desconhecido pode ter sido incluído.
+ */
+@Component
+@Slf4j
+public class ClientAuthorizationResolver {
+
+    private static final int UNKNOWN_CLIENTS_MAX_SIZE = 1_000;
+    private static final Duration UNKNOWN_CLIENTS_TTL = Duration.ofMinutes(5);
+
+    private final BrokerSnapshotHolder snapshotHolder;
+    private volatile UnknownClients unknownClients;
+
+    public ClientAuthorizationResolver(BrokerSnapshotHolder snapshotHolder) {
+        this.snapshotHolder = snapshotHolder;
+        this.unknownClients = new UnknownClients(snapshotHolder.current());
+    }
+
+    /**
+     * Encontra a permissão (e as credenciais) do cliente identificado pelo header X-Road-Client para a API informada.
+     */
+    public ResolvedPermission resolve(String xRoadId, String apiName) {
+        BrokerSnapshot snapshot = snapshotHolder.current();
+        Map<String, ResolvedPermission> permissions = snapshot.authorizationIndex().findClient(xRoadId);
+        if (permissions == null) {
+            throw unknownClientsOf(snapshot).get(xRoadId, id -> {
+                log.warn("X-Road ID '{}' não configurado. Novas tentativas nos próximos {} min serão rejeitadas pelo cache negativo.",
+                        id, UNKNOWN_CLIENTS_TTL.toMinutes());
+                return new UnknownClientException(id);
+            });
+        }
+
+        ResolvedPermission permission = permissions.get(apiName);
+        if (permission == null) {
+            throw new SecurityException("Acesso negado. O cliente não tem permissão para acessar a API '" + apiName + "'.");
+        }
+        return permission;
+    }
+
+    private Cache<String, UnknownClientException> unknownClientsOf(BrokerSnapshot snapshot) {
+        UnknownClients current = unknownClients;
+        if (current.snapshot != snapshot) {
+            current = new UnknownClients(snapshot);
+            unknownClients = current;
+        }
+        return current.cache;
+    }
+
+    /**
+     * Cache negativo de uma versão da configuração.
+     */
+    private static final class UnknownClients {
+        private final BrokerSnapshot snapshot;
+        private final Cache<String, UnknownClientException> cache = Caffeine.newBuilder()
+                .maximumSize(UNKNOWN_CLIENTS_MAX_SIZE)
+                .expireAfterWrite(UNKNOWN_CLIENTS_TTL)
+                .build();
+
+        private UnknownClients(BrokerSnapshot snapshot) {
+            this.snapshot = snapshot;
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package br.gov.pe.brokerconecta.authorization;
+
+import br.gov.pe.brokerconecta.config.ApiConfig;
+import br.gov.pe.brokerconecta.config.ApiPermissionConfig;
+import br.gov.pe.brokerconecta.projection.FieldProjection;
+
+/**
+ * Permissão de um cliente X-Road para uma API, já combinada com a configuração da API
+ * e com o header {@code Authorization: Basic ...} usado no endpoint de token pré-codificado.
+ *
+ * @param apiName         nome da API autorizada.
+ * @param permission      credenciais configuradas em {@code authorizedApis}.
+ * @param apiConfig       configuração da API de destino, ou {@code null} se a API não estiver configurada.
+ * @param basicAuthHeader valor pronto do header Basic com {@code clientId:clientSecret}.
+ * @param projection      campos da resposta que o cliente recebe da API, ou {@code null} se não houver restrição.
+ */
+public record ResolvedPermission(String apiName,
+                                 ApiPermissionConfig permission,
+                                 ApiConfig apiConfig,
+                                 String basicAuthHeader,
+                                 FieldProjection projection) {
+
+    /**
+     * Permissão sem projeção da resposta.
+     */
+    public ResolvedPermission(String apiName, ApiPermissionConfig permission, ApiConfig apiConfig, String basicAuthHeader) {
+        this(apiName, permission, apiConfig, basicAuthHeader, null);
+    }
+
+    public String clientId() {
+        return permission.getClientId();
+    }
+}
@@ -0,0 +1,296 @@
+package br.gov.pe.brokerconecta.batch;
+
+import br.gov.pe.brokerconecta.config.BatchConfig;
+import br.gov.pe.brokerconecta.service.ProxyRequest;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.MonoSink;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * Divide e agrupa consultas em lote das rotas com {@code batch} configurado:
+ * <ul>
+ *     <li>Listas maiores que {@code maxBatchSize} são divididas em sub-requisições, enviadas em paralelo
+ *     (até {@code maxConcurrency}) e cujos arrays de resposta são concatenados na ordem original.</li>
+ *     <li>Com {@code window} maior que zero, requisições pequenas do mesmo cliente que chegam dentro da janela
+ *     são enviadas em uma única chamada, e cada uma recebe apenas os itens que consultou.</li>
+ * </ul>
+ * Requisições só são agrupadas se tiverem a mesma rota, o mesmo cliente X-Road, as mesmas variáveis de caminho,
+ * o mesmo corpo (fora a lista) e os mesmos {@code partitionHeaders}. Se alguma sub-requisição devolver erro,
+ * essa resposta é devolvida no lugar da resposta combinada.
+ */
+@Component
+@Slf4j
+@RequiredArgsConstructor
+public class BatchingStage {
+
+    private final ObjectMapper objectMapper;
+    private final Map<GroupKey, PendingBatch> pendingBatches = new ConcurrentHashMap<>();
+
+    public Mono<ResponseEntity<byte[]>> forward(ProxyRequest proxyRequest,
+                                                Function<ProxyRequest, Mono<ResponseEntity<byte[]>>> upstream) {
+        BatchConfig config = proxyRequest.route().getBatch();
+        JsonNode body = config != null ? parse(proxyRequest.body()) : null;
+        if (!(body instanceof ObjectNode objectBody) || !(objectBody.get(config.getItemField()) instanceof ArrayNode items)) {
+            return Mono.defer(() -> upstream.apply(proxyRequest));
+        }
+
+        if (items.size() > config.getMaxBatchSize()) {
+            return split(proxyRequest, upstream, config, objectBody, items);
+        }
+        if (!config.getWindow().isZero() && !items.isEmpty()) {
+            return enqueue(proxyRequest, upstream, config, objectBody, items);
+        }
+        return Mono.defer(() -> upstream.apply(proxyRequest));
+    }
+
+    private Mono<ResponseEntity<byte[]>> split(ProxyRequest proxyRequest,
+                                               Function<ProxyRequest, Mono<ResponseEntity<byte[]>>> upstream,
+                                               BatchConfig config, ObjectNode body, ArrayNode items) {
+        List<ProxyRequest> parts = new ArrayList<>();
+        for (int start = 0; start < items.size(); start += config.getMaxBatchSize()) {
+            ArrayNode part = objectMapper.createArrayNode();
+            for (int i = start; i < Math.min(start + config.getMaxBatchSize(), items.size()); i++) {
+                part.add(items.get(i));
+            }
+            parts.add(proxyRequest.withBody(bodyWithItems(body, config, part)));
+        }
+        log.debug("Roteamento ID [{}]. Lista com {} itens dividida em {} sub-requisições.",
+                proxyRequest.route().getId(), items.size(), parts.size());
+
+        return Flux.fromIterable(parts)
+                // Preserva a ordem das partes, mesmo com as chamadas em paralelo
+                .flatMapSequential(part -> Mono.defer(() -> upstream.apply(part)), config.getMaxConcurrency())
+                .collectList()
+                .map(this::concatenate);
+    }
+
+    /**
+     * Junta os arrays das respostas das partes. Se alguma parte não teve sucesso, devolve a resposta dela.
+     */
+    private ResponseEntity<byte[]> concatenate(List<ResponseEntity<byte[]>> responses) {
+        List<byte[]> allItems = new ArrayList<>();
+        for (ResponseEntity<byte[]> response : responses) {
+            if (!(isSuccessful(response) && parse(response.getBody()) instanceof ArrayNode responseItems)) {
+                return response;
+            }
+            responseItems.forEach(item -> allItems.add(toBytes(item)));
+        }
+        ResponseEntity<byte[]> first = responses.get(0);
+        return ResponseEntity.status(first.getStatusCode()).headers(withoutContentLength(first.getHeaders()))
+                .body(toJsonArray(allItems));
+    }
+
+    private Mono<ResponseEntity<byte[]>> enqueue(ProxyRequest proxyRequest,
+                                                 Function<ProxyRequest, Mono<ResponseEntity<byte[]>>> upstream,
+                                                 BatchConfig config, ObjectNode body, ArrayNode items) {
+        GroupKey key = groupKey(proxyRequest, config, body);
+        List<String> requested = new ArrayList<>(items.size());
+        items.forEach(item -> requested.add(item.asText()));
+
+        return Mono.create(sink -> {
+            Waiter waiter = new Waiter(proxyRequest, body, requested, sink);
+            while (true) {
+                PendingBatch batch = pendingBatches.computeIfAbsent(key, k -> openBatch(k, config, upstream));
+                AddResult result = batch.add(waiter, config.getMaxBatchSize());
+                if (result == AddResult.ADDED) {
+                    return;
+                }
+                if (result == AddResult.ADDED_FULL) {
+                    flush(batch);
+                    return;
+                }
+                // Lote encerrado ou sem espaço: envia o atual e tenta em um novo
+                flush(batch);
+            }
+        });
+    }
+
+    private PendingBatch openBatch(GroupKey key, BatchConfig config,
+                                   Function<ProxyRequest, Mono<ResponseEntity<byte[]>>> upstream) {
+        PendingBatch batch = new PendingBatch(key, config, upstream);
+        Mono.delay(config.getWindow()).subscribe(tick -> flush(batch));
+        return batch;
+    }
+
+    private void flush(PendingBatch batch) {
+        List<Waiter> waiters = batch.close();
+        if (waiters == null) {
+            return; // Já enviado
+        }
+        pendingBatches.remove(batch.key, batch);
+        if (waiters.isEmpty()) {
+            return; // Janela encerrada antes de a primeira requisição entrar no lote
+        }
+        if (waiters.size() == 1) {
+            Waiter only = waiters.get(0);
+            Mono.defer(() -> batch.upstream.apply(only.proxyRequest)).subscribe(only.sink::success, only.sink::error);
+            return;
+        }
+
+        Set<String> allItems = new LinkedHashSet<>();
+        waiters.forEach(waiter -> allItems.addAll(waiter.requested));
+        ArrayNode itemsNode = objectMapper.createArrayNode();
+        allItems.forEach(itemsNode::add);
+        Waiter template = waiters.get(0);
+        ProxyRequest batchRequest = template.proxyRequest.withBody(bodyWithItems(template.body, batch.config, itemsNode));
+        log.debug("Roteamento ID [{}]. {} requisições agrupadas em uma chamada com {} itens.",
+                template.proxyRequest.route().getId(), waiters.size(), allItems.size());
+
+        Mono.defer(() -> batch.upstream.apply(batchRequest)).subscribe(
+                response -> fanOut(response, waiters, batch.config),
+                error -> waiters.forEach(waiter -> waiter.sink.error(error)));
+    }
+
+    /**
+     * Entrega a cada requisição agrupada apenas os itens que ela consultou, na sua ordem.
+     */
+    private void fanOut(ResponseEntity<byte[]> response, List<Waiter> waiters, BatchConfig config) {
+        if (!(isSuccessful(response) && parse(response.getBody()) instanceof ArrayNode responseItems)) {
+            waiters.forEach(waiter -> waiter.sink.success(response));
+            return;
+        }
+        Map<String, byte[]> byKey = new HashMap<>();
+        for (JsonNode item : responseItems) {
+            JsonNode itemKey = item.get(config.getResponseItemKey());
+            if (itemKey != null) {
+                byKey.putIfAbsent(itemKey.asText(), toBytes(item));
+            }
+        }
+        HttpHeaders headers = withoutContentLength(response.getHeaders());
+        for (Waiter waiter : waiters) {
+            List<byte[]> items = new ArrayList<>(waiter.requested.size());
+            for (String requested : waiter.requested) {
+                byte[] item = byKey.get(requested);
+                if (item != null) {
+                    items.add(item);
+                }
+            }
+            waiter.sink.success(ResponseEntity.status(response.getStatusCode()).headers(headers).body(toJsonArray(items)));
+        }
+    }
+
+    private GroupKey groupKey(ProxyRequest proxyRequest, BatchConfig config, ObjectNode body) {
+        ObjectNode bodyWithoutItems = body.deepCopy();
+        bodyWithoutItems.remove(config.getItemField());
+        List<List<String>> headers = new ArrayList<>();
+        config.getPartitionHeaders().forEach(name -> headers.add(proxyRequest.headers().getOrEmpty(name)));
+        return new GroupKey(proxyRequest.route().getId(), proxyRequest.xRoadClient(),
+                proxyRequest.routeMatch().pathVariables(), bodyWithoutItems, headers);
+    }
+
+    private byte[] bodyWithItems(ObjectNode body, BatchConfig config, ArrayNode items) {
+        ObjectNode copy = body.deepCopy();
+        copy.set(config.getItemField(), items);
+        return toBytes(copy);
+    }
+
+    private static HttpHeaders withoutContentLength(HttpHeaders source) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.putAll(source);
+        headers.remove(HttpHeaders.CONTENT_LENGTH);
+        return headers;
+    }
+
+    private static boolean isSuccessful(ResponseEntity<byte[]> response) {
+        return response.getStatusCode().is2xxSuccessful() && response.getBody() != null;
+    }
+
+    private static byte[] toJsonArray(List<byte[]> items) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        out.write('[');
+        for (int i = 0; i < items.size(); i++) {
+            if (i > 0) {
+                out.write(',');
+            }
+            out.writeBytes(items.get(i));
+        }
+        out.write(']');
+        return out.toByteArray();
+    }
+
+    private JsonNode parse(byte[] body) {
+        if (body == null || body.length == 0) {
+            return null;
+        }
+        try {
+            return objectMapper.readTree(body);
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    private byte[] toBytes(JsonNode node) {
+        try {
+            return objectMapper.writeValueAsBytes(node);
+        } catch (IOException e) {
+            throw new IllegalStateException("Falha ao serializar JSON", e);
+        }
+    }
+
+    private record GroupKey(String routeId, String xRoadClient, Map<String, String> pathVariables,
+                            JsonNode bodyWithoutItems, List<List<String>> partitionHeaders) {
+    }
+
+    private record Waiter(ProxyRequest proxyRequest, ObjectNode body, List<String> requested,
+                          MonoSink<ResponseEntity<byte[]>> sink) {
+    }
+
+    private enum AddResult {
+        ADDED, ADDED_FULL, REJECTED
+    }
+
+    /**
+     * Lote aberto aguardando a janela. Após {@link #close()}, não aceita novas requisições.
+     */
+    private static final class PendingBatch {
+        private final GroupKey key;
+        private final BatchConfig config;
+        private final Function<ProxyRequest, Mono<ResponseEntity<byte[]>>> upstream;
+        private List<Waiter> waiters = new ArrayList<>();
+        private int itemCount;
+
+        private PendingBatch(GroupKey key, BatchConfig config, Function<ProxyRequest, Mono<ResponseEntity<byte[]>>> upstream) {
+            this.key = key;
+            this.config = config;
+            this.upstream = upstream;
+        }
+
+        private synchronized AddResult add(Waiter waiter, int maxItems) {
+            if (waiters == null || (!waiters.isEmpty() && itemCount + waiter.requested.size() > maxItems)) {
+                return AddResult.REJECTED;
+            }
+            waiters.add(waiter);
+            itemCount += waiter.requested.size();
+            return itemCount >= maxItems ? AddResult.ADDED_FULL : AddResult.ADDED;
+        }
+
+        /**
+         * @return as requisições do lote, ou {@code null} se ele já tiver sido encerrado.
+         */
+        private synchronized List<Waiter> close() {
+            List<Waiter> closed = waiters;
+            waiters = null;
+            return closed;
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package br.gov.pe.brokerconecta.config;
+
+import lombok.Data;
+
+import java.time.Duration;
+
+/**
+ * Fila de admissão de uma API de destino ({@code broker.apis.<nome>.admission}).
+ * <p>
+ * Limita as chamadas simultâneas à API e, quando todas as vagas estão ocupadas, enfileira as requisições por
+ * cliente X-Road: as vagas que se liberam vão primeiro para os clientes {@code INTERACTIVE} e, dentro de cada
+ * classe, são repartidas na proporção do {@code weight} de cada cliente ({@code broker.clients.<cliente>}).
+ * Requisições que não cabem na fila do cliente, que esperam mais que {@link #maxWait} ou que não terminariam
+ * dentro do prazo são recusadas sem chamar a API.
+ */
+@Data
+public class AdmissionConfig {
+
+    private boolean enabled = false;
+
+    /**
+     * Chamadas simultâneas à API. Deve ficar abaixo do {@code resilience.max-concurrent-calls} da API, para que
+     * o excedente aguarde na fila em vez de ser recusado pelo bulkhead.
+     */
+    private int maxConcurrentCalls = 20;
+
+    /**
+     * Requisições de um mesmo cliente aguardando vaga. Acima disso o cliente recebe 429.
+     */
+    private int maxQueuePerClient = 100;
+
+    /**
+     * Tempo máximo de espera por uma vaga. Esgotado, a requisição é recusada com 503.
+     * Zero recusa imediatamente quando não houver vaga.
+     */
+    private Duration maxWait = Duration.ofSeconds(5);
+}
@@ -6,4 +6,8 @@ import lombok.Data;
 public class ApiConfig {
     private String targetUrl;
     private String tokenUrl;
+    private HttpClientConfig http = new HttpClientConfig();
+    private ResilienceConfig resilience = new ResilienceConfig();
+    private HedgingConfig hedging = new HedgingConfig();
+    private AdmissionConfig admission = new AdmissionConfig();
 }
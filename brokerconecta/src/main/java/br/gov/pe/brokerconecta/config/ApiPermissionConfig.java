@@ -2,8 +2,14 @@ package br.gov.pe.brokerconecta.config;
 
 import lombok.Data;
 
+import java.util.List;
+
 @Data
 public class ApiPermissionConfig {
     private String clientId;
     private String clientSecret;
-}
\ No newline at end of file
+    // Limite de requisições deste cliente para a API (opcional; ausente = sem limite local)
+    private RateLimitConfig rateLimit;
+    // Únicos campos do JSON de resposta que este cliente recebe da API (opcional; minimização de dados por órgão)
+    private List<String> projection;
+}
@@ -0,0 +1,51 @@
+package br.gov.pe.brokerconecta.config;
+
+import lombok.Data;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+
+/**
+ * Registro de auditoria das requisições intermediadas pelo broker ({@code broker.audit}).
+ */
+@Data
+public class AuditConfig {
+
+    /**
+     * Grava um registro por requisição em arquivos JSON Lines compactados (gzip) em {@link #directory}.
+     */
+    private boolean enabled = false;
+
+    /**
+     * Diretório dos arquivos de auditoria, criado no primeiro registro.
+     */
+    private String directory = "audit";
+
+    /**
+     * Capacidade do buffer em memória entre as requisições e a escrita em disco (arredondada para potência de 2).
+     * Com o buffer cheio, novos registros são descartados e contados em {@code broker.audit.records{result=dropped}}.
+     */
+    private int bufferSize = 8192;
+
+    /**
+     * Máximo de registros gravados de uma vez antes de descarregar o arquivo em disco.
+     */
+    private int batchSize = 512;
+
+    /**
+     * Intervalo em que a thread de escrita verifica o buffer quando ele está vazio: é o atraso máximo
+     * de um registro até chegar ao disco.
+     */
+    private Duration flushInterval = Duration.ofMillis(200);
+
+    /**
+     * Tamanho (compactado) a partir do qual o arquivo atual é fechado e um novo é iniciado.
+     * Os arquivos também são trocados na virada do dia.
+     */
+    private DataSize maxFileSize = DataSize.ofMegabytes(64);
+
+    /**
+     * Quantidade de arquivos mantidos no diretório; os mais antigos são apagados na troca de arquivo.
+     */
+    private int maxHistory = 30;
+}
@@ -0,0 +1,48 @@
+package br.gov.pe.brokerconecta.config;
+
+import lombok.Data;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Divisão e agrupamento de consultas em lote de uma rota ({@code broker.routes[].batch}), para APIs que
+ * recebem uma lista no corpo JSON (ex: {@code listaCpf}) e devolvem um array com um item por entrada.
+ */
+@Data
+public class BatchConfig {
+
+    /**
+     * Propriedade do corpo JSON da requisição com a lista consultada (ex: {@code listaCpf}).
+     */
+    private String itemField;
+
+    /**
+     * Propriedade de cada item da resposta que corresponde à entrada consultada (ex: {@code CPF}).
+     * Usada para devolver a cada requisição agrupada apenas os seus itens.
+     */
+    private String responseItemKey;
+
+    /**
+     * Máximo de entradas por chamada à API. Listas maiores são divididas em sub-requisições desse tamanho.
+     */
+    private int maxBatchSize = 50;
+
+    /**
+     * Máximo de sub-requisições de uma mesma lista em paralelo.
+     */
+    private int maxConcurrency = 4;
+
+    /**
+     * Janela de agrupamento: requisições pequenas do mesmo cliente que chegam dentro dela são enviadas
+     * em uma única chamada à API (até {@link #maxBatchSize} entradas). Zero desativa o agrupamento.
+     */
+    private Duration window = Duration.ZERO;
+
+    /**
+     * Headers que precisam ser iguais para que duas requisições sejam agrupadas (ex: {@code x-cpf-usuario},
+     * que identifica o usuário final perante a API).
+     */
+    private List<String> partitionHeaders = new ArrayList<>();
+}
@@ -13,4 +13,10 @@ public class BrokerProperties {
     private List<RouteConfig> routes; 
     private Map<String, ApiConfig> apis;
     private Map<String, ClientConfig> clients;
+    private ProxyConfig proxy = new ProxyConfig();
+    private TokenConfig tokens = new TokenConfig();
+    private ReloadConfig reload = new ReloadConfig();
+    private ObservabilityConfig observability = new ObservabilityConfig();
+    private AuditConfig audit = new AuditConfig();
+    private WarmupConfig warmup = new WarmupConfig();
 }
\ No newline at end of file
@@ -1,22 +1,54 @@
 package br.gov.pe.brokerconecta.config;
 
+import br.gov.pe.brokerconecta.token.CachedToken;
 import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
 import org.springframework.cache.CacheManager;
 import org.springframework.cache.caffeine.CaffeineCacheManager;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
-import java.util.concurrent.TimeUnit;
+import java.time.Duration;
+import java.time.Instant;
 
 @Configuration
 public class CacheConfig {
     @Bean
     public CacheManager cacheManager() {
-        CaffeineCacheManager cacheManager = new CaffeineCacheManager("tokens");
-        cacheManager.setCaffeine(Caffeine.newBuilder()
-                // Token do Conecta expira em 2h (120 min). Usamos um cache de 110 min.
-                .expireAfterWrite(110, TimeUnit.MINUTES)
-                .maximumSize(500)); // Armazena no máximo 500 tokens diferentes
+        CaffeineCacheManager cacheManager = new CaffeineCacheManager();
+        cacheManager.registerCustomCache("tokens", Caffeine.newBuilder()
+                // Cada token expira de acordo com o expires_in devolvido pelo provedor (ver CachedToken)
+                .expireAfter(new TokenExpiry())
+                .maximumSize(500) // Armazena no máximo 500 tokens diferentes
+                .build());
         return cacheManager;
     }
+
+    /**
+     * Expiração por entrada: o token sai do cache no seu {@link CachedToken#expiresAt()}.
+     */
+    static class TokenExpiry implements Expiry<Object, Object> {
+
+        @Override
+        public long expireAfterCreate(Object key, Object value, long currentTime) {
+            return remainingNanos(value);
+        }
+
+        @Override
+        public long expireAfterUpdate(Object key, Object value, long currentTime, long currentDuration) {
+            return remainingNanos(value);
+        }
+
+        @Override
+        public long expireAfterRead(Object key, Object value, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+
+        private static long remainingNanos(Object value) {
+            if (value instanceof CachedToken token) {
+                return Math.max(0, Duration.between(Instant.now(), token.expiresAt()).toNanos());
+            }
+            return Long.MAX_VALUE;
+        }
+    }
 }
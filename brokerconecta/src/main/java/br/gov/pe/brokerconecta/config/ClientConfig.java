@@ -7,4 +7,27 @@ import java.util.Map;
 public class ClientConfig {
     private String xRoadId;
     private Map<String, ApiPermissionConfig> authorizedApis;
+
+    /**
+     * Peso do cliente na fila de admissão das APIs com {@code admission} ativo: com as APIs saturadas, cada
+     * cliente da mesma classe recebe vagas na proporção do seu peso.
+     */
+    private int weight = 1;
+
+    /**
+     * Classe de prioridade na fila de admissão. Clientes {@code INTERACTIVE} são atendidos antes dos
+     * {@code BULK}, que usam a capacidade que sobrar.
+     */
+    private Priority priority = Priority.INTERACTIVE;
+
+    public enum Priority {
+        /**
+         * Atendimento a usuários (portais, balcões): baixa latência.
+         */
+        INTERACTIVE,
+        /**
+         * Processamentos em lote e integrações de fundo: vagas ociosas das APIs.
+         */
+        BULK
+    }
 }
\ No newline at end of file
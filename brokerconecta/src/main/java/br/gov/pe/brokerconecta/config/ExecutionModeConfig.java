@@ -0,0 +1,46 @@
+package br.gov.pe.brokerconecta.config;
+
+import org.apache.coyote.ProtocolHandler;
+import org.apache.tomcat.util.threads.VirtualThreadExecutor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.embedded.tomcat.TomcatProtocolHandlerCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.concurrent.Executors;
+
+/**
+ * Ajusta as threads do servidor conforme {@code broker.proxy.execution-mode}.
+ * <p>
+ * No modo {@code virtual-threads}, o Tomcat atende cada requisição em uma virtual thread e a leitura em
+ * blocos do corpo (modo streaming) também roda em virtual threads. No modo {@code reactive}, o Tomcat
+ * mantém o pool de threads de plataforma e a leitura do corpo usa o scheduler elástico do Reactor.
+ */
+@Configuration
+public class ExecutionModeConfig {
+
+    private static final String EXECUTION_MODE = "execution-mode";
+
+    @Bean
+    @ConditionalOnProperty(prefix = "broker.proxy", name = EXECUTION_MODE, havingValue = "virtual-threads")
+    public TomcatProtocolHandlerCustomizer<ProtocolHandler> virtualThreadProtocolHandlerCustomizer() {
+        return protocolHandler -> protocolHandler.setExecutor(new VirtualThreadExecutor("gateway-vt-"));
+    }
+
+    @Bean(destroyMethod = "dispose")
+    @ConditionalOnProperty(prefix = "broker.proxy", name = EXECUTION_MODE, havingValue = "virtual-threads")
+    public Scheduler requestBodyScheduler() {
+        return Schedulers.fromExecutorService(Executors.newVirtualThreadPerTaskExecutor(), "request-body-vt");
+    }
+
+    /**
+     * O scheduler elástico é compartilhado por toda a aplicação e não deve ser encerrado junto com o bean.
+     */
+    @Bean(name = "requestBodyScheduler", destroyMethod = "")
+    @ConditionalOnProperty(prefix = "broker.proxy", name = EXECUTION_MODE, havingValue = "reactive", matchIfMissing = true)
+    public Scheduler boundedElasticRequestBodyScheduler() {
+        return Schedulers.boundedElastic();
+    }
+}
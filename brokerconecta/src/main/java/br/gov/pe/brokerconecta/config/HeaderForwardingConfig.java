@@ -0,0 +1,30 @@
+package br.gov.pe.brokerconecta.config;
+
+import lombok.Data;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Headers da requisição do cliente repassados para a API de destino por uma rota ({@code broker.routes[].headers}).
+ * <p>
+ * Os nomes não diferenciam maiúsculas de minúsculas. Independentemente desta configuração, nunca são repassados
+ * os headers hop-by-hop ({@code Connection}, {@code Transfer-Encoding}, {@code Keep-Alive} etc.), {@code Host},
+ * {@code Content-Length} (definidos pela conexão com a API de destino) e {@code Authorization} (o broker envia o
+ * próprio token).
+ */
+@Data
+public class HeaderForwardingConfig {
+
+    /**
+     * Únicos headers repassados. Vazio = todos, exceto os de {@link #deny}.
+     * Headers usados pelo próprio broker na rota (ex: {@code Cache-Control} no cache de respostas,
+     * {@code partition-headers} no lote) precisam constar da lista.
+     */
+    private List<String> allow = new ArrayList<>();
+
+    /**
+     * Headers que não são repassados, além dos que o broker nunca repassa.
+     */
+    private List<String> deny = new ArrayList<>();
+}
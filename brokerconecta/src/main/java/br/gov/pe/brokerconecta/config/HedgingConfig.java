@@ -0,0 +1,40 @@
+package br.gov.pe.brokerconecta.config;
+
+import lombok.Data;
+
+import java.time.Duration;
+
+/**
+ * Requisições de cobertura (hedging) de uma API de destino ({@code broker.apis.<nome>.hedging}).
+ * <p>
+ * Se a API não responder dentro do percentil {@link #percentile} das latências observadas recentemente, uma
+ * segunda chamada idêntica é enviada e vale a resposta que chegar primeiro; a outra é cancelada. Só se aplica
+ * a rotas idempotentes (métodos GET, HEAD e OPTIONS ou {@code broker.routes[].idempotent: true}) no modo buffer.
+ * Com o percentil 0.95, no máximo cerca de 5% das chamadas geram uma segunda chamada.
+ */
+@Data
+public class HedgingConfig {
+
+    private boolean enabled = false;
+
+    /**
+     * Percentil das latências recentes a partir do qual a segunda chamada é enviada.
+     */
+    private double percentile = 0.95;
+
+    /**
+     * Quantidade de latências recentes consideradas no percentil.
+     */
+    private int windowSize = 1024;
+
+    /**
+     * Mínimo de latências observadas antes de enviar segundas chamadas.
+     */
+    private int minSamples = 50;
+
+    /**
+     * Limites da espera antes da segunda chamada, aplicados ao percentil calculado.
+     */
+    private Duration minDelay = Duration.ofMillis(20);
+    private Duration maxDelay = Duration.ofSeconds(2);
+}
@@ -0,0 +1,66 @@
+package br.gov.pe.brokerconecta.config;
+
+import lombok.Data;
+
+import java.time.Duration;
+
+/**
+ * Pool de conexões e timeouts do cliente HTTP de uma API de destino ({@code broker.apis.<nome>.http}).
+ * <p>
+ * Cada API recebe o seu próprio pool, para que uma API lenta não consuma as conexões das demais.
+ */
+@Data
+public class HttpClientConfig {
+
+    /**
+     * Máximo de conexões abertas simultaneamente com o host da API.
+     */
+    private int maxConnections = 50;
+
+    /**
+     * Máximo de requisições aguardando uma conexão livre do pool. Acima disso a requisição falha imediatamente.
+     */
+    private int pendingAcquireMaxCount = 500;
+
+    /**
+     * Tempo máximo de espera por uma conexão livre do pool.
+     */
+    private Duration pendingAcquireTimeout = Duration.ofSeconds(5);
+
+    /**
+     * Tempo que uma conexão pode ficar ociosa no pool antes de ser fechada.
+     */
+    private Duration maxIdleTime = Duration.ofSeconds(30);
+
+    /**
+     * Tempo máximo de vida de uma conexão, mesmo em uso contínuo (força a renovação, ex: troca de IP do host).
+     */
+    private Duration maxLifeTime = Duration.ofMinutes(10);
+
+    /**
+     * Intervalo da varredura em segundo plano que remove conexões ociosas ou expiradas.
+     */
+    private Duration evictInBackground = Duration.ofSeconds(30);
+
+    /**
+     * Timeout para estabelecer a conexão TCP.
+     */
+    private Duration connectTimeout = Duration.ofSeconds(5);
+
+    /**
+     * Timeout para receber a resposta após o envio da requisição.
+     */
+    private Duration responseTimeout = Duration.ofSeconds(30);
+
+    /**
+     * Habilita HTTP/2 (com fallback para HTTP/1.1) quando o host suportar.
+     */
+    private boolean http2 = false;
+
+    /**
+     * Pede respostas comprimidas (gzip ou deflate) à API no modo buffer. A resposta só é descomprimida no broker
+     * quando a rota precisa ler o corpo (cache, lote, coalesce, projeção) ou quando o cliente não aceita a
+     * compressão recebida; nos demais casos ela segue comprimida para o cliente.
+     */
+    private boolean compression = true;
+}
@@ -0,0 +1,18 @@
+package br.gov.pe.brokerconecta.config;
+
+import lombok.Data;
+
+/**
+ * Logs e métricas do caminho das requisições ({@code broker.observability}).
+ */
+@Data
+public class ObservabilityConfig {
+
+    /**
+     * Fração das requisições (0 a 1) registradas em log INFO ao terminar, com rota, cliente, status e duração.
+     * Os números de todas as requisições ficam nas métricas ({@code /actuator/prometheus}); o log amostrado
+     * serve para inspeção sem que a formatação de logs domine a CPU com muitas requisições por segundo.
+     * Erros são sempre registrados.
+     */
+    private double requestLogSampleRate = 0.01;
+}
@@ -0,0 +1,52 @@
+package br.gov.pe.brokerconecta.config;
+
+import lombok.Data;
+
+/**
+ * Configurações do encaminhamento de requisições ({@code broker.proxy}).
+ */
+@Data
+public class ProxyConfig {
+
+    /**
+     * Modelo de execução das requisições do gateway ({@code reactive} ou {@code virtual-threads}).
+     */
+    private ExecutionMode executionMode = ExecutionMode.REACTIVE;
+
+    /**
+     * Quando ativo, os corpos de requisição e resposta são repassados em blocos (streaming),
+     * sem serem carregados inteiros em memória.
+     */
+    private boolean streaming = false;
+
+    /**
+     * Tamanho, em bytes, de cada bloco lido do corpo da requisição no modo streaming.
+     */
+    private int chunkSize = 8 * 1024;
+
+    /**
+     * Quantidade máxima de blocos da resposta da API de destino mantidos em memória, por requisição,
+     * aguardando escrita para o cliente. Limita o heap por requisição em andamento no modo streaming
+     * e aplica contrapressão (backpressure) na leitura da API de destino.
+     */
+    private int maxBufferedChunks = 16;
+
+    /**
+     * Header com o prazo da requisição em milissegundos. Esgotado o prazo, o broker cancela a chamada à API
+     * e responde 504. O prazo restante é repassado à API de destino no mesmo header.
+     */
+    private String deadlineHeader = "X-Request-Timeout";
+
+    public enum ExecutionMode {
+        /**
+         * Threads de plataforma do Tomcat; a cadeia do gateway roda de forma assíncrona (Reactor) e a thread
+         * do servlet é liberada enquanto a API de destino responde.
+         */
+        REACTIVE,
+        /**
+         * Cada requisição roda em uma virtual thread, que aguarda de forma bloqueante a API de destino
+         * e lê/escreve os corpos diretamente.
+         */
+        VIRTUAL_THREADS
+    }
+}
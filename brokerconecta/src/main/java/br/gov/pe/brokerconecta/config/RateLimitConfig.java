@@ -0,0 +1,43 @@
+package br.gov.pe.brokerconecta.config;
+
+import lombok.Data;
+
+import java.time.Duration;
+
+/**
+ * Limite de requisições de um cliente para uma API
+ * ({@code broker.clients.<cliente>.authorizedApis.<api>.rateLimit}).
+ * <p>
+ * Aplicado localmente, antes de chamar a API de destino, para que um único cliente não esgote a cota
+ * do Conecta compartilhada com os demais órgãos.
+ */
+@Data
+public class RateLimitConfig {
+
+    /**
+     * Taxa sustentada de requisições por segundo. Zero ou negativo desativa o limite.
+     */
+    private double requestsPerSecond;
+
+    /**
+     * Requisições que podem ser feitas de uma vez, acima da taxa sustentada, após um período ocioso.
+     * Se não informado, equivale a um segundo de requisições (mínimo 1).
+     */
+    private Integer burst;
+
+    /**
+     * Tempo máximo que uma requisição acima do limite aguarda na fila por uma vaga.
+     * Zero rejeita imediatamente (429).
+     */
+    private Duration maxWait = Duration.ZERO;
+
+    /**
+     * Período em que a taxa fica reduzida à metade após um 429 da API de destino.
+     * Novos 429 dentro do período reduzem a taxa novamente, até 1/8 da configurada.
+     */
+    private Duration slowdownPeriod = Duration.ofSeconds(30);
+
+    public int effectiveBurst() {
+        return burst != null ? Math.max(1, burst) : Math.max(1, (int) Math.ceil(requestsPerSecond));
+    }
+}
@@ -0,0 +1,25 @@
+package br.gov.pe.brokerconecta.config;
+
+import lombok.Data;
+
+import java.time.Duration;
+
+/**
+ * Recarga da configuração sem reinício ({@code broker.reload}).
+ */
+@Data
+public class ReloadConfig {
+
+    /**
+     * Arquivo YAML ou JSON externo (ex: ConfigMap montado) com {@code broker.routes}, {@code broker.apis} e
+     * {@code broker.clients}, no mesmo formato do application.yml. Seções ausentes no arquivo mantêm os valores
+     * do application.yml. Sem arquivo, a recarga fica desativada.
+     */
+    private String file;
+
+    /**
+     * Intervalo entre as verificações do arquivo. A verificação compara o conteúdo, e não a data de modificação,
+     * para funcionar com a troca de links simbólicos feita pelo Kubernetes ao atualizar um ConfigMap.
+     */
+    private Duration pollInterval = Duration.ofSeconds(10);
+}
@@ -0,0 +1,62 @@
+package br.gov.pe.brokerconecta.config;
+
+import lombok.Data;
+
+import java.time.Duration;
+
+/**
+ * Circuit breaker e bulkhead de uma API de destino ({@code broker.apis.<nome>.resilience}).
+ * <p>
+ * Isolam as APIs entre si: uma API lenta ou fora do ar passa a falhar imediatamente (503) em vez de
+ * ocupar conexões e threads compartilhadas com as demais.
+ */
+@Data
+public class ResilienceConfig {
+
+    /**
+     * Desativa circuit breaker e bulkhead da API.
+     */
+    private boolean enabled = true;
+
+    /**
+     * Janela deslizante (por tempo) em que falhas e chamadas lentas são contabilizadas.
+     */
+    private Duration slidingWindow = Duration.ofSeconds(60);
+
+    /**
+     * Mínimo de chamadas na janela antes de o circuito poder abrir.
+     */
+    private int minimumNumberOfCalls = 10;
+
+    /**
+     * Percentual de falhas (erros de conexão, timeouts e respostas 5xx) que abre o circuito.
+     */
+    private float failureRateThreshold = 50;
+
+    /**
+     * Chamadas mais demoradas que isso contam como lentas.
+     */
+    private Duration slowCallDurationThreshold = Duration.ofSeconds(10);
+
+    /**
+     * Percentual de chamadas lentas que abre o circuito.
+     */
+    private float slowCallRateThreshold = 80;
+
+    /**
+     * Tempo com o circuito aberto antes de liberar chamadas de teste (meio-aberto).
+     */
+    private Duration waitDurationInOpenState = Duration.ofSeconds(30);
+
+    /**
+     * Chamadas de teste permitidas com o circuito meio-aberto; se forem bem-sucedidas o circuito fecha.
+     */
+    private int permittedCallsInHalfOpenState = 3;
+
+    /**
+     * Máximo de chamadas simultâneas em andamento para a API (bulkhead); acima dele a requisição falha na hora
+     * com 503. Cada tentativa do hedging ocupa uma vaga. Zero ou negativo (padrão) desativa o limite: o valor deve
+     * ser dimensionado para a API, junto com o {@code http.max-connections}.
+     */
+    private int maxConcurrentCalls = 0;
+}
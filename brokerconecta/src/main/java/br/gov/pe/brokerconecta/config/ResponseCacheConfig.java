@@ -0,0 +1,88 @@
+package br.gov.pe.brokerconecta.config;
+
+import lombok.Data;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Cache de respostas de uma rota ({@code broker.routes[].cache}).
+ * <p>
+ * As entradas são sempre separadas por cliente X-Road: um órgão nunca recebe uma resposta obtida
+ * com as credenciais de outro. Com {@link #partitionHeaders}, também por usuário final.
+ */
+@Data
+public class ResponseCacheConfig {
+
+    /**
+     * Tempo que uma resposta fica em cache após ser obtida da API.
+     */
+    private Duration ttl = Duration.ofMinutes(5);
+
+    /**
+     * Tamanho máximo do cache da rota, em bytes de corpo de resposta. As entradas menos usadas são
+     * descartadas ao atingir o limite.
+     */
+    private long maxWeightBytes = 64L * 1024 * 1024;
+
+    /**
+     * Campos que compõem a chave: nomes de variáveis de caminho ou de propriedades do corpo JSON da requisição.
+     * Se vazio, a chave é formada por todas as variáveis de caminho e pelo corpo inteiro.
+     */
+    private List<String> keyFields = new ArrayList<>();
+
+    /**
+     * Cache por item: propriedade do corpo JSON da requisição com a lista consultada (ex: {@code listaCpf}).
+     * Cada item da lista é armazenado separadamente, e apenas os itens fora do cache são enviados à API.
+     * Requer {@link #responseItemKey}.
+     */
+    private String itemField;
+
+    /**
+     * Cache por item: propriedade de cada item da resposta (um array JSON) que corresponde ao item
+     * consultado (ex: {@code CPF}).
+     */
+    private String responseItemKey;
+
+    /**
+     * Headers que também separam as entradas (ex: {@code x-cpf-usuario}, que identifica o usuário final perante
+     * a API): uma consulta feita por um usuário não é entregue a outro, e cada consulta chega à API em nome de
+     * quem a fez. Como os {@code partition-headers} do lote.
+     */
+    private List<String> partitionHeaders = new ArrayList<>();
+
+    /**
+     * Depois do {@link #ttl}, por quanto tempo uma resposta ainda pode ser entregue imediatamente (marcada como
+     * {@code STALE}, com o header {@code Age}) enquanto é atualizada em segundo plano. Zero desativa.
+     */
+    private Duration staleWhileRevalidate = Duration.ZERO;
+
+    /**
+     * Depois do {@link #ttl}, por quanto tempo uma resposta ainda pode substituir uma falha da API (erro 5xx,
+     * falha de conexão, timeout ou circuit breaker aberto). Zero desativa.
+     */
+    private Duration staleIfError = Duration.ZERO;
+
+    /**
+     * Diretório onde o cache da rota é gravado periodicamente e no encerramento, para ser recarregado na
+     * próxima inicialização (ex: para atender durante uma indisponibilidade logo após um reinício).
+     * Se vazio, o cache fica só em memória.
+     * <p>
+     * Atenção (LGPD): os arquivos guardam as respostas completas da API, com os dados pessoais sem o mascaramento
+     * aplicado na auditoria. São criados com acesso restrito ao usuário do processo, mas o diretório deve ficar em
+     * volume protegido (de preferência cifrado) e fora de backups e de volumes compartilhados.
+     */
+    private String diskDirectory;
+
+    /**
+     * Tempo total de permanência de uma entrada: o TTL mais a maior das janelas de resposta desatualizada.
+     */
+    public Duration retention() {
+        return ttl.plus(staleWhileRevalidate.compareTo(staleIfError) > 0 ? staleWhileRevalidate : staleIfError);
+    }
+
+    public boolean isPerItem() {
+        return itemField != null && responseItemKey != null;
+    }
+}
@@ -3,10 +3,32 @@ package br.gov.pe.brokerconecta.config;
 import lombok.Data;
 import org.springframework.http.HttpMethod;
 
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
 @Data
 public class RouteConfig {
     private String id;
     private String path;
     private HttpMethod method;
     private String api;
+    // Requisições idênticas simultâneas compartilham uma única chamada à API (ver RequestCoalescer)
+    private boolean coalesce;
+    // Headers que precisam ser iguais para que duas requisições compartilhem a chamada (ex: x-cpf-usuario, que
+    // identifica o usuário final perante a API), como os partition-headers do lote
+    private List<String> coalescePartitionHeaders = new ArrayList<>();
+    // Cache de respostas da rota (opcional; ausente = sem cache)
+    private ResponseCacheConfig cache;
+    // Divisão de listas grandes e agrupamento de requisições pequenas (opcional; ver BatchingStage)
+    private BatchConfig batch;
+    // Headers do cliente repassados para a API (opcional; ausente = todos, exceto hop-by-hop e Authorization)
+    private HeaderForwardingConfig headers;
+    // Repetir a chamada não altera nada na API (consultas): permite segundas chamadas (hedging) mesmo com POST
+    private boolean idempotent;
+    // Prazo padrão e máximo da requisição; o cliente pode pedir um prazo menor no header broker.proxy.deadline-header
+    private Duration timeout;
+    // Únicos campos do JSON de resposta entregues ao cliente (opcional; ex: ["Nome", "Endereco.Cep"]). Em listas,
+    // vale para cada elemento. Combinada com a projeção da permissão do cliente, se houver (ver FieldProjection)
+    private List<String> projection;
 }
\ No newline at end of file
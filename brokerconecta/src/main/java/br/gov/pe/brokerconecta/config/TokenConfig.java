@@ -0,0 +1,67 @@
+package br.gov.pe.brokerconecta.config;
+
+import lombok.Data;
+
+import java.time.Duration;
+
+/**
+ * Ciclo de vida dos tokens de acesso ({@code broker.tokens}).
+ */
+@Data
+public class TokenConfig {
+
+    /**
+     * Onde os tokens ficam armazenados: {@code local} (cache de cada réplica) ou {@code redis}
+     * (cache local na frente de um Redis compartilhado, com uma única busca por token entre as réplicas).
+     */
+    private Store store = Store.LOCAL;
+
+    /**
+     * Validade da trava distribuída de busca de token (modo {@code redis}). Se a réplica que detém a trava
+     * cair, outra réplica pode buscar o token após esse tempo.
+     */
+    private Duration lockTtl = Duration.ofSeconds(10);
+
+    /**
+     * Tempo máximo que uma réplica aguarda outra obter o token antes de buscá-lo por conta própria (modo {@code redis}).
+     */
+    private Duration lockWaitTimeout = Duration.ofSeconds(5);
+
+    /**
+     * Intervalo entre consultas ao Redis enquanto outra réplica busca o token (modo {@code redis}).
+     */
+    private Duration lockPollInterval = Duration.ofMillis(100);
+
+    /**
+     * Margem descontada do {@code expires_in} informado pelo provedor, para compensar a latência
+     * da emissão e diferenças de relógio. O token deixa de ser usado quando faltar esse tempo para expirar.
+     */
+    private Duration expirySkew = Duration.ofSeconds(60);
+
+    /**
+     * Antecedência, em relação à expiração, com que o token é renovado em segundo plano.
+     * Limitada à metade da vida útil do token.
+     */
+    private Duration refreshAhead = Duration.ofMinutes(5);
+
+    /**
+     * Variação aleatória máxima somada à antecedência da renovação, para que os tokens de vários
+     * clientes emitidos juntos não sejam renovados todos no mesmo instante.
+     */
+    private Duration refreshJitter = Duration.ofSeconds(30);
+
+    /**
+     * Intervalo entre novas tentativas quando a renovação em segundo plano falha.
+     * Enquanto isso o token anterior continua sendo usado, até expirar.
+     */
+    private Duration refreshRetryInterval = Duration.ofSeconds(15);
+
+    /**
+     * Vida útil assumida quando o provedor não informa {@code expires_in}.
+     */
+    private Duration defaultTtl = Duration.ofMinutes(110);
+
+    public enum Store {
+        LOCAL, REDIS
+    }
+}
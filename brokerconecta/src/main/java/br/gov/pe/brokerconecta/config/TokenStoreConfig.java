@@ -0,0 +1,33 @@
+package br.gov.pe.brokerconecta.config;
+
+import br.gov.pe.brokerconecta.token.LocalTokenStore;
+import br.gov.pe.brokerconecta.token.RedisTokenBackend;
+import br.gov.pe.brokerconecta.token.TokenStore;
+import br.gov.pe.brokerconecta.token.TwoTierTokenStore;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.cache.CacheManager;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.redis.core.ReactiveStringRedisTemplate;
+
+/**
+ * Escolhe o armazenamento de tokens conforme {@code broker.tokens.store}.
+ */
+@Configuration
+public class TokenStoreConfig {
+
+    @Bean
+    @ConditionalOnProperty(prefix = "broker.tokens", name = "store", havingValue = "local", matchIfMissing = true)
+    public TokenStore localTokenStore(CacheManager cacheManager) {
+        return new LocalTokenStore(cacheManager.getCache("tokens"));
+    }
+
+    @Bean
+    @ConditionalOnProperty(prefix = "broker.tokens", name = "store", havingValue = "redis")
+    public TokenStore twoTierTokenStore(CacheManager cacheManager, ReactiveStringRedisTemplate redisTemplate,
+                                        BrokerProperties brokerProperties) {
+        TokenConfig tokens = brokerProperties.getTokens();
+        return new TwoTierTokenStore(cacheManager.getCache("tokens"), new RedisTokenBackend(redisTemplate),
+                tokens.getLockTtl(), tokens.getLockWaitTimeout(), tokens.getLockPollInterval());
+    }
+}
@@ -0,0 +1,32 @@
+package br.gov.pe.brokerconecta.config;
+
+import lombok.Data;
+
+import java.time.Duration;
+
+/**
+ * Aquecimento na inicialização ({@code broker.warmup}): antes de a réplica se declarar pronta
+ * ({@code /actuator/health/readiness}), busca os tokens dos clientes configurados e abre conexões com as APIs.
+ */
+@Data
+public class WarmupConfig {
+
+    private boolean enabled = false;
+
+    /**
+     * Tempo máximo do aquecimento. Esgotado, a réplica se declara pronta mesmo assim e o que faltar é obtido
+     * na primeira requisição, como sem o aquecimento.
+     */
+    private Duration timeout = Duration.ofSeconds(30);
+
+    /**
+     * Busca os tokens de todos os Client IDs configurados.
+     */
+    private boolean tokens = true;
+
+    /**
+     * Conexões abertas com cada API de destino (handshake TCP/TLS). As conexões ficam no pool da API até
+     * {@code http.max-idle-time}. Zero desativa.
+     */
+    private int connectionsPerApi = 2;
+}
@@ -1,11 +1,27 @@
 package br.gov.pe.brokerconecta.controller;
 
+import br.gov.pe.brokerconecta.audit.AuditLog;
+import br.gov.pe.brokerconecta.audit.AuditRecord;
+import br.gov.pe.brokerconecta.authorization.ClientAuthorizationResolver;
+import br.gov.pe.brokerconecta.batch.BatchingStage;
+import br.gov.pe.brokerconecta.authorization.ResolvedPermission;
 import br.gov.pe.brokerconecta.config.ApiConfig;
-import br.gov.pe.brokerconecta.config.ApiPermissionConfig;
 import br.gov.pe.brokerconecta.config.BrokerProperties;
-import br.gov.pe.brokerconecta.config.ClientConfig;
-import br.gov.pe.brokerconecta.config.RouteConfig;
-import br.gov.pe.brokerconecta.service.TokenManagerService;
+import br.gov.pe.brokerconecta.config.ProxyConfig;
+import br.gov.pe.brokerconecta.exception.ProjectionFailedException;
+import br.gov.pe.brokerconecta.exception.RateLimitExceededException;
+import br.gov.pe.brokerconecta.header.HeaderForwarder;
+import br.gov.pe.brokerconecta.metrics.GatewayMetrics;
+import br.gov.pe.brokerconecta.metrics.RequestTimings;
+import br.gov.pe.brokerconecta.projection.FieldProjection;
+import br.gov.pe.brokerconecta.ratelimit.ClientRateLimiter;
+import br.gov.pe.brokerconecta.responsecache.ResponseCache;
+import br.gov.pe.brokerconecta.routing.RouteMatch;
+import br.gov.pe.brokerconecta.routing.RouteResolver;
+import br.gov.pe.brokerconecta.service.ProxyRequest;
+import br.gov.pe.brokerconecta.service.ProxyService;
+import br.gov.pe.brokerconecta.service.RequestCoalescer;
+import br.gov.pe.brokerconecta.service.RequestDeadline;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.enums.ParameterIn;
@@ -17,29 +33,39 @@ import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
-import org.springframework.util.AntPathMatcher;
 import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
-import org.springframework.web.reactive.function.BodyInserters;
-import org.springframework.web.reactive.function.client.WebClient;
-import org.springframework.web.util.UriComponentsBuilder;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.util.context.Context;
 
 import java.io.IOException;
-import java.net.URI;
-import java.util.Map;
+import java.time.Instant;
 import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Function;
 
 /**
  * Controller principal que atua como um API Gateway.
  * Intercepta todas as requisições, gerencia a autorização, autenticação
  * e encaminha para o serviço de destino apropriado.
+ * <p>
+ * No modo de execução {@code reactive} o endpoint devolve um {@link Mono} (processamento assíncrono do
+ * Spring MVC); no modo {@code virtual-threads} a requisição aguarda a API de destino na própria virtual
+ * thread e devolve a resposta pronta. O Spring MVC escolhe o tratamento pelo tipo concreto do retorno.
  */
 @RestController
 @Slf4j
@@ -47,10 +73,21 @@ import java.util.Optional;
 @Tag(name = "Gateway de Acesso", description = "Endpoints principais do Broker Conecta")
 public class GatewayController {
 
+    // CPF do usuário final, registrado (mascarado) na auditoria
+    private static final String USER_CPF_HEADER = "x-cpf-usuario";
+
     private final BrokerProperties brokerProperties;
-    private final TokenManagerService tokenManagerService;
-    private final WebClient.Builder webClientBuilder;
-    private final AntPathMatcher pathMatcher = new AntPathMatcher();
+    private final ClientAuthorizationResolver authorizationResolver;
+    private final RouteResolver routeResolver;
+    private final ProxyService proxyService;
+    private final ClientRateLimiter clientRateLimiter;
+    private final RequestCoalescer requestCoalescer;
+    private final ResponseCache responseCache;
+    private final BatchingStage batchingStage;
+    private final Scheduler requestBodyScheduler;
+    private final GatewayMetrics gatewayMetrics;
+    private final AuditLog auditLog;
+    private final HeaderForwarder headerForwarder;
 
     @RequestMapping("/api/v1/**")
     @Operation(
@@ -74,107 +111,288 @@ public class GatewayController {
     )
     @Parameter(name = "X-Road-Client", in = ParameterIn.HEADER, required = true, description = "Identificador único do sistema cliente. Ex: SAD/PORTAL_CIDADAO")
     @Parameter(name = "x-cpf-usuario", in = ParameterIn.HEADER, description = "CPF do usuário final que está realizando a operação.")
+    @Parameter(name = "X-Request-Timeout", in = ParameterIn.HEADER, description = "Prazo da requisição em milissegundos (opcional). Esgotado o prazo, a chamada à API é cancelada e o broker responde 504.")
     @ApiResponses(value = {
         @ApiResponse(responseCode = "200", description = "Requisição bem-sucedida", content = @Content(mediaType = "application/json")),
         @ApiResponse(responseCode = "400", description = "Requisição inválida (ex: header ausente)", content = @Content),
         @ApiResponse(responseCode = "401", description = "Não autorizado (ex: token inválido)", content = @Content),
         @ApiResponse(responseCode = "403", description = "Acesso negado (cliente não tem permissão para a API)", content = @Content),
+        @ApiResponse(responseCode = "429", description = "Limite de requisições ou fila de admissão do cliente para a API excedidos", content = @Content),
         @ApiResponse(responseCode = "500", description = "Erro interno na API de destino", content = @Content),
-        @ApiResponse(responseCode = "504", description = "Timeout na comunicação com a API de destino", content = @Content)
+        @ApiResponse(responseCode = "503", description = "API de destino indisponível (circuito aberto, limite de chamadas simultâneas ou fila de admissão saturada)", content = @Content),
+        @ApiResponse(responseCode = "504", description = "Timeout na comunicação com a API de destino ou prazo da requisição esgotado", content = @Content)
     })
-    public Mono<ResponseEntity<byte[]>> forwardRequest(
+    public Object forwardRequest(
             @Parameter(hidden = true) HttpMethod method,
             @Parameter(hidden = true) HttpServletRequest request,
+            @Parameter(hidden = true) HttpServletResponse response,
             @RequestHeader("X-Road-Client") String xRoadClientHeader) throws IOException {
 
+        long startNanos = System.nanoTime();
         String requestPath = request.getRequestURI();
-        log.info("Requisição recebida do cliente [{}]: {} {}", xRoadClientHeader, method, requestPath);
+        log.debug("Requisição recebida do cliente [{}]: {} {}", xRoadClientHeader, method, requestPath);
+
+        // 1. Identifica a rota (já com a API e as variáveis de caminho) em uma única consulta ao índice
+        RouteMatch routeMatch = null;
+        ResolvedPermission permission;
+        RequestDeadline deadline;
+        try {
+            routeMatch = routeResolver.resolve(method, requestPath);
+            // Garante que a API de destino da rota está configurada
+            requireApiConfig(routeMatch);
+
+            // 2 e 3. Identifica o cliente pelo header e obtém a permissão específica para a API no índice de autorização
+            permission = authorizationResolver.resolve(xRoadClientHeader, routeMatch.route().getApi());
+
+            // Prazo da requisição: o pedido pelo cliente, limitado ao timeout da rota (opcionais)
+            String deadlineHeader = brokerProperties.getProxy().getDeadlineHeader();
+            deadline = RequestDeadline.of(deadlineHeader, request.getHeader(deadlineHeader), routeMatch.route(), startNanos);
+        } catch (IllegalArgumentException | SecurityException e) {
+            // Rota inexistente ou API não configurada (400) ou cliente sem permissão (403): também fica registrado
+            // na auditoria
+            auditRejected(routeMatch, xRoadClientHeader, method, request, startNanos, e);
+            throw e;
+        }
+        String apiName = routeMatch.route().getApi();
+        RequestObservation observation = new RequestObservation(routeMatch.route().getId(), apiName, xRoadClientHeader,
+                method, requestPath, request.getHeader(USER_CPF_HEADER), contentLength(request), startNanos, new RequestTimings());
+        long routeNanos = System.nanoTime() - startNanos;
+        observation.timings().record(GatewayMetrics.Phase.ROUTE, routeNanos);
+        gatewayMetrics.recordPhase(GatewayMetrics.Phase.ROUTE, observation.route(), apiName, xRoadClientHeader, routeNanos);
+
+        // 4. Reserva uma vaga no limite de requisições do cliente para a API (rejeita com 429 sem ler o corpo,
+        //    ou aguarda na fila até maxWait). Nas rotas com cache de respostas ou lote, a vaga é reservada a cada
+        //    chamada efetiva à API.
+        boolean cachedRoute = routeMatch.route().getCache() != null;
+        boolean batchRoute = routeMatch.route().getBatch() != null;
+        boolean perCallAdmission = cachedRoute || batchRoute;
+        Mono<Void> admission;
+        try {
+            admission = perCallAdmission ? Mono.empty() : clientRateLimiter.acquire(xRoadClientHeader, permission);
+        } catch (RateLimitExceededException e) {
+            // Limite esgotado (429): também fica registrado nas métricas e na auditoria
+            rejected(observation, HttpStatus.TOO_MANY_REQUESTS.value(), e);
+            throw e;
+        }
+        HttpHeaders headers = headerForwarder.forward(request, routeMatch.headerFilter());
+        ProxyConfig proxyConfig = brokerProperties.getProxy();
+
+        boolean virtualThreads = proxyConfig.getExecutionMode() == ProxyConfig.ExecutionMode.VIRTUAL_THREADS;
 
-        // 1. Identifica a rota para saber qual API está sendo solicitada
-        RouteConfig route = findRoute(method, requestPath);
-        String apiName = route.getApi();
+        FieldProjection projection = FieldProjection.intersect(routeMatch.projection(), permission.projection());
 
-        // 2. Busca a configuração do cliente com base no header
-        ClientConfig clientConfig = findClientConfigByXRoadId(xRoadClientHeader);
+        // Rotas com coalesce, cache ou lote usam sempre o modo buffer: o corpo precisa ser lido e a mesma
+        // resposta pode ser entregue (ou repartida) entre várias requisições. Com projeção de campos também,
+        // já que a resposta é reescrita antes de ir para o cliente.
+        if (proxyConfig.isStreaming() && !routeMatch.route().isCoalesce() && !perCallAdmission && projection == null) {
+            // 5a. Modo streaming: o corpo é lido em blocos fora da thread de I/O do WebClient e a resposta é
+            //     escrita para o cliente à medida que chega, sem materializar nenhum dos dois em memória.
+            //     O corpo é repassado sem alteração, então o tamanho informado pelo cliente continua valendo.
+            if (request.getContentLengthLong() >= 0) {
+                headers.setContentLength(request.getContentLengthLong());
+            }
+            ProxyRequest proxyRequest = new ProxyRequest(method, routeMatch, permission, xRoadClientHeader,
+                    headers, null, readBodyStream(request, proxyConfig));
+            // O prazo vale até a chegada dos headers da resposta; a escrita do corpo não é interrompida
+            Mono<StreamingProxyResponse> streamingResponse = withDeadline(admission
+                    .then(Mono.defer(() -> proxyService.forwardStreaming(proxyRequest))), deadline)
+                    .map(upstream -> new StreamingProxyResponse(upstream, response, proxyConfig,
+                            bytes -> completed(observation, upstream.getStatusCode().value(), bytes)))
+                    .doOnError(error -> failed(observation, error))
+                    .contextWrite(requestContext(observation, deadline));
+            if (virtualThreads) {
+                // A própria virtual thread da requisição aguarda a API e escreve a resposta
+                streamingResponse.block().writeTo(response.getOutputStream());
+                return null;
+            }
+            return streamingResponse;
+        }
 
-        // 3. Busca a permissão específica para a API dentro da configuração do cliente
-        ApiPermissionConfig permission = findApiPermission(clientConfig, apiName);
-        
-        // 4. O resto do fluxo usa as credenciais da permissão encontrada
-        ApiConfig apiConfig = findApiConfig(apiName);
-        Map<String, String> pathVariables = pathMatcher.extractUriTemplateVariables(route.getPath(), requestPath);
+        // 5b. Modo buffer: corpo e resposta são carregados inteiros em memória
         byte[] requestBody = request.getInputStream().readAllBytes();
+        ProxyRequest proxyRequest = new ProxyRequest(method, routeMatch, permission, xRoadClientHeader,
+                headers, requestBody, null);
+        Mono<ResponseEntity<byte[]>> bufferedResponse;
+        if (cachedRoute) {
+            // 5c. Cache de respostas da rota: a API só é chamada para o que não estiver em cache
+            bufferedResponse = responseCache.forward(proxyRequest, this::forwardBatched);
+        } else if (batchRoute) {
+            bufferedResponse = forwardBatched(proxyRequest);
+        } else {
+            bufferedResponse = admission.then(Mono.defer(() -> forwardBuffered(proxyRequest)));
+        }
+        if (projection != null) {
+            // 5e. Projeção de campos: aplicada à resposta final, então o cache e o lote guardam os itens completos
+            String routeId = routeMatch.route().getId();
+            bufferedResponse = bufferedResponse.map(entity -> project(entity, projection, routeId));
+        }
+        bufferedResponse = withDeadline(bufferedResponse, deadline)
+                .doOnSuccess(entity -> {
+                    if (entity != null) {
+                        completed(observation, entity.getStatusCode().value(), entity.getBody() != null ? entity.getBody().length : 0);
+                    }
+                })
+                .doOnError(error -> failed(observation, error))
+                .contextWrite(requestContext(observation, deadline));
 
-        // Passa as credenciais específicas para o serviço de token
-        return tokenManagerService.getAccessToken(permission, apiConfig)
-            .flatMap(token -> {
-                URI targetUri = UriComponentsBuilder.fromUriString(apiConfig.getTargetUrl())
-                        .buildAndExpand(pathVariables)
-                        .toUri();
-
-                log.info("Roteamento ID [{}]. Encaminhando para: {}", route.getId(), targetUri);
-
-                WebClient.RequestBodySpec requestBodySpec = webClientBuilder.build()
-                        .method(method)
-                        .uri(targetUri)
-                        .headers(httpHeaders -> {
-                            request.getHeaderNames().asIterator().forEachRemaining(headerName -> {
-                                if (!headerName.equalsIgnoreCase(HttpHeaders.HOST)) {
-                                    httpHeaders.add(headerName, request.getHeader(headerName));
-                                }
-                            });
-                            httpHeaders.set(HttpHeaders.AUTHORIZATION, "Bearer " + token);
-                        });
-
-                WebClient.RequestHeadersSpec<?> spec;
-                if (requestBody.length > 0) {
-                    spec = requestBodySpec.body(BodyInserters.fromValue(requestBody));
-                } else {
-                    spec = requestBodySpec;
-                }
-                
-                return spec.retrieve().toEntity(byte[].class);
-            })
-            .doOnError(error -> {
-                log.error("### ERRO INESPERADO NA CADEIA DO GATEWAY ###");
-                log.error("Tipo de Erro: {}", error.getClass().getName());
-                log.error("Mensagem: {}", error.getMessage());
-            });
+        // Em uma virtual thread, aguardar a resposta não prende uma thread de plataforma
+        return virtualThreads ? bufferedResponse.block() : bufferedResponse;
+    }
+
+    /**
+     * Encaminha pela etapa de lote, quando a rota tiver uma, reservando uma vaga no limite de requisições
+     * do cliente a cada chamada efetiva à API (sub-requisição de uma lista grande ou lote agrupado).
+     */
+    private Mono<ResponseEntity<byte[]>> forwardBatched(ProxyRequest proxyRequest) {
+        Function<ProxyRequest, Mono<ResponseEntity<byte[]>>> upstream = call -> clientRateLimiter
+                .acquire(call.xRoadClient(), call.permission())
+                .then(Mono.defer(() -> forwardBuffered(call)));
+        if (proxyRequest.route().getBatch() == null) {
+            return upstream.apply(proxyRequest);
+        }
+        // 5d. Listas grandes são divididas e requisições pequenas simultâneas são agrupadas
+        return batchingStage.forward(proxyRequest, upstream);
+    }
+
+    private Mono<ResponseEntity<byte[]>> forwardBuffered(ProxyRequest proxyRequest) {
+        if (proxyRequest.route().isCoalesce()) {
+            // Requisições idênticas simultâneas compartilham uma única chamada à API
+            return requestCoalescer.forward(proxyRequest, () -> proxyService.forward(proxyRequest));
+        }
+        return proxyService.forward(proxyRequest);
+    }
+
+    /**
+     * Aplica a projeção de campos a uma resposta de sucesso. O corpo é lido como JSON qualquer que seja o
+     * {@code Content-Type} declarado pela API; se não puder ser projetado, a requisição falha com 502 em vez de
+     * entregar o corpo completo. Respostas de erro e sem corpo seguem sem alteração.
+     */
+    private static ResponseEntity<byte[]> project(ResponseEntity<byte[]> entity, FieldProjection projection, String routeId) {
+        if (!entity.getStatusCode().is2xxSuccessful() || entity.getBody() == null || entity.getBody().length == 0) {
+            return entity;
+        }
+        byte[] projected;
+        try {
+            projected = projection.apply(entity.getBody());
+        } catch (IllegalStateException e) {
+            throw new ProjectionFailedException(routeId, e);
+        }
+        HttpHeaders headers = new HttpHeaders();
+        headers.addAll(entity.getHeaders());
+        headers.remove(HttpHeaders.CONTENT_LENGTH);
+        return new ResponseEntity<>(projected, headers, entity.getStatusCode());
     }
 
     /**
-     * Encontra a rota correspondente no application.yml com base no método e caminho da requisição.
+     * Cancela a cadeia da requisição (token, fila do limite, chamada à API) quando o prazo se esgota.
      */
-    private RouteConfig findRoute(HttpMethod method, String requestPath) {
-        return brokerProperties.getRoutes().stream()
-                .filter(r -> r.getMethod() == method && pathMatcher.match(r.getPath(), requestPath))
-                .findFirst()
-                .orElseThrow(() -> new IllegalArgumentException("Nenhuma rota configurada para o caminho: " + requestPath));
+    private static <T> Mono<T> withDeadline(Mono<T> chain, RequestDeadline deadline) {
+        return deadline != null ? deadline.apply(chain) : chain;
     }
 
     /**
-     * Encontra a configuração do cliente com base no header X-Road-Client.
+     * Contexto do Reactor lido pelo {@link ProxyService}: medições da requisição e prazo, se houver.
      */
-    private ClientConfig findClientConfigByXRoadId(String xRoadClientHeader) {
-        return brokerProperties.getClients().values().stream()
-                .filter(config -> xRoadClientHeader.equals(config.getXRoadId()))
-                .findFirst()
-                .orElseThrow(() -> new SecurityException("Cliente com X-Road ID '" + xRoadClientHeader + "' não está configurado."));
+    private static Context requestContext(RequestObservation observation, RequestDeadline deadline) {
+        Context context = Context.of(RequestTimings.class, observation.timings());
+        return deadline != null ? context.put(RequestDeadline.class, deadline) : context;
     }
-    
+
+    /**
+     * Lê o corpo da requisição em blocos de {@code chunkSize} bytes. A leitura é bloqueante (API de servlet),
+     * por isso roda no scheduler de leitura do corpo (elástico ou de virtual threads, conforme o modo de
+     * execução) e nunca na thread de I/O do WebClient.
+     */
+    private Flux<DataBuffer> readBodyStream(HttpServletRequest request, ProxyConfig proxyConfig) {
+        boolean hasBody = request.getContentLengthLong() > 0 || request.getHeader(HttpHeaders.TRANSFER_ENCODING) != null;
+        if (!hasBody) {
+            return null;
+        }
+        return DataBufferUtils.readInputStream(request::getInputStream, DefaultDataBufferFactory.sharedInstance, proxyConfig.getChunkSize())
+                .subscribeOn(requestBodyScheduler);
+    }
+
+    /**
+     * Registra as métricas e a auditoria de uma requisição respondida e, para a fração amostrada
+     * ({@code broker.observability.request-log-sample-rate}), um log INFO com o resumo.
+     */
+    private void completed(RequestObservation observation, int status, long responseBytes) {
+        long nanos = System.nanoTime() - observation.startNanos();
+        gatewayMetrics.recordRequest(observation.route(), observation.api(), observation.client(), status, nanos);
+        gatewayMetrics.recordResponseSize(observation.route(), observation.api(), observation.client(), responseBytes);
+        audit(observation, status, null, nanos, responseBytes);
+
+        double sampleRate = brokerProperties.getObservability().getRequestLogSampleRate();
+        if (sampleRate > 0 && ThreadLocalRandom.current().nextDouble() < sampleRate) {
+            log.info("Roteamento ID [{}]. {} {} do cliente [{}] respondida com {} ({} bytes) em {} ms",
+                    observation.route(), observation.method(), observation.path(), observation.client(),
+                    status, responseBytes, nanos / 1_000_000);
+        }
+    }
+
+    /**
+     * Registra as métricas e a auditoria de uma requisição recusada pelo próprio broker, sem o log de erro.
+     */
+    private void rejected(RequestObservation observation, int status, RuntimeException error) {
+        long nanos = System.nanoTime() - observation.startNanos();
+        gatewayMetrics.recordRequest(observation.route(), observation.api(), observation.client(), status, nanos);
+        audit(observation, status, error.getClass().getSimpleName(), nanos, null);
+    }
+
+    private void failed(RequestObservation observation, Throwable error) {
+        long nanos = System.nanoTime() - observation.startNanos();
+        gatewayMetrics.recordRequest(observation.route(), observation.api(), observation.client(), error, nanos);
+        Integer status = error instanceof WebClientResponseException responseError ? responseError.getStatusCode().value() : null;
+        audit(observation, status, error.getClass().getSimpleName(), nanos, null);
+        logGatewayError(error);
+    }
+
+    private void audit(RequestObservation observation, Integer status, String error, long nanos, Long responseBytes) {
+        RequestTimings timings = observation.timings();
+        auditLog.record(new AuditRecord(Instant.now(), observation.client(), observation.route(), observation.api(),
+                observation.method().name(), observation.path(), observation.userCpf(), status, error,
+                nanos / 1_000_000.0, timings.routeMillis(), timings.tokenMillis(), timings.upstreamMillis(),
+                observation.requestBytes(), responseBytes));
+    }
+
+    /**
+     * Auditoria de uma requisição recusada antes do encaminhamento: rota inexistente ou cliente sem permissão.
+     */
+    private void auditRejected(RouteMatch routeMatch, String xRoadClient, HttpMethod method, HttpServletRequest request,
+                               long startNanos, RuntimeException error) {
+        int status = error instanceof SecurityException ? HttpStatus.FORBIDDEN.value() : HttpStatus.BAD_REQUEST.value();
+        auditLog.record(new AuditRecord(Instant.now(), xRoadClient,
+                routeMatch != null ? routeMatch.route().getId() : null,
+                routeMatch != null ? routeMatch.route().getApi() : null,
+                method.name(), request.getRequestURI(), request.getHeader(USER_CPF_HEADER), status,
+                error.getClass().getSimpleName(), (System.nanoTime() - startNanos) / 1_000_000.0, null, null, null,
+                contentLength(request), null));
+    }
+
+    private static Long contentLength(HttpServletRequest request) {
+        long length = request.getContentLengthLong();
+        return length >= 0 ? length : null;
+    }
+
+    private void logGatewayError(Throwable error) {
+        log.error("### ERRO INESPERADO NA CADEIA DO GATEWAY ###");
+        log.error("Tipo de Erro: {}", error.getClass().getName());
+        log.error("Mensagem: {}", error.getMessage());
+    }
+
     /**
-     * Encontra a permissão (e as credenciais) para uma API específica dentro da configuração de um cliente.
+     * Verifica se a API de destino já resolvida pelo índice de rotas está configurada.
      */
-    private ApiPermissionConfig findApiPermission(ClientConfig clientConfig, String apiName) {
-        return Optional.ofNullable(clientConfig.getAuthorizedApis().get(apiName))
-                .orElseThrow(() -> new SecurityException("Acesso negado. O cliente não tem permissão para acessar a API '" + apiName + "'."));
+    private void requireApiConfig(RouteMatch routeMatch) {
+        Optional.ofNullable(routeMatch.apiConfig())
+                .orElseThrow(() -> new IllegalArgumentException("API '" + routeMatch.route().getApi() + "' não configurada."));
     }
 
     /**
-     * Encontra a configuração da API de destino com base no nome.
+     * Dados de uma requisição já autorizada, usados nas métricas, na auditoria e no log amostrado ao terminar.
+     * {@code timings} é preenchido pelo {@link ProxyService} através do contexto do Reactor.
      */
-    private ApiConfig findApiConfig(String apiName) {
-        return Optional.ofNullable(brokerProperties.getApis().get(apiName))
-                .orElseThrow(() -> new IllegalArgumentException("API '" + apiName + "' não configurada."));
+    private record RequestObservation(String route, String api, String client, HttpMethod method, String path,
+                                      String userCpf, Long requestBytes, long startNanos, RequestTimings timings) {
     }
 }
\ No newline at end of file
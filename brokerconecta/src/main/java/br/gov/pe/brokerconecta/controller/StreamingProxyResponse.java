@@ -0,0 +1,95 @@
+package br.gov.pe.brokerconecta.controller;
+
+import br.gov.pe.brokerconecta.config.ProxyConfig;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import reactor.core.publisher.Flux;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.function.LongConsumer;
+import java.util.stream.Stream;
+
+/**
+ * Escreve para o cliente a resposta em blocos da API de destino, à medida que os blocos chegam.
+ * <p>
+ * No máximo {@link ProxyConfig#getMaxBufferedChunks()} blocos ficam em memória aguardando escrita:
+ * quando o cliente lê devagar, a leitura da API de destino é pausada (backpressure). A escrita roda
+ * no executor assíncrono do Spring MVC, nunca na thread de I/O do WebClient.
+ * <p>
+ * Status e headers são aplicados na própria escrita, pois o Spring MVC só reconhece um
+ * {@link StreamingResponseBody} assíncrono pelo tipo concreto do valor retornado.
+ */
+class StreamingProxyResponse implements StreamingResponseBody {
+
+    // Headers de conexão da API de destino que não devem ser repassados: o servlet container
+    // gerencia a própria conexão e codificação de transferência com o cliente.
+    private static final Set<String> HOP_BY_HOP_HEADERS = new TreeSet<>(String.CASE_INSENSITIVE_ORDER);
+    static {
+        HOP_BY_HOP_HEADERS.addAll(List.of(HttpHeaders.CONNECTION, "Keep-Alive", HttpHeaders.TRANSFER_ENCODING,
+                HttpHeaders.TE, HttpHeaders.TRAILER, HttpHeaders.UPGRADE));
+    }
+
+    private final ResponseEntity<Flux<DataBuffer>> upstream;
+    private final HttpServletResponse response;
+    private final ProxyConfig proxyConfig;
+    private final LongConsumer onComplete;
+
+    /**
+     * @param onComplete recebe o número de bytes do corpo escritos para o cliente, ao fim de uma escrita completa.
+     */
+    StreamingProxyResponse(ResponseEntity<Flux<DataBuffer>> upstream, HttpServletResponse response, ProxyConfig proxyConfig,
+                           LongConsumer onComplete) {
+        this.upstream = upstream;
+        this.response = response;
+        this.proxyConfig = proxyConfig;
+        this.onComplete = onComplete;
+    }
+
+    @Override
+    public void writeTo(OutputStream outputStream) throws IOException {
+        response.setStatus(upstream.getStatusCode().value());
+        upstream.getHeaders().forEach((name, values) -> {
+            if (!HOP_BY_HOP_HEADERS.contains(name)) {
+                values.forEach(value -> response.addHeader(name, value));
+            }
+        });
+
+        Flux<DataBuffer> body = upstream.getBody();
+        if (body == null) {
+            onComplete.accept(0);
+            return;
+        }
+
+        // Um único array por requisição é reaproveitado para copiar os blocos (em geral buffers diretos do Netty).
+        byte[] scratch = new byte[proxyConfig.getChunkSize()];
+        long written = 0;
+        try (Stream<DataBuffer> chunks = body
+                .doOnDiscard(DataBuffer.class, DataBufferUtils::release)
+                .toStream(proxyConfig.getMaxBufferedChunks())) {
+            Iterator<DataBuffer> iterator = chunks.iterator();
+            while (iterator.hasNext()) {
+                DataBuffer chunk = iterator.next();
+                try {
+                    while (chunk.readableByteCount() > 0) {
+                        int length = Math.min(chunk.readableByteCount(), scratch.length);
+                        chunk.read(scratch, 0, length);
+                        outputStream.write(scratch, 0, length);
+                        written += length;
+                    }
+                } finally {
+                    DataBufferUtils.release(chunk);
+                }
+            }
+        }
+        onComplete.accept(written);
+    }
+}
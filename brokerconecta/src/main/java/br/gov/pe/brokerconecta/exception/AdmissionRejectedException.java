@@ -0,0 +1,63 @@
+package br.gov.pe.brokerconecta.exception;
+
+import java.time.Duration;
+
+/**
+ * Requisição recusada pela fila de admissão da API ({@code broker.apis.<api>.admission}), sem chamar a API.
+ * <p>
+ * Lançada em rajadas quando a API está saturada, por isso não captura stack trace.
+ */
+public class AdmissionRejectedException extends RuntimeException {
+
+    private final Reason reason;
+    private final Duration retryAfter;
+
+    public AdmissionRejectedException(String xRoadId, String apiName, Reason reason, Duration retryAfter) {
+        super(reason.message + " (cliente '" + xRoadId + "', API '" + apiName + "').");
+        this.reason = reason;
+        this.retryAfter = retryAfter;
+    }
+
+    public Reason getReason() {
+        return reason;
+    }
+
+    public Duration getRetryAfter() {
+        return retryAfter;
+    }
+
+    @Override
+    public synchronized Throwable fillInStackTrace() {
+        return this;
+    }
+
+    public enum Reason {
+        /**
+         * Fila do cliente cheia (429): o cliente já tem {@code max-queue-per-client} requisições aguardando.
+         */
+        QUEUE_FULL("queue_full", "Fila de requisições do cliente para a API cheia"),
+        /**
+         * Espera por uma vaga maior que {@code max-wait} (503).
+         */
+        MAX_WAIT("max_wait", "API de destino saturada: tempo máximo de espera por uma vaga esgotado"),
+        /**
+         * A requisição não terminaria dentro do prazo, pela espera e pela duração recente das chamadas (503).
+         */
+        DEADLINE("deadline", "API de destino saturada: a requisição não seria atendida dentro do prazo");
+
+        private final String tag;
+        private final String message;
+
+        Reason(String tag, String message) {
+            this.tag = tag;
+            this.message = message;
+        }
+
+        /**
+         * Valor da tag {@code reason} nas métricas.
+         */
+        public String tag() {
+            return tag;
+        }
+    }
+}
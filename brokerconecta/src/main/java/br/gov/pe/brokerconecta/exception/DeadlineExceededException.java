@@ -0,0 +1,20 @@
+package br.gov.pe.brokerconecta.exception;
+
+import java.time.Duration;
+
+/**
+ * Prazo da requisição (header de prazo ou {@code timeout} da rota) esgotado antes da resposta da API (504).
+ * <p>
+ * Lançada a cada prazo esgotado, possivelmente em rajadas, por isso não captura stack trace.
+ */
+public class DeadlineExceededException extends RuntimeException {
+
+    public DeadlineExceededException(String routeId, Duration budget) {
+        super("Prazo de " + budget.toMillis() + " ms da requisição para a rota '" + routeId + "' esgotado.");
+    }
+
+    @Override
+    public synchronized Throwable fillInStackTrace() {
+        return this;
+    }
+}
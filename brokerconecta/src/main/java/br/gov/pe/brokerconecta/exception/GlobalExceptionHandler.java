@@ -1,6 +1,9 @@
 package br.gov.pe.brokerconecta.exception;
 
+import io.github.resilience4j.bulkhead.BulkheadFullException;
+import io.github.resilience4j.circuitbreaker.CallNotPermittedException;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.ControllerAdvice;
@@ -66,6 +69,74 @@ public class GlobalExceptionHandler {
                 .body(Map.of("erro_gateway", errorMessage));
     }
 
+    /**
+     * Handler para requisições cujo prazo se esgotou antes da resposta da API; a chamada já foi cancelada.
+     */
+    @ExceptionHandler(DeadlineExceededException.class)
+    public ResponseEntity<Map<String, String>> handleDeadlineExceededException(DeadlineExceededException ex) {
+        log.debug("Requisição interrompida: {}", ex.getMessage());
+        return ResponseEntity
+                .status(HttpStatus.GATEWAY_TIMEOUT)
+                .body(Map.of("erro_gateway", ex.getMessage()));
+    }
+
+    /**
+     * Handler para respostas da API que não puderam ser projetadas; o corpo completo nunca é devolvido no lugar.
+     */
+    @ExceptionHandler(ProjectionFailedException.class)
+    public ResponseEntity<Map<String, String>> handleProjectionFailedException(ProjectionFailedException ex) {
+        log.warn("Projeção de campos falhou: {}", ex.getMessage());
+        return ResponseEntity
+                .status(HttpStatus.BAD_GATEWAY)
+                .body(Map.of("erro_gateway", ex.getMessage()));
+    }
+
+    /**
+     * Handler para requisições rejeitadas pelo limite local de requisições do cliente, antes de chegar à API externa.
+     */
+    @ExceptionHandler(RateLimitExceededException.class)
+    public ResponseEntity<Map<String, String>> handleRateLimitExceededException(RateLimitExceededException ex) {
+        log.debug("Requisição rejeitada pelo limite local: {}", ex.getMessage());
+        // Retry-After em segundos inteiros, arredondado para cima
+        long retryAfterSeconds = Math.max(1, (ex.getRetryAfter().toMillis() + 999) / 1000);
+        return ResponseEntity
+                .status(HttpStatus.TOO_MANY_REQUESTS)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfterSeconds))
+                .body(Map.of("erro_limite", ex.getMessage()));
+    }
+
+    /**
+     * Handler para requisições recusadas pela fila de admissão da API: fila do cliente cheia (429), ou API
+     * saturada além da espera máxima ou do prazo da requisição (503).
+     */
+    @ExceptionHandler(AdmissionRejectedException.class)
+    public ResponseEntity<Map<String, String>> handleAdmissionRejectedException(AdmissionRejectedException ex) {
+        log.debug("Requisição recusada pela fila de admissão: {}", ex.getMessage());
+        HttpStatus status = ex.getReason() == AdmissionRejectedException.Reason.QUEUE_FULL
+                ? HttpStatus.TOO_MANY_REQUESTS
+                : HttpStatus.SERVICE_UNAVAILABLE;
+        long retryAfterSeconds = Math.max(1, (ex.getRetryAfter().toMillis() + 999) / 1000);
+        return ResponseEntity
+                .status(status)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfterSeconds))
+                .body(Map.of("erro_limite", ex.getMessage()));
+    }
+
+    /**
+     * Handler para chamadas barradas pelo circuit breaker (API de destino com falhas recentes) ou pelo
+     * bulkhead (limite de chamadas simultâneas para a API atingido), sem chegar a chamar a API.
+     */
+    @ExceptionHandler({CallNotPermittedException.class, BulkheadFullException.class})
+    public ResponseEntity<Map<String, String>> handleUpstreamUnavailable(Exception ex) {
+        String errorMessage = ex instanceof CallNotPermittedException
+                ? "Serviço externo temporariamente indisponível: circuito aberto após falhas recentes. Tente novamente mais tarde."
+                : "Serviço externo com o limite de chamadas simultâneas atingido. Tente novamente em instantes.";
+        log.warn("Chamada à API externa não realizada: {}", ex.getMessage());
+        return ResponseEntity
+                .status(HttpStatus.SERVICE_UNAVAILABLE)
+                .body(Map.of("erro_gateway", errorMessage));
+    }
+
     /**
      * Handler para erros de segurança, como cliente não configurado ou sem permissão.
      */
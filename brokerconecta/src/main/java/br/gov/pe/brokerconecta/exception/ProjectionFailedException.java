@@ -0,0 +1,15 @@
+package br.gov.pe.brokerconecta.exception;
+
+/**
+ * Resposta da API que não pôde passar pela projeção de campos configurada para a rota ou para o cliente (502).
+ * <p>
+ * O corpo original nunca é entregue no lugar da resposta projetada: ele pode conter campos que o cliente não
+ * está autorizado a receber.
+ */
+public class ProjectionFailedException extends RuntimeException {
+
+    public ProjectionFailedException(String routeId, Throwable cause) {
+        super("Resposta da API para a rota '" + routeId + "' não é um JSON válido; a projeção de campos não pôde ser aplicada.",
+                cause);
+    }
+}
@@ -0,0 +1,27 @@
+package br.gov.pe.brokerconecta.exception;
+
+import java.time.Duration;
+
+/**
+ * Requisição rejeitada pelo limite local de requisições do cliente para a API (429).
+ * <p>
+ * Lançada no caminho rápido da rejeição, por isso não captura stack trace.
+ */
+public class RateLimitExceededException extends RuntimeException {
+
+    private final Duration retryAfter;
+
+    public RateLimitExceededException(String xRoadId, String apiName, Duration retryAfter) {
+        super("Limite de requisições do cliente '" + xRoadId + "' para a API '" + apiName + "' excedido.");
+        this.retryAfter = retryAfter;
+    }
+
+    public Duration getRetryAfter() {
+        return retryAfter;
+    }
+
+    @Override
+    public synchronized Throwable fillInStackTrace() {
+        return this;
+    }
+}
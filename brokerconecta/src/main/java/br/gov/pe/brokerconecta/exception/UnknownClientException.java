@@ -0,0 +1,19 @@
+package br.gov.pe.brokerconecta.exception;
+
+/**
+ * Cliente X-Road não configurado no broker.
+ * <p>
+ * As instâncias ficam no cache negativo do {@code ClientAuthorizationResolver} e são reaproveitadas
+ * a cada nova tentativa do mesmo cliente, por isso não capturam stack trace.
+ */
+public class UnknownClientException extends SecurityException {
+
+    public UnknownClientException(String xRoadId) {
+        super("Cliente com X-Road ID '" + xRoadId + "' não está configurado.");
+    }
+
+    @Override
+    public synchronized Throwable fillInStackTrace() {
+        return this;
+    }
+}
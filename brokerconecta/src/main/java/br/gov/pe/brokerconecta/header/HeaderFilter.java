@@ -0,0 +1,66 @@
+package br.gov.pe.brokerconecta.header;
+
+import br.gov.pe.brokerconecta.config.HeaderForwardingConfig;
+import org.springframework.http.HttpHeaders;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Regras de repasse de headers de uma rota, compiladas uma única vez junto com o índice de rotas.
+ * <p>
+ * Os conjuntos comparam nomes sem diferenciar maiúsculas de minúsculas ({@link String#CASE_INSENSITIVE_ORDER}),
+ * então a verificação de cada header não cria cópias do nome em minúsculas. A instância é imutável.
+ */
+public final class HeaderFilter {
+
+    /**
+     * Headers nunca repassados: hop-by-hop (RFC 9110, seção 7.6.1), os que descrevem a conexão com o cliente
+     * e o {@code Authorization}, substituído pelo token do broker.
+     */
+    static final Set<String> ALWAYS_DENIED = caseInsensitive(List.of(
+            HttpHeaders.CONNECTION, "Keep-Alive", "Proxy-Connection", HttpHeaders.PROXY_AUTHENTICATE,
+            HttpHeaders.PROXY_AUTHORIZATION, HttpHeaders.TE, HttpHeaders.TRAILER, HttpHeaders.TRANSFER_ENCODING,
+            HttpHeaders.UPGRADE, HttpHeaders.HOST, HttpHeaders.CONTENT_LENGTH, HttpHeaders.AUTHORIZATION));
+
+    /**
+     * Regras das rotas sem {@code headers} configurado: repassa tudo, exceto {@link #ALWAYS_DENIED}.
+     */
+    public static final HeaderFilter DEFAULT = new HeaderFilter(null, ALWAYS_DENIED);
+
+    // null = todos os headers
+    private final Set<String> allowed;
+    private final Set<String> denied;
+
+    private HeaderFilter(Set<String> allowed, Set<String> denied) {
+        this.allowed = allowed;
+        this.denied = denied;
+    }
+
+    public static HeaderFilter of(HeaderForwardingConfig config) {
+        if (config == null || (config.getAllow().isEmpty() && config.getDeny().isEmpty())) {
+            return DEFAULT;
+        }
+        Set<String> denied = new TreeSet<>(String.CASE_INSENSITIVE_ORDER);
+        denied.addAll(ALWAYS_DENIED);
+        denied.addAll(config.getDeny());
+        return new HeaderFilter(config.getAllow().isEmpty() ? null : caseInsensitive(config.getAllow()),
+                Collections.unmodifiableSet(denied));
+    }
+
+    /**
+     * Indica se o header {@code name} deve ser repassado para a API de destino.
+     */
+    public boolean forwards(String name) {
+        return !denied.contains(name) && (allowed == null || allowed.contains(name));
+    }
+
+    private static Set<String> caseInsensitive(Collection<String> names) {
+        Set<String> set = new TreeSet<>(String.CASE_INSENSITIVE_ORDER);
+        set.addAll(names);
+        return Collections.unmodifiableSet(set);
+    }
+}
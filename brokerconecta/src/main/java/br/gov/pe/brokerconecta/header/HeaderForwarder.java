@@ -0,0 +1,99 @@
+package br.gov.pe.brokerconecta.header;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Component;
+import org.springframework.util.CollectionUtils;
+import org.springframework.util.LinkedCaseInsensitiveMap;
+
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Monta os headers repassados para a API de destino a partir da requisição do cliente, com as regras
+ * pré-compiladas da rota ({@link HeaderFilter}), e fornece o valor do header {@code Authorization} do broker.
+ * <p>
+ * Os valores recebidos pelo servidor são repassados sem cópia (as mesmas instâncias de {@link String}, em listas
+ * imutáveis), inclusive os headers com mais de um valor. Headers listados no próprio {@code Connection} da
+ * requisição também são hop-by-hop e não são repassados.
+ */
+@Component
+public class HeaderForwarder {
+
+    // Headers por requisição: o mapa já nasce com capacidade para uma chamada típica, sem redimensionar
+    private static final int EXPECTED_HEADERS = 16;
+
+    // "Bearer <token>" por token. As chaves são comparadas por identidade (weakKeys): a consulta não calcula
+    // o hash do token, e a entrada some junto com o token quando ele sai do cache de tokens.
+    private final Cache<String, String> bearerHeaders = Caffeine.newBuilder()
+            .weakKeys()
+            .maximumSize(1024)
+            .build();
+
+    /**
+     * Headers da requisição do cliente que a rota repassa para a API de destino.
+     */
+    public HttpHeaders forward(HttpServletRequest request, HeaderFilter filter) {
+        HttpHeaders headers = new HttpHeaders(
+                CollectionUtils.toMultiValueMap(new LinkedCaseInsensitiveMap<>(EXPECTED_HEADERS, Locale.ENGLISH)));
+        Set<String> connectionOptions = connectionOptions(request.getHeader(HttpHeaders.CONNECTION));
+        Enumeration<String> names = request.getHeaderNames();
+        while (names.hasMoreElements()) {
+            String name = names.nextElement();
+            if (!filter.forwards(name) || (connectionOptions != null && connectionOptions.contains(name))) {
+                continue;
+            }
+            Enumeration<String> values = request.getHeaders(name);
+            if (!values.hasMoreElements()) {
+                continue;
+            }
+            String first = values.nextElement();
+            headers.put(name, values.hasMoreElements() ? allValues(first, values) : List.of(first));
+        }
+        return headers;
+    }
+
+    /**
+     * Valor do header {@code Authorization} para o token, montado uma única vez por token.
+     */
+    public String bearer(String token) {
+        return bearerHeaders.get(token, key -> "Bearer " + key);
+    }
+
+    private static List<String> allValues(String first, Enumeration<String> rest) {
+        List<String> values = new ArrayList<>(4);
+        values.add(first);
+        while (rest.hasMoreElements()) {
+            values.add(rest.nextElement());
+        }
+        return List.copyOf(values);
+    }
+
+    /**
+     * Headers nomeados no {@code Connection} (RFC 9110, seção 7.6.1), ou {@code null} se não houver nenhum
+     * além de {@code keep-alive} e {@code close}, o caso comum.
+     */
+    private static Set<String> connectionOptions(String connection) {
+        if (connection == null || connection.equalsIgnoreCase("keep-alive") || connection.equalsIgnoreCase("close")) {
+            return null;
+        }
+        Set<String> options = null;
+        for (String option : connection.split(",")) {
+            option = option.trim();
+            if (option.isEmpty() || option.equalsIgnoreCase("keep-alive") || option.equalsIgnoreCase("close")) {
+                continue;
+            }
+            if (options == null) {
+                options = new TreeSet<>(String.CASE_INSENSITIVE_ORDER);
+            }
+            options.add(option);
+        }
+        return options;
+    }
+}
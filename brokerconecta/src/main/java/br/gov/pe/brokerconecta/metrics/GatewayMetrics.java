@@ -0,0 +1,121 @@
+package br.gov.pe.brokerconecta.metrics;
+
+import br.gov.pe.brokerconecta.service.ProxyRequest;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.actuate.metrics.http.Outcome;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Métricas do caminho das requisições, por rota, API e cliente X-Road:
+ * <ul>
+ *   <li>{@code broker.gateway.requests}: duração total da requisição no broker, com o {@code outcome}.</li>
+ *   <li>{@code broker.gateway.phase}: duração de cada fase ({@link Phase}).</li>
+ *   <li>{@code broker.gateway.response.size}: tamanho do corpo das respostas, em bytes.</li>
+ *   <li>{@code broker.token.lookups}: consultas ao cache local de tokens ({@code result} = hit ou miss), por API.</li>
+ * </ul>
+ * Os medidores ficam em mapas próprios por combinação de tags: no caminho de cada requisição há só uma consulta
+ * a um {@link ConcurrentHashMap}, sem montar tags nem consultar o registro do Micrometer. As tags de cliente só
+ * são usadas depois da autorização, então o número de séries fica limitado aos clientes configurados.
+ * <p>
+ * Os histogramas (e os percentis no Prometheus) são configurados em
+ * {@code management.metrics.distribution.*} no application.yml.
+ */
+@Component
+@RequiredArgsConstructor
+public class GatewayMetrics {
+
+    private final MeterRegistry meterRegistry;
+
+    private final Map<MeterKey, Timer> requestTimers = new ConcurrentHashMap<>();
+    private final Map<MeterKey, Timer> phaseTimers = new ConcurrentHashMap<>();
+    private final Map<MeterKey, DistributionSummary> responseSizes = new ConcurrentHashMap<>();
+    private final Map<MeterKey, Counter> tokenLookups = new ConcurrentHashMap<>();
+
+    /**
+     * Registra a duração total de uma requisição que terminou com o status {@code status}.
+     */
+    public void recordRequest(String route, String api, String client, int status, long nanos) {
+        recordRequest(route, api, client, Outcome.forStatus(status).name(), nanos);
+    }
+
+    /**
+     * Registra a duração total de uma requisição que terminou com erro antes de haver uma resposta.
+     */
+    public void recordRequest(String route, String api, String client, Throwable error, long nanos) {
+        String outcome = error instanceof WebClientResponseException responseError
+                ? Outcome.forStatus(responseError.getStatusCode().value()).name()
+                : "ERROR";
+        recordRequest(route, api, client, outcome, nanos);
+    }
+
+    private void recordRequest(String route, String api, String client, String outcome, long nanos) {
+        requestTimers.computeIfAbsent(new MeterKey(outcome, route, api, client), key -> Timer.builder("broker.gateway.requests")
+                        .description("Duração das requisições no broker, da chegada até a resposta")
+                        .tags("outcome", key.qualifier(), "route", key.route(), "api", key.api(), "client", key.client())
+                        .register(meterRegistry))
+                .record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void recordPhase(Phase phase, ProxyRequest proxyRequest, long nanos) {
+        recordPhase(phase, proxyRequest.route().getId(), proxyRequest.route().getApi(), proxyRequest.xRoadClient(), nanos);
+    }
+
+    public void recordPhase(Phase phase, String route, String api, String client, long nanos) {
+        phaseTimers.computeIfAbsent(new MeterKey(phase.tag, route, api, client), key -> Timer.builder("broker.gateway.phase")
+                        .description("Duração de cada fase do atendimento: route, token e upstream")
+                        .tags("phase", key.qualifier(), "route", key.route(), "api", key.api(), "client", key.client())
+                        .register(meterRegistry))
+                .record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void recordResponseSize(String route, String api, String client, long bytes) {
+        responseSizes.computeIfAbsent(new MeterKey("", route, api, client), key -> DistributionSummary.builder("broker.gateway.response.size")
+                        .description("Tamanho do corpo das respostas entregues aos clientes")
+                        .baseUnit("bytes")
+                        .tags("route", key.route(), "api", key.api(), "client", key.client())
+                        .register(meterRegistry))
+                .record(bytes);
+    }
+
+    /**
+     * Conta uma consulta ao cache local de tokens. A taxa de acerto é {@code hit / (hit + miss)}.
+     */
+    public void recordTokenLookup(String api, boolean hit) {
+        String result = hit ? "hit" : "miss";
+        tokenLookups.computeIfAbsent(new MeterKey(result, "", api, ""), key -> Counter.builder("broker.token.lookups")
+                        .description("Consultas ao cache local de tokens")
+                        .tags("result", key.qualifier(), "api", key.api())
+                        .register(meterRegistry))
+                .increment();
+    }
+
+    private record MeterKey(String qualifier, String route, String api, String client) {
+    }
+
+    /**
+     * Fases do atendimento de uma requisição.
+     */
+    public enum Phase {
+        /** Identificação da rota e autorização do cliente. */
+        ROUTE("route"),
+        /** Obtenção do token de acesso (cache local, cache compartilhado ou provedor). */
+        TOKEN("token"),
+        /** Chamada à API de destino até o recebimento da resposta (ou dos headers, no modo streaming). */
+        UPSTREAM("upstream");
+
+        private final String tag;
+
+        Phase(String tag) {
+            this.tag = tag;
+        }
+    }
+}
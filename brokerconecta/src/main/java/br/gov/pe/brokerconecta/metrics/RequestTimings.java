@@ -0,0 +1,60 @@
+package br.gov.pe.brokerconecta.metrics;
+
+import reactor.util.context.ContextView;
+
+/**
+ * Durações das fases de uma requisição, para a auditoria.
+ * <p>
+ * O controller mede a fase {@code route} e coloca a instância no contexto do Reactor; o {@code ProxyService}
+ * preenche as fases {@code token} e {@code upstream}. Quando a chamada à API é compartilhada (requisição idêntica
+ * em andamento, lote agrupado) ou não acontece (resposta em cache), ela não roda no contexto da requisição e
+ * essas duas fases ficam sem valor.
+ */
+public final class RequestTimings {
+
+    private static final long UNSET = -1;
+
+    private volatile long routeNanos = UNSET;
+    private volatile long tokenNanos = UNSET;
+    private volatile long upstreamNanos = UNSET;
+
+    /**
+     * Instância do contexto da requisição, ou {@code null} se não houver.
+     */
+    public static RequestTimings from(ContextView context) {
+        return context.getOrDefault(RequestTimings.class, null);
+    }
+
+    public void record(GatewayMetrics.Phase phase, long nanos) {
+        switch (phase) {
+            case ROUTE -> routeNanos = nanos;
+            case TOKEN -> tokenNanos = nanos;
+            case UPSTREAM -> upstreamNanos = nanos;
+        }
+    }
+
+    /**
+     * Duração da identificação da rota e autorização em milissegundos, ou {@code null} se não foi medida.
+     */
+    public Double routeMillis() {
+        return toMillis(routeNanos);
+    }
+
+    /**
+     * Duração da obtenção do token em milissegundos, ou {@code null} se não foi medida.
+     */
+    public Double tokenMillis() {
+        return toMillis(tokenNanos);
+    }
+
+    /**
+     * Duração da chamada à API de destino em milissegundos, ou {@code null} se não foi medida.
+     */
+    public Double upstreamMillis() {
+        return toMillis(upstreamNanos);
+    }
+
+    private static Double toMillis(long nanos) {
+        return nanos == UNSET ? null : nanos / 1_000_000.0;
+    }
+}
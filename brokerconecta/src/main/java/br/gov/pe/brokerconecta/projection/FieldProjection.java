@@ -0,0 +1,156 @@
+package br.gov.pe.brokerconecta.projection;
+
+import com.fasterxml.jackson.core.JacksonException;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Projeção de campos do JSON de resposta: só os campos listados chegam ao cliente ({@code broker.routes[].projection}
+ * e {@code broker.clients.<cliente>.authorizedApis.<api>.projection}).
+ * <p>
+ * Os campos são caminhos separados por ponto ({@code Nome}, {@code Endereco.Cep}), aplicados a cada objeto da
+ * resposta: em uma lista, a cada elemento; em um campo que é lista, a cada elemento dela. Um campo listado sem
+ * subcampos é copiado inteiro.
+ * <p>
+ * A projeção é aplicada em uma única passagem com o parser de streaming do Jackson, copiando os tokens dos campos
+ * mantidos e pulando os demais, sem montar a árvore do documento. A instância é imutável e compilada uma vez por
+ * rota e por permissão, junto com os índices da configuração.
+ */
+public final class FieldProjection {
+
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+    // Campo mantido → projeção dos subcampos, ou null para copiar o campo inteiro (por isso não é um Map.copyOf)
+    private final Map<String, FieldProjection> fields;
+
+    private FieldProjection(Map<String, FieldProjection> fields) {
+        this.fields = fields;
+    }
+
+    /**
+     * Compila a lista de campos, ou devolve {@code null} se a lista for nula ou vazia (sem projeção).
+     */
+    public static FieldProjection of(List<String> paths) {
+        if (paths == null || paths.isEmpty()) {
+            return null;
+        }
+        Map<String, Object> tree = new HashMap<>();
+        for (String path : paths) {
+            if (path == null || path.isBlank()) {
+                throw new IllegalArgumentException("Projeção com campo vazio: " + paths + ".");
+            }
+            add(tree, path.trim().split("\\."), 0);
+        }
+        return compile(tree);
+    }
+
+    /**
+     * Campos permitidos pelas duas projeções. Uma projeção {@code null} não restringe nada.
+     */
+    public static FieldProjection intersect(FieldProjection first, FieldProjection second) {
+        if (first == null) {
+            return second;
+        }
+        if (second == null) {
+            return first;
+        }
+        Map<String, FieldProjection> fields = new HashMap<>();
+        first.fields.forEach((name, firstChild) -> {
+            if (second.fields.containsKey(name)) {
+                FieldProjection secondChild = second.fields.get(name);
+                fields.put(name, firstChild == null ? secondChild
+                        : secondChild == null ? firstChild
+                        : intersect(firstChild, secondChild));
+            }
+        });
+        return new FieldProjection(Collections.unmodifiableMap(fields));
+    }
+
+    /**
+     * Aplica a projeção ao JSON. Lança {@link IllegalStateException} se o conteúdo não for um JSON válido.
+     */
+    public byte[] apply(byte[] json) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(json.length);
+        try (JsonParser parser = JSON_FACTORY.createParser(json);
+             JsonGenerator generator = JSON_FACTORY.createGenerator(out)) {
+            if (parser.nextToken() == null) {
+                return json;
+            }
+            write(parser, generator, this);
+        } catch (JacksonException e) {
+            throw new IllegalStateException("Resposta não é um JSON válido; a projeção não pôde ser aplicada.", e);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * Copia o valor atual do parser: objetos só com os campos da projeção e listas elemento a elemento.
+     */
+    private static void write(JsonParser parser, JsonGenerator generator, FieldProjection projection) throws IOException {
+        if (projection == null) {
+            generator.copyCurrentStructure(parser);
+            return;
+        }
+        JsonToken token = parser.currentToken();
+        if (token == JsonToken.START_ARRAY) {
+            generator.writeStartArray();
+            while (parser.nextToken() != JsonToken.END_ARRAY) {
+                write(parser, generator, projection);
+            }
+            generator.writeEndArray();
+        } else if (token == JsonToken.START_OBJECT) {
+            generator.writeStartObject();
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String name = parser.currentName();
+                parser.nextToken();
+                if (projection.fields.containsKey(name)) {
+                    generator.writeFieldName(name);
+                    write(parser, generator, projection.fields.get(name));
+                } else {
+                    parser.skipChildren();
+                }
+            }
+            generator.writeEndObject();
+        } else {
+            generator.copyCurrentEvent(parser);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static void add(Map<String, Object> tree, String[] segments, int index) {
+        String name = segments[index];
+        if (index == segments.length - 1) {
+            // Campo inteiro: vale mais que qualquer subcampo listado
+            tree.put(name, Boolean.TRUE);
+            return;
+        }
+        Object child = tree.get(name);
+        if (child == Boolean.TRUE) {
+            return;
+        }
+        if (child == null) {
+            child = new HashMap<String, Object>();
+            tree.put(name, child);
+        }
+        add((Map<String, Object>) child, segments, index + 1);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static FieldProjection compile(Map<String, Object> tree) {
+        Map<String, FieldProjection> fields = new HashMap<>();
+        tree.forEach((name, child) -> fields.put(name, child == Boolean.TRUE ? null : compile((Map<String, Object>) child)));
+        return new FieldProjection(Collections.unmodifiableMap(fields));
+    }
+}
@@ -0,0 +1,296 @@
+package br.gov.pe.brokerconecta.ratelimit;
+
+import br.gov.pe.brokerconecta.config.AdmissionConfig;
+import br.gov.pe.brokerconecta.config.ClientConfig.Priority;
+import br.gov.pe.brokerconecta.exception.AdmissionRejectedException;
+import br.gov.pe.brokerconecta.exception.AdmissionRejectedException.Reason;
+import br.gov.pe.brokerconecta.service.RequestDeadline;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.MonoSink;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.LongSupplier;
+
+/**
+ * Fila de admissão de uma API: as vagas de chamada simultânea e uma fila por cliente X-Road.
+ * <p>
+ * Uma vaga liberada vai para a classe de prioridade mais alta com requisições aguardando e, dentro dela, segue a
+ * ordem justa ponderada (start-time fair queuing): cada requisição enfileirada recebe a marca virtual de início
+ * {@code max(tempo virtual, fim da anterior do cliente)} e a de fim {@code início + 1/peso}; é atendida a de menor
+ * marca de início, e o tempo virtual avança até ela. Enquanto dois clientes tiverem fila, o de peso 2 recebe o
+ * dobro das vagas do de peso 1, e um cliente que ficou ocioso volta sem crédito acumulado.
+ * <p>
+ * A duração das chamadas é acompanhada por uma média móvel. Com ela, uma requisição é recusada
+ * ({@link Reason#DEADLINE}) ao chegar, se a espera estimada mais uma chamada passar do prazo, ou ao receber a
+ * vaga, se o que resta do prazo não cobrir uma chamada: a vaga vai para quem ainda pode ser atendido.
+ * <p>
+ * O estado fica sob o monitor da fila; as requisições liberadas ou recusadas são sinalizadas fora dele.
+ */
+final class AdmissionGate {
+
+    // Peso da amostra mais recente na média da duração das chamadas
+    private static final double SERVICE_TIME_ALPHA = 0.1;
+
+    private final String apiName;
+    private final AdmissionConfig config;
+    private final LongSupplier clock;
+    private final Map<String, ClientQueue> queues = new ConcurrentHashMap<>();
+
+    private volatile int inFlight;
+    private double virtualTime;
+    private double serviceNanos;
+    private long sequence;
+
+    AdmissionGate(String apiName, AdmissionConfig config) {
+        this(apiName, config, System::nanoTime);
+    }
+
+    AdmissionGate(String apiName, AdmissionConfig config, LongSupplier clock) {
+        this.apiName = apiName;
+        this.config = config;
+        this.clock = clock;
+    }
+
+    AdmissionConfig config() {
+        return config;
+    }
+
+    /**
+     * Reserva uma vaga para uma chamada do cliente. O {@link Permit} é entregue imediatamente, se houver vaga, ou
+     * quando chegar a vez do cliente; a chamada deve devolvê-lo com {@link Permit#release()} ao terminar.
+     * Cancelar a assinatura retira a requisição da fila (ou devolve a vaga já reservada).
+     */
+    Mono<Permit> acquire(String client, int weight, Priority priority, RequestDeadline deadline) {
+        Mono<Permit> admission = Mono.create(sink -> {
+            Waiter waiter = null;
+            Permit permit = null;
+            AdmissionRejectedException rejection = null;
+            synchronized (this) {
+                long now = clock.getAsLong();
+                ClientQueue queue = queues.computeIfAbsent(client, key -> new ClientQueue());
+                queue.weight = Math.max(1, weight);
+                queue.priority = priority != null ? priority : Priority.INTERACTIVE;
+
+                if (inFlight < config.getMaxConcurrentCalls()) {
+                    // Há vaga, então não há fila: as filas só existem com todas as vagas ocupadas
+                    inFlight++;
+                    permit = new Permit(now, 0);
+                } else if (config.getMaxWait().isZero() || config.getMaxWait().isNegative()) {
+                    rejection = rejection(client, Reason.MAX_WAIT);
+                } else if (queue.waiters.size() >= config.getMaxQueuePerClient()) {
+                    rejection = rejection(client, Reason.QUEUE_FULL);
+                } else if (deadline != null && serviceNanos > 0
+                        && estimatedWaitNanos(queue.priority) + serviceNanos > deadline.expiresAtNanos() - now) {
+                    rejection = rejection(client, Reason.DEADLINE);
+                } else {
+                    double start = Math.max(virtualTime, queue.lastFinish);
+                    queue.lastFinish = start + 1.0 / queue.weight;
+                    waiter = new Waiter(client, queue, sink, deadline, now, start, sequence++);
+                    queue.waiters.add(waiter);
+                    queue.depth = queue.waiters.size();
+                }
+            }
+            if (permit != null) {
+                sink.success(permit);
+            } else if (rejection != null) {
+                sink.error(rejection);
+            } else {
+                Waiter queued = waiter;
+                sink.onCancel(() -> cancel(queued));
+            }
+        });
+        Duration maxWait = config.getMaxWait();
+        return maxWait.isZero() || maxWait.isNegative()
+                ? admission
+                : admission.timeout(maxWait, Mono.error(() -> rejection(client, Reason.MAX_WAIT)));
+    }
+
+    /**
+     * Requisições do cliente aguardando vaga.
+     */
+    int depth(String client) {
+        ClientQueue queue = queues.get(client);
+        return queue != null ? queue.depth : 0;
+    }
+
+    int inFlight() {
+        return inFlight;
+    }
+
+    private void cancel(Waiter waiter) {
+        Permit unclaimed = null;
+        synchronized (this) {
+            if (waiter.state == WaiterState.WAITING) {
+                waiter.state = WaiterState.CANCELLED;
+                waiter.queue.waiters.remove(waiter);
+                waiter.queue.depth = waiter.queue.waiters.size();
+            } else if (waiter.state == WaiterState.GRANTED) {
+                // Cancelada entre a liberação da vaga e a entrega do Permit
+                unclaimed = waiter.permit;
+            }
+        }
+        if (unclaimed != null && unclaimed.claim()) {
+            unclaimed.release();
+        }
+    }
+
+    private void release(Permit permit) {
+        List<Runnable> signals = new ArrayList<>();
+        synchronized (this) {
+            inFlight--;
+            long sample = clock.getAsLong() - permit.grantedAt;
+            serviceNanos = serviceNanos == 0 ? sample : serviceNanos + SERVICE_TIME_ALPHA * (sample - serviceNanos);
+            dispatch(signals);
+        }
+        signals.forEach(Runnable::run);
+    }
+
+    /**
+     * Entrega as vagas livres às próximas requisições da fila. Chamado sob o monitor.
+     */
+    private void dispatch(List<Runnable> signals) {
+        long now = clock.getAsLong();
+        while (inFlight < config.getMaxConcurrentCalls()) {
+            Waiter next = nextWaiter();
+            if (next == null) {
+                return;
+            }
+            next.queue.waiters.poll();
+            next.queue.depth = next.queue.waiters.size();
+            virtualTime = next.start;
+
+            if (next.deadline != null && serviceNanos > 0 && next.deadline.expiresAtNanos() - now < serviceNanos) {
+                next.state = WaiterState.SHED;
+                AdmissionRejectedException rejection = rejection(next.client, Reason.DEADLINE);
+                signals.add(() -> next.sink.error(rejection));
+                continue;
+            }
+            inFlight++;
+            next.state = WaiterState.GRANTED;
+            next.permit = new Permit(now, now - next.enqueuedAt);
+            Permit permit = next.permit;
+            signals.add(() -> next.sink.success(permit));
+        }
+    }
+
+    /**
+     * Primeira requisição da classe mais prioritária com fila, pela menor marca virtual de início (no empate,
+     * a que chegou primeiro).
+     */
+    private Waiter nextWaiter() {
+        Waiter best = null;
+        for (ClientQueue queue : queues.values()) {
+            Waiter head = queue.waiters.peek();
+            if (head == null) {
+                continue;
+            }
+            if (best == null
+                    || queue.priority.ordinal() < best.queue.priority.ordinal()
+                    || (queue.priority == best.queue.priority && (head.start < best.start
+                        || (head.start == best.start && head.sequence < best.sequence)))) {
+                best = head;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Espera estimada de uma requisição que chega agora: as que estão à frente dela (mesma classe ou mais
+     * prioritária) divididas entre as vagas, pela duração média das chamadas. Chamado sob o monitor.
+     */
+    private long estimatedWaitNanos(Priority priority) {
+        int ahead = 0;
+        for (ClientQueue queue : queues.values()) {
+            if (queue.priority.ordinal() <= priority.ordinal()) {
+                ahead += queue.waiters.size();
+            }
+        }
+        return (long) ((ahead + 1) * serviceNanos / Math.max(1, config.getMaxConcurrentCalls()));
+    }
+
+    private AdmissionRejectedException rejection(String client, Reason reason) {
+        long retryAfter;
+        synchronized (this) {
+            // Tempo para esvaziar a fila inteira, na duração média das chamadas
+            retryAfter = estimatedWaitNanos(Priority.BULK);
+        }
+        return new AdmissionRejectedException(client, apiName, reason, Duration.ofNanos(retryAfter));
+    }
+
+    /**
+     * Vaga reservada para uma chamada. {@link #claim()} garante que só um lado (a chamada ou o cancelamento da
+     * espera) fica responsável por devolvê-la.
+     */
+    final class Permit {
+        private final long grantedAt;
+        private final long waitNanos;
+        private final AtomicBoolean claimed = new AtomicBoolean();
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        private Permit(long grantedAt, long waitNanos) {
+            this.grantedAt = grantedAt;
+            this.waitNanos = waitNanos;
+        }
+
+        boolean claim() {
+            return claimed.compareAndSet(false, true);
+        }
+
+        /**
+         * Devolve a vaga e entrega-a à próxima requisição da fila. Chamadas repetidas não têm efeito.
+         */
+        void release() {
+            if (released.compareAndSet(false, true)) {
+                AdmissionGate.this.release(this);
+            }
+        }
+
+        /**
+         * Tempo aguardado na fila.
+         */
+        long waitNanos() {
+            return waitNanos;
+        }
+    }
+
+    private enum WaiterState {
+        WAITING, GRANTED, CANCELLED, SHED
+    }
+
+    private static final class ClientQueue {
+        private final ArrayDeque<Waiter> waiters = new ArrayDeque<>();
+        private volatile int depth;
+        private double lastFinish;
+        private int weight = 1;
+        private Priority priority = Priority.INTERACTIVE;
+    }
+
+    private static final class Waiter {
+        private final String client;
+        private final ClientQueue queue;
+        private final MonoSink<Permit> sink;
+        private final RequestDeadline deadline;
+        private final long enqueuedAt;
+        private final double start;
+        private final long sequence;
+        private WaiterState state = WaiterState.WAITING;
+        private Permit permit;
+
+        private Waiter(String client, ClientQueue queue, MonoSink<Permit> sink, RequestDeadline deadline,
+                       long enqueuedAt, double start, long sequence) {
+            this.client = client;
+            this.queue = queue;
+            this.sink = sink;
+            this.deadline = deadline;
+            this.enqueuedAt = enqueuedAt;
+            this.start = start;
+            this.sequence = sequence;
+        }
+    }
+}
@@ -0,0 +1,152 @@
+package br.gov.pe.brokerconecta.ratelimit;
+
+import br.gov.pe.brokerconecta.config.AdmissionConfig;
+import br.gov.pe.brokerconecta.config.ClientConfig;
+import br.gov.pe.brokerconecta.exception.AdmissionRejectedException;
+import br.gov.pe.brokerconecta.service.ProxyRequest;
+import br.gov.pe.brokerconecta.service.RequestDeadline;
+import br.gov.pe.brokerconecta.snapshot.BrokerSnapshotHolder;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Fila de admissão das chamadas às APIs de destino, configurada em {@code broker.apis.<api>.admission}, com
+ * uma {@link AdmissionGate} por API.
+ * <p>
+ * Com a API saturada, as vagas vão primeiro para os clientes {@code INTERACTIVE} e são repartidas pelo
+ * {@code weight} de cada cliente ({@code broker.clients.<cliente>}); os clientes {@code BULK} usam as vagas que
+ * sobrarem. A fila de cada cliente é limitada e o prazo da requisição ({@link RequestDeadline}, lido do contexto
+ * do Reactor) é considerado na admissão. Se a configuração de uma API mudar, a fila é recriada; as chamadas
+ * em andamento devolvem as vagas à fila antiga.
+ * <p>
+ * Métricas, por API e cliente: {@code broker.admission.queue} (requisições aguardando),
+ * {@code broker.admission.wait} (espera por uma vaga) e {@code broker.admission.rejected{reason}}; e, por API,
+ * {@code broker.admission.in.flight}.
+ */
+@Component
+@Slf4j
+public class AdmissionScheduler {
+
+    private final MeterRegistry meterRegistry;
+    private final BrokerSnapshotHolder snapshotHolder;
+    private final Map<String, AdmissionGate> gates = new ConcurrentHashMap<>();
+    private final Map<MeterKey, Timer> waitTimers = new ConcurrentHashMap<>();
+    private final Map<MeterKey, Counter> rejections = new ConcurrentHashMap<>();
+    private final Map<MeterKey, Gauge> queueGauges = new ConcurrentHashMap<>();
+
+    public AdmissionScheduler(MeterRegistry meterRegistry, BrokerSnapshotHolder snapshotHolder) {
+        this.meterRegistry = meterRegistry;
+        this.snapshotHolder = snapshotHolder;
+    }
+
+    /**
+     * Executa a chamada à API quando houver vaga para ela, devolvendo a vaga ao fim (sucesso, erro ou
+     * cancelamento). Sem vaga dentro dos limites da fila, falha com {@link AdmissionRejectedException}.
+     */
+    public <T> Mono<T> admit(ProxyRequest proxyRequest, Mono<T> call) {
+        AdmissionConfig config = proxyRequest.apiConfig().getAdmission();
+        if (config == null || !config.isEnabled()) {
+            return call;
+        }
+        String apiName = proxyRequest.route().getApi();
+        String client = proxyRequest.xRoadClient();
+        AdmissionGate gate = gateFor(apiName, config);
+        ClientConfig clientConfig = snapshotHolder.current().authorizationIndex().findClientConfig(client);
+        int weight = clientConfig != null ? clientConfig.getWeight() : 1;
+        ClientConfig.Priority priority = clientConfig != null ? clientConfig.getPriority() : ClientConfig.Priority.INTERACTIVE;
+        MeterKey key = new MeterKey(apiName, client);
+        registerQueueGauge(key);
+
+        return Mono.deferContextual(context -> gate.acquire(client, weight, priority, RequestDeadline.from(context)))
+                .doOnError(AdmissionRejectedException.class, rejection -> {
+                    log.debug("Requisição do cliente [{}] para a API [{}] recusada pela fila de admissão: {}",
+                            client, apiName, rejection.getReason());
+                    rejectionCounter(key, rejection.getReason()).increment();
+                })
+                .flatMap(permit -> {
+                    waitTimer(key).record(permit.waitNanos(), TimeUnit.NANOSECONDS);
+                    if (!permit.claim()) {
+                        // A espera foi cancelada e a vaga já foi devolvida
+                        return Mono.empty();
+                    }
+                    return call.doFinally(signal -> permit.release());
+                });
+    }
+
+    private AdmissionGate gateFor(String apiName, AdmissionConfig config) {
+        AdmissionGate gate = gates.get(apiName);
+        if (gate != null && gate.config().equals(config)) {
+            return gate;
+        }
+        return gates.compute(apiName, (name, current) -> {
+            if (current != null && current.config().equals(config)) {
+                return current;
+            }
+            if (current == null) {
+                // A função lê a fila atual da API, então continua válida depois de uma troca de configuração
+                Gauge.builder("broker.admission.in.flight", this, scheduler -> scheduler.inFlight(name))
+                        .description("Chamadas à API em andamento sob a fila de admissão")
+                        .tag("api", name)
+                        .register(meterRegistry);
+            } else {
+                log.info("Configuração da fila de admissão da API '{}' alterada. Recriando a fila.", name);
+            }
+            return new AdmissionGate(name, copyOf(config));
+        });
+    }
+
+    private double inFlight(String apiName) {
+        AdmissionGate gate = gates.get(apiName);
+        return gate != null ? gate.inFlight() : 0;
+    }
+
+    private double depth(MeterKey key) {
+        AdmissionGate gate = gates.get(key.api());
+        return gate != null ? gate.depth(key.client()) : 0;
+    }
+
+    private void registerQueueGauge(MeterKey key) {
+        queueGauges.computeIfAbsent(key, k -> Gauge.builder("broker.admission.queue", this, scheduler -> scheduler.depth(k))
+                .description("Requisições do cliente aguardando vaga na fila de admissão da API")
+                .tags("api", k.api(), "client", k.client())
+                .register(meterRegistry));
+    }
+
+    private Timer waitTimer(MeterKey key) {
+        return waitTimers.computeIfAbsent(key, k -> Timer.builder("broker.admission.wait")
+                .description("Espera por uma vaga na fila de admissão da API")
+                .tags("api", k.api(), "client", k.client())
+                .register(meterRegistry));
+    }
+
+    private Counter rejectionCounter(MeterKey key, AdmissionRejectedException.Reason reason) {
+        return rejections.computeIfAbsent(new MeterKey(key.api(), key.client(), reason.tag()), k -> Counter.builder("broker.admission.rejected")
+                .description("Requisições recusadas pela fila de admissão da API, sem chamar a API")
+                .tags("api", k.api(), "client", k.client(), "reason", k.reason())
+                .register(meterRegistry));
+    }
+
+    private static AdmissionConfig copyOf(AdmissionConfig config) {
+        AdmissionConfig copy = new AdmissionConfig();
+        copy.setEnabled(config.isEnabled());
+        copy.setMaxConcurrentCalls(config.getMaxConcurrentCalls());
+        copy.setMaxQueuePerClient(config.getMaxQueuePerClient());
+        copy.setMaxWait(config.getMaxWait());
+        return copy;
+    }
+
+    private record MeterKey(String api, String client, String reason) {
+        MeterKey(String api, String client) {
+            this(api, client, null);
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package br.gov.pe.brokerconecta.ratelimit;
+
+import br.gov.pe.brokerconecta.authorization.ResolvedPermission;
+import br.gov.pe.brokerconecta.config.RateLimitConfig;
+import br.gov.pe.brokerconecta.exception.RateLimitExceededException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Controle de admissão por cliente X-Road e API, com um {@link TokenBucket} para cada par que tenha
+ * {@code rateLimit} configurado na permissão.
+ */
+@Component
+@Slf4j
+public class ClientRateLimiter {
+
+    private final Map<BucketKey, TokenBucket> buckets = new ConcurrentHashMap<>();
+
+    /**
+     * Reserva uma vaga para a requisição.
+     *
+     * @return um {@link Mono} vazio que completa quando a requisição pode seguir (imediatamente, ou após
+     *         aguardar na fila até {@code maxWait}).
+     * @throws RateLimitExceededException se não houver vaga dentro de {@code maxWait}.
+     */
+    public Mono<Void> acquire(String xRoadId, ResolvedPermission permission) {
+        TokenBucket bucket = bucketFor(xRoadId, permission);
+        if (bucket == null) {
+            return Mono.empty();
+        }
+
+        long wait = bucket.reserve(System.nanoTime());
+        if (wait == 0) {
+            return Mono.empty();
+        }
+        if (wait < 0) {
+            throw new RateLimitExceededException(xRoadId, permission.apiName(), Duration.ofNanos(-wait));
+        }
+        log.debug("Requisição do cliente [{}] para a API [{}] aguardando {} ms pelo limite de requisições.",
+                xRoadId, permission.apiName(), Duration.ofNanos(wait).toMillis());
+        return Mono.delay(Duration.ofNanos(wait)).then();
+    }
+
+    /**
+     * Desacelera o bucket após um 429 da API de destino.
+     */
+    public void penalize(String xRoadId, ResolvedPermission permission, Duration retryAfter) {
+        TokenBucket bucket = bucketFor(xRoadId, permission);
+        if (bucket != null) {
+            log.warn("API [{}] devolveu 429 para o cliente [{}]. Suspendendo novas requisições por {} ms e reduzindo a taxa.",
+                    permission.apiName(), xRoadId, retryAfter.toMillis());
+            bucket.penalize(System.nanoTime(), retryAfter.toNanos());
+        }
+    }
+
+    private TokenBucket bucketFor(String xRoadId, ResolvedPermission permission) {
+        RateLimitConfig config = permission.permission().getRateLimit();
+        if (config == null || config.getRequestsPerSecond() <= 0) {
+            return null;
+        }
+        BucketKey key = new BucketKey(xRoadId, permission.apiName());
+        TokenBucket bucket = buckets.get(key);
+        if (bucket == null || (bucket.config() != config && !bucket.config().equals(config))) {
+            // Primeiro uso ou limite alterado na configuração: começa com o bucket cheio.
+            // Uma recarga que mantém o mesmo limite preserva o estado do bucket.
+            bucket = buckets.compute(key, (k, current) -> current != null && current.config().equals(config) ? current : new TokenBucket(config));
+        }
+        return bucket;
+    }
+
+    private record BucketKey(String xRoadId, String apiName) {
+    }
+}
@@ -0,0 +1,94 @@
+package br.gov.pe.brokerconecta.ratelimit;
+
+import br.gov.pe.brokerconecta.config.RateLimitConfig;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Token bucket sem trava, implementado como GCRA (Generic Cell Rate Algorithm).
+ * <p>
+ * Todo o estado é um único {@code long}, o instante teórico de chegada (TAT) da próxima requisição em
+ * nanossegundos; reservar uma vaga é um compare-and-set nesse valor. Um bucket com capacidade {@code burst}
+ * e taxa {@code r} aceita a requisição se {@code TAT + 1/r - burst/r <= agora}.
+ * <p>
+ * Um 429 da API de destino ({@link #penalize}) bloqueia o bucket até o {@code Retry-After} e reduz a taxa
+ * à metade por {@link RateLimitConfig#getSlowdownPeriod()}.
+ */
+public class TokenBucket {
+
+    private static final int MAX_SLOWDOWN_SHIFT = 3; // taxa mínima: 1/8 da configurada
+
+    private final RateLimitConfig config;
+    private final long baseIntervalNanos;
+    private final int burst;
+    private final long maxWaitNanos;
+    private final long slowdownNanos;
+
+    private final AtomicLong theoreticalArrival = new AtomicLong(Long.MIN_VALUE);
+    private volatile int slowdownShift;
+    private volatile long slowdownUntil;
+
+    public TokenBucket(RateLimitConfig config) {
+        this.config = config;
+        this.baseIntervalNanos = Math.max(1L, (long) (1_000_000_000L / config.getRequestsPerSecond()));
+        this.burst = config.effectiveBurst();
+        this.maxWaitNanos = config.getMaxWait().toNanos();
+        this.slowdownNanos = config.getSlowdownPeriod().toNanos();
+    }
+
+    public RateLimitConfig config() {
+        return config;
+    }
+
+    /**
+     * Reserva uma vaga.
+     *
+     * @param now instante atual ({@link System#nanoTime()}).
+     * @return {@code 0} se a requisição pode seguir já; um valor positivo com a espera (ns) até a vaga
+     *         reservada, se couber em {@code maxWait}; ou um valor negativo cujo módulo é o tempo (ns)
+     *         até haver vaga, se a requisição deve ser rejeitada.
+     */
+    public long reserve(long now) {
+        long interval = currentInterval(now);
+        long burstWindow = interval * burst;
+        while (true) {
+            long tat = theoreticalArrival.get();
+            long newTat = Math.max(tat, now) + interval;
+            long allowAt = newTat - burstWindow;
+            long wait = allowAt - now;
+            if (wait > maxWaitNanos) {
+                return -wait;
+            }
+            if (theoreticalArrival.compareAndSet(tat, newTat)) {
+                return Math.max(0L, wait);
+            }
+        }
+    }
+
+    /**
+     * Aplica o {@code Retry-After} devolvido pela API de destino: nenhuma vaga até {@code retryAfterNanos}
+     * a partir de agora, e taxa reduzida à metade durante o período de desaceleração.
+     */
+    public void penalize(long now, long retryAfterNanos) {
+        int shift = now - slowdownUntil < 0 ? Math.min(slowdownShift + 1, MAX_SLOWDOWN_SHIFT) : 1;
+        slowdownShift = shift;
+        slowdownUntil = now + retryAfterNanos + slowdownNanos;
+
+        long interval = baseIntervalNanos << shift;
+        // TAT tal que a primeira vaga surge exatamente em now + retryAfter, seguida de uma vaga por intervalo
+        long blockedTat = now + retryAfterNanos + interval * (burst - 1);
+        theoreticalArrival.accumulateAndGet(blockedTat, Math::max);
+    }
+
+    private long currentInterval(long now) {
+        int shift = slowdownShift;
+        if (shift == 0) {
+            return baseIntervalNanos;
+        }
+        if (now - slowdownUntil >= 0) {
+            slowdownShift = 0;
+            return baseIntervalNanos;
+        }
+        return baseIntervalNanos << shift;
+    }
+}
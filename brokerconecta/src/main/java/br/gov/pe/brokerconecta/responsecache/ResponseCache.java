@@ -0,0 +1,670 @@
+package br.gov.pe.brokerconecta.responsecache;
+
+import br.gov.pe.brokerconecta.config.ResponseCacheConfig;
+import br.gov.pe.brokerconecta.config.RouteConfig;
+import br.gov.pe.brokerconecta.service.ProxyRequest;
+import br.gov.pe.brokerconecta.service.UpstreamResilienceRegistry;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.cfg.JsonNodeFeature;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import io.github.resilience4j.bulkhead.BulkheadFullException;
+import io.github.resilience4j.circuitbreaker.CallNotPermittedException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import io.micrometer.core.instrument.search.Search;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+
+/**
+ * Cache de respostas das rotas com {@code cache} configurado, um cache Caffeine por rota, limitado por
+ * TTL e pelo tamanho total dos corpos armazenados.
+ * <p>
+ * Dois modos de chave:
+ * <ul>
+ *     <li>Requisição inteira: variáveis de caminho e corpo, ou apenas os {@code keyFields} configurados.</li>
+ *     <li>Por item ({@code itemField}/{@code responseItemKey}): cada entrada da lista consultada (ex: cada CPF de
+ *     {@code listaCpf}) é armazenada separadamente, junto com as variáveis de caminho e os demais campos do corpo.
+ *     Só os itens fora do cache são enviados à API, e a resposta é remontada na ordem da requisição.</li>
+ * </ul>
+ * Toda chave inclui o cliente X-Road. Apenas respostas 2xx são armazenadas. O chamador pode ignorar o cache com
+ * {@code Cache-Control: no-cache} (busca na API e atualiza o cache) ou {@code no-store} (nem lê, nem grava).
+ * <p>
+ * Respostas desatualizadas (depois do {@code ttl}) ainda podem ser entregues com {@code X-Broker-Cache: STALE} e o
+ * header {@code Age}:
+ * <ul>
+ *     <li>{@code stale-while-revalidate}: entregue imediatamente, enquanto uma única atualização por chave é feita
+ *     em segundo plano.</li>
+ *     <li>{@code stale-if-error}: entregue no lugar de uma falha da API (5xx, conexão, timeout) ou de uma rejeição
+ *     do circuit breaker/bulkhead.</li>
+ * </ul>
+ * Com {@code disk-directory}, o cache da rota é gravado a cada {@value #DISK_FLUSH_SECONDS}s (se houver alterações)
+ * e no encerramento, e recarregado na inicialização ({@link ResponseCacheLoader}); uma rota que só passa a existir
+ * depois (recarga da configuração) é recarregada em segundo plano no primeiro uso. A leitura do disco nunca
+ * acontece na thread da requisição.
+ * <p>
+ * As métricas de cada rota (acertos, falhas, descartes, tamanho) são publicadas como {@code cache.*} com a tag
+ * {@code cache=response-<id da rota>}, e as respostas desatualizadas entregues em {@code broker.response.cache.stale}.
+ * O header {@value #CACHE_STATUS_HEADER} indica se a resposta veio do cache.
+ */
+@Component
+@Slf4j
+public class ResponseCache {
+
+    public static final String CACHE_STATUS_HEADER = "X-Broker-Cache";
+
+    // Estimativa do custo fixo de cada entrada (chave, objetos e estrutura do cache), somada ao corpo
+    private static final int ENTRY_OVERHEAD_BYTES = 128;
+    private static final int DISK_FLUSH_SECONDS = 30;
+
+    private final ObjectMapper objectMapper;
+    private final MeterRegistry meterRegistry;
+    // Chaves canônicas: as propriedades de objetos JSON são ordenadas, {"a":1,"b":2} e {"b":2,"a":1} são a mesma chave
+    private final ObjectWriter keyWriter;
+    private final Map<String, RouteCache> routeCaches = new ConcurrentHashMap<>();
+    private final Map<String, Counter> staleCounters = new ConcurrentHashMap<>();
+    private final Disposable diskFlush;
+
+    public ResponseCache(ObjectMapper objectMapper, MeterRegistry meterRegistry) {
+        this.objectMapper = objectMapper;
+        this.meterRegistry = meterRegistry;
+        this.keyWriter = objectMapper.writer().with(JsonNodeFeature.WRITE_PROPERTIES_SORTED);
+        this.diskFlush = Flux.interval(Duration.ofSeconds(DISK_FLUSH_SECONDS), Schedulers.boundedElastic())
+                .subscribe(tick -> flush());
+    }
+
+    /**
+     * Responde pelo cache da rota ou chama {@code upstream}. No modo por item, {@code upstream} recebe uma
+     * requisição reduzida, apenas com os itens que não estavam em cache.
+     */
+    public Mono<ResponseEntity<byte[]>> forward(ProxyRequest proxyRequest,
+                                                Function<ProxyRequest, Mono<ResponseEntity<byte[]>>> upstream) {
+        ResponseCacheConfig config = proxyRequest.route().getCache();
+        Directive directive = Directive.of(proxyRequest.headers());
+        if (config == null || directive == Directive.NO_STORE) {
+            return Mono.defer(() -> upstream.apply(proxyRequest));
+        }
+
+        RouteCache routeCache = cacheFor(proxyRequest.route().getId(), config);
+        boolean read = directive == Directive.DEFAULT;
+        JsonNode body = parse(proxyRequest.body());
+
+        if (config.isPerItem() && body instanceof ObjectNode objectBody
+                && objectBody.get(config.getItemField()) instanceof ArrayNode items) {
+            return forwardPerItem(proxyRequest, upstream, routeCache, read, objectBody, items);
+        }
+        return forwardWhole(proxyRequest, upstream, routeCache, read, body);
+    }
+
+    private Mono<ResponseEntity<byte[]>> forwardWhole(ProxyRequest proxyRequest,
+                                                      Function<ProxyRequest, Mono<ResponseEntity<byte[]>>> upstream,
+                                                      RouteCache routeCache, boolean read, JsonNode body) {
+        ResponseCacheConfig config = routeCache.config();
+        CacheKey key = keyOf(proxyRequest, config, "", wholeRequestKey(proxyRequest, config, body));
+        CachedResponse cached = read ? routeCache.cache().getIfPresent(key) : null;
+        long now = System.currentTimeMillis();
+        if (cached != null) {
+            long age = cached.ageMillis(now);
+            if (age < config.getTtl().toMillis()) {
+                return Mono.just(cached.toEntity(CacheStatus.HIT, age));
+            }
+            if (age < config.getTtl().plus(config.getStaleWhileRevalidate()).toMillis()) {
+                if (routeCache.refreshing().add(key)) {
+                    Mono.defer(() -> upstream.apply(proxyRequest))
+                            .doFinally(signal -> routeCache.refreshing().remove(key))
+                            .subscribe(response -> {
+                                if (isCacheable(response)) {
+                                    routeCache.put(key, CachedResponse.of(response));
+                                }
+                            }, error -> revalidationFailed(routeCache, error));
+                }
+                return Mono.just(staleServed(routeCache, "revalidate", cached.toEntity(CacheStatus.STALE, age)));
+            }
+        }
+
+        Mono<ResponseEntity<byte[]>> response = Mono.defer(() -> upstream.apply(proxyRequest))
+                .map(fresh -> {
+                    if (isCacheable(fresh)) {
+                        routeCache.put(key, CachedResponse.of(fresh));
+                    }
+                    return withCacheStatus(fresh, CacheStatus.MISS);
+                });
+        if (cached != null && cached.ageMillis(now) < config.getTtl().plus(config.getStaleIfError()).toMillis()) {
+            return response.onErrorResume(ResponseCache::isUnavailable, error -> {
+                logStaleOnError(routeCache, error);
+                long age = cached.ageMillis(System.currentTimeMillis());
+                return Mono.just(staleServed(routeCache, "error", cached.toEntity(CacheStatus.STALE, age)));
+            });
+        }
+        return response;
+    }
+
+    private Mono<ResponseEntity<byte[]>> forwardPerItem(ProxyRequest proxyRequest,
+                                                        Function<ProxyRequest, Mono<ResponseEntity<byte[]>>> upstream,
+                                                        RouteCache routeCache, boolean read, ObjectNode body, ArrayNode items) {
+        ResponseCacheConfig config = routeCache.config();
+        String scope = itemScope(proxyRequest, config, body);
+        List<String> requested = new ArrayList<>(items.size());
+        items.forEach(item -> requested.add(item.asText()));
+
+        long now = System.currentTimeMillis();
+        long ttl = config.getTtl().toMillis();
+        long staleWhileRevalidate = config.getTtl().plus(config.getStaleWhileRevalidate()).toMillis();
+        long staleIfError = config.getTtl().plus(config.getStaleIfError()).toMillis();
+
+        Map<String, byte[]> found = new HashMap<>();
+        Map<String, CachedResponse> fallback = new HashMap<>();
+        Set<String> missing = new LinkedHashSet<>();
+        Set<String> revalidating = new LinkedHashSet<>();
+        long staleAge = -1;
+        for (String item : requested) {
+            CachedResponse cached = read ? routeCache.cache().getIfPresent(keyOf(proxyRequest, config, scope, item)) : null;
+            long age = cached != null ? cached.ageMillis(now) : -1;
+            if (cached != null && age < ttl) {
+                found.put(item, cached.body());
+            } else if (cached != null && age < staleWhileRevalidate) {
+                found.put(item, cached.body());
+                revalidating.add(item);
+                staleAge = Math.max(staleAge, age);
+            } else {
+                missing.add(item);
+                if (cached != null && age < staleIfError) {
+                    fallback.put(item, cached);
+                }
+            }
+        }
+        if (!revalidating.isEmpty()) {
+            revalidateItems(proxyRequest, upstream, routeCache, body, scope, revalidating);
+        }
+
+        if (missing.isEmpty()) {
+            ResponseEntity<byte[]> merged = mergedEntity(requested, found, staleAge < 0 ? CacheStatus.HIT : CacheStatus.STALE, staleAge);
+            return Mono.just(staleAge < 0 ? merged : staleServed(routeCache, "revalidate", merged));
+        }
+
+        // Requisição reduzida: apenas os itens que não estavam em cache
+        ProxyRequest reducedRequest = reducedRequest(proxyRequest, config, body, missing);
+        Mono<ResponseEntity<byte[]>> response = Mono.defer(() -> upstream.apply(reducedRequest))
+                .map(fresh -> {
+                    JsonNode responseBody = isCacheable(fresh) ? parse(fresh.getBody()) : null;
+                    if (!(responseBody instanceof ArrayNode responseItems)) {
+                        if (!found.isEmpty() && isCacheable(fresh)) {
+                            log.warn("Roteamento ID [{}]. Resposta da API não é um array JSON; itens em cache não foram incluídos.",
+                                    proxyRequest.route().getId());
+                        }
+                        return withCacheStatus(fresh, CacheStatus.MISS);
+                    }
+
+                    List<byte[]> unmatched = storeItems(routeCache, proxyRequest, scope, fresh, responseItems, missing, found);
+                    HttpHeaders headers = new HttpHeaders();
+                    headers.putAll(fresh.getHeaders());
+                    headers.remove(HttpHeaders.CONTENT_LENGTH);
+                    headers.set(CACHE_STATUS_HEADER, (missing.size() == new LinkedHashSet<>(requested).size() ? CacheStatus.MISS : CacheStatus.PARTIAL).name());
+                    return ResponseEntity.status(fresh.getStatusCode()).headers(headers)
+                            .body(mergeItems(requested, found, unmatched));
+                });
+
+        // Só há como responder sem a API se todos os itens que faltam tiverem uma versão desatualizada aceitável
+        if (fallback.size() == missing.size()) {
+            return response.onErrorResume(ResponseCache::isUnavailable, error -> {
+                logStaleOnError(routeCache, error);
+                long errorNow = System.currentTimeMillis();
+                long age = 0;
+                for (Map.Entry<String, CachedResponse> entry : fallback.entrySet()) {
+                    found.put(entry.getKey(), entry.getValue().body());
+                    age = Math.max(age, entry.getValue().ageMillis(errorNow));
+                }
+                return Mono.just(staleServed(routeCache, "error", mergedEntity(requested, found, CacheStatus.STALE, age)));
+            });
+        }
+        return response;
+    }
+
+    /**
+     * Atualiza em segundo plano os itens desatualizados, em uma única requisição reduzida. Itens que já estão
+     * sendo atualizados por outra requisição são ignorados.
+     */
+    private void revalidateItems(ProxyRequest proxyRequest, Function<ProxyRequest, Mono<ResponseEntity<byte[]>>> upstream,
+                                 RouteCache routeCache, ObjectNode body, String scope, Set<String> items) {
+        Set<CacheKey> keys = new LinkedHashSet<>();
+        Set<String> pending = new LinkedHashSet<>();
+        for (String item : items) {
+            CacheKey key = keyOf(proxyRequest, routeCache.config(), scope, item);
+            if (routeCache.refreshing().add(key)) {
+                keys.add(key);
+                pending.add(item);
+            }
+        }
+        if (pending.isEmpty()) {
+            return;
+        }
+        ProxyRequest reducedRequest = reducedRequest(proxyRequest, routeCache.config(), body, pending);
+        Mono.defer(() -> upstream.apply(reducedRequest))
+                .doFinally(signal -> routeCache.refreshing().removeAll(keys))
+                .subscribe(response -> {
+                    if (isCacheable(response) && parse(response.getBody()) instanceof ArrayNode responseItems) {
+                        storeItems(routeCache, proxyRequest, scope, response, responseItems, pending, new HashMap<>());
+                    }
+                }, error -> revalidationFailed(routeCache, error));
+    }
+
+    private static CacheKey keyOf(ProxyRequest proxyRequest, ResponseCacheConfig config, String scope, String key) {
+        List<String> partition = new ArrayList<>(config.getPartitionHeaders().size());
+        config.getPartitionHeaders().forEach(name -> partition.add(String.join(",", proxyRequest.headers().getOrEmpty(name))));
+        return new CacheKey(proxyRequest.xRoadClient(), partition, scope, key);
+    }
+
+    /**
+     * Escopo dos itens de uma requisição no modo por item: um array JSON com as variáveis de caminho e o corpo sem
+     * o {@code itemField}. O mesmo CPF consultado com outro filtro ou em outro caminho é outra entrada, como no
+     * agrupamento do lote.
+     */
+    private String itemScope(ProxyRequest proxyRequest, ResponseCacheConfig config, ObjectNode body) {
+        ArrayNode scope = objectMapper.createArrayNode();
+        ObjectNode pathNode = scope.addObject();
+        proxyRequest.routeMatch().pathVariables().forEach(pathNode::put);
+        ObjectNode bodyWithoutItems = body.deepCopy();
+        bodyWithoutItems.remove(config.getItemField());
+        scope.add(bodyWithoutItems);
+        return writeKey(scope);
+    }
+
+    private ProxyRequest reducedRequest(ProxyRequest proxyRequest, ResponseCacheConfig config, ObjectNode body, Set<String> items) {
+        ObjectNode reducedBody = body.deepCopy();
+        ArrayNode reducedItems = reducedBody.putArray(config.getItemField());
+        items.forEach(reducedItems::add);
+        return proxyRequest.withBody(toBytes(reducedBody));
+    }
+
+    /**
+     * Armazena os itens da resposta que correspondem a itens consultados ({@code expected}), adicionando-os a
+     * {@code found}. Devolve os itens que não correspondem a nenhum item consultado.
+     */
+    private List<byte[]> storeItems(RouteCache routeCache, ProxyRequest proxyRequest, String scope, ResponseEntity<byte[]> response,
+                                    ArrayNode responseItems, Set<String> expected, Map<String, byte[]> found) {
+        List<byte[]> unmatched = new ArrayList<>();
+        long now = System.currentTimeMillis();
+        for (JsonNode responseItem : responseItems) {
+            byte[] itemBytes = toBytes(responseItem);
+            JsonNode itemKey = responseItem.get(routeCache.config().getResponseItemKey());
+            if (itemKey != null && expected.contains(itemKey.asText())) {
+                found.put(itemKey.asText(), itemBytes);
+                routeCache.put(keyOf(proxyRequest, routeCache.config(), scope, itemKey.asText()),
+                        new CachedResponse(response.getStatusCode().value(), MediaType.APPLICATION_JSON, itemBytes, now));
+            } else {
+                unmatched.add(itemBytes);
+            }
+        }
+        return unmatched;
+    }
+
+    private static ResponseEntity<byte[]> mergedEntity(List<String> requested, Map<String, byte[]> found,
+                                                       CacheStatus cacheStatus, long ageMillis) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.APPLICATION_JSON);
+        headers.set(CACHE_STATUS_HEADER, cacheStatus.name());
+        if (cacheStatus == CacheStatus.STALE) {
+            headers.set(HttpHeaders.AGE, String.valueOf(ageMillis / 1000));
+        }
+        return ResponseEntity.ok().headers(headers).body(mergeItems(requested, found, List.of()));
+    }
+
+    /**
+     * Monta o array JSON da resposta na ordem dos itens da requisição, seguido dos itens da resposta da API
+     * que não correspondem a nenhum item consultado.
+     */
+    private static byte[] mergeItems(List<String> requested, Map<String, byte[]> items, List<byte[]> unmatched) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        out.write('[');
+        boolean first = true;
+        for (String item : requested) {
+            byte[] itemBytes = items.get(item);
+            if (itemBytes != null) {
+                first = appendItem(out, itemBytes, first);
+            }
+        }
+        for (byte[] itemBytes : unmatched) {
+            first = appendItem(out, itemBytes, first);
+        }
+        out.write(']');
+        return out.toByteArray();
+    }
+
+    private static boolean appendItem(ByteArrayOutputStream out, byte[] itemBytes, boolean first) {
+        if (!first) {
+            out.write(',');
+        }
+        out.writeBytes(itemBytes);
+        return false;
+    }
+
+    /**
+     * Chave da requisição inteira em forma de texto, para poder ser gravada em disco: um array JSON com as variáveis
+     * de caminho e o corpo, ou com os valores dos {@code keyFields}.
+     */
+    private String wholeRequestKey(ProxyRequest proxyRequest, ResponseCacheConfig config, JsonNode body) {
+        Map<String, String> pathVariables = proxyRequest.routeMatch().pathVariables();
+        ArrayNode key = objectMapper.createArrayNode();
+        if (config.getKeyFields().isEmpty()) {
+            ObjectNode pathNode = key.addObject();
+            pathVariables.forEach(pathNode::put);
+            if (body != null) {
+                key.add(body);
+            } else if (proxyRequest.body() != null) {
+                key.add(proxyRequest.body());
+            } else {
+                key.addNull();
+            }
+        } else {
+            for (String field : config.getKeyFields()) {
+                if (pathVariables.containsKey(field)) {
+                    key.add(pathVariables.get(field));
+                } else {
+                    key.add(body != null ? body.get(field) : null);
+                }
+            }
+        }
+        return writeKey(key);
+    }
+
+    private String writeKey(JsonNode key) {
+        try {
+            return keyWriter.writeValueAsString(key);
+        } catch (IOException e) {
+            throw new IllegalStateException("Falha ao serializar a chave do cache", e);
+        }
+    }
+
+    /**
+     * Recarrega do disco o cache das rotas com {@code disk-directory}, fora das requisições. Completa quando todas
+     * as leituras terminam; falhas são registradas em log.
+     */
+    public Mono<Void> loadFromDisk(List<RouteConfig> routes) {
+        return Flux.fromIterable(routes)
+                .filter(route -> route.getCache() != null && hasDiskDirectory(route.getCache()))
+                .flatMap(route -> loadInBackground(currentCache(route.getId(), route.getCache())))
+                .then();
+    }
+
+    private RouteCache cacheFor(String routeId, ResponseCacheConfig config) {
+        RouteCache routeCache = routeCaches.get(routeId);
+        if (routeCache != null && routeCache.config().equals(config)) {
+            return routeCache;
+        }
+        RouteCache created = currentCache(routeId, config);
+        // Rota ainda não recarregada (ex: incluída por uma recarga da configuração): lida em segundo plano,
+        // e as requisições seguem pela API até lá
+        loadInBackground(created).subscribe();
+        return created;
+    }
+
+    private RouteCache currentCache(String routeId, ResponseCacheConfig config) {
+        return routeCaches.compute(routeId, (id, current) -> {
+            if (current != null && current.config().equals(config)) {
+                return current;
+            }
+            if (current != null) {
+                log.info("Configuração do cache de respostas da rota '{}' alterada. Recriando o cache.", id);
+                current.cache().invalidateAll();
+                // O registro devolveria os medidores já existentes, ligados ao cache descartado
+                Search.in(meterRegistry).tag("cache", cacheName(id)).meters().forEach(meterRegistry::remove);
+            }
+            ResponseCacheConfig snapshot = copyOf(config);
+            return new RouteCache(id, snapshot, create(id, snapshot), ConcurrentHashMap.newKeySet(), new AtomicBoolean(),
+                    new AtomicBoolean());
+        });
+    }
+
+    /**
+     * Lê o arquivo da rota uma única vez, em {@link Schedulers#boundedElastic()}.
+     */
+    private Mono<Void> loadInBackground(RouteCache routeCache) {
+        if (!hasDiskDirectory(routeCache.config()) || !routeCache.loaded().compareAndSet(false, true)) {
+            return Mono.empty();
+        }
+        return Mono.fromRunnable(() -> load(routeCache)).subscribeOn(Schedulers.boundedElastic()).then();
+    }
+
+    private Cache<CacheKey, CachedResponse> create(String routeId, ResponseCacheConfig config) {
+        // A validade conta a partir da obtenção na API (storedAt), inclusive para entradas recarregadas do disco
+        long retention = config.retention().toMillis();
+        Cache<CacheKey, CachedResponse> cache = Caffeine.newBuilder()
+                .expireAfter(Expiry.writing((CacheKey key, CachedResponse value) ->
+                        Duration.ofMillis(Math.max(0, retention - value.ageMillis(System.currentTimeMillis())))))
+                .maximumWeight(config.getMaxWeightBytes())
+                .weigher((CacheKey key, CachedResponse value) -> value.body().length + ENTRY_OVERHEAD_BYTES)
+                .recordStats()
+                .build();
+        return CaffeineCacheMetrics.monitor(meterRegistry, cache, cacheName(routeId));
+    }
+
+    private static String cacheName(String routeId) {
+        return "response-" + routeId;
+    }
+
+    /**
+     * Recarrega o cache da rota gravado em disco, descartando as entradas que já passaram da retenção. Entradas
+     * obtidas da API enquanto o arquivo era lido são mais recentes e não são substituídas.
+     */
+    private void load(RouteCache routeCache) {
+        ResponseCacheConfig config = routeCache.config();
+        Path file = ResponseCacheFile.of(config.getDiskDirectory(), routeCache.routeId());
+        try {
+            long now = System.currentTimeMillis();
+            long retention = config.retention().toMillis();
+            int loaded = 0;
+            for (Map.Entry<CacheKey, CachedResponse> entry : ResponseCacheFile.read(file).entrySet()) {
+                if (entry.getValue().ageMillis(now) < retention
+                        && routeCache.cache().asMap().putIfAbsent(entry.getKey(), entry.getValue()) == null) {
+                    loaded++;
+                }
+            }
+            log.info("Cache de respostas da rota '{}': {} entrada(s) recarregada(s) de {}", routeCache.routeId(), loaded, file);
+        } catch (NoSuchFileException e) {
+            log.debug("Cache de respostas da rota '{}' ainda não gravado em {}", routeCache.routeId(), file);
+        } catch (IOException | RuntimeException e) {
+            log.warn("Cache de respostas da rota '{}' não recarregado de {}: {}", routeCache.routeId(), file, e.toString());
+        }
+    }
+
+    /**
+     * Grava em disco os caches com {@code disk-directory} alterados desde a última gravação.
+     */
+    synchronized void flush() {
+        for (RouteCache routeCache : routeCaches.values()) {
+            ResponseCacheConfig config = routeCache.config();
+            if (!hasDiskDirectory(config) || !routeCache.dirty().getAndSet(false)) {
+                continue;
+            }
+            Path file = ResponseCacheFile.of(config.getDiskDirectory(), routeCache.routeId());
+            try {
+                ResponseCacheFile.write(file, List.copyOf(routeCache.cache().asMap().entrySet()));
+            } catch (IOException | RuntimeException e) {
+                routeCache.dirty().set(true);
+                log.warn("Falha ao gravar o cache de respostas da rota '{}' em {}: {}", routeCache.routeId(), file, e.toString());
+            }
+        }
+    }
+
+    private static boolean hasDiskDirectory(ResponseCacheConfig config) {
+        return config.getDiskDirectory() != null && !config.getDiskDirectory().isBlank();
+    }
+
+    @PreDestroy
+    public void close() {
+        diskFlush.dispose();
+        flush();
+    }
+
+    /**
+     * Falhas em que uma resposta desatualizada substitui o erro: falhas da API e rejeições do circuit breaker
+     * ou do bulkhead. Erros 4xx e o limite local do cliente não são substituídos.
+     */
+    private static boolean isUnavailable(Throwable error) {
+        return UpstreamResilienceRegistry.isUpstreamFailure(error)
+                || error instanceof CallNotPermittedException
+                || error instanceof BulkheadFullException;
+    }
+
+    private ResponseEntity<byte[]> staleServed(RouteCache routeCache, String reason, ResponseEntity<byte[]> response) {
+        staleCounters.computeIfAbsent(routeCache.routeId() + '|' + reason, key -> Counter.builder("broker.response.cache.stale")
+                        .description("Respostas desatualizadas entregues pelo cache: durante a atualização (revalidate) ou no lugar de uma falha da API (error)")
+                        .tags("route", routeCache.routeId(), "reason", reason)
+                        .register(meterRegistry))
+                .increment();
+        return response;
+    }
+
+    private static void logStaleOnError(RouteCache routeCache, Throwable error) {
+        log.warn("Roteamento ID [{}]. API indisponível ({}); respondendo com a versão desatualizada do cache.",
+                routeCache.routeId(), error.toString());
+    }
+
+    private static void revalidationFailed(RouteCache routeCache, Throwable error) {
+        log.debug("Roteamento ID [{}]. Falha ao atualizar o cache em segundo plano: {}", routeCache.routeId(), error.toString());
+    }
+
+    private static boolean isCacheable(ResponseEntity<byte[]> response) {
+        return response.getStatusCode().is2xxSuccessful() && response.getBody() != null;
+    }
+
+    private static ResponseEntity<byte[]> withCacheStatus(ResponseEntity<byte[]> response, CacheStatus status) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.putAll(response.getHeaders());
+        headers.set(CACHE_STATUS_HEADER, status.name());
+        return new ResponseEntity<>(response.getBody(), headers, response.getStatusCode());
+    }
+
+    private JsonNode parse(byte[] body) {
+        if (body == null || body.length == 0) {
+            return null;
+        }
+        try {
+            return objectMapper.readTree(body);
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    private byte[] toBytes(JsonNode node) {
+        try {
+            return objectMapper.writeValueAsBytes(node);
+        } catch (IOException e) {
+            throw new IllegalStateException("Falha ao serializar JSON", e);
+        }
+    }
+
+    private static ResponseCacheConfig copyOf(ResponseCacheConfig source) {
+        ResponseCacheConfig copy = new ResponseCacheConfig();
+        copy.setTtl(source.getTtl());
+        copy.setMaxWeightBytes(source.getMaxWeightBytes());
+        copy.setKeyFields(List.copyOf(source.getKeyFields()));
+        copy.setItemField(source.getItemField());
+        copy.setResponseItemKey(source.getResponseItemKey());
+        copy.setPartitionHeaders(List.copyOf(source.getPartitionHeaders()));
+        copy.setStaleWhileRevalidate(source.getStaleWhileRevalidate());
+        copy.setStaleIfError(source.getStaleIfError());
+        copy.setDiskDirectory(source.getDiskDirectory());
+        return copy;
+    }
+
+    private enum CacheStatus {
+        HIT, PARTIAL, STALE, MISS
+    }
+
+    /**
+     * Diretiva de cache enviada pelo chamador ({@code Cache-Control}, ou {@code Pragma: no-cache}).
+     */
+    private enum Directive {
+        DEFAULT, NO_CACHE, NO_STORE;
+
+        static Directive of(HttpHeaders headers) {
+            String cacheControl = String.join(",", headers.getOrEmpty(HttpHeaders.CACHE_CONTROL)).toLowerCase(Locale.ROOT);
+            if (cacheControl.contains("no-store")) {
+                return NO_STORE;
+            }
+            if (cacheControl.contains("no-cache") || headers.getOrEmpty(HttpHeaders.PRAGMA).contains("no-cache")) {
+                return NO_CACHE;
+            }
+            return DEFAULT;
+        }
+    }
+
+    /**
+     * Chave de uma entrada: cliente X-Road, valores dos {@code partitionHeaders} da rota (um por header, com os
+     * valores repetidos unidos por vírgula), escopo do item (vazio na chave pela requisição inteira) e a chave da
+     * requisição ou do item.
+     */
+    record CacheKey(String xRoadClient, List<String> partition, String scope, String key) {
+    }
+
+    /**
+     * Cache de uma rota, com as chaves em atualização em segundo plano, a indicação de alterações ainda não
+     * gravadas em disco e se o arquivo em disco já foi lido.
+     */
+    private record RouteCache(String routeId, ResponseCacheConfig config, Cache<CacheKey, CachedResponse> cache,
+                              Set<CacheKey> refreshing, AtomicBoolean dirty, AtomicBoolean loaded) {
+
+        void put(CacheKey key, CachedResponse response) {
+            cache.put(key, response);
+            dirty.set(true);
+        }
+    }
+
+    /**
+     * Resposta armazenada. {@code storedAt} (epoch em ms) é o momento em que foi obtida da API.
+     */
+    record CachedResponse(int status, MediaType contentType, byte[] body, long storedAt) {
+
+        static CachedResponse of(ResponseEntity<byte[]> response) {
+            return new CachedResponse(response.getStatusCode().value(), response.getHeaders().getContentType(),
+                    response.getBody(), System.currentTimeMillis());
+        }
+
+        long ageMillis(long now) {
+            return Math.max(0, now - storedAt);
+        }
+
+        ResponseEntity<byte[]> toEntity(CacheStatus cacheStatus, long ageMillis) {
+            HttpHeaders headers = new HttpHeaders();
+            if (contentType != null) {
+                headers.setContentType(contentType);
+            }
+            headers.set(CACHE_STATUS_HEADER, cacheStatus.name());
+            if (cacheStatus == CacheStatus.STALE) {
+                headers.set(HttpHeaders.AGE, String.valueOf(ageMillis / 1000));
+            }
+            return ResponseEntity.status(status).headers(headers).body(body);
+        }
+    }
+}
@@ -0,0 +1,129 @@
+package br.gov.pe.brokerconecta.responsecache;
+
+import br.gov.pe.brokerconecta.responsecache.ResponseCache.CacheKey;
+import br.gov.pe.brokerconecta.responsecache.ResponseCache.CachedResponse;
+import org.springframework.http.MediaType;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.PosixFilePermission;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Gravação e leitura do cache de respostas de uma rota em disco ({@code <disk-directory>/<id da rota>.cache}).
+ * <p>
+ * O arquivo é gravado em um temporário e movido sobre o anterior, então uma queda durante a gravação
+ * mantém a versão anterior. Um arquivo de versão desconhecida ou corrompido é ignorado.
+ * <p>
+ * As respostas são gravadas sem mascaramento; em sistemas POSIX o diretório criado e os arquivos só podem ser
+ * lidos pelo usuário do processo.
+ */
+final class ResponseCacheFile {
+
+    private static final int MAGIC = 0x42524333; // "BRC3"
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final Set<PosixFilePermission> OWNER_ONLY_DIRECTORY = PosixFilePermissions.fromString("rwx------");
+    private static final Set<PosixFilePermission> OWNER_ONLY_FILE = PosixFilePermissions.fromString("rw-------");
+
+    private ResponseCacheFile() {
+    }
+
+    static Path of(String directory, String routeId) {
+        return Path.of(directory).resolve(routeId + ".cache");
+    }
+
+    static void write(Path file, List<Map.Entry<CacheKey, CachedResponse>> entries) throws IOException {
+        Path directory = file.toAbsolutePath().getParent();
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        Files.deleteIfExists(temp);
+        if (directory.getFileSystem().supportedFileAttributeViews().contains("posix")) {
+            Files.createDirectories(directory, PosixFilePermissions.asFileAttribute(OWNER_ONLY_DIRECTORY));
+            Files.createFile(temp, PosixFilePermissions.asFileAttribute(OWNER_ONLY_FILE));
+        } else {
+            Files.createDirectories(directory);
+        }
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                new GZIPOutputStream(Files.newOutputStream(temp), BUFFER_SIZE), BUFFER_SIZE))) {
+            out.writeInt(MAGIC);
+            out.writeInt(entries.size());
+            for (Map.Entry<CacheKey, CachedResponse> entry : entries) {
+                CachedResponse response = entry.getValue();
+                out.writeUTF(entry.getKey().xRoadClient());
+                out.writeShort(entry.getKey().partition().size());
+                for (String value : entry.getKey().partition()) {
+                    writeString(out, value);
+                }
+                writeString(out, entry.getKey().scope());
+                writeString(out, entry.getKey().key());
+                out.writeShort(response.status());
+                out.writeUTF(response.contentType() != null ? response.contentType().toString() : "");
+                out.writeLong(response.storedAt());
+                out.writeInt(response.body().length);
+                out.write(response.body());
+            }
+        }
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    static Map<CacheKey, CachedResponse> read(Path file) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(
+                new GZIPInputStream(Files.newInputStream(file), BUFFER_SIZE), BUFFER_SIZE))) {
+            if (in.readInt() != MAGIC) {
+                throw new IOException("formato desconhecido");
+            }
+            int count = in.readInt();
+            Map<CacheKey, CachedResponse> entries = new LinkedHashMap<>();
+            for (int i = 0; i < count; i++) {
+                String xRoadClient = in.readUTF();
+                int partitionSize = in.readShort();
+                List<String> partition = new ArrayList<>(partitionSize);
+                for (int j = 0; j < partitionSize; j++) {
+                    partition.add(readString(in));
+                }
+                CacheKey key = new CacheKey(xRoadClient, partition, readString(in), readString(in));
+                int status = in.readShort();
+                String contentType = in.readUTF();
+                long storedAt = in.readLong();
+                byte[] body = readBytes(in);
+                entries.put(key, new CachedResponse(status, contentType.isEmpty() ? null : MediaType.parseMediaType(contentType),
+                        body, storedAt));
+            }
+            return entries;
+        }
+    }
+
+    // writeUTF é limitado a 64 KB; a chave de uma rota sem key-fields inclui o corpo inteiro da requisição
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        return new String(readBytes(in), StandardCharsets.UTF_8);
+    }
+
+    private static byte[] readBytes(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        byte[] bytes = in.readNBytes(length);
+        if (bytes.length != length) {
+            throw new EOFException("arquivo incompleto");
+        }
+        return bytes;
+    }
+}
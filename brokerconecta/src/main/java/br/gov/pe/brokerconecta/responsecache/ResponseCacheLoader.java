@@ -0,0 +1,26 @@
+package br.gov.pe.brokerconecta.responsecache;
+
+import br.gov.pe.brokerconecta.snapshot.BrokerSnapshotHolder;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.stereotype.Component;
+
+/**
+ * Recarrega na inicialização o cache gravado em disco das rotas com {@code cache.disk-directory}.
+ * <p>
+ * Como o {@code StartupWarmup}, é executado antes de a réplica passar a receber tráfego: a descompressão e a leitura
+ * dos arquivos não ficam para a primeira requisição de cada rota.
+ */
+@Component
+@RequiredArgsConstructor
+public class ResponseCacheLoader implements ApplicationRunner {
+
+    private final ResponseCache responseCache;
+    private final BrokerSnapshotHolder snapshotHolder;
+
+    @Override
+    public void run(ApplicationArguments args) {
+        responseCache.loadFromDisk(snapshotHolder.current().routeIndex().routes()).block();
+    }
+}
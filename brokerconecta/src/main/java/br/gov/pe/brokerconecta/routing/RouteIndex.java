@@ -0,0 +1,227 @@
+package br.gov.pe.brokerconecta.routing;
+
+import br.gov.pe.brokerconecta.config.ApiConfig;
+import br.gov.pe.brokerconecta.config.RouteConfig;
+import br.gov.pe.brokerconecta.header.HeaderFilter;
+import br.gov.pe.brokerconecta.projection.FieldProjection;
+import org.springframework.http.HttpMethod;
+import org.springframework.util.AntPathMatcher;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Tabela de rotas pré-compilada, montada uma única vez a partir de {@code broker.routes}.
+ * <p>
+ * Cada método HTTP possui uma árvore de prefixos (trie) por segmento de caminho: segmentos literais
+ * são resolvidos por {@link HashMap} e segmentos do tipo {@code {variavel}} por um nó curinga.
+ * Padrões que não cabem nesse formato (ex: {@code **}, {@code *.json}, {@code {id:[0-9]+}}) são
+ * avaliados pelo {@link AntPathMatcher}, com a mesma semântica da varredura linear anterior, e apenas
+ * quando podem vencer a precedência.
+ * As regras de repasse de headers ({@link HeaderFilter}) e a projeção da resposta ({@link FieldProjection}) de
+ * cada rota também são compiladas aqui.
+ * <p>
+ * A precedência é a mesma da varredura linear anterior: vence a primeira rota declarada no
+ * application.yml que casar com o método e o caminho.
+ * <p>
+ * A instância é imutável e pode ser compartilhada entre threads sem sincronização.
+ */
+public final class RouteIndex {
+
+    private static final AntPathMatcher PATH_MATCHER = new AntPathMatcher();
+
+    private final List<RouteConfig> routes;
+    private final Map<HttpMethod, Node> roots;
+    private final Map<HttpMethod, List<PatternRoute>> patternRoutes;
+
+    private RouteIndex(List<RouteConfig> routes, Map<HttpMethod, Node> roots, Map<HttpMethod, List<PatternRoute>> patternRoutes) {
+        this.routes = routes;
+        this.roots = roots;
+        this.patternRoutes = patternRoutes;
+    }
+
+    /**
+     * Compila as rotas configuradas. A ordem da lista define a precedência entre rotas que casam com o mesmo caminho.
+     */
+    public static RouteIndex build(List<RouteConfig> routes, Map<String, ApiConfig> apis) {
+        Map<HttpMethod, Node> roots = new HashMap<>();
+        Map<HttpMethod, List<PatternRoute>> patternRoutes = new HashMap<>();
+        if (routes == null) {
+            return new RouteIndex(List.of(), roots, patternRoutes);
+        }
+
+        for (int order = 0; order < routes.size(); order++) {
+            RouteConfig route = routes.get(order);
+            if (route.getPath() == null || route.getMethod() == null) {
+                throw new IllegalArgumentException("Rota '" + route.getId() + "' sem 'path' ou 'method' configurado.");
+            }
+            ApiConfig apiConfig = apis != null ? apis.get(route.getApi()) : null;
+            Target target = new Target(order, route, apiConfig);
+
+            String[] segments = splitPattern(route.getPath());
+            if (segments != null) {
+                insert(roots.computeIfAbsent(route.getMethod(), m -> new Node()), segments, target);
+            } else {
+                patternRoutes.computeIfAbsent(route.getMethod(), m -> new ArrayList<>()).add(new PatternRoute(route.getPath(), target));
+            }
+        }
+        return new RouteIndex(List.copyOf(routes), roots, patternRoutes);
+    }
+
+    /**
+     * Rotas compiladas, na ordem de declaração.
+     */
+    public List<RouteConfig> routes() {
+        return routes;
+    }
+
+    /**
+     * Busca a rota para o método e caminho informados, devolvendo rota, API e variáveis de caminho de uma só vez.
+     */
+    public Optional<RouteMatch> match(HttpMethod method, String requestPath) {
+        Target best = null;
+        String[] segments = null;
+
+        Node root = roots.get(method);
+        if (root != null && requestPath.startsWith("/")) {
+            segments = requestPath.substring(1).split("/", -1);
+            best = find(root, segments, 0, null);
+        }
+
+        List<PatternRoute> patterns = patternRoutes.get(method);
+        if (patterns != null) {
+            for (PatternRoute patternRoute : patterns) {
+                // A lista está em ordem de declaração: nada depois daqui pode vencer a rota já encontrada.
+                if (best != null && patternRoute.target.order > best.order) {
+                    break;
+                }
+                if (PATH_MATCHER.match(patternRoute.pattern, requestPath)) {
+                    Target target = patternRoute.target;
+                    Map<String, String> variables = PATH_MATCHER.extractUriTemplateVariables(patternRoute.pattern, requestPath);
+                    return Optional.of(new RouteMatch(target.route, target.apiConfig, variables, target.headerFilter,
+                            target.projection));
+                }
+            }
+        }
+
+        if (best == null) {
+            return Optional.empty();
+        }
+        return Optional.of(new RouteMatch(best.route, best.apiConfig, best.extractVariables(segments), best.headerFilter,
+                best.projection));
+    }
+
+    private static Target find(Node node, String[] segments, int index, Target best) {
+        if (index == segments.length) {
+            return earliest(best, node.target);
+        }
+        Node literal = node.literals.get(segments[index]);
+        if (literal != null) {
+            best = find(literal, segments, index + 1, best);
+        }
+        if (node.variable != null && !segments[index].isEmpty()) {
+            best = find(node.variable, segments, index + 1, best);
+        }
+        return best;
+    }
+
+    private static Target earliest(Target a, Target b) {
+        if (a == null) return b;
+        if (b == null) return a;
+        return a.order <= b.order ? a : b;
+    }
+
+    private static void insert(Node root, String[] segments, Target target) {
+        Node node = root;
+        String[] variableNames = new String[segments.length];
+        for (int i = 0; i < segments.length; i++) {
+            String segment = segments[i];
+            if (isVariable(segment)) {
+                variableNames[i] = segment.substring(1, segment.length() - 1);
+                if (node.variable == null) {
+                    node.variable = new Node();
+                }
+                node = node.variable;
+            } else {
+                node = node.literals.computeIfAbsent(segment, s -> new Node());
+            }
+        }
+        target.variableNames = variableNames;
+        // Em caso de padrão duplicado, mantém a primeira rota declarada.
+        node.target = earliest(node.target, target);
+    }
+
+    /**
+     * Quebra o padrão em segmentos se ele for composto apenas de literais e variáveis simples ({@code {nome}}).
+     * Retorna {@code null} quando o padrão precisa do {@link AntPathMatcher}.
+     */
+    private static String[] splitPattern(String path) {
+        if (!path.startsWith("/")) {
+            return null;
+        }
+        String[] segments = path.substring(1).split("/", -1);
+        for (String segment : segments) {
+            if (isVariable(segment)) {
+                continue;
+            }
+            for (int i = 0; i < segment.length(); i++) {
+                char c = segment.charAt(i);
+                if (c == '{' || c == '}' || c == '*' || c == '?') {
+                    return null;
+                }
+            }
+        }
+        return segments;
+    }
+
+    private static boolean isVariable(String segment) {
+        return segment.length() > 2
+                && segment.charAt(0) == '{'
+                && segment.charAt(segment.length() - 1) == '}'
+                && segment.indexOf('{', 1) < 0
+                && segment.indexOf(':') < 0
+                && segment.indexOf('*') < 0;
+    }
+
+    private static final class Node {
+        private final Map<String, Node> literals = new HashMap<>();
+        private Node variable;
+        private Target target;
+    }
+
+    private static final class Target {
+        private final int order;
+        private final RouteConfig route;
+        private final ApiConfig apiConfig;
+        private final HeaderFilter headerFilter;
+        private final FieldProjection projection;
+        private String[] variableNames;
+
+        private Target(int order, RouteConfig route, ApiConfig apiConfig) {
+            this.order = order;
+            this.route = route;
+            this.apiConfig = apiConfig;
+            this.headerFilter = HeaderFilter.of(route.getHeaders());
+            this.projection = FieldProjection.of(route.getProjection());
+        }
+
+        private Map<String, String> extractVariables(String[] segments) {
+            Map<String, String> variables = null;
+            for (int i = 0; i < variableNames.length; i++) {
+                if (variableNames[i] != null) {
+                    if (variables == null) {
+                        variables = new HashMap<>(4);
+                    }
+                    variables.put(variableNames[i], segments[i]);
+                }
+            }
+            return variables != null ? variables : Map.of();
+        }
+    }
+
+    private record PatternRoute(String pattern, Target target) {
+    }
+}
@@ -0,0 +1,29 @@
+package br.gov.pe.brokerconecta.routing;
+
+import br.gov.pe.brokerconecta.config.ApiConfig;
+import br.gov.pe.brokerconecta.config.RouteConfig;
+import br.gov.pe.brokerconecta.header.HeaderFilter;
+import br.gov.pe.brokerconecta.projection.FieldProjection;
+
+import java.util.Map;
+
+/**
+ * Resultado de uma busca no {@link RouteIndex}: a rota encontrada, a API de destino
+ * já resolvida e as variáveis extraídas do caminho, tudo obtido em uma única consulta.
+ *
+ * @param route         rota configurada que casou com a requisição.
+ * @param apiConfig     configuração da API de destino, ou {@code null} se a API da rota não estiver configurada.
+ * @param pathVariables variáveis de caminho extraídas (ex: {@code cnpj}).
+ * @param headerFilter  regras de repasse de headers da rota, compiladas junto com o índice.
+ * @param projection    campos da resposta entregues pela rota, ou {@code null} se a rota não tiver projeção.
+ */
+public record RouteMatch(RouteConfig route, ApiConfig apiConfig, Map<String, String> pathVariables,
+                         HeaderFilter headerFilter, FieldProjection projection) {
+
+    /**
+     * Rota com as regras de repasse de headers padrão e sem projeção.
+     */
+    public RouteMatch(RouteConfig route, ApiConfig apiConfig, Map<String, String> pathVariables) {
+        this(route, apiConfig, pathVariables, HeaderFilter.DEFAULT, null);
+    }
+}
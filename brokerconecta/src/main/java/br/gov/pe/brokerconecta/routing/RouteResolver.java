@@ -0,0 +1,27 @@
+package br.gov.pe.brokerconecta.routing;
+
+import br.gov.pe.brokerconecta.snapshot.BrokerSnapshotHolder;
+import org.springframework.http.HttpMethod;
+import org.springframework.stereotype.Component;
+
+/**
+ * Resolve a rota de uma requisição usando o {@link RouteIndex} pré-compilado da configuração em vigor
+ * ({@link BrokerSnapshotHolder}), evitando a varredura de todas as rotas com {@code AntPathMatcher} a cada chamada.
+ */
+@Component
+public class RouteResolver {
+
+    private final BrokerSnapshotHolder snapshotHolder;
+
+    public RouteResolver(BrokerSnapshotHolder snapshotHolder) {
+        this.snapshotHolder = snapshotHolder;
+    }
+
+    /**
+     * Encontra a rota correspondente com base no método e caminho da requisição.
+     */
+    public RouteMatch resolve(HttpMethod method, String requestPath) {
+        return snapshotHolder.current().routeIndex().match(method, requestPath)
+                .orElseThrow(() -> new IllegalArgumentException("Nenhuma rota configurada para o caminho: " + requestPath));
+    }
+}
@@ -0,0 +1,57 @@
+package br.gov.pe.brokerconecta.service;
+
+import br.gov.pe.brokerconecta.authorization.ResolvedPermission;
+import br.gov.pe.brokerconecta.config.ApiConfig;
+import br.gov.pe.brokerconecta.config.RouteConfig;
+import br.gov.pe.brokerconecta.projection.FieldProjection;
+import br.gov.pe.brokerconecta.routing.RouteMatch;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import reactor.core.publisher.Flux;
+
+/**
+ * Requisição já identificada e autorizada, pronta para ser encaminhada à API de destino.
+ *
+ * @param method        método HTTP original.
+ * @param routeMatch    rota, API e variáveis de caminho resolvidas.
+ * @param permission    permissão do cliente para a API (credenciais do token).
+ * @param xRoadClient   identificador X-Road do cliente.
+ * @param headers       headers a repassar para a API de destino.
+ * @param body          corpo completo da requisição (modo buffer), ou {@code null} no modo streaming.
+ * @param bodyStream    corpo da requisição em blocos (modo streaming), ou {@code null} se não houver.
+ */
+public record ProxyRequest(HttpMethod method,
+                           RouteMatch routeMatch,
+                           ResolvedPermission permission,
+                           String xRoadClient,
+                           HttpHeaders headers,
+                           byte[] body,
+                           Flux<DataBuffer> bodyStream) {
+
+    public RouteConfig route() {
+        return routeMatch.route();
+    }
+
+    public ApiConfig apiConfig() {
+        return routeMatch.apiConfig();
+    }
+
+    /**
+     * Campos da resposta entregues ao cliente: a projeção da rota combinada com a da permissão do cliente,
+     * ou {@code null} se nenhuma das duas restringir.
+     */
+    public FieldProjection projection() {
+        return FieldProjection.intersect(routeMatch.projection(), permission != null ? permission.projection() : null);
+    }
+
+    /**
+     * A mesma requisição com outro corpo (modo buffer). O {@code Content-Length} original é descartado.
+     */
+    public ProxyRequest withBody(byte[] newBody) {
+        HttpHeaders newHeaders = new HttpHeaders();
+        newHeaders.addAll(headers);
+        newHeaders.remove(HttpHeaders.CONTENT_LENGTH);
+        return new ProxyRequest(method, routeMatch, permission, xRoadClient, newHeaders, newBody, null);
+    }
+}
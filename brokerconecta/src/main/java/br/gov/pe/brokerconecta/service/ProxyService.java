@@ -0,0 +1,217 @@
+package br.gov.pe.brokerconecta.service;
+
+import br.gov.pe.brokerconecta.config.BrokerProperties;
+import br.gov.pe.brokerconecta.config.RouteConfig;
+import br.gov.pe.brokerconecta.header.HeaderForwarder;
+import br.gov.pe.brokerconecta.metrics.GatewayMetrics;
+import br.gov.pe.brokerconecta.metrics.RequestTimings;
+import br.gov.pe.brokerconecta.ratelimit.AdmissionScheduler;
+import br.gov.pe.brokerconecta.ratelimit.ClientRateLimiter;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Service;
+import org.springframework.web.reactive.function.BodyInserters;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import org.springframework.web.util.UriComponentsBuilder;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.net.URI;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.function.Function;
+
+/**
+ * Encaminha uma {@link ProxyRequest} para a API de destino, anexando o token de acesso da permissão do cliente.
+ */
+@Service
+@Slf4j
+@RequiredArgsConstructor
+public class ProxyService {
+
+    private static final Duration DEFAULT_RETRY_AFTER = Duration.ofSeconds(1);
+
+    private final TokenManagerService tokenManagerService;
+    private final UpstreamClientRegistry upstreamClientRegistry;
+    private final ClientRateLimiter clientRateLimiter;
+    private final UpstreamResilienceRegistry upstreamResilienceRegistry;
+    private final GatewayMetrics gatewayMetrics;
+    private final HeaderForwarder headerForwarder;
+    private final UpstreamHedging upstreamHedging;
+    private final AdmissionScheduler admissionScheduler;
+    private final BrokerProperties brokerProperties;
+
+    /**
+     * Encaminha a requisição e carrega a resposta inteira em memória. Uma resposta comprimida pela API segue
+     * comprimida quando o broker não precisa do corpo e o cliente aceita a compressão; caso contrário, é
+     * descomprimida aqui.
+     */
+    public Mono<ResponseEntity<byte[]>> forward(ProxyRequest proxyRequest) {
+        return exchange(proxyRequest, true, spec -> spec.retrieve().toEntity(byte[].class))
+                .map(entity -> decodeIfNeeded(proxyRequest, entity));
+    }
+
+    /**
+     * Encaminha a requisição e devolve o corpo da resposta como um fluxo de blocos, consumido sob demanda.
+     * Respostas de erro (4xx/5xx) continuam sendo convertidas em {@code WebClientResponseException}.
+     */
+    public Mono<ResponseEntity<Flux<DataBuffer>>> forwardStreaming(ProxyRequest proxyRequest) {
+        return exchange(proxyRequest, false, spec -> spec.retrieve().toEntityFlux(DataBuffer.class));
+    }
+
+    /**
+     * Executa a chamada com o token atual. Se a API de destino rejeitar o token (401), o token é invalidado
+     * e a requisição é repetida uma única vez com um token novo, reenviando o corpo já lido.
+     * Corpos em streaming já foram consumidos na primeira tentativa e não podem ser reenviados.
+     * <p>
+     * Com a fila de admissão da API ativa ({@link AdmissionScheduler}), token e chamada só começam quando houver
+     * vaga, e a vaga é devolvida ao fim da chamada (no modo streaming, com a chegada dos headers da resposta).
+     * <p>
+     * As fases {@code token} e {@code upstream} são medidas a partir da assinatura, e não da montagem da cadeia,
+     * para não incluir a espera pelo limite de requisições, pela fila de admissão ou pela janela de agrupamento.
+     * Além das métricas, as durações vão para o {@link RequestTimings} do contexto da requisição (auditoria),
+     * quando houver.
+     */
+    private <T> Mono<T> exchange(ProxyRequest proxyRequest, boolean buffered,
+                                 Function<WebClient.RequestHeadersSpec<?>, Mono<T>> call) {
+        return admissionScheduler.admit(proxyRequest, Mono.deferContextual(context -> {
+                    RequestTimings timings = RequestTimings.from(context);
+                    long tokenStart = System.nanoTime();
+                    // Passa as credenciais específicas para o serviço de token
+                    return tokenManagerService.getAccessToken(proxyRequest.permission())
+                            .doOnNext(token -> recordPhase(GatewayMetrics.Phase.TOKEN, proxyRequest, timings, System.nanoTime() - tokenStart))
+                            .flatMap(token -> {
+                                long upstreamStart = System.nanoTime();
+                                return send(proxyRequest, token, buffered, call)
+                                        .onErrorResume(WebClientResponseException.Unauthorized.class, error -> {
+                                            if (!isTokenRejection(error) || proxyRequest.bodyStream() != null) {
+                                                return Mono.error(error);
+                                            }
+                                            log.warn("Roteamento ID [{}]. Token rejeitado pela API de destino (401). Repetindo com um novo token.",
+                                                    proxyRequest.route().getId());
+                                            return tokenManagerService.replaceRejectedToken(proxyRequest.permission(), token)
+                                                    .flatMap(newToken -> send(proxyRequest, newToken, buffered, call));
+                                        })
+                                        // Inclui a repetição após um 401 e as respostas de erro da API
+                                        .doOnTerminate(() -> recordPhase(GatewayMetrics.Phase.UPSTREAM, proxyRequest, timings, System.nanoTime() - upstreamStart));
+                            });
+                }))
+                // Um 429 da API de destino desacelera o limite local do cliente
+                .doOnError(WebClientResponseException.TooManyRequests.class, error ->
+                        clientRateLimiter.penalize(proxyRequest.xRoadClient(), proxyRequest.permission(), retryAfter(error)));
+    }
+
+    private void recordPhase(GatewayMetrics.Phase phase, ProxyRequest proxyRequest, RequestTimings timings, long nanos) {
+        gatewayMetrics.recordPhase(phase, proxyRequest, nanos);
+        if (timings != null) {
+            timings.record(phase, nanos);
+        }
+    }
+
+    /**
+     * Lê o {@code Retry-After} (segundos ou data HTTP). Sem o header, assume {@link #DEFAULT_RETRY_AFTER}.
+     */
+    private static Duration retryAfter(WebClientResponseException error) {
+        String value = error.getHeaders().getFirst(HttpHeaders.RETRY_AFTER);
+        if (value != null) {
+            try {
+                return Duration.ofSeconds(Math.max(0, Long.parseLong(value.trim())));
+            } catch (NumberFormatException e) {
+                try {
+                    Duration untilDate = Duration.between(Instant.now(), ZonedDateTime.parse(value.trim(), DateTimeFormatter.RFC_1123_DATE_TIME));
+                    return untilDate.isNegative() ? Duration.ZERO : untilDate;
+                } catch (DateTimeParseException ignored) {
+                    log.debug("Retry-After inválido recebido da API de destino: {}", value);
+                }
+            }
+        }
+        return DEFAULT_RETRY_AFTER;
+    }
+
+    /**
+     * Uma tentativa de chamada à API de destino, sob o circuit breaker e o bulkhead da API, com uma segunda
+     * chamada se a API estiver demorando mais que o normal ({@link UpstreamHedging}).
+     */
+    private <T> Mono<T> send(ProxyRequest proxyRequest, String token, boolean buffered,
+                             Function<WebClient.RequestHeadersSpec<?>, Mono<T>> call) {
+        Mono<T> attempt = upstreamResilienceRegistry.protect(proxyRequest.route().getApi(), proxyRequest.apiConfig(),
+                Mono.deferContextual(context -> call.apply(prepare(proxyRequest, token, buffered, RequestDeadline.from(context)))
+                        // Corpo de erro comprimido (pedido pelo broker ou pelo cliente) vira texto antes do log e da resposta
+                        .onErrorMap(WebClientResponseException.class, UpstreamContentEncoding::decode)));
+        return upstreamHedging.hedge(proxyRequest, attempt);
+    }
+
+    /**
+     * Descomprime a resposta quando o broker precisa ler o corpo (cache, lote, coalesce — a mesma resposta pode
+     * servir a outros clientes — ou projeção) ou quando o cliente não aceita a compressão usada pela API.
+     * O {@code Transfer-Encoding} da API nunca é repassado.
+     */
+    private static ResponseEntity<byte[]> decodeIfNeeded(ProxyRequest proxyRequest, ResponseEntity<byte[]> entity) {
+        String coding = UpstreamContentEncoding.of(entity.getHeaders());
+        if (coding == null || entity.getBody() == null) {
+            return UpstreamContentEncoding.withoutTransferEncoding(entity);
+        }
+        RouteConfig route = proxyRequest.route();
+        boolean readsBody = route.isCoalesce() || route.getCache() != null || route.getBatch() != null
+                || proxyRequest.projection() != null;
+        if (!readsBody && UpstreamContentEncoding.accepts(proxyRequest.headers().get(HttpHeaders.ACCEPT_ENCODING), coding)) {
+            return UpstreamContentEncoding.withoutTransferEncoding(entity);
+        }
+        return UpstreamContentEncoding.decode(entity, coding);
+    }
+
+    /**
+     * O broker sempre envia o próprio token Bearer, então um 401 indica token rejeitado, exceto quando a API
+     * pede explicitamente outro esquema de autenticação no {@code WWW-Authenticate}.
+     */
+    private static boolean isTokenRejection(WebClientResponseException error) {
+        String challenge = error.getHeaders().getFirst(HttpHeaders.WWW_AUTHENTICATE);
+        return challenge == null || challenge.regionMatches(true, 0, "Bearer", 0, "Bearer".length());
+    }
+
+    /**
+     * No modo buffer, com {@code http.compression}, o broker pede a resposta comprimida no lugar do
+     * {@code Accept-Encoding} do cliente. No modo streaming o corpo não passa pelo broker, então vale o do cliente.
+     */
+    private WebClient.RequestHeadersSpec<?> prepare(ProxyRequest proxyRequest, String token, boolean buffered,
+                                                    RequestDeadline deadline) {
+        URI targetUri = UriComponentsBuilder.fromUriString(proxyRequest.apiConfig().getTargetUrl())
+                .buildAndExpand(proxyRequest.routeMatch().pathVariables())
+                .toUri();
+
+        log.debug("Roteamento ID [{}]. Encaminhando para: {}", proxyRequest.route().getId(), targetUri);
+
+        WebClient.RequestBodySpec requestBodySpec = upstreamClientRegistry
+                .clientFor(proxyRequest.route().getApi(), proxyRequest.apiConfig())
+                .method(proxyRequest.method())
+                .uri(targetUri)
+                .headers(httpHeaders -> {
+                    // Compartilha as listas de valores (imutáveis) montadas pelo HeaderForwarder, sem copiá-las
+                    httpHeaders.putAll(proxyRequest.headers());
+                    httpHeaders.set(HttpHeaders.AUTHORIZATION, headerForwarder.bearer(token));
+                    if (buffered && proxyRequest.apiConfig().getHttp().isCompression()) {
+                        httpHeaders.set(HttpHeaders.ACCEPT_ENCODING, UpstreamContentEncoding.ACCEPTED);
+                    }
+                    if (deadline != null) {
+                        // A API de destino recebe só o que resta do prazo da requisição
+                        httpHeaders.set(brokerProperties.getProxy().getDeadlineHeader(),
+                                Long.toString(Math.max(1, deadline.remaining().toMillis())));
+                    }
+                });
+
+        if (proxyRequest.bodyStream() != null) {
+            return requestBodySpec.body(BodyInserters.fromDataBuffers(proxyRequest.bodyStream()));
+        }
+        if (proxyRequest.body() != null && proxyRequest.body().length > 0) {
+            return requestBodySpec.body(BodyInserters.fromValue(proxyRequest.body()));
+        }
+        return requestBodySpec;
+    }
+}
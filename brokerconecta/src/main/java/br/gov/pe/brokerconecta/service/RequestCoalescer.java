@@ -0,0 +1,109 @@
+package br.gov.pe.brokerconecta.service;
+
+import br.gov.pe.brokerconecta.metrics.RequestTimings;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Agrupa requisições idênticas simultâneas (single-flight) das rotas com {@code coalesce: true}: enquanto
+ * uma chamada à API de destino está em andamento, as requisições iguais que chegam aguardam e recebem a
+ * mesma resposta, em vez de gerar novas chamadas (pagas) à API.
+ * <p>
+ * Duas requisições são iguais quando têm a mesma rota, o mesmo cliente X-Road (escopo de autorização),
+ * as mesmas variáveis de caminho, o mesmo corpo e os mesmos {@code coalescePartitionHeaders} da rota (ex:
+ * {@code x-cpf-usuario}, para que a consulta de um usuário final não seja entregue a outro). Corpos JSON são
+ * comparados pelo conteúdo, ignorando espaços e a ordem das propriedades. Os demais headers da requisição que
+ * segue para a API são os da primeira requisição do grupo.
+ * <p>
+ * A chamada compartilhada roda sem o {@link RequestDeadline} e o {@link RequestTimings} de qualquer uma das
+ * requisições: o prazo da primeira não é repassado à API nem usado pela fila de admissão em nome das demais, e cada
+ * requisição continua limitada ao próprio prazo. A auditoria das requisições do grupo fica sem as fases
+ * {@code token} e {@code upstream}.
+ * <p>
+ * Mesmo mecanismo do cache in-flight de tokens do {@link TokenManagerService}. A resposta compartilhada
+ * é mantida só até a chamada terminar; não é um cache de respostas.
+ */
+@Component
+@Slf4j
+@RequiredArgsConstructor
+public class RequestCoalescer {
+
+    private final ObjectMapper objectMapper;
+    private final MeterRegistry meterRegistry;
+
+    private final Map<CoalescingKey, Mono<ResponseEntity<byte[]>>> inFlightRequests = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    void registerMetrics() {
+        Gauge.builder("broker.requests.coalesced.inflight", inFlightRequests, Map::size)
+                .description("Chamadas à API de destino em andamento compartilhadas por requisições idênticas")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Executa {@code upstreamCall}, ou se junta a uma chamada idêntica já em andamento.
+     */
+    public Mono<ResponseEntity<byte[]>> forward(ProxyRequest proxyRequest, Supplier<Mono<ResponseEntity<byte[]>>> upstreamCall) {
+        CoalescingKey key = keyOf(proxyRequest);
+        boolean[] leader = {false};
+        Mono<ResponseEntity<byte[]>> shared = inFlightRequests.computeIfAbsent(key, k -> {
+            leader[0] = true;
+            return Mono.defer(upstreamCall)
+                    // Sem o prazo e as durações da requisição que iniciou a chamada
+                    .contextWrite(context -> context.delete(RequestDeadline.class).delete(RequestTimings.class))
+                    // Remove a chamada do mapa quando ela termina (com sucesso ou erro)
+                    .doOnTerminate(() -> inFlightRequests.remove(k))
+                    // O resultado (ou o erro) é reproduzido para todas as requisições do grupo
+                    .cache();
+        });
+        if (!leader[0]) {
+            log.debug("Roteamento ID [{}]. Requisição idêntica em andamento; aguardando a mesma resposta.", key.routeId());
+            meterRegistry.counter("broker.requests.coalesced", "route", key.routeId()).increment();
+        }
+        return shared;
+    }
+
+    private CoalescingKey keyOf(ProxyRequest proxyRequest) {
+        List<List<String>> headers = new ArrayList<>();
+        proxyRequest.route().getCoalescePartitionHeaders()
+                .forEach(name -> headers.add(proxyRequest.headers().getOrEmpty(name)));
+        return new CoalescingKey(proxyRequest.route().getId(), proxyRequest.method(), proxyRequest.xRoadClient(),
+                proxyRequest.routeMatch().pathVariables(), normalizedBody(proxyRequest.body()), headers);
+    }
+
+    /**
+     * {@link JsonNode} para corpos JSON (igualdade pelo conteúdo, sem considerar a ordem das propriedades);
+     * os bytes do corpo para os demais.
+     */
+    private Object normalizedBody(byte[] body) {
+        if (body == null || body.length == 0) {
+            return null;
+        }
+        try {
+            return objectMapper.readTree(body);
+        } catch (IOException e) {
+            return ByteBuffer.wrap(body);
+        }
+    }
+
+    private record CoalescingKey(String routeId, HttpMethod method, String xRoadClient,
+                                 Map<String, String> pathVariables, Object body, List<List<String>> partitionHeaders) {
+    }
+}
@@ -0,0 +1,70 @@
+package br.gov.pe.brokerconecta.service;
+
+import br.gov.pe.brokerconecta.config.RouteConfig;
+import br.gov.pe.brokerconecta.exception.DeadlineExceededException;
+import reactor.core.publisher.Mono;
+import reactor.util.context.ContextView;
+
+import java.time.Duration;
+
+/**
+ * Prazo de uma requisição: o menor entre o pedido pelo cliente ({@code broker.proxy.deadline-header}, em
+ * milissegundos) e o {@code timeout} da rota.
+ * <p>
+ * O controller aplica o prazo à cadeia da requisição ({@link #apply}): ao se esgotar, a assinatura é cancelada,
+ * o que interrompe a espera pelo token, a fila do limite de requisições e a chamada à API em andamento. O
+ * {@link ProxyService} lê o prazo do contexto do Reactor para repassar o tempo restante à API de destino.
+ *
+ * @param routeId        rota da requisição, para a mensagem de erro.
+ * @param budget         prazo total.
+ * @param expiresAtNanos instante ({@link System#nanoTime()}) em que o prazo se esgota.
+ */
+public record RequestDeadline(String routeId, Duration budget, long expiresAtNanos) {
+
+    /**
+     * Prazo da requisição que chegou em {@code startNanos}, ou {@code null} se nem o cliente nem a rota
+     * definirem um. Um header com valor inválido é rejeitado com {@link IllegalArgumentException} (400).
+     */
+    public static RequestDeadline of(String headerName, String headerValue, RouteConfig route, long startNanos) {
+        Duration budget = route.getTimeout();
+        if (headerValue != null) {
+            Duration requested = parse(headerName, headerValue);
+            budget = budget == null || requested.compareTo(budget) < 0 ? requested : budget;
+        }
+        return budget == null ? null : new RequestDeadline(route.getId(), budget, startNanos + budget.toNanos());
+    }
+
+    /**
+     * Prazo do contexto da requisição, ou {@code null} se não houver.
+     */
+    public static RequestDeadline from(ContextView context) {
+        return context.getOrDefault(RequestDeadline.class, null);
+    }
+
+    public Duration remaining() {
+        return Duration.ofNanos(Math.max(0, expiresAtNanos - System.nanoTime()));
+    }
+
+    /**
+     * Limita {@code mono} ao tempo restante, falhando com {@link DeadlineExceededException} (504) ao esgotá-lo.
+     */
+    public <T> Mono<T> apply(Mono<T> mono) {
+        Duration remaining = remaining();
+        if (remaining.isZero()) {
+            return Mono.error(new DeadlineExceededException(routeId, budget));
+        }
+        return mono.timeout(remaining, Mono.error(() -> new DeadlineExceededException(routeId, budget)));
+    }
+
+    private static Duration parse(String headerName, String value) {
+        try {
+            long millis = Long.parseLong(value.trim());
+            if (millis > 0) {
+                return Duration.ofMillis(millis);
+            }
+        } catch (NumberFormatException ignored) {
+            // Tratado abaixo
+        }
+        throw new IllegalArgumentException("Header '" + headerName + "' inválido: informe o prazo em milissegundos (ex: 2000).");
+    }
+}
@@ -1,63 +1,139 @@
 package br.gov.pe.brokerconecta.service;
 
+import br.gov.pe.brokerconecta.authorization.ResolvedPermission;
 import br.gov.pe.brokerconecta.config.ApiConfig;
-import br.gov.pe.brokerconecta.config.ClientConfig;
+import br.gov.pe.brokerconecta.config.BrokerProperties;
+import br.gov.pe.brokerconecta.config.TokenConfig;
 import br.gov.pe.brokerconecta.dto.TokenResponseDTO;
-import br.gov.pe.brokerconecta.config.ApiPermissionConfig; 
+import br.gov.pe.brokerconecta.metrics.GatewayMetrics;
+import br.gov.pe.brokerconecta.snapshot.BrokerSnapshotChangedEvent;
+import br.gov.pe.brokerconecta.token.CachedToken;
+import br.gov.pe.brokerconecta.token.TokenStore;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.cache.Cache;
-import org.springframework.cache.CacheManager;
+import org.springframework.context.event.EventListener;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.stereotype.Service;
 import org.springframework.util.LinkedMultiValueMap;
 import org.springframework.util.MultiValueMap;
-import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.Disposable;
 import reactor.core.publisher.Mono;
 
-import java.util.Base64;
+import java.time.Duration;
+import java.time.Instant;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
 
 @Service
 @Slf4j
 @RequiredArgsConstructor
 public class TokenManagerService {
 
-    private final WebClient.Builder webClientBuilder;
-    private final CacheManager cacheManager;
+    private final UpstreamClientRegistry upstreamClientRegistry;
+    private final TokenStore tokenStore;
+    private final BrokerProperties brokerProperties;
+    private final MeterRegistry meterRegistry;
+    private final GatewayMetrics gatewayMetrics;
 
-    // 1. Cache temporário para requisições de token em andamento (in-flight).
+    // 1. Cache temporário para requisições de token em andamento (in-flight) nesta réplica.
     //    Usa ConcurrentHashMap para ser seguro em ambiente com múltiplas threads.
-    private final Map<String, Mono<String>> inFlightRequests = new ConcurrentHashMap<>();
+    //    Entre réplicas, a busca única é garantida pelo TokenStore (broker.tokens.store=redis).
+    private final Map<String, Mono<CachedToken>> inFlightRequests = new ConcurrentHashMap<>();
+
+    // Renovações agendadas em segundo plano (refresh-ahead), por Client ID.
+    private final Map<String, RefreshState> scheduledRefreshes = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    void registerMetrics() {
+        Gauge.builder("broker.token.inflight", inFlightRequests, Map::size)
+                .description("Buscas de token em andamento, cada uma compartilhada pelas requisições do mesmo Client ID")
+                .register(meterRegistry);
+    }
+
+    public Mono<String> getAccessToken(ResolvedPermission permission) {
 
-    public Mono<String> getAccessToken(ApiPermissionConfig permission, ApiConfig apiConfig) {
-        
-        Cache longTermCache = cacheManager.getCache("tokens");
         // A chave do cache agora é o Client ID da permissão, que é único
-        String cacheKey = permission.getClientId();
-        
-        // 2. Tenta buscar no cache de longo prazo primeiro (Caffeine).
-        Cache.ValueWrapper valueWrapper = (longTermCache != null) ? longTermCache.get(cacheKey) : null;
-        if (valueWrapper != null) {
-            log.info(">>> [CACHE HIT] Token encontrado no cache de longo prazo para o cliente: {}", cacheKey);
-            return Mono.just((String) valueWrapper.get());
+        String cacheKey = permission.clientId();
+
+        // 2. Tenta buscar no cache local primeiro (Caffeine), sem I/O.
+        //    A renovação acontece em segundo plano antes da expiração, então a requisição
+        //    continua usando o token atual enquanto um novo é obtido.
+        CachedToken cachedToken = tokenStore.getLocal(cacheKey);
+        Instant now = Instant.now();
+        gatewayMetrics.recordTokenLookup(permission.apiName(), cachedToken != null);
+        if (cachedToken != null) {
+            log.debug(">>> [CACHE HIT] Token encontrado no cache de longo prazo para o cliente: {}", cacheKey);
+            markUsed(permission, cachedToken, now);
+            return Mono.just(cachedToken.accessToken());
         }
 
-        // 3. Se não encontrou, usa o cache in-flight para lidar com a concorrência.
-        //    computeIfAbsent é atômico: garante que o bloco de código só será executado UMA VEZ
-        //    pela primeira thread que chegar aqui para uma dada chave.
-        return inFlightRequests.computeIfAbsent(cacheKey, key -> {
-            log.warn(">>> [CONCURRENCY] Cache de longo prazo vazio. Iniciando busca de novo token para o cliente: {}", key);
-            
-            // 4. Apenas a primeira thread executa esta parte.
-            return fetchTokenFromProvider(permission, apiConfig)
+        // 3. Se não encontrou, busca um novo token (uma única chamada por cliente, mesmo com concorrência).
+        return obtainToken(permission, null)
+                .doOnNext(token -> markUsed(permission, token, Instant.now()))
+                .map(CachedToken::accessToken);
+    }
+
+    /**
+     * Busca antecipada do token (aquecimento da réplica), sem contar como uso: se nenhuma requisição usar o
+     * token até a renovação agendada, ele não é renovado em segundo plano.
+     */
+    public Mono<Void> prefetch(ResolvedPermission permission) {
+        if (tokenStore.getLocal(permission.clientId()) != null) {
+            return Mono.empty();
+        }
+        return obtainToken(permission, null).then();
+    }
+
+    /**
+     * Substitui um token rejeitado pela API de destino (401). O token só é invalidado se ainda for o atual:
+     * quando várias requisições recebem 401 com o mesmo token, apenas a primeira o invalida e todas aguardam
+     * a mesma busca in-flight do token novo.
+     *
+     * @param rejectedAccessToken token enviado na requisição rejeitada.
+     */
+    public Mono<String> replaceRejectedToken(ResolvedPermission permission, String rejectedAccessToken) {
+        String clientId = permission.clientId();
+        CachedToken current = tokenStore.getLocal(clientId);
+        if (current == null || !current.accessToken().equals(rejectedAccessToken)) {
+            // Já invalidado (ou renovado) por outra requisição
+            return getAccessToken(permission);
+        }
+
+        log.warn(">>> [INVALIDATE] Token do cliente {} rejeitado pela API {}. Removendo do cache.", clientId, permission.apiName());
+        tokenStore.invalidate(clientId, current);
+        meterRegistry.counter("broker.token.invalidations", "api", permission.apiName()).increment();
+
+        return obtainToken(permission, current)
+                .doOnNext(token -> markUsed(permission, token, Instant.now()))
+                .map(CachedToken::accessToken);
+    }
+
+    /**
+     * Obtém um novo token usando o cache in-flight para lidar com a concorrência.
+     * Usado tanto no caminho da requisição (cache vazio) quanto na renovação em segundo plano.
+     *
+     * @param replacing token atual que está sendo renovado ou invalidado, ou {@code null}.
+     */
+    private Mono<CachedToken> obtainToken(ResolvedPermission permission, CachedToken replacing) {
+        // computeIfAbsent é atômico: garante que o bloco de código só será executado UMA VEZ
+        // pela primeira thread que chegar aqui para uma dada chave.
+        return inFlightRequests.computeIfAbsent(permission.clientId(), key -> {
+            log.warn(">>> [CONCURRENCY] Iniciando busca de novo token para o cliente: {}", key);
+
+            // 4. Apenas a primeira thread executa esta parte. O TokenStore só chama o provedor se
+            //    nenhuma outra réplica já tiver obtido o token, e o armazena em todas as camadas.
+            return tokenStore.acquire(key, replacing, () -> fetchTokenFromProvider(permission))
                     .doOnSuccess(token -> {
-                        // 5. Ao obter o token com sucesso, armazena no cache de longo prazo.
-                        if (longTermCache != null && token != null) {
-                            log.info(">>> [CACHE] Armazenando novo token no cache de longo prazo: {}", key);
-                            longTermCache.put(key, token);
+                        // 5. Ao obter o token com sucesso, agenda a renovação antecipada.
+                        if (token != null) {
+                            log.info(">>> [CACHE] Novo token armazenado para o cliente: {} (expira em {})", key, token.expiresAt());
+                            scheduleRefresh(permission, Duration.between(Instant.now(), token.refreshAt()), false);
                         }
                     })
                     // 6. Remove a requisição do mapa in-flight quando ela termina (com sucesso ou erro).
@@ -68,33 +144,173 @@ public class TokenManagerService {
                     // 7. O operador .cache() é a chave! Ele garante que a chamada WebClient
                     //    seja executada apenas uma vez, e seu resultado é "reproduzido" para
                     //    todas as threads concorrentes que estavam "escutando" este Mono.
-                    .cache(); 
+                    .cache();
         });
     }
 
+    /**
+     * Registra o uso do token. Só são renovados em segundo plano tokens usados desde a última emissão;
+     * se um token ocioso voltar a ser usado dentro da janela de renovação, a renovação é disparada na hora.
+     */
+    private void markUsed(ResolvedPermission permission, CachedToken cachedToken, Instant now) {
+        RefreshState state = scheduledRefreshes.get(permission.clientId());
+        if (state != null) {
+            if (!state.used) {
+                state.used = true;
+            }
+        } else if (!now.isBefore(cachedToken.refreshAt())) {
+            scheduleRefresh(permission, Duration.ZERO, true);
+        }
+    }
+
+    private void scheduleRefresh(ResolvedPermission permission, Duration delay, boolean used) {
+        RefreshState state = new RefreshState(permission);
+        state.used = used;
+        RefreshState previous = scheduledRefreshes.put(permission.clientId(), state);
+        if (previous != null) {
+            previous.cancel();
+        }
+        state.schedule(delay);
+    }
+
+    /**
+     * Renovação em segundo plano. Em caso de falha o token atual continua em uso até expirar,
+     * e uma nova tentativa é agendada.
+     */
+    private void refreshInBackground(RefreshState state) {
+        String clientId = state.permission.clientId();
+        if (scheduledRefreshes.get(clientId) != state) {
+            return; // Substituída por um agendamento mais recente
+        }
+        if (!state.used) {
+            log.debug(">>> [REFRESH] Token do cliente {} não foi usado desde a emissão. Renovação suspensa.", clientId);
+            scheduledRefreshes.remove(clientId, state);
+            return;
+        }
+
+        log.info(">>> [REFRESH] Renovando em segundo plano o token do cliente: {}", clientId);
+        obtainToken(state.permission, tokenStore.getLocal(clientId)).subscribe(
+                token -> { },
+                error -> {
+                    CachedToken current = tokenStore.getLocal(clientId);
+                    if (current != null && scheduledRefreshes.get(clientId) == state) {
+                        Duration retry = brokerProperties.getTokens().getRefreshRetryInterval();
+                        log.warn(">>> [REFRESH] Falha ao renovar o token do cliente {}. Mantendo o token atual (expira em {}) e tentando novamente em {}.",
+                                clientId, current.expiresAt(), retry);
+                        state.schedule(retry);
+                    } else {
+                        scheduledRefreshes.remove(clientId, state);
+                    }
+                });
+    }
+
     /**
      * Método que realmente executa a chamada WebClient para o provedor de identidade.
      */
-    private Mono<String> fetchTokenFromProvider(ApiPermissionConfig permission, ApiConfig apiConfig) {
+    private Mono<CachedToken> fetchTokenFromProvider(ResolvedPermission permission) {
         log.info(">>> [API CALL] Disparando chamada WebClient para obter token...");
-        
+
         MultiValueMap<String, String> formData = new LinkedMultiValueMap<>();
         formData.add("grant_type", "client_credentials");
-        
-        // Usa as credenciais da permissão específica
-        String auth = permission.getClientId() + ":" + permission.getClientSecret();
-        String encodedAuth = Base64.getEncoder().encodeToString(auth.getBytes());
-        String authHeader = "Basic " + encodedAuth;
-        
-        return webClientBuilder.build()
+
+        // Usa as credenciais da permissão específica, com o header Basic já codificado no índice de autorização
+        return upstreamClientRegistry.clientFor(permission.apiName(), permission.apiConfig())
             .post()
-            .uri(apiConfig.getTokenUrl())
-            .header(HttpHeaders.AUTHORIZATION, authHeader)
+            .uri(permission.apiConfig().getTokenUrl())
+            .header(HttpHeaders.AUTHORIZATION, permission.basicAuthHeader())
             .header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_FORM_URLENCODED_VALUE)
             .bodyValue(formData)
             .retrieve()
             .bodyToMono(TokenResponseDTO.class)
-            .map(TokenResponseDTO::getAccessToken)
-            .doOnError(error -> log.error("Erro ao obter token para cliente {}: {}", permission.getClientId(), error.getMessage()));
+            .map(this::toCachedToken)
+            .doOnError(error -> log.error("Erro ao obter token para cliente {}: {}", permission.clientId(), error.getMessage()));
+    }
+
+    /**
+     * Calcula validade e instante de renovação a partir do {@code expires_in} devolvido pelo provedor.
+     */
+    private CachedToken toCachedToken(TokenResponseDTO response) {
+        TokenConfig tokenConfig = brokerProperties.getTokens();
+        Instant issuedAt = Instant.now();
+
+        Duration lifetime = response.getExpiresIn() > 0 ? Duration.ofSeconds(response.getExpiresIn()) : tokenConfig.getDefaultTtl();
+        Duration usable = lifetime.minus(tokenConfig.getExpirySkew());
+        if (usable.compareTo(lifetime.dividedBy(2)) < 0) {
+            // Tokens de vida muito curta: a margem não pode consumir mais da metade da validade.
+            usable = lifetime.dividedBy(2);
+        }
+
+        Duration refreshAhead = min(tokenConfig.getRefreshAhead(), usable.dividedBy(2));
+        long maxJitterMillis = min(tokenConfig.getRefreshJitter(), usable.dividedBy(4)).toMillis();
+        Duration jitter = Duration.ofMillis(maxJitterMillis > 0 ? ThreadLocalRandom.current().nextLong(maxJitterMillis + 1) : 0);
+
+        Instant expiresAt = issuedAt.plus(usable);
+        return new CachedToken(response.getAccessToken(), expiresAt, expiresAt.minus(refreshAhead).minus(jitter));
+    }
+
+    private static Duration min(Duration a, Duration b) {
+        return a.compareTo(b) <= 0 ? a : b;
+    }
+
+    /**
+     * Nova configuração publicada: descarta os tokens dos Client IDs com credenciais trocadas ou removidas e
+     * cancela a renovação deles. Tokens de credenciais inalteradas continuam em cache, e as renovações
+     * agendadas passam a usar a configuração atual da API; as de APIs ou clientes removidos são canceladas.
+     */
+    @EventListener
+    public void onSnapshotChanged(BrokerSnapshotChangedEvent event) {
+        event.changedCredentials().forEach(clientId -> {
+            log.info(">>> [CREDENTIALS] Credenciais do cliente {} alteradas. Descartando o token em cache.", clientId);
+            RefreshState state = scheduledRefreshes.remove(clientId);
+            if (state != null) {
+                state.cancel();
+            }
+            tokenStore.evict(clientId);
+        });
+        scheduledRefreshes.forEach((clientId, state) -> {
+            ResolvedPermission permission = state.permission;
+            ApiConfig apiConfig = event.current().apis().get(permission.apiName());
+            if (apiConfig == null || !event.current().credentials().containsKey(clientId)) {
+                log.info(">>> [REFRESH] API {} ou cliente {} removido da configuração. Renovação cancelada.",
+                        permission.apiName(), clientId);
+                if (scheduledRefreshes.remove(clientId, state)) {
+                    state.cancel();
+                }
+                return;
+            }
+            state.permission = new ResolvedPermission(permission.apiName(), permission.permission(),
+                    apiConfig, permission.basicAuthHeader(), permission.projection());
+        });
+    }
+
+    @PreDestroy
+    public void cancelScheduledRefreshes() {
+        scheduledRefreshes.values().forEach(RefreshState::cancel);
+        scheduledRefreshes.clear();
+    }
+
+    /**
+     * Agendamento de renovação de um cliente. {@code used} indica se o token foi usado desde a emissão.
+     */
+    private final class RefreshState {
+        private volatile ResolvedPermission permission;
+        private volatile boolean used;
+        private volatile Disposable task;
+
+        private RefreshState(ResolvedPermission permission) {
+            this.permission = permission;
+        }
+
+        private void schedule(Duration delay) {
+            Duration safeDelay = delay.isNegative() ? Duration.ZERO : delay;
+            task = Mono.delay(safeDelay).subscribe(tick -> refreshInBackground(this));
+        }
+
+        private void cancel() {
+            Disposable current = task;
+            if (current != null) {
+                current.dispose();
+            }
+        }
     }
 }
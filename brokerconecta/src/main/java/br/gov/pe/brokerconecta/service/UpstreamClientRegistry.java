@@ -0,0 +1,119 @@
+package br.gov.pe.brokerconecta.service;
+
+import br.gov.pe.brokerconecta.config.ApiConfig;
+import br.gov.pe.brokerconecta.config.HttpClientConfig;
+import io.netty.channel.ChannelOption;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.netty.http.HttpProtocol;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Registro de clientes HTTP por API de destino.
+ * <p>
+ * Cada API recebe um {@link WebClient} compartilhado, apoiado em um {@link ConnectionProvider} nomeado
+ * ({@code conecta-<api>}) com pool, keep-alive e timeouts configurados em {@code broker.apis.<api>.http}.
+ * As métricas do pool (conexões ativas, ociosas e aquisições pendentes) são publicadas no Micrometer
+ * como {@code reactor.netty.connection.provider.*}, com a tag {@code name} igual ao nome do pool.
+ * <p>
+ * Se a configuração HTTP de uma API mudar, um novo cliente é criado e o pool anterior é encerrado
+ * após as conexões em uso serem devolvidas.
+ */
+@Component
+@Slf4j
+public class UpstreamClientRegistry {
+
+    private static final String POOL_PREFIX = "conecta-";
+
+    private final WebClient.Builder webClientBuilder;
+    private final Map<String, UpstreamClient> clients = new ConcurrentHashMap<>();
+
+    public UpstreamClientRegistry(WebClient.Builder webClientBuilder) {
+        this.webClientBuilder = webClientBuilder;
+    }
+
+    /**
+     * Retorna o cliente compartilhado da API, criando-o no primeiro uso.
+     */
+    public WebClient clientFor(String apiName, ApiConfig apiConfig) {
+        HttpClientConfig httpConfig = apiConfig.getHttp();
+        UpstreamClient client = clients.get(apiName);
+        if (client != null && client.httpConfig().equals(httpConfig)) {
+            return client.webClient();
+        }
+        return clients.compute(apiName, (name, current) -> {
+            if (current != null && current.httpConfig().equals(httpConfig)) {
+                return current;
+            }
+            if (current != null) {
+                log.info("Configuração HTTP da API '{}' alterada. Recriando o pool de conexões.", name);
+                current.connectionProvider().disposeLater().subscribe();
+            }
+            return create(name, apiConfig);
+        }).webClient();
+    }
+
+    private UpstreamClient create(String apiName, ApiConfig apiConfig) {
+        // Cópia da configuração: alterações posteriores no objeto de configuração não afetam o pool já criado.
+        HttpClientConfig httpConfig = copyOf(apiConfig.getHttp());
+
+        ConnectionProvider connectionProvider = ConnectionProvider.builder(POOL_PREFIX + apiName)
+                .maxConnections(httpConfig.getMaxConnections())
+                .pendingAcquireMaxCount(httpConfig.getPendingAcquireMaxCount())
+                .pendingAcquireTimeout(httpConfig.getPendingAcquireTimeout())
+                .maxIdleTime(httpConfig.getMaxIdleTime())
+                .maxLifeTime(httpConfig.getMaxLifeTime())
+                .evictInBackground(httpConfig.getEvictInBackground())
+                .metrics(true)
+                .build();
+
+        HttpClient httpClient = HttpClient.create(connectionProvider)
+                .keepAlive(true)
+                .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, (int) httpConfig.getConnectTimeout().toMillis())
+                .responseTimeout(httpConfig.getResponseTimeout());
+        if (httpConfig.isHttp2()) {
+            // Em HTTPS o protocolo é negociado via ALPN; em HTTP puro é usado o upgrade h2c.
+            boolean secure = apiConfig.getTargetUrl() != null && apiConfig.getTargetUrl().startsWith("https");
+            httpClient = httpClient.protocol(secure ? HttpProtocol.H2 : HttpProtocol.H2C, HttpProtocol.HTTP11);
+        }
+
+        log.info("Pool de conexões '{}' criado: maxConnections={}, pendingAcquireMaxCount={}, http2={}",
+                POOL_PREFIX + apiName, httpConfig.getMaxConnections(), httpConfig.getPendingAcquireMaxCount(), httpConfig.isHttp2());
+
+        WebClient webClient = webClientBuilder.clone()
+                .clientConnector(new ReactorClientHttpConnector(httpClient))
+                .build();
+        return new UpstreamClient(httpConfig, connectionProvider, webClient);
+    }
+
+    private static HttpClientConfig copyOf(HttpClientConfig source) {
+        HttpClientConfig copy = new HttpClientConfig();
+        copy.setMaxConnections(source.getMaxConnections());
+        copy.setPendingAcquireMaxCount(source.getPendingAcquireMaxCount());
+        copy.setPendingAcquireTimeout(source.getPendingAcquireTimeout());
+        copy.setMaxIdleTime(source.getMaxIdleTime());
+        copy.setMaxLifeTime(source.getMaxLifeTime());
+        copy.setEvictInBackground(source.getEvictInBackground());
+        copy.setConnectTimeout(source.getConnectTimeout());
+        copy.setResponseTimeout(source.getResponseTimeout());
+        copy.setHttp2(source.isHttp2());
+        copy.setCompression(source.isCompression());
+        return copy;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        clients.values().forEach(client -> client.connectionProvider().dispose());
+        clients.clear();
+    }
+
+    private record UpstreamClient(HttpClientConfig httpConfig, ConnectionProvider connectionProvider, WebClient webClient) {
+    }
+}
@@ -0,0 +1,203 @@
+package br.gov.pe.brokerconecta.service;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.List;
+import java.util.Locale;
+import java.util.zip.DataFormatException;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.Inflater;
+
+/**
+ * Compressão ({@code Content-Encoding}) das respostas das APIs de destino no modo buffer.
+ * <p>
+ * Com {@code broker.apis.<api>.http.compression}, o broker pede {@value #ACCEPTED} à API e só descomprime a
+ * resposta quando precisa do corpo ou quando o cliente não aceita a compressão recebida ({@link ProxyService}).
+ * Respostas de erro são sempre descomprimidas.
+ */
+final class UpstreamContentEncoding {
+
+    /**
+     * Valor do {@code Accept-Encoding} enviado à API de destino.
+     */
+    static final String ACCEPTED = "gzip, deflate";
+
+    private static final int BUFFER_SIZE = 8 * 1024;
+
+    private UpstreamContentEncoding() {
+    }
+
+    /**
+     * Compressão da resposta, em minúsculas, ou {@code null} se ela não estiver comprimida.
+     */
+    static String of(HttpHeaders headers) {
+        String coding = headers.getFirst(HttpHeaders.CONTENT_ENCODING);
+        if (coding == null) {
+            return null;
+        }
+        coding = coding.trim().toLowerCase(Locale.ROOT);
+        return coding.isEmpty() || coding.equals("identity") ? null : coding;
+    }
+
+    /**
+     * Indica se a compressão é aceita pelo {@code Accept-Encoding} do cliente (RFC 9110, seção 12.5.3): pelo nome
+     * ou por {@code *}, desde que sem {@code q=0}.
+     */
+    static boolean accepts(List<String> acceptEncoding, String coding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+        for (String header : acceptEncoding) {
+            for (String entry : header.split(",")) {
+                String[] parts = entry.split(";");
+                String name = parts[0].trim();
+                if ((name.equalsIgnoreCase(coding) || name.equals("*")) && !rejected(parts)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * A mesma resposta com o corpo descomprimido, sem {@code Content-Encoding}, {@code Content-Length} e
+     * {@code Transfer-Encoding}.
+     * Compressões desconhecidas (ex: {@code br}, pedida pelo próprio cliente) seguem sem alteração.
+     */
+    static ResponseEntity<byte[]> decode(ResponseEntity<byte[]> entity, String coding) {
+        byte[] body;
+        try {
+            body = decodeBody(entity.getBody(), coding);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Resposta da API com Content-Encoding '" + coding + "' inválido.", e);
+        }
+        if (body == null) {
+            return entity;
+        }
+        return new ResponseEntity<>(body, withoutEncoding(entity.getHeaders()), entity.getStatusCode());
+    }
+
+    /**
+     * A mesma resposta de erro (4xx/5xx) com o corpo descomprimido, para que o log e a resposta ao cliente
+     * ({@code GlobalExceptionHandler}) tenham o texto do erro. O corpo de erro é sempre descomprimido, em qualquer
+     * modo: o broker o repassa como texto, sem {@code Content-Encoding}. Se não for possível descomprimi-lo, o
+     * erro original segue sem alteração.
+     */
+    static WebClientResponseException decode(WebClientResponseException error) {
+        String coding = of(error.getHeaders());
+        byte[] compressed = error.getResponseBodyAsByteArray();
+        if (coding == null || compressed.length == 0) {
+            return error;
+        }
+        byte[] body;
+        try {
+            body = decodeBody(compressed, coding);
+        } catch (IOException e) {
+            return error;
+        }
+        if (body == null) {
+            return error;
+        }
+        HttpHeaders headers = withoutEncoding(error.getHeaders());
+        MediaType contentType = headers.getContentType();
+        return WebClientResponseException.create(error.getStatusCode(), error.getStatusText(), headers, body,
+                contentType != null ? contentType.getCharset() : null, error.getRequest());
+    }
+
+    /**
+     * A resposta sem o {@code Transfer-Encoding} da API (comum nas respostas comprimidas): no modo buffer o corpo
+     * já foi lido inteiro, e o servlet container define a codificação de transferência com o cliente.
+     */
+    static ResponseEntity<byte[]> withoutTransferEncoding(ResponseEntity<byte[]> entity) {
+        if (!entity.getHeaders().containsKey(HttpHeaders.TRANSFER_ENCODING)) {
+            return entity;
+        }
+        HttpHeaders headers = new HttpHeaders();
+        headers.addAll(entity.getHeaders());
+        headers.remove(HttpHeaders.TRANSFER_ENCODING);
+        return new ResponseEntity<>(entity.getBody(), headers, entity.getStatusCode());
+    }
+
+    /**
+     * Corpo descomprimido, ou {@code null} se a compressão não for conhecida.
+     */
+    private static byte[] decodeBody(byte[] compressed, String coding) throws IOException {
+        return switch (coding) {
+            case "gzip", "x-gzip" -> readAll(new GZIPInputStream(new ByteArrayInputStream(compressed), BUFFER_SIZE));
+            case "deflate" -> inflate(compressed);
+            default -> null;
+        };
+    }
+
+    private static HttpHeaders withoutEncoding(HttpHeaders source) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.addAll(source);
+        headers.remove(HttpHeaders.CONTENT_ENCODING);
+        headers.remove(HttpHeaders.CONTENT_LENGTH);
+        headers.remove(HttpHeaders.TRANSFER_ENCODING);
+        return headers;
+    }
+
+    private static boolean rejected(String[] parameters) {
+        for (int i = 1; i < parameters.length; i++) {
+            String parameter = parameters[i].trim();
+            if (parameter.regionMatches(true, 0, "q=", 0, 2)) {
+                try {
+                    return Double.parseDouble(parameter.substring(2).trim()) <= 0;
+                } catch (NumberFormatException e) {
+                    return false;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * {@code deflate} é o formato zlib (RFC 9110, seção 8.4.1.2), mas alguns servidores enviam o deflate puro,
+     * sem o cabeçalho zlib: nesse caso a leitura é refeita nesse formato.
+     */
+    private static byte[] inflate(byte[] compressed) throws IOException {
+        try {
+            return inflate(compressed, false);
+        } catch (DataFormatException e) {
+            try {
+                return inflate(compressed, true);
+            } catch (DataFormatException raw) {
+                throw new IOException(raw);
+            }
+        }
+    }
+
+    private static byte[] inflate(byte[] compressed, boolean nowrap) throws DataFormatException {
+        Inflater inflater = new Inflater(nowrap);
+        try {
+            inflater.setInput(compressed);
+            ByteArrayOutputStream out = new ByteArrayOutputStream(compressed.length * 4);
+            byte[] buffer = new byte[BUFFER_SIZE];
+            while (!inflater.finished()) {
+                int read = inflater.inflate(buffer);
+                if (read == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    break;
+                }
+                out.write(buffer, 0, read);
+            }
+            return out.toByteArray();
+        } finally {
+            inflater.end();
+        }
+    }
+
+    private static byte[] readAll(InputStream in) throws IOException {
+        try (in) {
+            return in.readAllBytes();
+        }
+    }
+}
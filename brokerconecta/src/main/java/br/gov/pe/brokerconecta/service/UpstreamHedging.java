@@ -0,0 +1,176 @@
+package br.gov.pe.brokerconecta.service;
+
+import br.gov.pe.brokerconecta.config.HedgingConfig;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.TimeGauge;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpMethod;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Segundas chamadas (hedging) às APIs de destino, configuradas em {@code broker.apis.<api>.hedging}.
+ * <p>
+ * Cada API tem uma janela com as latências das últimas chamadas bem-sucedidas; o percentil configurado dessa
+ * janela é o tempo de espera antes da segunda chamada, recalculado a cada {@value #RECOMPUTE_INTERVAL} amostras.
+ * Assim a espera acompanha a API: sobe quando ela fica lenta como um todo (evitando dobrar a carga) e desce
+ * quando ela volta ao normal.
+ * <p>
+ * Vale o primeiro sinal da chamada original: a resposta ou um erro (ex: 4xx) encerra a requisição e cancela a
+ * segunda chamada. Já um erro da segunda chamada (incluindo circuit breaker aberto ou bulkhead cheio) é ignorado
+ * e a chamada original continua valendo.
+ * <p>
+ * Métricas: {@code broker.upstream.hedges{result=sent|won}} e {@code broker.upstream.hedge.delay}, por API.
+ */
+@Component
+@Slf4j
+public class UpstreamHedging {
+
+    private static final int RECOMPUTE_INTERVAL = 32;
+
+    private final MeterRegistry meterRegistry;
+    private final Map<String, LatencyWindow> windows = new ConcurrentHashMap<>();
+
+    public UpstreamHedging(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    /**
+     * Executa a chamada à API, enviando uma segunda chamada idêntica se a primeira demorar mais que o percentil
+     * configurado. {@code attempt} precisa poder ser assinado mais de uma vez (uma chamada por assinatura).
+     */
+    public <T> Mono<T> hedge(ProxyRequest proxyRequest, Mono<T> attempt) {
+        HedgingConfig config = proxyRequest.apiConfig().getHedging();
+        if (config == null || !config.isEnabled()) {
+            return attempt;
+        }
+        LatencyWindow window = windowFor(proxyRequest.route().getApi(), config);
+        Mono<T> measured = Mono.defer(() -> {
+            long start = System.nanoTime();
+            return attempt.doOnSuccess(value -> window.record(System.nanoTime() - start));
+        });
+
+        long delayNanos = window.delayNanos();
+        if (delayNanos < 0 || !isHedgeable(proxyRequest)) {
+            return measured;
+        }
+        Mono<T> hedge = Mono.delay(Duration.ofNanos(delayNanos))
+                .then(Mono.defer(() -> {
+                    window.sent.increment();
+                    log.debug("Roteamento ID [{}]. Sem resposta da API em {} ms. Enviando segunda chamada.",
+                            proxyRequest.route().getId(), delayNanos / 1_000_000);
+                    return measured;
+                }))
+                .doOnNext(value -> window.won.increment())
+                .onErrorResume(error -> Mono.never());
+        return Mono.firstWithSignal(measured, hedge);
+    }
+
+    /**
+     * Só chamadas idempotentes e com o corpo em memória podem ser repetidas.
+     */
+    private static boolean isHedgeable(ProxyRequest proxyRequest) {
+        if (proxyRequest.bodyStream() != null) {
+            return false;
+        }
+        HttpMethod method = proxyRequest.method();
+        return proxyRequest.route().isIdempotent()
+                || HttpMethod.GET.equals(method) || HttpMethod.HEAD.equals(method) || HttpMethod.OPTIONS.equals(method);
+    }
+
+    private LatencyWindow windowFor(String apiName, HedgingConfig config) {
+        LatencyWindow window = windows.get(apiName);
+        if (window != null && window.config.equals(config)) {
+            return window;
+        }
+        return windows.compute(apiName, (name, current) -> {
+            if (current != null && current.config.equals(config)) {
+                return current;
+            }
+            if (current == null) {
+                // A função lê a janela atual da API, então continua válida depois de uma troca de configuração
+                TimeGauge.builder("broker.upstream.hedge.delay", this, TimeUnit.NANOSECONDS, hedging -> hedging.currentDelay(name))
+                        .description("Espera antes da segunda chamada à API (percentil das latências recentes)")
+                        .tag("api", name)
+                        .register(meterRegistry);
+            }
+            return new LatencyWindow(copyOf(config), hedgeCounter(name, "sent"), hedgeCounter(name, "won"));
+        });
+    }
+
+    private double currentDelay(String apiName) {
+        LatencyWindow window = windows.get(apiName);
+        return window == null ? 0 : Math.max(0, window.delayNanos());
+    }
+
+    private Counter hedgeCounter(String apiName, String result) {
+        return Counter.builder("broker.upstream.hedges")
+                .description("Segundas chamadas às APIs de destino enviadas e as que responderam primeiro")
+                .tags("api", apiName, "result", result)
+                .register(meterRegistry);
+    }
+
+    private static HedgingConfig copyOf(HedgingConfig config) {
+        HedgingConfig copy = new HedgingConfig();
+        copy.setEnabled(config.isEnabled());
+        copy.setPercentile(config.getPercentile());
+        copy.setWindowSize(config.getWindowSize());
+        copy.setMinSamples(config.getMinSamples());
+        copy.setMinDelay(config.getMinDelay());
+        copy.setMaxDelay(config.getMaxDelay());
+        return copy;
+    }
+
+    /**
+     * Latências recentes de uma API em um buffer circular. Gravações concorrentes só disputam o contador;
+     * o percentil é recalculado por quem gravar a amostra da vez, sobre uma cópia da janela.
+     */
+    static final class LatencyWindow {
+        private final HedgingConfig config;
+        private final AtomicLongArray samples;
+        private final AtomicLong count = new AtomicLong();
+        private final Counter sent;
+        private final Counter won;
+        // Espera antes da segunda chamada; negativo enquanto não houver amostras suficientes
+        private volatile long delayNanos = -1;
+
+        LatencyWindow(HedgingConfig config, Counter sent, Counter won) {
+            this.config = config;
+            this.samples = new AtomicLongArray(Math.max(1, config.getWindowSize()));
+            this.sent = sent;
+            this.won = won;
+        }
+
+        void record(long nanos) {
+            long n = count.getAndIncrement();
+            samples.lazySet((int) (n % samples.length()), nanos);
+            long recorded = n + 1;
+            if (recorded >= config.getMinSamples() && (recorded == config.getMinSamples() || recorded % RECOMPUTE_INTERVAL == 0)) {
+                recompute((int) Math.min(recorded, samples.length()));
+            }
+        }
+
+        long delayNanos() {
+            return delayNanos;
+        }
+
+        private void recompute(int size) {
+            long[] sorted = new long[size];
+            for (int i = 0; i < size; i++) {
+                sorted[i] = samples.get(i);
+            }
+            Arrays.sort(sorted);
+            int index = Math.min(size - 1, Math.max(0, (int) Math.ceil(config.getPercentile() * size) - 1));
+            delayNanos = Math.clamp(sorted[index], config.getMinDelay().toNanos(), config.getMaxDelay().toNanos());
+        }
+    }
+}
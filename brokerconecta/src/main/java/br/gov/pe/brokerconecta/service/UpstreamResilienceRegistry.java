@@ -0,0 +1,137 @@
+package br.gov.pe.brokerconecta.service;
+
+import br.gov.pe.brokerconecta.config.ApiConfig;
+import br.gov.pe.brokerconecta.config.ResilienceConfig;
+import io.github.resilience4j.bulkhead.Bulkhead;
+import io.github.resilience4j.bulkhead.BulkheadConfig;
+import io.github.resilience4j.bulkhead.BulkheadFullException;
+import io.github.resilience4j.bulkhead.BulkheadRegistry;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerConfig;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.github.resilience4j.reactor.bulkhead.operator.BulkheadOperator;
+import io.github.resilience4j.reactor.circuitbreaker.operator.CircuitBreakerOperator;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClientRequestException;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Circuit breaker e bulkhead por API de destino, configurados em {@code broker.apis.<api>.resilience}.
+ * <p>
+ * As instâncias são registradas nos registries do Resilience4j com o nome da API, e por isso aparecem em
+ * {@code /actuator/circuitbreakers}, {@code /actuator/bulkheads} e nas métricas {@code resilience4j.*}.
+ * <p>
+ * Contam como falha apenas erros de conexão, timeouts e respostas 5xx; respostas 4xx são do cliente e
+ * não indicam problema na API. Se a configuração de uma API mudar, as instâncias são recriadas.
+ */
+@Component
+@Slf4j
+public class UpstreamResilienceRegistry {
+
+    private final CircuitBreakerRegistry circuitBreakerRegistry;
+    private final BulkheadRegistry bulkheadRegistry;
+    private final Map<String, UpstreamGuard> guards = new ConcurrentHashMap<>();
+
+    public UpstreamResilienceRegistry(CircuitBreakerRegistry circuitBreakerRegistry, BulkheadRegistry bulkheadRegistry) {
+        this.circuitBreakerRegistry = circuitBreakerRegistry;
+        this.bulkheadRegistry = bulkheadRegistry;
+    }
+
+    /**
+     * Executa a chamada à API sob o bulkhead e o circuit breaker da API. Com o circuito aberto ou o bulkhead
+     * cheio, falha imediatamente com {@code CallNotPermittedException} ou {@link BulkheadFullException}.
+     */
+    public <T> Mono<T> protect(String apiName, ApiConfig apiConfig, Mono<T> call) {
+        ResilienceConfig config = apiConfig.getResilience();
+        if (config == null || !config.isEnabled()) {
+            return call;
+        }
+        UpstreamGuard guard = guardFor(apiName, config);
+        Mono<T> guarded = guard.bulkhead() != null ? call.transformDeferred(BulkheadOperator.of(guard.bulkhead())) : call;
+        return guarded.transformDeferred(CircuitBreakerOperator.of(guard.circuitBreaker()));
+    }
+
+    private UpstreamGuard guardFor(String apiName, ResilienceConfig config) {
+        UpstreamGuard guard = guards.get(apiName);
+        if (guard != null && guard.config().equals(config)) {
+            return guard;
+        }
+        return guards.compute(apiName, (name, current) -> {
+            if (current != null && current.config().equals(config)) {
+                return current;
+            }
+            if (current != null) {
+                log.info("Configuração de resiliência da API '{}' alterada. Recriando circuit breaker e bulkhead.", name);
+                circuitBreakerRegistry.remove(name);
+                bulkheadRegistry.remove(name);
+            }
+            return create(name, config);
+        });
+    }
+
+    private UpstreamGuard create(String apiName, ResilienceConfig config) {
+        // Cópia da configuração: alterações posteriores no objeto de configuração não afetam as instâncias criadas.
+        ResilienceConfig snapshot = copyOf(config);
+
+        CircuitBreaker circuitBreaker = circuitBreakerRegistry.circuitBreaker(apiName, CircuitBreakerConfig.custom()
+                .slidingWindowType(CircuitBreakerConfig.SlidingWindowType.TIME_BASED)
+                .slidingWindowSize((int) Math.max(1, snapshot.getSlidingWindow().toSeconds()))
+                .minimumNumberOfCalls(snapshot.getMinimumNumberOfCalls())
+                .failureRateThreshold(snapshot.getFailureRateThreshold())
+                .slowCallDurationThreshold(snapshot.getSlowCallDurationThreshold())
+                .slowCallRateThreshold(snapshot.getSlowCallRateThreshold())
+                .waitDurationInOpenState(snapshot.getWaitDurationInOpenState())
+                .permittedNumberOfCallsInHalfOpenState(snapshot.getPermittedCallsInHalfOpenState())
+                .automaticTransitionFromOpenToHalfOpenEnabled(true)
+                .recordException(UpstreamResilienceRegistry::isUpstreamFailure)
+                // Rejeição do bulkhead não é falha da API (nem sucesso): não entra na janela
+                .ignoreExceptions(BulkheadFullException.class)
+                .build());
+        circuitBreaker.getEventPublisher().onStateTransition(event ->
+                log.warn("Circuit breaker da API '{}': {}", apiName, event.getStateTransition()));
+
+        Bulkhead bulkhead = null;
+        if (snapshot.getMaxConcurrentCalls() > 0) {
+            // Sem espera: o operador reativo não deve bloquear a thread aguardando uma vaga
+            bulkhead = bulkheadRegistry.bulkhead(apiName, BulkheadConfig.custom()
+                    .maxConcurrentCalls(snapshot.getMaxConcurrentCalls())
+                    .maxWaitDuration(Duration.ZERO)
+                    .build());
+        }
+        return new UpstreamGuard(snapshot, circuitBreaker, bulkhead);
+    }
+
+    /**
+     * Falha atribuída à API de destino: erro 5xx, falha de conexão ou timeout.
+     */
+    public static boolean isUpstreamFailure(Throwable error) {
+        if (error instanceof WebClientResponseException responseException) {
+            return responseException.getStatusCode().is5xxServerError();
+        }
+        return error instanceof WebClientRequestException || error instanceof TimeoutException;
+    }
+
+    private static ResilienceConfig copyOf(ResilienceConfig config) {
+        ResilienceConfig copy = new ResilienceConfig();
+        copy.setEnabled(config.isEnabled());
+        copy.setSlidingWindow(config.getSlidingWindow());
+        copy.setMinimumNumberOfCalls(config.getMinimumNumberOfCalls());
+        copy.setFailureRateThreshold(config.getFailureRateThreshold());
+        copy.setSlowCallDurationThreshold(config.getSlowCallDurationThreshold());
+        copy.setSlowCallRateThreshold(config.getSlowCallRateThreshold());
+        copy.setWaitDurationInOpenState(config.getWaitDurationInOpenState());
+        copy.setPermittedCallsInHalfOpenState(config.getPermittedCallsInHalfOpenState());
+        copy.setMaxConcurrentCalls(config.getMaxConcurrentCalls());
+        return copy;
+    }
+
+    private record UpstreamGuard(ResilienceConfig config, CircuitBreaker circuitBreaker, Bulkhead bulkhead) {
+    }
+}
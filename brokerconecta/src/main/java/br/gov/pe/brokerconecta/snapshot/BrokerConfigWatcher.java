@@ -0,0 +1,118 @@
+package br.gov.pe.brokerconecta.snapshot;
+
+import br.gov.pe.brokerconecta.config.BrokerProperties;
+import br.gov.pe.brokerconecta.config.ReloadConfig;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.boot.context.properties.source.ConfigurationPropertySources;
+import org.springframework.boot.env.YamlPropertySourceLoader;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.scheduler.Schedulers;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+
+/**
+ * Recarrega rotas, APIs e clientes de um arquivo externo ({@code broker.reload.file}) sem reiniciar o broker.
+ * <p>
+ * O arquivo é lido a cada {@code broker.reload.poll-interval} e só é processado quando o conteúdo muda.
+ * Ele é vinculado às mesmas classes do application.yml (YAML ou JSON, já que JSON é YAML válido) e publicado
+ * pelo {@link BrokerSnapshotHolder}. Um arquivo inválido é rejeitado com log de erro e a configuração atual
+ * continua valendo. Na inicialização, um arquivo inválido impede a subida do broker.
+ */
+@Component
+@Slf4j
+@ConditionalOnProperty(prefix = "broker.reload", name = "file")
+public class BrokerConfigWatcher {
+
+    private final BrokerProperties brokerProperties;
+    private final BrokerSnapshotHolder snapshotHolder;
+    private final MeterRegistry meterRegistry;
+    private final Path file;
+    private final Disposable polling;
+
+    // Impressão do último conteúdo processado (válido ou não), para não reprocessar o mesmo arquivo
+    private byte[] lastDigest;
+
+    public BrokerConfigWatcher(BrokerProperties brokerProperties, BrokerSnapshotHolder snapshotHolder,
+                               MeterRegistry meterRegistry) throws IOException {
+        this.brokerProperties = brokerProperties;
+        this.snapshotHolder = snapshotHolder;
+        this.meterRegistry = meterRegistry;
+        ReloadConfig reload = brokerProperties.getReload();
+        this.file = Path.of(reload.getFile());
+
+        load(Files.readAllBytes(file));
+        log.info("Recarga de configuração ativa: {} verificado a cada {}", file, reload.getPollInterval());
+        this.polling = Flux.interval(reload.getPollInterval(), Schedulers.boundedElastic())
+                .subscribe(tick -> poll());
+    }
+
+    /**
+     * Verifica o arquivo e publica a nova configuração se o conteúdo tiver mudado.
+     */
+    synchronized void poll() {
+        byte[] content;
+        try {
+            content = Files.readAllBytes(file);
+        } catch (IOException e) {
+            log.warn("Não foi possível ler {}: {}. A configuração atual continua valendo.", file, e.getMessage());
+            return;
+        }
+        if (Arrays.equals(digest(content), lastDigest)) {
+            return;
+        }
+        try {
+            load(content);
+            meterRegistry.counter("broker.config.reloads", "result", "success").increment();
+        } catch (IOException | RuntimeException e) {
+            log.error("Configuração de {} rejeitada; a versão {} continua valendo. Motivo: {}",
+                    file, snapshotHolder.current().version(), e.getMessage());
+            meterRegistry.counter("broker.config.reloads", "result", "failure").increment();
+        }
+    }
+
+    private void load(byte[] content) throws IOException {
+        lastDigest = digest(content);
+        BrokerProperties loaded = bind(content);
+        snapshotHolder.publish(file.toString(),
+                loaded.getRoutes() != null ? loaded.getRoutes() : brokerProperties.getRoutes(),
+                loaded.getApis() != null ? loaded.getApis() : brokerProperties.getApis(),
+                loaded.getClients() != null ? loaded.getClients() : brokerProperties.getClients());
+    }
+
+    /**
+     * Vincula o prefixo {@code broker} do arquivo com as mesmas regras do Spring Boot para o application.yml
+     * (ex: {@code target-url} e {@code targetUrl} são equivalentes).
+     */
+    private BrokerProperties bind(byte[] content) throws IOException {
+        ByteArrayResource resource = new ByteArrayResource(content, file.toString());
+        Binder binder = new Binder(ConfigurationPropertySources.from(
+                new YamlPropertySourceLoader().load(file.toString(), resource)));
+        return binder.bind("broker", Bindable.of(BrokerProperties.class)).orElseGet(BrokerProperties::new);
+    }
+
+    private static byte[] digest(byte[] content) {
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(content);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 indisponível", e);
+        }
+    }
+
+    @PreDestroy
+    public void stop() {
+        polling.dispose();
+    }
+}
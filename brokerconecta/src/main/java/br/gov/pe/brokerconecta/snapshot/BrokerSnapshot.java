@@ -0,0 +1,137 @@
+package br.gov.pe.brokerconecta.snapshot;
+
+import br.gov.pe.brokerconecta.authorization.AuthorizationIndex;
+import br.gov.pe.brokerconecta.config.ApiConfig;
+import br.gov.pe.brokerconecta.config.ApiPermissionConfig;
+import br.gov.pe.brokerconecta.config.ClientConfig;
+import br.gov.pe.brokerconecta.config.RouteConfig;
+import br.gov.pe.brokerconecta.routing.RouteIndex;
+import org.springframework.util.StringUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Configuração de roteamento e autorização já validada e pré-computada: índice de rotas, índice de
+ * autorização e APIs. É imutável e publicada inteira pelo {@link BrokerSnapshotHolder}, de modo que uma
+ * requisição usa sempre uma única versão da configuração do início ao fim.
+ *
+ * @param version            número sequencial da configuração (1 = application.yml na inicialização).
+ * @param source             origem da configuração (application.yml ou o arquivo externo).
+ * @param loadedAt           instante da publicação.
+ * @param routeIndex         rotas compiladas.
+ * @param authorizationIndex clientes e permissões.
+ * @param apis               APIs de destino por nome.
+ * @param credentials        Client ID → impressões das credenciais usadas na busca de token ({@code tokenUrl}
+ *                           e secret), para identificar secrets trocados entre duas versões.
+ */
+public record BrokerSnapshot(long version,
+                             String source,
+                             Instant loadedAt,
+                             RouteIndex routeIndex,
+                             AuthorizationIndex authorizationIndex,
+                             Map<String, ApiConfig> apis,
+                             Map<String, Set<String>> credentials) {
+
+    /**
+     * Valida a configuração e monta os índices. Lança {@link IllegalArgumentException} se a configuração
+     * for inválida; nesse caso nada é publicado.
+     */
+    public static BrokerSnapshot build(long version, String source, List<RouteConfig> routes,
+                                       Map<String, ApiConfig> apis, Map<String, ClientConfig> clients) {
+        List<RouteConfig> routeList = routes != null ? List.copyOf(routes) : List.of();
+        Map<String, ApiConfig> apiMap = apis != null ? Map.copyOf(apis) : Map.of();
+        Map<String, ClientConfig> clientMap = clients != null ? Map.copyOf(clients) : Map.of();
+        validate(routeList, apiMap, clientMap);
+
+        return new BrokerSnapshot(version, source, Instant.now(),
+                RouteIndex.build(routeList, apiMap),
+                AuthorizationIndex.build(clientMap, apiMap),
+                apiMap,
+                credentials(clientMap, apiMap));
+    }
+
+    /**
+     * Client IDs cujas credenciais mudaram (ou que deixaram de existir) de {@code previous} para esta versão.
+     * Os tokens desses clientes precisam ser descartados; os demais continuam válidos.
+     */
+    public Set<String> changedCredentials(BrokerSnapshot previous) {
+        Set<String> changed = new HashSet<>();
+        previous.credentials.forEach((clientId, previousCredentials) -> {
+            if (!previousCredentials.equals(credentials.get(clientId))) {
+                changed.add(clientId);
+            }
+        });
+        return Set.copyOf(changed);
+    }
+
+    private static void validate(List<RouteConfig> routes, Map<String, ApiConfig> apis, Map<String, ClientConfig> clients) {
+        apis.forEach((apiName, api) -> {
+            if (!StringUtils.hasText(api.getTargetUrl()) || !StringUtils.hasText(api.getTokenUrl())) {
+                throw new IllegalArgumentException("API '" + apiName + "' sem 'target-url' ou 'token-url' configurado.");
+            }
+        });
+
+        Set<String> routeIds = new HashSet<>();
+        for (RouteConfig route : routes) {
+            if (!StringUtils.hasText(route.getId()) || !routeIds.add(route.getId())) {
+                throw new IllegalArgumentException("Rota sem 'id' ou com 'id' repetido: '" + route.getId() + "'.");
+            }
+            if (route.getApi() == null || !apis.containsKey(route.getApi())) {
+                throw new IllegalArgumentException("Rota '" + route.getId() + "' aponta para a API '" + route.getApi() + "', que não está configurada.");
+            }
+        }
+
+        clients.forEach((clientKey, client) -> {
+            if (client.getAuthorizedApis() == null) {
+                return;
+            }
+            client.getAuthorizedApis().forEach((apiName, permission) -> {
+                if (!StringUtils.hasText(permission.getClientId()) || !StringUtils.hasText(permission.getClientSecret())) {
+                    throw new IllegalArgumentException("Cliente '" + clientKey + "' sem 'clientId' ou 'clientSecret' para a API '" + apiName + "'.");
+                }
+            });
+        });
+    }
+
+    private static Map<String, Set<String>> credentials(Map<String, ClientConfig> clients, Map<String, ApiConfig> apis) {
+        Map<String, Set<String>> credentials = new HashMap<>();
+        clients.values().forEach(client -> {
+            if (client.getAuthorizedApis() == null) {
+                return;
+            }
+            client.getAuthorizedApis().forEach((apiName, permission) -> {
+                ApiConfig api = apis.get(apiName);
+                credentials.computeIfAbsent(permission.getClientId(), id -> new TreeSet<>())
+                        .add(fingerprint(api != null ? api.getTokenUrl() : "", permission));
+            });
+        });
+        Map<String, Set<String>> immutable = new HashMap<>();
+        credentials.forEach((clientId, values) -> immutable.put(clientId, Set.copyOf(values)));
+        return Map.copyOf(immutable);
+    }
+
+    /**
+     * Impressão SHA-256 das credenciais: o secret não fica exposto no snapshot (nem em logs do record).
+     */
+    private static String fingerprint(String tokenUrl, ApiPermissionConfig permission) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(tokenUrl.getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) 0);
+            digest.update(permission.getClientSecret().getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 indisponível", e);
+        }
+    }
+}
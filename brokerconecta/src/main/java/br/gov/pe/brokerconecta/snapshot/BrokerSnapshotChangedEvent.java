@@ -0,0 +1,13 @@
+package br.gov.pe.brokerconecta.snapshot;
+
+import java.util.Set;
+
+/**
+ * Publicado pelo {@link BrokerSnapshotHolder} depois que uma nova configuração passa a valer.
+ *
+ * @param previous           configuração substituída.
+ * @param current            configuração em vigor.
+ * @param changedCredentials Client IDs com credenciais trocadas ou removidas, cujos tokens devem ser descartados.
+ */
+public record BrokerSnapshotChangedEvent(BrokerSnapshot previous, BrokerSnapshot current, Set<String> changedCredentials) {
+}
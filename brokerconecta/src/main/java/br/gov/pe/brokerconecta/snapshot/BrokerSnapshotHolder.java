@@ -0,0 +1,62 @@
+package br.gov.pe.brokerconecta.snapshot;
+
+import br.gov.pe.brokerconecta.config.ApiConfig;
+import br.gov.pe.brokerconecta.config.BrokerProperties;
+import br.gov.pe.brokerconecta.config.ClientConfig;
+import br.gov.pe.brokerconecta.config.RouteConfig;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Guarda a configuração de roteamento e autorização em vigor em uma única referência volátil.
+ * <p>
+ * Quem atende uma requisição lê {@link #current()} uma vez e usa o mesmo {@link BrokerSnapshot} até o fim;
+ * uma recarga monta e valida um snapshot novo por completo antes de trocá-lo, então nenhuma requisição
+ * enxerga uma configuração pela metade. A versão inicial vem do application.yml.
+ */
+@Component
+@Slf4j
+public class BrokerSnapshotHolder {
+
+    private static final String APPLICATION_YML = "application.yml";
+
+    private final ApplicationEventPublisher eventPublisher;
+    private volatile BrokerSnapshot current;
+
+    public BrokerSnapshotHolder(BrokerProperties brokerProperties, ApplicationEventPublisher eventPublisher,
+                                MeterRegistry meterRegistry) {
+        this.eventPublisher = eventPublisher;
+        this.current = BrokerSnapshot.build(1, APPLICATION_YML,
+                brokerProperties.getRoutes(), brokerProperties.getApis(), brokerProperties.getClients());
+        Gauge.builder("broker.config.version", this, holder -> holder.current.version())
+                .description("Versão da configuração de rotas e clientes em vigor")
+                .register(meterRegistry);
+    }
+
+    public BrokerSnapshot current() {
+        return current;
+    }
+
+    /**
+     * Valida e publica uma nova configuração. Se ela for inválida, lança {@link IllegalArgumentException}
+     * e a configuração atual continua valendo.
+     */
+    public synchronized BrokerSnapshot publish(String source, List<RouteConfig> routes,
+                                               Map<String, ApiConfig> apis, Map<String, ClientConfig> clients) {
+        BrokerSnapshot previous = current;
+        BrokerSnapshot next = BrokerSnapshot.build(previous.version() + 1, source, routes, apis, clients);
+        current = next;
+
+        BrokerSnapshotChangedEvent event = new BrokerSnapshotChangedEvent(previous, next, next.changedCredentials(previous));
+        log.info("Configuração versão {} publicada a partir de {}. Client IDs com credenciais alteradas: {}",
+                next.version(), source, event.changedCredentials());
+        eventPublisher.publishEvent(event);
+        return next;
+    }
+}
@@ -0,0 +1,17 @@
+package br.gov.pe.brokerconecta.token;
+
+import java.time.Instant;
+
+/**
+ * Token de acesso armazenado no cache {@code tokens}, com a própria validade.
+ *
+ * @param accessToken token emitido pelo provedor.
+ * @param expiresAt   instante a partir do qual o token não é mais usado ({@code expires_in} menos a margem configurada).
+ * @param refreshAt   instante a partir do qual o token deve ser renovado em segundo plano.
+ */
+public record CachedToken(String accessToken, Instant expiresAt, Instant refreshAt) {
+
+    public boolean isExpired(Instant now) {
+        return !now.isBefore(expiresAt);
+    }
+}
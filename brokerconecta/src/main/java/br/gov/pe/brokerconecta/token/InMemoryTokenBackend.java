@@ -0,0 +1,91 @@
+package br.gov.pe.brokerconecta.token;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * {@link SharedTokenBackend} em memória, com a mesma semântica de expiração, trava e pub/sub do Redis.
+ * <p>
+ * Substitui o Redis em testes e em execuções locais: várias instâncias de {@link TwoTierTokenStore}
+ * apontando para o mesmo backend se comportam como réplicas do broker compartilhando um Redis.
+ */
+public class InMemoryTokenBackend implements SharedTokenBackend {
+
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    private final Map<String, Sinks.Many<String>> channels = new ConcurrentHashMap<>();
+
+    @Override
+    public Mono<String> get(String key) {
+        return Mono.fromSupplier(() -> {
+            Entry entry = entries.get(key);
+            if (entry == null) {
+                return null;
+            }
+            if (entry.isExpired()) {
+                entries.remove(key, entry);
+                return null;
+            }
+            return entry.value;
+        });
+    }
+
+    @Override
+    public Mono<Void> set(String key, String value, Duration ttl) {
+        return Mono.fromRunnable(() -> entries.put(key, new Entry(value, ttl)));
+    }
+
+    @Override
+    public Mono<Boolean> setIfAbsent(String key, String value, Duration ttl) {
+        return Mono.fromSupplier(() -> {
+            Entry created = new Entry(value, ttl);
+            Entry result = entries.compute(key, (k, current) -> (current == null || current.isExpired()) ? created : current);
+            return result == created;
+        });
+    }
+
+    @Override
+    public Mono<Boolean> deleteIfEquals(String key, String expectedValue) {
+        return Mono.fromSupplier(() -> {
+            Entry entry = entries.get(key);
+            return entry != null && entry.value.equals(expectedValue) && entries.remove(key, entry);
+        });
+    }
+
+    @Override
+    public Mono<Void> delete(String key) {
+        return Mono.fromRunnable(() -> entries.remove(key));
+    }
+
+    @Override
+    public Mono<Void> publish(String channel, String message) {
+        return Mono.fromRunnable(() -> channel(channel).emitNext(message, Sinks.EmitFailureHandler.busyLooping(Duration.ofMillis(100))));
+    }
+
+    @Override
+    public Flux<String> subscribe(String channel) {
+        return channel(channel).asFlux();
+    }
+
+    private Sinks.Many<String> channel(String channel) {
+        return channels.computeIfAbsent(channel, c -> Sinks.many().multicast().directBestEffort());
+    }
+
+    private static final class Entry {
+        private final String value;
+        private final long expiresAtNanos;
+
+        private Entry(String value, Duration ttl) {
+            this.value = value;
+            this.expiresAtNanos = System.nanoTime() + ttl.toNanos();
+        }
+
+        private boolean isExpired() {
+            return System.nanoTime() - expiresAtNanos >= 0;
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package br.gov.pe.brokerconecta.token;
+
+import org.springframework.cache.Cache;
+import reactor.core.publisher.Mono;
+
+import java.time.Instant;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Supplier;
+
+/**
+ * Tokens apenas no cache local {@code tokens} (Caffeine) da réplica. Comportamento padrão do broker.
+ */
+public class LocalTokenStore implements TokenStore {
+
+    private final Cache localCache;
+
+    public LocalTokenStore(Cache localCache) {
+        this.localCache = localCache;
+    }
+
+    @Override
+    public CachedToken getLocal(String clientId) {
+        CachedToken token = localCache.get(clientId, CachedToken.class);
+        return (token != null && !token.isExpired(Instant.now())) ? token : null;
+    }
+
+    @Override
+    public Mono<CachedToken> acquire(String clientId, CachedToken replacing, Supplier<Mono<CachedToken>> fetcher) {
+        return fetcher.get().doOnNext(token -> localCache.put(clientId, token));
+    }
+
+    @Override
+    public void invalidate(String clientId, CachedToken rejected) {
+        evictIfCurrent(localCache, clientId, rejected);
+    }
+
+    @Override
+    public void evict(String clientId) {
+        localCache.evict(clientId);
+    }
+
+    /**
+     * Remove a entrada somente se ela ainda for {@code token}, para não descartar um token novo
+     * obtido por outra thread depois da rejeição.
+     */
+    @SuppressWarnings("unchecked")
+    static void evictIfCurrent(Cache cache, String clientId, CachedToken token) {
+        Object nativeCache = cache.getNativeCache();
+        if (nativeCache instanceof com.github.benmanes.caffeine.cache.Cache<?, ?> caffeineCache) {
+            ((com.github.benmanes.caffeine.cache.Cache<Object, Object>) caffeineCache).asMap().remove(clientId, token);
+        } else if (nativeCache instanceof ConcurrentMap<?, ?> map) {
+            ((ConcurrentMap<Object, Object>) map).remove(clientId, token);
+        } else if (token.equals(cache.get(clientId, CachedToken.class))) {
+            cache.evict(clientId);
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package br.gov.pe.brokerconecta.token;
+
+import org.springframework.data.redis.connection.ReactiveSubscription;
+import org.springframework.data.redis.core.ReactiveStringRedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * {@link SharedTokenBackend} sobre o Redis, usando o cliente reativo (Lettuce) configurado pelo Spring Boot
+ * ({@code spring.data.redis.*}).
+ */
+public class RedisTokenBackend implements SharedTokenBackend {
+
+    // Libera a trava apenas se ela ainda pertencer a quem a adquiriu (evita apagar a trava de outra réplica
+    // quando a própria já expirou).
+    private static final RedisScript<Long> DELETE_IF_EQUALS = RedisScript.of(
+            "if redis.call('get', KEYS[1]) == ARGV[1] then return redis.call('del', KEYS[1]) else return 0 end",
+            Long.class);
+
+    private final ReactiveStringRedisTemplate redisTemplate;
+
+    public RedisTokenBackend(ReactiveStringRedisTemplate redisTemplate) {
+        this.redisTemplate = redisTemplate;
+    }
+
+    @Override
+    public Mono<String> get(String key) {
+        return redisTemplate.opsForValue().get(key);
+    }
+
+    @Override
+    public Mono<Void> set(String key, String value, Duration ttl) {
+        return redisTemplate.opsForValue().set(key, value, ttl).then();
+    }
+
+    @Override
+    public Mono<Boolean> setIfAbsent(String key, String value, Duration ttl) {
+        return redisTemplate.opsForValue().setIfAbsent(key, value, ttl);
+    }
+
+    @Override
+    public Mono<Boolean> deleteIfEquals(String key, String expectedValue) {
+        return redisTemplate.execute(DELETE_IF_EQUALS, List.of(key), List.of(expectedValue))
+                .next()
+                .map(deleted -> deleted > 0);
+    }
+
+    @Override
+    public Mono<Void> delete(String key) {
+        return redisTemplate.delete(key).then();
+    }
+
+    @Override
+    public Mono<Void> publish(String channel, String message) {
+        return redisTemplate.convertAndSend(channel, message).then();
+    }
+
+    @Override
+    public Flux<String> subscribe(String channel) {
+        return redisTemplate.listenToChannel(channel).map(ReactiveSubscription.Message::getMessage);
+    }
+}
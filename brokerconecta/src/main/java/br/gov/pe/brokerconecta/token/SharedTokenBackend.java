@@ -0,0 +1,37 @@
+package br.gov.pe.brokerconecta.token;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+
+/**
+ * Operações mínimas de um armazenamento chave/valor compartilhado entre réplicas, usadas pelo
+ * {@link TwoTierTokenStore}. Modeladas sobre os comandos do Redis ({@code GET}, {@code SET PX},
+ * {@code SET NX PX}, {@code DEL}, {@code PUBLISH}/{@code SUBSCRIBE}).
+ *
+ * @see RedisTokenBackend
+ * @see InMemoryTokenBackend
+ */
+public interface SharedTokenBackend {
+
+    Mono<String> get(String key);
+
+    Mono<Void> set(String key, String value, Duration ttl);
+
+    /**
+     * Grava somente se a chave não existir. Usado como trava distribuída.
+     */
+    Mono<Boolean> setIfAbsent(String key, String value, Duration ttl);
+
+    /**
+     * Remove a chave somente se o valor atual for {@code expectedValue} (liberação segura da trava).
+     */
+    Mono<Boolean> deleteIfEquals(String key, String expectedValue);
+
+    Mono<Void> delete(String key);
+
+    Mono<Void> publish(String channel, String message);
+
+    Flux<String> subscribe(String channel);
+}
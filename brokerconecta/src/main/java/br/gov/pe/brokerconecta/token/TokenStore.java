@@ -0,0 +1,47 @@
+package br.gov.pe.brokerconecta.token;
+
+import reactor.core.publisher.Mono;
+
+import java.util.function.Supplier;
+
+/**
+ * Armazenamento dos tokens de acesso, por Client ID.
+ * <p>
+ * Implementações:
+ * <ul>
+ *     <li>{@link LocalTokenStore}: apenas o cache local (Caffeine) de cada réplica ({@code broker.tokens.store=local}).</li>
+ *     <li>{@link TwoTierTokenStore}: cache local na frente de um cache compartilhado entre réplicas, com trava
+ *     distribuída para que só uma réplica busque cada token ({@code broker.tokens.store=redis}).</li>
+ * </ul>
+ */
+public interface TokenStore {
+
+    /**
+     * Consulta apenas o cache local, sem I/O. Usado no caminho de cada requisição.
+     *
+     * @return o token válido em cache, ou {@code null}.
+     */
+    CachedToken getLocal(String clientId);
+
+    /**
+     * Obtém um token válido diferente de {@code replacing}, buscando-o com {@code fetcher} apenas se nenhum
+     * outro nó já o tiver feito. O token obtido fica disponível em todas as camadas do armazenamento.
+     *
+     * @param clientId  Client ID do token.
+     * @param replacing token que está sendo substituído (renovação ou invalidação), ou {@code null}.
+     * @param fetcher   chamada ao provedor de identidade.
+     */
+    Mono<CachedToken> acquire(String clientId, CachedToken replacing, Supplier<Mono<CachedToken>> fetcher);
+
+    /**
+     * Remove o token rejeitado de todas as camadas e avisa as demais réplicas. Não faz nada nas camadas
+     * em que o token já tiver sido substituído por outro.
+     */
+    void invalidate(String clientId, CachedToken rejected);
+
+    /**
+     * Remove incondicionalmente o token do cliente de todas as camadas e avisa as demais réplicas.
+     * Usado quando as credenciais do Client ID mudam (ex: troca do secret na configuração).
+     */
+    void evict(String clientId);
+}
@@ -0,0 +1,226 @@
+package br.gov.pe.brokerconecta.token;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.cache.Cache;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+import reactor.util.retry.Retry;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.UUID;
+import java.util.function.Supplier;
+
+/**
+ * Tokens em duas camadas: o cache local {@code tokens} (L1, Caffeine) de cada réplica na frente de um
+ * cache compartilhado entre todas as réplicas (L2, Redis).
+ * <p>
+ * Quando nenhuma réplica tem um token válido, apenas a que obtiver a trava {@code broker:token-lock:<clientId>}
+ * chama o provedor de identidade; as demais aguardam o token aparecer no L2. Se o L2 estiver indisponível,
+ * cada réplica volta a buscar o próprio token (mesmo comportamento de {@link LocalTokenStore}).
+ * <p>
+ * A invalidação de um token rejeitado, e a remoção do token de credenciais trocadas, são propagadas às demais
+ * réplicas pelo canal {@code broker:token-events}.
+ */
+@Slf4j
+public class TwoTierTokenStore implements TokenStore, DisposableBean {
+
+    static final String TOKEN_KEY_PREFIX = "broker:token:";
+    static final String LOCK_KEY_PREFIX = "broker:token-lock:";
+    static final String EVENTS_CHANNEL = "broker:token-events";
+    private static final String INVALIDATE_EVENT = "invalidate:";
+    private static final String EVICT_EVENT = "evict:";
+
+    private final Cache localCache;
+    private final SharedTokenBackend backend;
+    private final Duration lockTtl;
+    private final Duration lockWaitTimeout;
+    private final Duration lockPollInterval;
+    private final Disposable subscription;
+
+    public TwoTierTokenStore(Cache localCache, SharedTokenBackend backend,
+                             Duration lockTtl, Duration lockWaitTimeout, Duration lockPollInterval) {
+        this.localCache = localCache;
+        this.backend = backend;
+        this.lockTtl = lockTtl;
+        this.lockWaitTimeout = lockWaitTimeout;
+        this.lockPollInterval = lockPollInterval;
+        // A assinatura conecta ao Redis fora da thread de inicialização: o broker sobe mesmo com o Redis fora do ar
+        this.subscription = Flux.defer(() -> backend.subscribe(EVENTS_CHANNEL))
+                .subscribeOn(Schedulers.boundedElastic())
+                .doOnError(error -> log.warn(">>> [TOKEN STORE] Assinatura do canal {} interrompida: {}", EVENTS_CHANNEL, error.getMessage()))
+                .retryWhen(Retry.backoff(Long.MAX_VALUE, Duration.ofSeconds(1)).maxBackoff(Duration.ofSeconds(30)))
+                .subscribe(this::onEvent);
+    }
+
+    @Override
+    public CachedToken getLocal(String clientId) {
+        CachedToken token = localCache.get(clientId, CachedToken.class);
+        return (token != null && !token.isExpired(Instant.now())) ? token : null;
+    }
+
+    @Override
+    public Mono<CachedToken> acquire(String clientId, CachedToken replacing, Supplier<Mono<CachedToken>> fetcher) {
+        Instant deadline = Instant.now().plus(lockWaitTimeout);
+        return acquireShared(clientId, replacing, fetcher, deadline)
+                .doOnNext(token -> localCache.put(clientId, token));
+    }
+
+    /**
+     * Usa o token do L2 se houver; senão tenta a trava. Sem a trava, aguarda a réplica que a detém publicar
+     * o token e, se ela falhar ou demorar mais que {@code lockWaitTimeout}, busca o token por conta própria.
+     */
+    private Mono<CachedToken> acquireShared(String clientId, CachedToken replacing, Supplier<Mono<CachedToken>> fetcher, Instant deadline) {
+        return readShared(clientId, replacing).switchIfEmpty(Mono.defer(() -> {
+            String lockKey = LOCK_KEY_PREFIX + clientId;
+            String owner = UUID.randomUUID().toString();
+            return tryLock(lockKey, owner).flatMap(locked -> {
+                if (locked) {
+                    return Mono.usingWhen(Mono.just(owner),
+                            o -> fetchWithLock(clientId, replacing, fetcher),
+                            o -> releaseLock(lockKey, o),
+                            (o, error) -> releaseLock(lockKey, o),
+                            o -> releaseLock(lockKey, o));
+                }
+                if (!Instant.now().isBefore(deadline)) {
+                    log.warn(">>> [TOKEN STORE] Tempo esgotado aguardando outra réplica obter o token do cliente {}. Buscando localmente.", clientId);
+                    return fetchAndShare(clientId, fetcher);
+                }
+                return Mono.delay(lockPollInterval).then(Mono.defer(() -> acquireShared(clientId, replacing, fetcher, deadline)));
+            });
+        }));
+    }
+
+    private Mono<CachedToken> fetchWithLock(String clientId, CachedToken replacing, Supplier<Mono<CachedToken>> fetcher) {
+        // Outra réplica pode ter publicado o token e liberado a trava entre a leitura do L2 e a obtenção da trava
+        return readShared(clientId, replacing).switchIfEmpty(Mono.defer(() -> fetchAndShare(clientId, fetcher)));
+    }
+
+    private Mono<CachedToken> fetchAndShare(String clientId, Supplier<Mono<CachedToken>> fetcher) {
+        return fetcher.get().flatMap(token -> writeShared(clientId, token).thenReturn(token));
+    }
+
+    /**
+     * Token do L2 utilizável por esta réplica: válido, ainda fora da janela de renovação e diferente do token
+     * que está sendo substituído.
+     */
+    private Mono<CachedToken> readShared(String clientId, CachedToken replacing) {
+        return backend.get(TOKEN_KEY_PREFIX + clientId)
+                .mapNotNull(TwoTierTokenStore::decode)
+                .filter(token -> Instant.now().isBefore(token.refreshAt()) && !sameToken(token, replacing))
+                .doOnNext(token -> log.info(">>> [TOKEN STORE] Token do cliente {} obtido do cache compartilhado", clientId))
+                .onErrorResume(error -> {
+                    log.warn(">>> [TOKEN STORE] Falha ao ler o cache compartilhado para o cliente {}: {}", clientId, error.getMessage());
+                    return Mono.empty();
+                });
+    }
+
+    private Mono<Void> writeShared(String clientId, CachedToken token) {
+        Duration ttl = Duration.between(Instant.now(), token.expiresAt());
+        if (ttl.isNegative() || ttl.isZero()) {
+            return Mono.empty();
+        }
+        return backend.set(TOKEN_KEY_PREFIX + clientId, encode(token), ttl)
+                .onErrorResume(error -> {
+                    log.warn(">>> [TOKEN STORE] Falha ao gravar no cache compartilhado o token do cliente {}: {}", clientId, error.getMessage());
+                    return Mono.empty();
+                });
+    }
+
+    private Mono<Boolean> tryLock(String lockKey, String owner) {
+        return backend.setIfAbsent(lockKey, owner, lockTtl)
+                .defaultIfEmpty(Boolean.FALSE)
+                .onErrorResume(error -> {
+                    // Sem o cache compartilhado não há como coordenar as réplicas: cada uma busca o próprio token
+                    log.warn(">>> [TOKEN STORE] Trava distribuída indisponível ({}): {}. Buscando o token localmente.", lockKey, error.getMessage());
+                    return Mono.just(Boolean.TRUE);
+                });
+    }
+
+    private Mono<Void> releaseLock(String lockKey, String owner) {
+        return backend.deleteIfEquals(lockKey, owner)
+                .onErrorResume(error -> {
+                    log.warn(">>> [TOKEN STORE] Falha ao liberar a trava {} (expira em {}): {}", lockKey, lockTtl, error.getMessage());
+                    return Mono.empty();
+                })
+                .then();
+    }
+
+    @Override
+    public void invalidate(String clientId, CachedToken rejected) {
+        LocalTokenStore.evictIfCurrent(localCache, clientId, rejected);
+        // Remove do L2 somente se outra réplica ainda não tiver gravado um token novo
+        backend.deleteIfEquals(TOKEN_KEY_PREFIX + clientId, encode(rejected))
+                .then(backend.publish(EVENTS_CHANNEL, INVALIDATE_EVENT + fingerprint(rejected) + ":" + clientId))
+                .subscribe(
+                        unused -> { },
+                        error -> log.warn(">>> [TOKEN STORE] Falha ao propagar a invalidação do token do cliente {}: {}", clientId, error.getMessage()));
+    }
+
+    @Override
+    public void evict(String clientId) {
+        localCache.evict(clientId);
+        backend.delete(TOKEN_KEY_PREFIX + clientId)
+                .then(backend.publish(EVENTS_CHANNEL, EVICT_EVENT + clientId))
+                .subscribe(
+                        unused -> { },
+                        error -> log.warn(">>> [TOKEN STORE] Falha ao propagar a remoção do token do cliente {}: {}", clientId, error.getMessage()));
+    }
+
+    // Formatos dos eventos: invalidate:<impressão do token>:<clientId> e evict:<clientId>. O token em si não trafega no canal.
+    private void onEvent(String message) {
+        if (message.startsWith(EVICT_EVENT)) {
+            String clientId = message.substring(EVICT_EVENT.length());
+            log.info(">>> [TOKEN STORE] Token do cliente {} removido por outra réplica", clientId);
+            localCache.evict(clientId);
+            return;
+        }
+        if (!message.startsWith(INVALIDATE_EVENT)) {
+            return;
+        }
+        int separator = message.indexOf(':', INVALIDATE_EVENT.length());
+        if (separator < 0) {
+            return;
+        }
+        String fingerprint = message.substring(INVALIDATE_EVENT.length(), separator);
+        String clientId = message.substring(separator + 1);
+        CachedToken current = localCache.get(clientId, CachedToken.class);
+        if (current != null && fingerprint(current).equals(fingerprint)) {
+            log.info(">>> [TOKEN STORE] Token do cliente {} invalidado por outra réplica", clientId);
+            LocalTokenStore.evictIfCurrent(localCache, clientId, current);
+        }
+    }
+
+    @Override
+    public void destroy() {
+        subscription.dispose();
+    }
+
+    private static String fingerprint(CachedToken token) {
+        return Integer.toHexString(token.accessToken().hashCode());
+    }
+
+    private static boolean sameToken(CachedToken token, CachedToken other) {
+        return other != null && token.accessToken().equals(other.accessToken());
+    }
+
+    // Formato no L2: <expiresAt em ms>|<refreshAt em ms>|<access token>
+    static String encode(CachedToken token) {
+        return token.expiresAt().toEpochMilli() + "|" + token.refreshAt().toEpochMilli() + "|" + token.accessToken();
+    }
+
+    static CachedToken decode(String value) {
+        String[] parts = value.split("\\|", 3);
+        if (parts.length != 3) {
+            return null;
+        }
+        try {
+            return new CachedToken(parts[2], Instant.ofEpochMilli(Long.parseLong(parts[0])), Instant.ofEpochMilli(Long.parseLong(parts[1])));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,126 @@
+package br.gov.pe.brokerconecta.warmup;
+
+import br.gov.pe.brokerconecta.authorization.ResolvedPermission;
+import br.gov.pe.brokerconecta.config.ApiConfig;
+import br.gov.pe.brokerconecta.config.BrokerProperties;
+import br.gov.pe.brokerconecta.config.WarmupConfig;
+import br.gov.pe.brokerconecta.service.TokenManagerService;
+import br.gov.pe.brokerconecta.service.UpstreamClientRegistry;
+import br.gov.pe.brokerconecta.snapshot.BrokerSnapshot;
+import br.gov.pe.brokerconecta.snapshot.BrokerSnapshotHolder;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Aquecimento da réplica na inicialização ({@code broker.warmup.enabled}), para que as primeiras requisições de
+ * cada cliente X-Road não paguem a busca do token e o handshake TLS com a API de destino.
+ * <p>
+ * Executado como {@link ApplicationRunner}: o Spring Boot só publica {@code ReadinessState.ACCEPTING_TRAFFIC}
+ * ({@code /actuator/health/readiness}) depois dos runners, então a réplica só recebe tráfego depois do aquecimento
+ * ou de {@code broker.warmup.timeout}. Falhas são registradas em log e não impedem a subida.
+ * <p>
+ * A opção é lida em tempo de execução (e não com {@code @ConditionalOnProperty}) para continuar valendo no
+ * build com AOT do perfil {@code fast-start}, em que as condições são decididas na construção.
+ */
+@Component
+@Slf4j
+@RequiredArgsConstructor
+public class StartupWarmup implements ApplicationRunner {
+
+    private final BrokerProperties brokerProperties;
+    private final BrokerSnapshotHolder snapshotHolder;
+    private final TokenManagerService tokenManagerService;
+    private final UpstreamClientRegistry upstreamClientRegistry;
+
+    @Override
+    public void run(ApplicationArguments args) {
+        WarmupConfig config = brokerProperties.getWarmup();
+        if (!config.isEnabled()) {
+            return;
+        }
+        long start = System.nanoTime();
+        BrokerSnapshot snapshot = snapshotHolder.current();
+        AtomicInteger tokens = new AtomicInteger();
+        AtomicInteger connections = new AtomicInteger();
+
+        Mono<Void> warmup = Mono.when(
+                config.isTokens() ? prefetchTokens(snapshot, tokens) : Mono.empty(),
+                openConnections(snapshot, config.getConnectionsPerApi(), connections));
+        try {
+            warmup.block(config.getTimeout());
+        } catch (IllegalStateException e) {
+            log.warn("Aquecimento interrompido após {}; o restante será obtido nas primeiras requisições.", config.getTimeout());
+        }
+        log.info("Aquecimento concluído em {} ms: {} token(s) e {} conexão(ões) com as APIs.",
+                Duration.ofNanos(System.nanoTime() - start).toMillis(), tokens.get(), connections.get());
+    }
+
+    /**
+     * Busca um token por Client ID, pelo mesmo caminho das requisições (e, no modo redis, do cache compartilhado).
+     */
+    private Mono<Void> prefetchTokens(BrokerSnapshot snapshot, AtomicInteger tokens) {
+        Map<String, ResolvedPermission> byClientId = snapshot.authorizationIndex().permissions()
+                .filter(permission -> permission.apiConfig() != null)
+                .collect(Collectors.toMap(ResolvedPermission::clientId, Function.identity(), (first, second) -> first));
+        return Flux.fromIterable(byClientId.values())
+                .flatMap(permission -> tokenManagerService.prefetch(permission)
+                        .doOnSuccess(done -> tokens.incrementAndGet())
+                        .onErrorResume(error -> {
+                            log.warn("Aquecimento: token do cliente {} (API {}) não obtido: {}",
+                                    permission.clientId(), permission.apiName(), error.getMessage());
+                            return Mono.empty();
+                        }))
+                .then();
+    }
+
+    /**
+     * Abre conexões com cada API com requisições {@code OPTIONS} sem credenciais (sem efeito na API e sem consumir
+     * cota), simultâneas para ocupar conexões distintas do pool. Qualquer status HTTP serve: o que importa é a
+     * conexão aberta, que volta ao pool ao fim da requisição.
+     */
+    private Mono<Void> openConnections(BrokerSnapshot snapshot, int perApi, AtomicInteger connections) {
+        if (perApi <= 0) {
+            return Mono.empty();
+        }
+        return Flux.fromIterable(snapshot.apis().entrySet())
+                .flatMap(api -> {
+                    URI uri = warmupUri(api.getValue());
+                    return Flux.range(0, perApi)
+                            .flatMap(slot -> upstreamClientRegistry.clientFor(api.getKey(), api.getValue())
+                                    .options()
+                                    .uri(uri)
+                                    .retrieve()
+                                    .toBodilessEntity()
+                                    .then(Mono.just(true))
+                                    .onErrorResume(WebClientResponseException.class, error -> Mono.just(true))
+                                    .onErrorResume(error -> {
+                                        log.warn("Aquecimento: conexão com a API {} ({}) não aberta: {}",
+                                                api.getKey(), uri, error.getMessage());
+                                        return Mono.just(false);
+                                    }), perApi)
+                            .filter(Boolean::booleanValue)
+                            .doOnNext(opened -> connections.incrementAndGet());
+                })
+                .then();
+    }
+
+    private static URI warmupUri(ApiConfig api) {
+        // A URL da API pode ter variáveis ({cnpj}): usa o caminho até a primeira delas
+        String targetUrl = api.getTargetUrl();
+        int variable = targetUrl.indexOf('{');
+        return URI.create(variable < 0 ? targetUrl : targetUrl.substring(0, variable));
+    }
+}
@@ -0,0 +1,155 @@
+package br.gov.pe.brokerconecta.audit;
+
+import br.gov.pe.brokerconecta.config.BrokerProperties;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.BufferedReader;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AuditLogTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper().registerModule(new JavaTimeModule());
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void recordsAreWrittenAsMaskedCompressedJsonLines() throws Exception {
+        BrokerProperties properties = new BrokerProperties();
+        properties.getAudit().setEnabled(true);
+        properties.getAudit().setDirectory(directory.toString());
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        AuditLog auditLog = new AuditLog(properties, objectMapper, meterRegistry);
+
+        auditLog.record(record("/api/v1/api-cnpj/consulta/12345678000190", "111.222.333-44", 200));
+        auditLog.record(record("/api/v1/api-cpf/consulta", null, 502));
+        auditLog.close();
+
+        List<JsonNode> lines = readAll();
+        assertEquals(2, lines.size());
+        assertEquals("/api/v1/api-cnpj/consulta/123*********90", lines.get(0).get("path").asText());
+        assertEquals("111******44", lines.get(0).get("userCpf").asText());
+        assertEquals(502, lines.get(1).get("status").asInt());
+        assertFalse(lines.get(1).has("userCpf"));
+        assertEquals(2.0, meterRegistry.get("broker.audit.records").tag("result", "written").counter().count());
+    }
+
+    @Test
+    void disabledAuditWritesNothing() throws Exception {
+        BrokerProperties properties = new BrokerProperties();
+        properties.getAudit().setDirectory(directory.toString());
+        AuditLog auditLog = new AuditLog(properties, objectMapper, new SimpleMeterRegistry());
+
+        auditLog.record(record("/api/v1/api-cpf/consulta", null, 200));
+        auditLog.close();
+
+        try (Stream<Path> files = Files.list(directory)) {
+            assertEquals(0, files.count());
+        }
+    }
+
+    @Test
+    void sensitiveDocumentsAreMaskedWithOrWithoutPunctuation() {
+        assertEquals("111******44", SensitiveDataMasker.mask("11122233344"));
+        assertEquals("cpf=111******44&cnpj=123*********90",
+                SensitiveDataMasker.mask("cpf=111.222.333-44&cnpj=12.345.678/0001-90"));
+        // Sequências de outros tamanhos não são documentos
+        assertEquals("/pedido/123456789", SensitiveDataMasker.mask("/pedido/123456789"));
+        assertNull(SensitiveDataMasker.mask(null));
+    }
+
+    @Test
+    void ringBufferRejectsWhenFullAndKeepsOrder() {
+        AuditRingBuffer<Integer> buffer = new AuditRingBuffer<>(4);
+        for (int i = 0; i < 4; i++) {
+            assertTrue(buffer.offer(i));
+        }
+        assertFalse(buffer.offer(4));
+
+        assertEquals(0, buffer.poll());
+        assertTrue(buffer.offer(4));
+        assertEquals(List.of(1, 2, 3, 4), drain(buffer));
+        assertNull(buffer.poll());
+    }
+
+    @Test
+    void ringBufferDeliversEveryValueFromConcurrentProducers() throws Exception {
+        AuditRingBuffer<Integer> buffer = new AuditRingBuffer<>(1024);
+        Set<Integer> received = ConcurrentHashMap.newKeySet();
+        int producers = 4;
+        int perProducer = 10_000;
+
+        List<Thread> threads = new ArrayList<>();
+        for (int p = 0; p < producers; p++) {
+            int offset = p * perProducer;
+            threads.add(Thread.ofPlatform().start(() -> IntStream.range(offset, offset + perProducer).forEach(value -> {
+                while (!buffer.offer(value)) {
+                    Thread.onSpinWait();
+                }
+            })));
+        }
+        while (received.size() < producers * perProducer) {
+            Integer value = buffer.poll();
+            if (value != null) {
+                assertTrue(received.add(value));
+            }
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertEquals(0, buffer.size());
+    }
+
+    private static AuditRecord record(String path, String userCpf, int status) {
+        return new AuditRecord(Instant.now(), "SAD/PortalPEGOV", "consulta", "cpf-light-api", "GET", path, userCpf,
+                status, null, 12.5, 0.1, 1.0, 10.0, null, 128L);
+    }
+
+    private static List<Integer> drain(AuditRingBuffer<Integer> buffer) {
+        List<Integer> values = new ArrayList<>();
+        Integer value;
+        while ((value = buffer.poll()) != null) {
+            values.add(value);
+        }
+        return values;
+    }
+
+    private List<JsonNode> readAll() throws Exception {
+        List<JsonNode> lines = new ArrayList<>();
+        List<Path> files;
+        try (Stream<Path> listing = Files.list(directory)) {
+            files = listing.sorted().toList();
+        }
+        for (Path file : files) {
+            try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+                    new GZIPInputStream(Files.newInputStream(file)), StandardCharsets.UTF_8))) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    lines.add(objectMapper.readTree(line));
+                }
+            }
+        }
+        return lines;
+    }
+}
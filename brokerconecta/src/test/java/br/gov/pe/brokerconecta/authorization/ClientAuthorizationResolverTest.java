@@ -0,0 +1,111 @@
+package br.gov.pe.brokerconecta.authorization;
+
+import br.gov.pe.brokerconecta.config.ApiConfig;
+import br.gov.pe.brokerconecta.config.ApiPermissionConfig;
+import br.gov.pe.brokerconecta.config.BrokerProperties;
+import br.gov.pe.brokerconecta.config.ClientConfig;
+import br.gov.pe.brokerconecta.exception.UnknownClientException;
+import br.gov.pe.brokerconecta.snapshot.BrokerSnapshotHolder;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.catchThrowable;
+
+class ClientAuthorizationResolverTest {
+
+    private final Map<String, ApiConfig> apis = Map.of("cpf-light-api", api("https://cpf"), "cnpj-empresa-api", api("https://cnpj"));
+    private final Map<String, ClientConfig> clients = new HashMap<>(Map.of(
+            "sad-portal-cidadao", client("SAD/PortalPEGOV", Map.of("cpf-light-api", permission("portal", "segredo"))),
+            "sem-xroad", client(null, Map.of("cpf-light-api", permission("orfao", "segredo")))));
+    private final BrokerSnapshotHolder holder = new BrokerSnapshotHolder(properties(), event -> { }, new SimpleMeterRegistry());
+    private final ClientAuthorizationResolver resolver = new ClientAuthorizationResolver(holder);
+
+    @Test
+    void resolvesPermissionOfKnownClient() {
+        ResolvedPermission permission = resolver.resolve("SAD/PortalPEGOV", "cpf-light-api");
+
+        assertThat(permission.apiName()).isEqualTo("cpf-light-api");
+        assertThat(permission.clientId()).isEqualTo("portal");
+        assertThat(permission.apiConfig()).isSameAs(apis.get("cpf-light-api"));
+        // "portal:segredo" em Base64, calculado uma única vez na montagem do índice
+        assertThat(permission.basicAuthHeader()).isEqualTo("Basic cG9ydGFsOnNlZ3JlZG8=");
+        assertThat(resolver.resolve("SAD/PortalPEGOV", "cpf-light-api")).isSameAs(permission);
+    }
+
+    @Test
+    void rejectsApiOutsideTheClientPermissions() {
+        assertThatThrownBy(() -> resolver.resolve("SAD/PortalPEGOV", "cnpj-empresa-api"))
+                .isInstanceOf(SecurityException.class)
+                .isNotInstanceOf(UnknownClientException.class);
+    }
+
+    @Test
+    void unknownClientIsRejectedFromTheNegativeCache() {
+        Throwable first = catchThrowable(() -> resolver.resolve("SEE/Desconhecido", "cpf-light-api"));
+        Throwable second = catchThrowable(() -> resolver.resolve("SEE/Desconhecido", "cnpj-empresa-api"));
+
+        assertThat(first).isInstanceOf(UnknownClientException.class);
+        // A rejeição já montada é reaproveitada, sem pilha de chamadas
+        assertThat(second).isSameAs(first);
+        assertThat(first.getStackTrace()).isEmpty();
+        assertThat(catchThrowable(() -> resolver.resolve("SEE/Outro", "cpf-light-api"))).isNotSameAs(first);
+    }
+
+    @Test
+    void clientWithoutXRoadIdIsIgnored() {
+        assertThat(holder.current().authorizationIndex().permissions())
+                .extracting(ResolvedPermission::clientId)
+                .containsExactly("portal");
+    }
+
+    @Test
+    void newSnapshotDiscardsTheNegativeCache() {
+        Throwable rejected = catchThrowable(() -> resolver.resolve("SEE/SGPPE", "cpf-light-api"));
+        assertThat(rejected).isInstanceOf(UnknownClientException.class);
+
+        // Uma nova versão sem o cliente gera uma nova rejeição, e uma versão que o inclui passa a autorizá-lo
+        holder.publish("teste", List.of(), apis, clients);
+        assertThat(catchThrowable(() -> resolver.resolve("SEE/SGPPE", "cpf-light-api")))
+                .isInstanceOf(UnknownClientException.class)
+                .isNotSameAs(rejected);
+
+        clients.put("see-sgppe", client("SEE/SGPPE", Map.of("cpf-light-api", permission("sgppe", "segredo"))));
+        holder.publish("teste", List.of(), apis, clients);
+        assertThat(resolver.resolve("SEE/SGPPE", "cpf-light-api").clientId()).isEqualTo("sgppe");
+    }
+
+    private BrokerProperties properties() {
+        BrokerProperties properties = new BrokerProperties();
+        properties.setRoutes(List.of());
+        properties.setApis(apis);
+        properties.setClients(clients);
+        return properties;
+    }
+
+    private static ApiConfig api(String url) {
+        ApiConfig api = new ApiConfig();
+        api.setTargetUrl(url);
+        api.setTokenUrl(url + "/token");
+        return api;
+    }
+
+    private static ClientConfig client(String xRoadId, Map<String, ApiPermissionConfig> authorizedApis) {
+        ClientConfig client = new ClientConfig();
+        client.setXRoadId(xRoadId);
+        client.setAuthorizedApis(authorizedApis);
+        return client;
+    }
+
+    private static ApiPermissionConfig permission(String clientId, String clientSecret) {
+        ApiPermissionConfig permission = new ApiPermissionConfig();
+        permission.setClientId(clientId);
+        permission.setClientSecret(clientSecret);
+        return permission;
+    }
+}
@@ -0,0 +1,104 @@
+package br.gov.pe.brokerconecta.batch;
+
+import br.gov.pe.brokerconecta.config.BatchConfig;
+import br.gov.pe.brokerconecta.config.RouteConfig;
+import br.gov.pe.brokerconecta.routing.RouteMatch;
+import br.gov.pe.brokerconecta.service.ProxyRequest;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class BatchingStageTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final BatchingStage batchingStage = new BatchingStage(objectMapper);
+    private final List<List<String>> upstreamRequests = Collections.synchronizedList(new ArrayList<>());
+
+    @Test
+    void oversizedListIsSplitAndMergedInOrder() throws Exception {
+        List<String> cpfs = IntStream.range(0, 120).mapToObj(i -> String.format("%011d", i)).toList();
+
+        ResponseEntity<byte[]> response = batchingStage.forward(request("SAD/PortalPEGOV", cpfs, Duration.ZERO), this::stubUpstream)
+                .block(Duration.ofSeconds(5));
+
+        assertEquals(3, upstreamRequests.size());
+        assertEquals(List.of(50, 50, 20), upstreamRequests.stream().map(List::size).sorted(Collections.reverseOrder()).toList());
+        assertEquals(cpfs, cpfs(response));
+    }
+
+    @Test
+    void smallConcurrentRequestsShareOneCallAndGetOnlyTheirItems() throws Exception {
+        Duration window = Duration.ofMillis(100);
+        List<ResponseEntity<byte[]>> responses = Flux.mergeSequential(
+                        batchingStage.forward(request("SAD/PortalPEGOV", List.of("111", "222"), window), this::stubUpstream),
+                        batchingStage.forward(request("SAD/PortalPEGOV", List.of("333"), window), this::stubUpstream),
+                        batchingStage.forward(request("SAD/PortalPEGOV", List.of("222"), window), this::stubUpstream))
+                .collectList()
+                .block(Duration.ofSeconds(5));
+
+        assertEquals(List.of(List.of("111", "222", "333")), upstreamRequests);
+        assertEquals(List.of("111", "222"), cpfs(responses.get(0)));
+        assertEquals(List.of("333"), cpfs(responses.get(1)));
+        assertEquals(List.of("222"), cpfs(responses.get(2)));
+    }
+
+    @Test
+    void differentClientsAreNotBatchedTogether() throws Exception {
+        Duration window = Duration.ofMillis(100);
+        Flux.merge(
+                        batchingStage.forward(request("SAD/PortalPEGOV", List.of("111"), window), this::stubUpstream),
+                        batchingStage.forward(request("SEE/SGPPE", List.of("222"), window), this::stubUpstream))
+                .blockLast(Duration.ofSeconds(5));
+
+        assertEquals(2, upstreamRequests.size());
+    }
+
+    private Mono<ResponseEntity<byte[]>> stubUpstream(ProxyRequest request) {
+        try {
+            List<String> cpfs = new ArrayList<>();
+            objectMapper.readTree(request.body()).get("listaCpf").forEach(cpf -> cpfs.add(cpf.asText()));
+            upstreamRequests.add(cpfs);
+            List<Map<String, String>> items = cpfs.stream().map(cpf -> Map.of("CPF", cpf, "Nome", "NOME " + cpf)).toList();
+            return Mono.just(ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(objectMapper.writeValueAsBytes(items)));
+        } catch (Exception e) {
+            return Mono.error(e);
+        }
+    }
+
+    private List<String> cpfs(ResponseEntity<byte[]> response) throws Exception {
+        List<String> cpfs = new ArrayList<>();
+        for (JsonNode item : objectMapper.readTree(response.getBody())) {
+            cpfs.add(item.get("CPF").asText());
+        }
+        return cpfs;
+    }
+
+    private ProxyRequest request(String xRoadClient, List<String> cpfs, Duration window) throws Exception {
+        BatchConfig batchConfig = new BatchConfig();
+        batchConfig.setItemField("listaCpf");
+        batchConfig.setResponseItemKey("CPF");
+        batchConfig.setWindow(window);
+        RouteConfig route = new RouteConfig();
+        route.setId("consulta-cpf");
+        route.setBatch(batchConfig);
+        byte[] body = objectMapper.writeValueAsString(Map.of("listaCpf", cpfs)).getBytes(StandardCharsets.UTF_8);
+        return new ProxyRequest(HttpMethod.POST, new RouteMatch(route, null, Map.of()), null, xRoadClient,
+                new HttpHeaders(), body, null);
+    }
+}
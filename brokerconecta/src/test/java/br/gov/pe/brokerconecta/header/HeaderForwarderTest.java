@@ -0,0 +1,73 @@
+package br.gov.pe.brokerconecta.header;
+
+import br.gov.pe.brokerconecta.config.HeaderForwardingConfig;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockHttpServletRequest;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class HeaderForwarderTest {
+
+    private final HeaderForwarder forwarder = new HeaderForwarder();
+
+    @Test
+    void dropsHopByHopHeadersAndClientAuthorization() {
+        MockHttpServletRequest request = request();
+        request.addHeader(HttpHeaders.CONNECTION, "keep-alive, X-Conexao");
+        request.addHeader("X-Conexao", "valor");
+        request.addHeader(HttpHeaders.TRANSFER_ENCODING, "chunked");
+        request.addHeader(HttpHeaders.CONTENT_LENGTH, "42");
+        request.addHeader(HttpHeaders.AUTHORIZATION, "Bearer do-cliente");
+
+        HttpHeaders headers = forwarder.forward(request, HeaderFilter.DEFAULT);
+
+        assertThat(headers.keySet()).containsExactlyInAnyOrder("X-Road-Client", "Content-Type", "Accept");
+    }
+
+    @Test
+    void keepsAllValuesOfMultiValueHeaders() {
+        MockHttpServletRequest request = request();
+
+        HttpHeaders headers = forwarder.forward(request, HeaderFilter.DEFAULT);
+
+        assertThat(headers.get(HttpHeaders.ACCEPT)).containsExactly("application/json", "text/plain");
+    }
+
+    @Test
+    void appliesRouteAllowAndDenyListsIgnoringCase() {
+        HeaderForwardingConfig config = new HeaderForwardingConfig();
+        config.setAllow(List.of("x-road-client", "ACCEPT", "Authorization"));
+        config.setDeny(List.of("accept"));
+
+        HttpHeaders headers = forwarder.forward(authorized(request()), HeaderFilter.of(config));
+
+        // Authorization nunca é repassado, mesmo se estiver na lista de permitidos
+        assertThat(headers.keySet()).containsExactly("X-Road-Client");
+    }
+
+    @Test
+    void reusesBearerHeaderForTheSameToken() {
+        String token = new String("token-1");
+
+        assertThat(forwarder.bearer(token)).isEqualTo("Bearer token-1");
+        assertThat(forwarder.bearer(token)).isSameAs(forwarder.bearer(token));
+    }
+
+    private static MockHttpServletRequest request() {
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/api/v1/api-cpf/consulta");
+        request.addHeader(HttpHeaders.HOST, "broker.pe.gov.br");
+        request.addHeader("X-Road-Client", "SAD/PortalPEGOV");
+        request.addHeader(HttpHeaders.CONTENT_TYPE, "application/json");
+        request.addHeader(HttpHeaders.ACCEPT, "application/json");
+        request.addHeader(HttpHeaders.ACCEPT, "text/plain");
+        return request;
+    }
+
+    private static MockHttpServletRequest authorized(MockHttpServletRequest request) {
+        request.addHeader(HttpHeaders.AUTHORIZATION, "Bearer do-cliente");
+        return request;
+    }
+}
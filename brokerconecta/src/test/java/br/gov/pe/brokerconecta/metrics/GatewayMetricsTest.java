@@ -0,0 +1,51 @@
+package br.gov.pe.brokerconecta.metrics;
+
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class GatewayMetricsTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final GatewayMetrics metrics = new GatewayMetrics(meterRegistry);
+
+    @Test
+    void phasesAreRecordedPerRouteApiAndClient() {
+        metrics.recordPhase(GatewayMetrics.Phase.TOKEN, "consulta-cpf", "cpf-light-api", "SEE/SGPPE", 2_000_000);
+        metrics.recordPhase(GatewayMetrics.Phase.TOKEN, "consulta-cpf", "cpf-light-api", "SEE/SGPPE", 4_000_000);
+        metrics.recordPhase(GatewayMetrics.Phase.UPSTREAM, "consulta-cpf", "cpf-light-api", "SAD/PortalPEGOV", 1_000_000);
+
+        Timer token = meterRegistry.get("broker.gateway.phase")
+                .tags("phase", "token", "route", "consulta-cpf", "api", "cpf-light-api", "client", "SEE/SGPPE").timer();
+        assertEquals(2, token.count());
+        assertEquals(6.0, token.totalTime(TimeUnit.MILLISECONDS));
+        assertEquals(1, meterRegistry.get("broker.gateway.phase").tags("phase", "upstream").timer().count());
+    }
+
+    @Test
+    void requestOutcomeComesFromStatusOrUpstreamError() {
+        metrics.recordRequest("consulta-cpf", "cpf-light-api", "SEE/SGPPE", 200, 1_000_000);
+        metrics.recordRequest("consulta-cpf", "cpf-light-api", "SEE/SGPPE",
+                WebClientResponseException.create(502, "Bad Gateway", null, null, null), 1_000_000);
+        metrics.recordRequest("consulta-cpf", "cpf-light-api", "SEE/SGPPE", new IllegalStateException(), 1_000_000);
+
+        assertEquals(1, meterRegistry.get("broker.gateway.requests").tags("outcome", "SUCCESS").timer().count());
+        assertEquals(1, meterRegistry.get("broker.gateway.requests").tags("outcome", "SERVER_ERROR").timer().count());
+        assertEquals(1, meterRegistry.get("broker.gateway.requests").tags("outcome", "ERROR").timer().count());
+    }
+
+    @Test
+    void tokenLookupsAreCountedAsHitOrMiss() {
+        metrics.recordTokenLookup("cpf-light-api", false);
+        metrics.recordTokenLookup("cpf-light-api", true);
+        metrics.recordTokenLookup("cpf-light-api", true);
+
+        assertEquals(2.0, meterRegistry.get("broker.token.lookups").tags("result", "hit", "api", "cpf-light-api").counter().count());
+        assertEquals(1.0, meterRegistry.get("broker.token.lookups").tags("result", "miss", "api", "cpf-light-api").counter().count());
+    }
+}
@@ -0,0 +1,60 @@
+package br.gov.pe.brokerconecta.projection;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class FieldProjectionTest {
+
+    @Test
+    void keepsOnlyListedFieldsOfEachItem() {
+        FieldProjection projection = FieldProjection.of(List.of("CPF", "Nome"));
+
+        String json = apply(projection, """
+                [{"CPF":"1","Nome":"A","Endereco":{"Cep":"50000"},"Telefones":[1,2]},
+                 {"Nome":"B","SituacaoCadastral":"0","CPF":"2"}]""");
+
+        assertEquals("[{\"CPF\":\"1\",\"Nome\":\"A\"},{\"Nome\":\"B\",\"CPF\":\"2\"}]", json);
+    }
+
+    @Test
+    void followsNestedPathsIntoObjectsAndLists() {
+        FieldProjection projection = FieldProjection.of(List.of("Nome", "Endereco.Cep", "Socios.Nome"));
+
+        String json = apply(projection, """
+                {"Nome":"A","Endereco":{"Cep":"50000","Numero":10},
+                 "Socios":[{"Nome":"X","Cpf":"1"},{"Nome":"Y","Cpf":"2"}],"Outro":null}""");
+
+        assertEquals("{\"Nome\":\"A\",\"Endereco\":{\"Cep\":\"50000\"},\"Socios\":[{\"Nome\":\"X\"},{\"Nome\":\"Y\"}]}", json);
+    }
+
+    @Test
+    void intersectionKeepsFieldsAllowedByBoth() {
+        FieldProjection route = FieldProjection.of(List.of("CPF", "Nome", "Endereco"));
+        FieldProjection client = FieldProjection.of(List.of("Nome", "Endereco.Cep", "Telefone"));
+
+        String json = apply(FieldProjection.intersect(route, client),
+                "{\"CPF\":\"1\",\"Nome\":\"A\",\"Endereco\":{\"Cep\":\"50000\",\"Numero\":10},\"Telefone\":\"9\"}");
+
+        assertEquals("{\"Nome\":\"A\",\"Endereco\":{\"Cep\":\"50000\"}}", json);
+        assertNull(FieldProjection.of(List.of()));
+        assertEquals(route, FieldProjection.intersect(route, null));
+    }
+
+    @Test
+    void rejectsInvalidJson() {
+        FieldProjection projection = FieldProjection.of(List.of("Nome"));
+
+        assertThrows(IllegalStateException.class, () -> apply(projection, "{\"Nome\":"));
+        assertThrows(IllegalArgumentException.class, () -> FieldProjection.of(List.of("Nome", " ")));
+    }
+
+    private static String apply(FieldProjection projection, String json) {
+        return new String(projection.apply(json.getBytes(StandardCharsets.UTF_8)), StandardCharsets.UTF_8);
+    }
+}
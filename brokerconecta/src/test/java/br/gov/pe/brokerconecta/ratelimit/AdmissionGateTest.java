@@ -0,0 +1,153 @@
+package br.gov.pe.brokerconecta.ratelimit;
+
+import br.gov.pe.brokerconecta.config.AdmissionConfig;
+import br.gov.pe.brokerconecta.config.ClientConfig.Priority;
+import br.gov.pe.brokerconecta.exception.AdmissionRejectedException;
+import br.gov.pe.brokerconecta.service.RequestDeadline;
+import org.junit.jupiter.api.Test;
+import reactor.core.Disposable;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class AdmissionGateTest {
+
+    private static final long MILLI = 1_000_000L;
+
+    private final AtomicLong clock = new AtomicLong(1_000 * MILLI);
+
+    @Test
+    void sharesSlotsByWeightWhileBothClientsAreQueued() {
+        AdmissionGate gate = new AdmissionGate("api", config(1, 10), clock::get);
+        AdmissionGate.Permit running = acquire(gate, "pesado", 2, Priority.INTERACTIVE, null).permit.get();
+
+        List<String> order = new ArrayList<>();
+        for (int i = 0; i < 6; i++) {
+            track(gate, "pesado", 2, Priority.INTERACTIVE, order);
+            track(gate, "leve", 1, Priority.INTERACTIVE, order);
+        }
+        running.release();
+
+        // Peso 2 contra peso 1: duas vagas para uma enquanto os dois clientes têm fila
+        assertEquals(List.of("pesado", "leve", "pesado", "leve", "pesado", "pesado"), order.subList(0, 6));
+    }
+
+    @Test
+    void interactiveClientsGoBeforeBulk() {
+        AdmissionGate gate = new AdmissionGate("api", config(1, 10), clock::get);
+        AdmissionGate.Permit running = acquire(gate, "lote", 1, Priority.BULK, null).permit.get();
+
+        List<String> order = new ArrayList<>();
+        track(gate, "lote", 1, Priority.BULK, order);
+        track(gate, "lote", 1, Priority.BULK, order);
+        track(gate, "portal", 1, Priority.INTERACTIVE, order);
+        running.release();
+
+        assertEquals(List.of("portal", "lote", "lote"), order);
+    }
+
+    @Test
+    void rejectsWhenClientQueueIsFull() {
+        AdmissionGate gate = new AdmissionGate("api", config(1, 2), clock::get);
+        acquire(gate, "a", 1, Priority.INTERACTIVE, null);
+        acquire(gate, "a", 1, Priority.INTERACTIVE, null);
+        acquire(gate, "a", 1, Priority.INTERACTIVE, null);
+
+        Attempt rejected = acquire(gate, "a", 1, Priority.INTERACTIVE, null);
+        assertEquals(AdmissionRejectedException.Reason.QUEUE_FULL,
+                assertInstanceOf(AdmissionRejectedException.class, rejected.error.get()).getReason());
+        // A fila de outro cliente é independente
+        assertNull(acquire(gate, "b", 1, Priority.INTERACTIVE, null).error.get());
+        assertEquals(2, gate.depth("a"));
+    }
+
+    @Test
+    void shedsRequestsThatWouldMissTheirDeadline() {
+        AdmissionGate gate = new AdmissionGate("api", config(1, 10), clock::get);
+        // Uma chamada de 100 ms define a duração média
+        AdmissionGate.Permit first = acquire(gate, "a", 1, Priority.INTERACTIVE, null).permit.get();
+        clock.addAndGet(100 * MILLI);
+        first.release();
+        AdmissionGate.Permit running = acquire(gate, "a", 1, Priority.INTERACTIVE, null).permit.get();
+
+        // Na chegada: espera estimada (100 ms) mais uma chamada (100 ms) não cabem em 150 ms
+        Attempt late = acquire(gate, "b", 1, Priority.INTERACTIVE, deadline(150));
+        assertEquals(AdmissionRejectedException.Reason.DEADLINE,
+                assertInstanceOf(AdmissionRejectedException.class, late.error.get()).getReason());
+
+        // Na vaga: o prazo era suficiente ao chegar, mas a vaga demorou e não sobra uma chamada inteira
+        Attempt queued = acquire(gate, "b", 1, Priority.INTERACTIVE, deadline(250));
+        assertNull(queued.error.get());
+        clock.addAndGet(200 * MILLI);
+        Attempt next = acquire(gate, "c", 1, Priority.INTERACTIVE, null);
+        running.release();
+
+        assertEquals(AdmissionRejectedException.Reason.DEADLINE,
+                assertInstanceOf(AdmissionRejectedException.class, queued.error.get()).getReason());
+        // A vaga foi para a requisição seguinte
+        assertNotNull(next.permit.get());
+    }
+
+    @Test
+    void cancelledWaiterLeavesTheQueueWithoutTakingASlot() {
+        AdmissionGate gate = new AdmissionGate("api", config(1, 10), clock::get);
+        AdmissionGate.Permit running = acquire(gate, "a", 1, Priority.INTERACTIVE, null).permit.get();
+        Attempt cancelled = acquire(gate, "a", 1, Priority.INTERACTIVE, null);
+        Attempt waiting = acquire(gate, "b", 1, Priority.INTERACTIVE, null);
+
+        cancelled.subscription.dispose();
+        assertEquals(0, gate.depth("a"));
+        running.release();
+
+        assertNotNull(waiting.permit.get());
+        assertEquals(1, gate.inFlight());
+    }
+
+    private Attempt acquire(AdmissionGate gate, String client, int weight, Priority priority, RequestDeadline deadline) {
+        Attempt attempt = new Attempt();
+        attempt.subscription = gate.acquire(client, weight, priority, deadline)
+                .subscribe(permit -> {
+                    permit.claim();
+                    attempt.permit.set(permit);
+                }, attempt.error::set);
+        return attempt;
+    }
+
+    /**
+     * Enfileira uma requisição que, ao receber a vaga, anota o cliente e devolve a vaga em seguida.
+     */
+    private void track(AdmissionGate gate, String client, int weight, Priority priority, List<String> order) {
+        gate.acquire(client, weight, priority, null).subscribe(permit -> {
+            permit.claim();
+            order.add(client);
+            permit.release();
+        });
+    }
+
+    private RequestDeadline deadline(long millis) {
+        return new RequestDeadline("rota", Duration.ofMillis(millis), clock.get() + millis * MILLI);
+    }
+
+    private static AdmissionConfig config(int maxConcurrentCalls, int maxQueuePerClient) {
+        AdmissionConfig config = new AdmissionConfig();
+        config.setEnabled(true);
+        config.setMaxConcurrentCalls(maxConcurrentCalls);
+        config.setMaxQueuePerClient(maxQueuePerClient);
+        config.setMaxWait(Duration.ofSeconds(30));
+        return config;
+    }
+
+    private static final class Attempt {
+        private final AtomicReference<AdmissionGate.Permit> permit = new AtomicReference<>();
+        private final AtomicReference<Throwable> error = new AtomicReference<>();
+        private Disposable subscription;
+    }
+}
@@ -0,0 +1,63 @@
+package br.gov.pe.brokerconecta.ratelimit;
+
+import br.gov.pe.brokerconecta.config.RateLimitConfig;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TokenBucketTest {
+
+    private static final long SECOND = 1_000_000_000L;
+    private static final long START = 10 * SECOND;
+
+    @Test
+    void admitsBurstThenRejectsUntilRefill() {
+        TokenBucket bucket = new TokenBucket(config(10, 5, Duration.ZERO));
+
+        for (int i = 0; i < 5; i++) {
+            assertEquals(0, bucket.reserve(START));
+        }
+        long rejected = bucket.reserve(START);
+        assertTrue(rejected < 0);
+        assertEquals(SECOND / 10, -rejected);
+
+        // Uma vaga a cada 100 ms
+        assertEquals(0, bucket.reserve(START + SECOND / 10));
+        assertTrue(bucket.reserve(START + SECOND / 10) < 0);
+    }
+
+    @Test
+    void queuesWithinMaxWait() {
+        TokenBucket bucket = new TokenBucket(config(10, 1, Duration.ofMillis(250)));
+
+        assertEquals(0, bucket.reserve(START));
+        assertEquals(SECOND / 10, bucket.reserve(START));
+        assertEquals(2 * SECOND / 10, bucket.reserve(START));
+        assertTrue(bucket.reserve(START) < 0);
+    }
+
+    @Test
+    void upstreamRetryAfterBlocksAndSlowsDown() {
+        TokenBucket bucket = new TokenBucket(config(10, 5, Duration.ZERO));
+
+        bucket.penalize(START, 2 * SECOND);
+
+        assertEquals(-2 * SECOND, bucket.reserve(START));
+        long resume = START + 2 * SECOND;
+        assertEquals(0, bucket.reserve(resume));
+        // Taxa reduzida à metade: próxima vaga em 200 ms, não em 100 ms
+        assertTrue(bucket.reserve(resume + SECOND / 10) < 0);
+        assertEquals(0, bucket.reserve(resume + 2 * SECOND / 10));
+    }
+
+    private static RateLimitConfig config(double requestsPerSecond, int burst, Duration maxWait) {
+        RateLimitConfig config = new RateLimitConfig();
+        config.setRequestsPerSecond(requestsPerSecond);
+        config.setBurst(burst);
+        config.setMaxWait(maxWait);
+        return config;
+    }
+}
@@ -0,0 +1,228 @@
+package br.gov.pe.brokerconecta.responsecache;
+
+import br.gov.pe.brokerconecta.config.ResponseCacheConfig;
+import br.gov.pe.brokerconecta.config.RouteConfig;
+import br.gov.pe.brokerconecta.routing.RouteMatch;
+import br.gov.pe.brokerconecta.service.ProxyRequest;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.github.resilience4j.circuitbreaker.CallNotPermittedException;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import reactor.core.publisher.Mono;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class ResponseCacheTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final ResponseCache responseCache = new ResponseCache(objectMapper, meterRegistry);
+    private final List<List<String>> upstreamRequests = new ArrayList<>();
+    private final ResponseCacheConfig cacheConfig = perItemConfig();
+    private boolean upstreamAvailable = true;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void perItemCacheSendsOnlyMissingItemsAndKeepsRequestOrder() throws Exception {
+        ResponseEntity<byte[]> first = forward("SAD/PortalPEGOV", "{\"listaCpf\":[\"111\",\"222\"]}", new HttpHeaders());
+        ResponseEntity<byte[]> second = forward("SAD/PortalPEGOV", "{\"listaCpf\":[\"333\",\"111\"]}", new HttpHeaders());
+        ResponseEntity<byte[]> third = forward("SAD/PortalPEGOV", "{\"listaCpf\":[\"222\",\"333\"]}", new HttpHeaders());
+
+        assertEquals(List.of(List.of("111", "222"), List.of("333")), upstreamRequests);
+        assertEquals("MISS", first.getHeaders().getFirst(ResponseCache.CACHE_STATUS_HEADER));
+        assertEquals("PARTIAL", second.getHeaders().getFirst(ResponseCache.CACHE_STATUS_HEADER));
+        assertEquals("HIT", third.getHeaders().getFirst(ResponseCache.CACHE_STATUS_HEADER));
+        assertEquals(List.of("333", "111"), cpfs(second));
+        assertEquals(List.of("222", "333"), cpfs(third));
+    }
+
+    @Test
+    void entriesArePartitionedByClient() throws Exception {
+        forward("SAD/PortalPEGOV", "{\"listaCpf\":[\"111\"]}", new HttpHeaders());
+        forward("SEE/SGPPE", "{\"listaCpf\":[\"111\"]}", new HttpHeaders());
+
+        assertEquals(2, upstreamRequests.size());
+    }
+
+    @Test
+    void entriesArePartitionedByConfiguredHeaders() throws Exception {
+        cacheConfig.setPartitionHeaders(List.of("x-cpf-usuario"));
+
+        forward("SAD/PortalPEGOV", "{\"listaCpf\":[\"111\"]}", endUser("00011122233"));
+        forward("SAD/PortalPEGOV", "{\"listaCpf\":[\"111\"]}", endUser("99988877766"));
+        ResponseEntity<byte[]> cached = forward("SAD/PortalPEGOV", "{\"listaCpf\":[\"111\"]}", endUser("00011122233"));
+
+        assertEquals(2, upstreamRequests.size());
+        assertEquals("HIT", cached.getHeaders().getFirst(ResponseCache.CACHE_STATUS_HEADER));
+    }
+
+    @Test
+    void itemsAreScopedByOtherBodyFieldsAndPathVariables() throws Exception {
+        forward("SAD/PortalPEGOV", "{\"listaCpf\":[\"111\"],\"perfil\":\"completo\"}", new HttpHeaders());
+        forward("SAD/PortalPEGOV", "{\"listaCpf\":[\"111\"],\"perfil\":\"basico\"}", new HttpHeaders());
+        responseCache.forward(request("SAD/PortalPEGOV", "{\"listaCpf\":[\"111\"],\"perfil\":\"basico\"}",
+                new HttpHeaders(), Map.of("versao", "v2")), this::stubUpstream).block();
+        ResponseEntity<byte[]> cached = forward("SAD/PortalPEGOV", "{\"perfil\":\"completo\",\"listaCpf\":[\"111\"]}", new HttpHeaders());
+
+        assertEquals(3, upstreamRequests.size());
+        assertEquals("HIT", cached.getHeaders().getFirst(ResponseCache.CACHE_STATUS_HEADER));
+    }
+
+    @Test
+    void metricsFollowTheCacheRecreatedByAConfigurationChange() throws Exception {
+        forward("SAD/PortalPEGOV", "{\"listaCpf\":[\"111\",\"222\"]}", new HttpHeaders());
+        cacheConfig.setTtl(Duration.ofMinutes(10));
+        forward("SAD/PortalPEGOV", "{\"listaCpf\":[\"333\"]}", new HttpHeaders());
+        forward("SAD/PortalPEGOV", "{\"listaCpf\":[\"333\"]}", new HttpHeaders());
+
+        assertEquals(1.0, meterRegistry.get("cache.size").tag("cache", "response-consulta-cpf").gauge().value());
+        assertEquals(1.0, meterRegistry.get("cache.gets").tag("cache", "response-consulta-cpf").tag("result", "hit")
+                .functionCounter().count());
+    }
+
+    @Test
+    void noCacheBypassesLookupButRefreshesEntry() throws Exception {
+        HttpHeaders noCache = new HttpHeaders();
+        noCache.setCacheControl("no-cache");
+
+        forward("SAD/PortalPEGOV", "{\"listaCpf\":[\"111\"]}", new HttpHeaders());
+        forward("SAD/PortalPEGOV", "{\"listaCpf\":[\"111\"]}", noCache);
+        ResponseEntity<byte[]> cached = forward("SAD/PortalPEGOV", "{\"listaCpf\":[\"111\"]}", new HttpHeaders());
+
+        assertEquals(2, upstreamRequests.size());
+        assertEquals("HIT", cached.getHeaders().getFirst(ResponseCache.CACHE_STATUS_HEADER));
+    }
+
+    @Test
+    void staleIfErrorServesExpiredItemsWhenCircuitIsOpen() throws Exception {
+        cacheConfig.setTtl(Duration.ZERO);
+        cacheConfig.setStaleIfError(Duration.ofHours(1));
+
+        forward("SAD/PortalPEGOV", "{\"listaCpf\":[\"111\",\"222\"]}", new HttpHeaders());
+        upstreamAvailable = false;
+        ResponseEntity<byte[]> stale = forward("SAD/PortalPEGOV", "{\"listaCpf\":[\"222\",\"111\"]}", new HttpHeaders());
+
+        assertEquals("STALE", stale.getHeaders().getFirst(ResponseCache.CACHE_STATUS_HEADER));
+        assertEquals("0", stale.getHeaders().getFirst(HttpHeaders.AGE));
+        assertEquals(List.of("222", "111"), cpfs(stale));
+        // Sem versão desatualizada para um dos itens, a falha da API é propagada
+        assertThrows(CallNotPermittedException.class,
+                () -> forward("SAD/PortalPEGOV", "{\"listaCpf\":[\"111\",\"333\"]}", new HttpHeaders()));
+    }
+
+    @Test
+    void staleWhileRevalidateAnswersFromCacheAndRefreshesInBackground() throws Exception {
+        // Chave pela requisição inteira
+        cacheConfig.setItemField(null);
+        cacheConfig.setKeyFields(List.of("listaCpf"));
+        cacheConfig.setTtl(Duration.ZERO);
+        cacheConfig.setStaleWhileRevalidate(Duration.ofHours(1));
+
+        ResponseEntity<byte[]> first = forward("SAD/PortalPEGOV", "{\"listaCpf\":[\"111\"]}", new HttpHeaders());
+        upstreamAvailable = false;
+        ResponseEntity<byte[]> stale = forward("SAD/PortalPEGOV", "{\"listaCpf\":[\"111\"]}", new HttpHeaders());
+
+        assertEquals("MISS", first.getHeaders().getFirst(ResponseCache.CACHE_STATUS_HEADER));
+        assertEquals("STALE", stale.getHeaders().getFirst(ResponseCache.CACHE_STATUS_HEADER));
+        assertEquals(List.of("111"), cpfs(stale));
+        // A atualização em segundo plano foi tentada (e falhou sem afetar a resposta)
+        assertEquals(2, upstreamRequests.size());
+    }
+
+    @Test
+    void diskDirectoryRestoresEntriesAfterRestart() throws Exception {
+        cacheConfig.setDiskDirectory(directory.toString());
+
+        forward("SAD/PortalPEGOV", "{\"listaCpf\":[\"111\"]}", new HttpHeaders());
+        responseCache.close();
+        ResponseCache restarted = new ResponseCache(objectMapper, new SimpleMeterRegistry());
+        restarted.loadFromDisk(List.of(route())).block();
+        ResponseEntity<byte[]> cached = restarted.forward(request("SAD/PortalPEGOV", "{\"listaCpf\":[\"111\"]}",
+                new HttpHeaders()), this::stubUpstream).block();
+        restarted.close();
+
+        assertEquals(1, upstreamRequests.size());
+        assertEquals("HIT", cached.getHeaders().getFirst(ResponseCache.CACHE_STATUS_HEADER));
+        assertEquals(List.of("111"), cpfs(cached));
+        // Dados pessoais sem mascaramento: só o usuário do processo lê o arquivo
+        if (directory.getFileSystem().supportedFileAttributeViews().contains("posix")) {
+            assertEquals("rw-------", PosixFilePermissions.toString(
+                    Files.getPosixFilePermissions(directory.resolve("consulta-cpf.cache"))));
+        }
+    }
+
+    private ResponseEntity<byte[]> forward(String xRoadClient, String body, HttpHeaders headers) {
+        return responseCache.forward(request(xRoadClient, body, headers), this::stubUpstream).block();
+    }
+
+    private Mono<ResponseEntity<byte[]>> stubUpstream(ProxyRequest request) {
+        try {
+            List<String> cpfs = new ArrayList<>();
+            objectMapper.readTree(request.body()).get("listaCpf").forEach(cpf -> cpfs.add(cpf.asText()));
+            upstreamRequests.add(cpfs);
+            if (!upstreamAvailable) {
+                return Mono.error(CallNotPermittedException.createCallNotPermittedException(CircuitBreaker.ofDefaults("cpf-light-api")));
+            }
+            List<Map<String, String>> items = cpfs.stream().map(cpf -> Map.of("CPF", cpf, "Nome", "NOME " + cpf)).toList();
+            return Mono.just(ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(objectMapper.writeValueAsBytes(items)));
+        } catch (Exception e) {
+            return Mono.error(e);
+        }
+    }
+
+    private List<String> cpfs(ResponseEntity<byte[]> response) throws Exception {
+        List<String> cpfs = new ArrayList<>();
+        for (JsonNode item : objectMapper.readTree(response.getBody())) {
+            cpfs.add(item.get("CPF").asText());
+        }
+        return cpfs;
+    }
+
+    private RouteConfig route() {
+        RouteConfig route = new RouteConfig();
+        route.setId("consulta-cpf");
+        route.setCache(cacheConfig);
+        return route;
+    }
+
+    private static HttpHeaders endUser(String cpf) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.set("x-cpf-usuario", cpf);
+        return headers;
+    }
+
+    private static ResponseCacheConfig perItemConfig() {
+        ResponseCacheConfig config = new ResponseCacheConfig();
+        config.setItemField("listaCpf");
+        config.setResponseItemKey("CPF");
+        return config;
+    }
+
+    private ProxyRequest request(String xRoadClient, String body, HttpHeaders headers) {
+        return request(xRoadClient, body, headers, Map.of());
+    }
+
+    private ProxyRequest request(String xRoadClient, String body, HttpHeaders headers, Map<String, String> pathVariables) {
+        return new ProxyRequest(HttpMethod.POST, new RouteMatch(route(), null, pathVariables), null, xRoadClient, headers,
+                body.getBytes(StandardCharsets.UTF_8), null);
+    }
+}
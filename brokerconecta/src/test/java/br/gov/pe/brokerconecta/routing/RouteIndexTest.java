@@ -0,0 +1,108 @@
+package br.gov.pe.brokerconecta.routing;
+
+import br.gov.pe.brokerconecta.config.ApiConfig;
+import br.gov.pe.brokerconecta.config.RouteConfig;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpMethod;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RouteIndexTest {
+
+    private static final ApiConfig CPF_API = api("https://cpf");
+    private static final ApiConfig CNPJ_API = api("https://cnpj/{cnpj}");
+
+    private final RouteIndex index = RouteIndex.build(List.of(
+            route("consulta-cpf", "/api/v1/api-cpf/consulta", HttpMethod.POST, "cpf-light-api"),
+            route("consulta-cnpj", "/api/v1/api-cnpj/consulta/{cnpj}", HttpMethod.GET, "cnpj-empresa-api"),
+            route("consulta-cnpj-literal", "/api/v1/api-cnpj/consulta/matriz", HttpMethod.GET, "cpf-light-api"),
+            route("arquivos", "/api/v1/arquivos/**", HttpMethod.GET, "cpf-light-api"),
+            route("anexos", "/api/v1/processos/**/anexos/{anexo}", HttpMethod.GET, "cpf-light-api"),
+            route("processo-numerico", "/api/v1/processo/{id:[0-9]+}", HttpMethod.GET, "cpf-light-api"),
+            route("relatorio-json", "/api/v1/relatorios/*.json", HttpMethod.GET, "cpf-light-api"),
+            route("sem-api", "/api/v1/sem-api", HttpMethod.GET, "inexistente")
+    ), Map.of("cpf-light-api", CPF_API, "cnpj-empresa-api", CNPJ_API));
+
+    @Test
+    void resolvesLiteralRouteWithApiConfig() {
+        RouteMatch match = index.match(HttpMethod.POST, "/api/v1/api-cpf/consulta").orElseThrow();
+
+        assertThat(match.route().getId()).isEqualTo("consulta-cpf");
+        assertThat(match.apiConfig()).isSameAs(CPF_API);
+        assertThat(match.pathVariables()).isEmpty();
+    }
+
+    @Test
+    void extractsPathVariables() {
+        RouteMatch match = index.match(HttpMethod.GET, "/api/v1/api-cnpj/consulta/12345678000199").orElseThrow();
+
+        assertThat(match.route().getId()).isEqualTo("consulta-cnpj");
+        assertThat(match.apiConfig()).isSameAs(CNPJ_API);
+        assertThat(match.pathVariables()).containsExactly(Map.entry("cnpj", "12345678000199"));
+    }
+
+    @Test
+    void firstDeclaredRouteWins() {
+        // A rota com variável foi declarada antes da literal, como na varredura linear.
+        RouteMatch match = index.match(HttpMethod.GET, "/api/v1/api-cnpj/consulta/matriz").orElseThrow();
+
+        assertThat(match.route().getId()).isEqualTo("consulta-cnpj");
+    }
+
+    @Test
+    void fallsBackToPathPatternForWildcards() {
+        RouteMatch match = index.match(HttpMethod.GET, "/api/v1/arquivos/2024/relatorio.pdf").orElseThrow();
+
+        assertThat(match.route().getId()).isEqualTo("arquivos");
+    }
+
+    @Test
+    void wildcardPatternsKeepAntPathMatcherSemantics() {
+        // "**" no meio do caminho, casando com nenhum ou vários segmentos
+        assertThat(index.match(HttpMethod.GET, "/api/v1/processos/2024/01/anexos/7").orElseThrow().pathVariables())
+                .containsExactly(Map.entry("anexo", "7"));
+        assertThat(index.match(HttpMethod.GET, "/api/v1/processos/anexos/7")).isPresent();
+        // "**" no fim também casa com o próprio prefixo
+        assertThat(index.match(HttpMethod.GET, "/api/v1/arquivos").orElseThrow().route().getId()).isEqualTo("arquivos");
+        // Variável com expressão regular
+        assertThat(index.match(HttpMethod.GET, "/api/v1/processo/123").orElseThrow().pathVariables())
+                .containsExactly(Map.entry("id", "123"));
+        assertThat(index.match(HttpMethod.GET, "/api/v1/processo/abc")).isEmpty();
+        // Curinga dentro do segmento
+        assertThat(index.match(HttpMethod.GET, "/api/v1/relatorios/mensal.json")).isPresent();
+        assertThat(index.match(HttpMethod.GET, "/api/v1/relatorios/mensal.xml")).isEmpty();
+    }
+
+    @Test
+    void keepsRouteWhenApiIsNotConfigured() {
+        RouteMatch match = index.match(HttpMethod.GET, "/api/v1/sem-api").orElseThrow();
+
+        assertThat(match.apiConfig()).isNull();
+    }
+
+    @Test
+    void returnsEmptyForUnknownMethodOrPath() {
+        assertThat(index.match(HttpMethod.GET, "/api/v1/api-cpf/consulta")).isEqualTo(Optional.empty());
+        assertThat(index.match(HttpMethod.POST, "/api/v1/api-cpf/consulta/extra")).isEmpty();
+        assertThat(index.match(HttpMethod.GET, "/api/v1/api-cnpj/consulta/")).isEmpty();
+    }
+
+    private static RouteConfig route(String id, String path, HttpMethod method, String api) {
+        RouteConfig route = new RouteConfig();
+        route.setId(id);
+        route.setPath(path);
+        route.setMethod(method);
+        route.setApi(api);
+        return route;
+    }
+
+    private static ApiConfig api(String targetUrl) {
+        ApiConfig api = new ApiConfig();
+        api.setTargetUrl(targetUrl);
+        return api;
+    }
+}
@@ -0,0 +1,163 @@
+package br.gov.pe.brokerconecta.service;
+
+import br.gov.pe.brokerconecta.authorization.ResolvedPermission;
+import br.gov.pe.brokerconecta.config.ApiConfig;
+import br.gov.pe.brokerconecta.config.ApiPermissionConfig;
+import br.gov.pe.brokerconecta.config.BrokerProperties;
+import br.gov.pe.brokerconecta.config.RouteConfig;
+import br.gov.pe.brokerconecta.header.HeaderForwarder;
+import br.gov.pe.brokerconecta.metrics.GatewayMetrics;
+import br.gov.pe.brokerconecta.ratelimit.AdmissionScheduler;
+import br.gov.pe.brokerconecta.ratelimit.ClientRateLimiter;
+import br.gov.pe.brokerconecta.routing.RouteMatch;
+import com.sun.net.httpserver.HttpServer;
+import io.github.resilience4j.bulkhead.BulkheadRegistry;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ProxyServiceTest {
+
+    private static final String BODY = "{\"listaCpf\":[\"12345678901\"]}";
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final TokenManagerService tokenManagerService = mock(TokenManagerService.class);
+    private final UpstreamClientRegistry upstreamClientRegistry = new UpstreamClientRegistry(WebClient.builder());
+    private final ProxyService proxyService = new ProxyService(tokenManagerService, upstreamClientRegistry,
+            new ClientRateLimiter(),
+            new UpstreamResilienceRegistry(CircuitBreakerRegistry.ofDefaults(), BulkheadRegistry.ofDefaults()),
+            new GatewayMetrics(meterRegistry), new HeaderForwarder(), new UpstreamHedging(meterRegistry),
+            new AdmissionScheduler(meterRegistry, null), new BrokerProperties());
+
+    // Chamadas recebidas pela API de destino: header Authorization e corpo
+    private final List<String> authorizations = new CopyOnWriteArrayList<>();
+    private final List<String> bodies = new CopyOnWriteArrayList<>();
+    private volatile boolean rejectEveryToken;
+    private volatile String challenge;
+
+    private HttpServer stub;
+    private ApiConfig api;
+
+    @BeforeEach
+    void startStub() throws IOException {
+        // API de destino que só aceita o token "novo"
+        stub = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        stub.createContext("/consulta", exchange -> {
+            String authorization = exchange.getRequestHeaders().getFirst(HttpHeaders.AUTHORIZATION);
+            authorizations.add(authorization);
+            bodies.add(new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8));
+            boolean accepted = "Bearer novo".equals(authorization) && !rejectEveryToken;
+            byte[] body = (accepted ? "[{\"CPF\":\"12345678901\"}]" : "{\"erro\":\"token inválido\"}").getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set(HttpHeaders.CONTENT_TYPE, "application/json");
+            if (!accepted && challenge != null) {
+                exchange.getResponseHeaders().set(HttpHeaders.WWW_AUTHENTICATE, challenge);
+            }
+            exchange.sendResponseHeaders(accepted ? 200 : 401, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+        stub.start();
+
+        api = new ApiConfig();
+        api.setTargetUrl("http://localhost:" + stub.getAddress().getPort() + "/consulta");
+        when(tokenManagerService.getAccessToken(any())).thenReturn(Mono.just("antigo"));
+        when(tokenManagerService.replaceRejectedToken(any(), anyString())).thenReturn(Mono.just("novo"));
+    }
+
+    @AfterEach
+    void stopStub() {
+        upstreamClientRegistry.shutdown();
+        stub.stop(0);
+    }
+
+    @Test
+    void rejectedTokenIsReplacedAndRequestRepeatedOnce() {
+        ResponseEntity<byte[]> response = proxyService.forward(request(null)).block(Duration.ofSeconds(5));
+
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals(List.of("Bearer antigo", "Bearer novo"), authorizations);
+        // O corpo já lido é reenviado na repetição
+        assertEquals(List.of(BODY, BODY), bodies);
+        verify(tokenManagerService).replaceRejectedToken(any(), eq("antigo"));
+    }
+
+    @Test
+    void secondRejectionIsNotRetriedAgain() {
+        rejectEveryToken = true;
+
+        assertThrows(WebClientResponseException.Unauthorized.class,
+                () -> proxyService.forward(request(null)).block(Duration.ofSeconds(5)));
+
+        assertEquals(List.of("Bearer antigo", "Bearer novo"), authorizations);
+    }
+
+    @Test
+    void nonBearerChallengeIsNotATokenRejection() {
+        challenge = "Basic realm=\"api-cpf\"";
+
+        assertThrows(WebClientResponseException.Unauthorized.class,
+                () -> proxyService.forward(request(null)).block(Duration.ofSeconds(5)));
+
+        assertEquals(List.of("Bearer antigo"), authorizations);
+        verify(tokenManagerService, never()).replaceRejectedToken(any(), anyString());
+    }
+
+    @Test
+    void streamingBodyIsNotRetried() {
+        Flux<DataBuffer> bodyStream =
+                Flux.just(DefaultDataBufferFactory.sharedInstance.wrap(BODY.getBytes(StandardCharsets.UTF_8)));
+
+        assertThrows(WebClientResponseException.Unauthorized.class,
+                () -> proxyService.forwardStreaming(request(bodyStream)).block(Duration.ofSeconds(5)));
+
+        assertEquals(List.of("Bearer antigo"), authorizations);
+        assertEquals(List.of(BODY), bodies);
+        verify(tokenManagerService, never()).replaceRejectedToken(any(), anyString());
+    }
+
+    private ProxyRequest request(Flux<DataBuffer> bodyStream) {
+        RouteConfig route = new RouteConfig();
+        route.setId("consulta-cpf");
+        route.setApi("cpf-light-api");
+        ApiPermissionConfig permissionConfig = new ApiPermissionConfig();
+        permissionConfig.setClientId("portal");
+        permissionConfig.setClientSecret("segredo");
+        ResolvedPermission permission = new ResolvedPermission("cpf-light-api", permissionConfig, api, "Basic cG9ydGFsOnNlZ3JlZG8=");
+        HttpHeaders headers = new HttpHeaders();
+        headers.set(HttpHeaders.CONTENT_TYPE, "application/json");
+        return new ProxyRequest(HttpMethod.POST, new RouteMatch(route, api, Map.of()), permission, "SAD/PortalPEGOV", headers,
+                bodyStream == null ? BODY.getBytes(StandardCharsets.UTF_8) : null, bodyStream);
+    }
+}
@@ -0,0 +1,121 @@
+package br.gov.pe.brokerconecta.service;
+
+import br.gov.pe.brokerconecta.config.RouteConfig;
+import br.gov.pe.brokerconecta.metrics.RequestTimings;
+import br.gov.pe.brokerconecta.routing.RouteMatch;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.ResponseEntity;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.util.context.Context;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class RequestCoalescerTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final RequestCoalescer coalescer = new RequestCoalescer(new ObjectMapper(), meterRegistry);
+    private final AtomicInteger upstreamCalls = new AtomicInteger();
+
+    @Test
+    void identicalConcurrentRequestsShareOneUpstreamCall() {
+        List<ResponseEntity<byte[]>> responses = Flux.merge(
+                        coalescer.forward(request("SAD/PortalPEGOV", "{\"listaCpf\":[\"111\"],\"a\":1}"), this::slowUpstream),
+                        coalescer.forward(request("SAD/PortalPEGOV", "{ \"a\": 1, \"listaCpf\": [\"111\"] }"), this::slowUpstream),
+                        coalescer.forward(request("SAD/PortalPEGOV", "{\"listaCpf\":[\"111\"],\"a\":1}"), this::slowUpstream))
+                .collectList()
+                .block(Duration.ofSeconds(5));
+
+        assertEquals(1, upstreamCalls.get());
+        assertEquals(3, responses.size());
+        assertEquals(2.0, meterRegistry.counter("broker.requests.coalesced", "route", "consulta").count());
+    }
+
+    @Test
+    void differentClientsOrBodiesAreNotCoalesced() {
+        Flux.merge(
+                        coalescer.forward(request("SAD/PortalPEGOV", "{\"listaCpf\":[\"111\"]}"), this::slowUpstream),
+                        coalescer.forward(request("SEE/SGPPE", "{\"listaCpf\":[\"111\"]}"), this::slowUpstream),
+                        coalescer.forward(request("SAD/PortalPEGOV", "{\"listaCpf\":[\"222\"]}"), this::slowUpstream))
+                .blockLast(Duration.ofSeconds(5));
+
+        assertEquals(3, upstreamCalls.get());
+    }
+
+    @Test
+    void differentEndUsersAreNotCoalesced() {
+        Flux.merge(
+                        coalescer.forward(request("SAD/PortalPEGOV", "{\"listaCpf\":[\"111\"]}", "00011122233"), this::slowUpstream),
+                        coalescer.forward(request("SAD/PortalPEGOV", "{\"listaCpf\":[\"111\"]}", "99988877766"), this::slowUpstream),
+                        coalescer.forward(request("SAD/PortalPEGOV", "{\"listaCpf\":[\"111\"]}", "00011122233"), this::slowUpstream))
+                .blockLast(Duration.ofSeconds(5));
+
+        assertEquals(2, upstreamCalls.get());
+    }
+
+    @Test
+    void sharedCallDoesNotCarryTheLeaderDeadlineOrTimings() {
+        List<Object> seen = new ArrayList<>();
+        Supplier<Mono<ResponseEntity<byte[]>>> upstream = () -> Mono.deferContextual(context -> {
+            seen.add(RequestDeadline.from(context));
+            seen.add(RequestTimings.from(context));
+            return slowUpstream();
+        });
+        RequestDeadline shortDeadline = new RequestDeadline("consulta", Duration.ofMillis(300), System.nanoTime() + 300_000_000L);
+
+        Flux.merge(
+                        coalescer.forward(request("SAD/PortalPEGOV", "{\"listaCpf\":[\"111\"]}"), upstream)
+                                .contextWrite(Context.of(RequestDeadline.class, shortDeadline, RequestTimings.class, new RequestTimings())),
+                        coalescer.forward(request("SAD/PortalPEGOV", "{\"listaCpf\":[\"111\"]}"), upstream)
+                                .contextWrite(Context.of(RequestTimings.class, new RequestTimings())))
+                .blockLast(Duration.ofSeconds(5));
+
+        assertEquals(1, upstreamCalls.get());
+        assertEquals(Arrays.asList(null, null), seen);
+    }
+
+    @Test
+    void finishedCallIsNotReused() {
+        Supplier<Mono<ResponseEntity<byte[]>>> upstream = this::slowUpstream;
+        coalescer.forward(request("SAD/PortalPEGOV", null), upstream).block(Duration.ofSeconds(5));
+        coalescer.forward(request("SAD/PortalPEGOV", null), upstream).block(Duration.ofSeconds(5));
+
+        assertEquals(2, upstreamCalls.get());
+    }
+
+    private Mono<ResponseEntity<byte[]>> slowUpstream() {
+        upstreamCalls.incrementAndGet();
+        return Mono.delay(Duration.ofMillis(200)).map(tick -> ResponseEntity.ok("[]".getBytes(StandardCharsets.UTF_8)));
+    }
+
+    private static ProxyRequest request(String xRoadClient, String body) {
+        return request(xRoadClient, body, null);
+    }
+
+    private static ProxyRequest request(String xRoadClient, String body, String cpfUsuario) {
+        RouteConfig route = new RouteConfig();
+        route.setId("consulta");
+        route.setCoalesce(true);
+        route.setCoalescePartitionHeaders(List.of("x-cpf-usuario"));
+        RouteMatch routeMatch = new RouteMatch(route, null, Map.of());
+        HttpHeaders headers = new HttpHeaders();
+        if (cpfUsuario != null) {
+            headers.set("x-cpf-usuario", cpfUsuario);
+        }
+        return new ProxyRequest(HttpMethod.POST, routeMatch, null, xRoadClient, headers,
+                body != null ? body.getBytes(StandardCharsets.UTF_8) : null, null);
+    }
+}
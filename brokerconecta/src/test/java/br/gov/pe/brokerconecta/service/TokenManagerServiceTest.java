@@ -0,0 +1,202 @@
+package br.gov.pe.brokerconecta.service;
+
+import br.gov.pe.brokerconecta.authorization.ResolvedPermission;
+import br.gov.pe.brokerconecta.config.ApiConfig;
+import br.gov.pe.brokerconecta.config.ApiPermissionConfig;
+import br.gov.pe.brokerconecta.config.BrokerProperties;
+import br.gov.pe.brokerconecta.config.TokenConfig;
+import br.gov.pe.brokerconecta.metrics.GatewayMetrics;
+import br.gov.pe.brokerconecta.token.CachedToken;
+import br.gov.pe.brokerconecta.token.LocalTokenStore;
+import com.sun.net.httpserver.HttpServer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.concurrent.ConcurrentMapCache;
+import org.springframework.http.HttpHeaders;
+import org.springframework.web.reactive.function.client.WebClient;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Validade e renovação dos tokens, contra um provedor de identidade simulado que devolve o {@code expires_in}
+ * configurado em cada teste.
+ */
+class TokenManagerServiceTest {
+
+    private static final String CLIENT_ID = "portal";
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final UpstreamClientRegistry upstreamClientRegistry = new UpstreamClientRegistry(WebClient.builder());
+    private final LocalTokenStore tokenStore = new LocalTokenStore(new ConcurrentMapCache("tokens"));
+    private final BrokerProperties brokerProperties = new BrokerProperties();
+    private final TokenManagerService tokenManagerService = new TokenManagerService(upstreamClientRegistry, tokenStore,
+            brokerProperties, meterRegistry, new GatewayMetrics(meterRegistry));
+
+    // Provedor simulado: cada chamada emite "token-<n>"; null omite o expires_in da resposta
+    private final AtomicInteger calls = new AtomicInteger();
+    private final AtomicInteger failuresLeft = new AtomicInteger();
+    private volatile Integer expiresIn = 3600;
+
+    private HttpServer stub;
+    private ResolvedPermission permission;
+
+    @BeforeEach
+    void startStub() throws IOException {
+        stub = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        stub.createContext("/token", exchange -> {
+            int call = calls.incrementAndGet();
+            exchange.getRequestBody().readAllBytes();
+            boolean failed = failuresLeft.getAndUpdate(left -> Math.max(left - 1, 0)) > 0;
+            String json = failed ? "{\"error\":\"temporarily_unavailable\"}"
+                    : "{\"access_token\":\"token-" + call + "\","
+                    + (expiresIn == null ? "" : "\"expires_in\":" + expiresIn + ",")
+                    + "\"token_type\":\"Bearer\"}";
+            byte[] body = json.getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set(HttpHeaders.CONTENT_TYPE, "application/json");
+            exchange.sendResponseHeaders(failed ? 503 : 200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+        stub.start();
+
+        ApiConfig api = new ApiConfig();
+        api.setTokenUrl("http://localhost:" + stub.getAddress().getPort() + "/token");
+        ApiPermissionConfig permissionConfig = new ApiPermissionConfig();
+        permissionConfig.setClientId(CLIENT_ID);
+        permissionConfig.setClientSecret("segredo");
+        permission = new ResolvedPermission("cpf-light-api", permissionConfig, api, "Basic cG9ydGFsOnNlZ3JlZG8=");
+    }
+
+    @AfterEach
+    void stopStub() {
+        tokenManagerService.cancelScheduledRefreshes();
+        upstreamClientRegistry.shutdown();
+        stub.stop(0);
+    }
+
+    @Test
+    void regularTokenDiscountsSkewAndRefreshesAheadWithJitter() {
+        expiresIn = 3600;
+
+        // Padrões: margem de 60s, renovação 5min antes da expiração, jitter de até 30s
+        assertValidity(Duration.ofSeconds(3540), Duration.ofMinutes(5), Duration.ofSeconds(30));
+    }
+
+    @Test
+    void shortLivedTokenKeepsHalfItsLifetimeAndScalesRefreshAhead() {
+        expiresIn = 10;
+
+        // A margem de 60s consumiria o token inteiro: fica a metade da validade (5s), renovação na metade
+        // disso e jitter de até um quarto
+        assertValidity(Duration.ofSeconds(5), Duration.ofMillis(2500), Duration.ofMillis(1250));
+    }
+
+    @Test
+    void zeroExpiresInFallsBackToDefaultTtl() {
+        expiresIn = 0;
+
+        assertValidity(Duration.ofMinutes(110).minusSeconds(60), Duration.ofMinutes(5), Duration.ofSeconds(30));
+    }
+
+    @Test
+    void missingExpiresInFallsBackToDefaultTtl() {
+        expiresIn = null;
+        brokerProperties.getTokens().setDefaultTtl(Duration.ofMinutes(30));
+
+        assertValidity(Duration.ofMinutes(30).minusSeconds(60), Duration.ofMinutes(5), Duration.ofSeconds(30));
+    }
+
+    @Test
+    void hugeExpiresInIsAcceptedWithoutOverflow() {
+        expiresIn = Integer.MAX_VALUE;
+
+        assertValidity(Duration.ofSeconds(Integer.MAX_VALUE).minusSeconds(60), Duration.ofMinutes(5), Duration.ofSeconds(30));
+    }
+
+    @Test
+    void unusedTokenIsNotRefreshedUntilItIsUsedAgain() throws InterruptedException {
+        shortRefreshCycle(2);
+
+        // Aquecimento não conta como uso: a renovação agendada (1s) é suspensa
+        tokenManagerService.prefetch(permission).block(Duration.ofSeconds(5));
+        Thread.sleep(1500);
+        assertEquals(1, calls.get());
+
+        // Uso dentro da janela de renovação: devolve o token atual e renova na hora
+        assertEquals("token-1", tokenManagerService.getAccessToken(permission).block(Duration.ofSeconds(5)));
+        awaitUntil(() -> calls.get() == 2);
+        awaitUntil(() -> "token-2".equals(accessToken()));
+    }
+
+    @Test
+    void failedRefreshKeepsCurrentTokenAndRetries() {
+        shortRefreshCycle(4);
+        brokerProperties.getTokens().setRefreshRetryInterval(Duration.ofMillis(100));
+
+        assertEquals("token-1", tokenManagerService.getAccessToken(permission).block(Duration.ofSeconds(5)));
+        failuresLeft.set(2);
+
+        // Duas renovações falham (chamadas 2 e 3); o token atual continua em uso até a terceira tentativa
+        awaitUntil(() -> calls.get() >= 3);
+        assertEquals("token-1", tokenManagerService.getAccessToken(permission).block(Duration.ofSeconds(5)));
+        awaitUntil(() -> "token-4".equals(accessToken()));
+        assertEquals(4, calls.get());
+    }
+
+    /**
+     * Token de {@code seconds} segundos, sem margem nem jitter, renovado na metade da validade.
+     */
+    private void shortRefreshCycle(int seconds) {
+        expiresIn = seconds;
+        TokenConfig tokens = brokerProperties.getTokens();
+        tokens.setExpirySkew(Duration.ZERO);
+        tokens.setRefreshAhead(Duration.ofSeconds(seconds));
+        tokens.setRefreshJitter(Duration.ZERO);
+    }
+
+    private void assertValidity(Duration usable, Duration refreshAhead, Duration maxJitter) {
+        Instant before = Instant.now();
+        tokenManagerService.getAccessToken(permission).block(Duration.ofSeconds(5));
+        Instant after = Instant.now();
+
+        CachedToken token = tokenStore.getLocal(CLIENT_ID);
+        assertFalse(token.expiresAt().isBefore(before.plus(usable)));
+        assertFalse(token.expiresAt().isAfter(after.plus(usable)));
+        Duration ahead = Duration.between(token.refreshAt(), token.expiresAt());
+        assertFalse(ahead.compareTo(refreshAhead) < 0, "renovação antecipada em " + ahead);
+        assertFalse(ahead.compareTo(refreshAhead.plus(maxJitter)) > 0, "renovação antecipada em " + ahead);
+        assertTrue(token.refreshAt().isAfter(before));
+    }
+
+    private String accessToken() {
+        CachedToken token = tokenStore.getLocal(CLIENT_ID);
+        return token == null ? null : token.accessToken();
+    }
+
+    private static void awaitUntil(BooleanSupplier condition) {
+        long deadline = System.nanoTime() + Duration.ofSeconds(5).toNanos();
+        while (!condition.getAsBoolean() && System.nanoTime() < deadline) {
+            try {
+                Thread.sleep(10);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+        assertTrue(condition.getAsBoolean());
+    }
+}
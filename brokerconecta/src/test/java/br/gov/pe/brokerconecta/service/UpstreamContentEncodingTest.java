@@ -0,0 +1,100 @@
+package br.gov.pe.brokerconecta.service;
+
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.zip.GZIPOutputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
+
+class UpstreamContentEncodingTest {
+
+    private static final String ERROR_BODY = "{\"erro\":\"CPF inválido\",\"codigo\":\"CPF-400\"}";
+
+    private HttpServer stub;
+    private WebClient webClient;
+
+    @BeforeEach
+    void startStub() throws IOException {
+        // API de destino que comprime tudo, inclusive as respostas de erro
+        stub = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        stub.createContext("/consulta", exchange -> {
+            byte[] body = gzip(ERROR_BODY);
+            exchange.getResponseHeaders().set(HttpHeaders.CONTENT_TYPE, "application/json;charset=UTF-8");
+            exchange.getResponseHeaders().set(HttpHeaders.CONTENT_ENCODING, "gzip");
+            exchange.sendResponseHeaders(400, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+        stub.start();
+        webClient = WebClient.create("http://localhost:" + stub.getAddress().getPort());
+    }
+
+    @AfterEach
+    void stopStub() {
+        stub.stop(0);
+    }
+
+    @Test
+    void gzippedErrorBodyIsDecodedBeforeReachingTheHandler() {
+        Throwable error = catchThrowable(() -> webClient.get().uri("/consulta")
+                .header(HttpHeaders.ACCEPT_ENCODING, UpstreamContentEncoding.ACCEPTED)
+                .retrieve()
+                .toEntity(byte[].class)
+                .onErrorMap(WebClientResponseException.class, UpstreamContentEncoding::decode)
+                .block(Duration.ofSeconds(5)));
+
+        WebClientResponseException decoded = (WebClientResponseException) error;
+        assertThat(decoded).isInstanceOf(WebClientResponseException.BadRequest.class);
+        assertThat(decoded.getResponseBodyAsString()).isEqualTo(ERROR_BODY);
+        assertThat(decoded.getHeaders().containsKey(HttpHeaders.CONTENT_ENCODING)).isFalse();
+        assertThat(decoded.getHeaders().containsKey(HttpHeaders.CONTENT_LENGTH)).isFalse();
+        assertThat(decoded.getMessage()).contains("from GET");
+    }
+
+    @Test
+    void errorWithUnknownCodingIsKeptAsReceived() {
+        HttpHeaders headers = new HttpHeaders();
+        headers.set(HttpHeaders.CONTENT_ENCODING, "br");
+        WebClientResponseException error = WebClientResponseException.create(502, "Bad Gateway", headers,
+                new byte[]{1, 2, 3}, null);
+
+        assertThat(UpstreamContentEncoding.decode(error)).isSameAs(error);
+    }
+
+    @Test
+    void successfulResponseIsDecodedWithoutEncodingHeaders() throws IOException {
+        HttpHeaders headers = new HttpHeaders();
+        headers.set(HttpHeaders.CONTENT_ENCODING, "gzip");
+        headers.set(HttpHeaders.TRANSFER_ENCODING, "chunked");
+        ResponseEntity<byte[]> entity = ResponseEntity.ok().headers(headers).body(gzip("[{\"CPF\":\"1\"}]"));
+
+        ResponseEntity<byte[]> decoded = UpstreamContentEncoding.decode(entity, UpstreamContentEncoding.of(headers));
+
+        assertThat(new String(decoded.getBody(), StandardCharsets.UTF_8)).isEqualTo("[{\"CPF\":\"1\"}]");
+        assertThat(decoded.getHeaders().containsKey(HttpHeaders.CONTENT_ENCODING)).isFalse();
+        assertThat(decoded.getHeaders().containsKey(HttpHeaders.TRANSFER_ENCODING)).isFalse();
+    }
+
+    private static byte[] gzip(String value) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+            gzip.write(value.getBytes(StandardCharsets.UTF_8));
+        }
+        return out.toByteArray();
+    }
+}
@@ -0,0 +1,103 @@
+package br.gov.pe.brokerconecta.service;
+
+import br.gov.pe.brokerconecta.config.ApiConfig;
+import br.gov.pe.brokerconecta.config.RouteConfig;
+import br.gov.pe.brokerconecta.exception.DeadlineExceededException;
+import br.gov.pe.brokerconecta.routing.RouteMatch;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class UpstreamHedgingTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final UpstreamHedging hedging = new UpstreamHedging(meterRegistry);
+    private final ApiConfig api = new ApiConfig();
+    private final AtomicInteger calls = new AtomicInteger();
+
+    @BeforeEach
+    void setUp() {
+        api.getHedging().setEnabled(true);
+        api.getHedging().setMinSamples(10);
+        api.getHedging().setMinDelay(Duration.ofMillis(1));
+        // Janela com latências de ~20 ms: o percentil 95 fica perto disso
+        for (int i = 0; i < 10; i++) {
+            hedging.hedge(request(HttpMethod.GET, false), Mono.delay(Duration.ofMillis(20)).thenReturn("ok")).block();
+        }
+    }
+
+    @Test
+    void slowCallIsHedgedAndFastestResponseWins() {
+        // A primeira chamada fica presa; a segunda responde logo
+        Mono<String> attempt = Mono.defer(() -> calls.incrementAndGet() == 1
+                ? Mono.delay(Duration.ofSeconds(10)).thenReturn("lenta")
+                : Mono.just("segunda"));
+
+        String response = hedging.hedge(request(HttpMethod.GET, false), attempt).block(Duration.ofSeconds(2));
+
+        assertEquals("segunda", response);
+        assertEquals(2, calls.get());
+        assertEquals(1.0, meterRegistry.counter("broker.upstream.hedges", "api", "cpf-light-api", "result", "won").count());
+    }
+
+    @Test
+    void nonIdempotentRouteIsNotHedged() {
+        Mono<String> attempt = Mono.defer(() -> {
+            calls.incrementAndGet();
+            return Mono.delay(Duration.ofMillis(200)).thenReturn("ok");
+        });
+
+        hedging.hedge(request(HttpMethod.POST, false), attempt).block(Duration.ofSeconds(2));
+        assertEquals(1, calls.get());
+
+        hedging.hedge(request(HttpMethod.POST, true), attempt).block(Duration.ofSeconds(2));
+        assertEquals(3, calls.get());
+    }
+
+    @Test
+    void hedgeErrorDoesNotReplaceOriginalResponse() {
+        Mono<String> attempt = Mono.defer(() -> calls.incrementAndGet() == 1
+                ? Mono.delay(Duration.ofMillis(200)).thenReturn("original")
+                : Mono.error(new IllegalStateException("bulkhead cheio")));
+
+        assertEquals("original", hedging.hedge(request(HttpMethod.GET, false), attempt).block(Duration.ofSeconds(2)));
+    }
+
+    @Test
+    void deadlineCancelsUpstreamCall() {
+        RouteConfig route = new RouteConfig();
+        route.setId("consulta");
+        route.setTimeout(Duration.ofSeconds(5));
+        AtomicInteger cancelled = new AtomicInteger();
+
+        RequestDeadline deadline = RequestDeadline.of("X-Request-Timeout", "50", route, System.nanoTime());
+        Mono<String> call = deadline.apply(Mono.delay(Duration.ofSeconds(5)).thenReturn("ok")
+                .doOnCancel(cancelled::incrementAndGet));
+
+        assertEquals(Duration.ofMillis(50), deadline.budget());
+        assertThrows(DeadlineExceededException.class, () -> call.block(Duration.ofSeconds(2)));
+        assertEquals(1, cancelled.get());
+        assertNull(RequestDeadline.of("X-Request-Timeout", null, new RouteConfig(), System.nanoTime()));
+        assertThrows(IllegalArgumentException.class, () -> RequestDeadline.of("X-Request-Timeout", "abc", route, 0));
+    }
+
+    private ProxyRequest request(HttpMethod method, boolean idempotent) {
+        RouteConfig route = new RouteConfig();
+        route.setId("consulta");
+        route.setApi("cpf-light-api");
+        route.setIdempotent(idempotent);
+        return new ProxyRequest(method, new RouteMatch(route, api, Map.of()), null, "SAD/PortalPEGOV",
+                new HttpHeaders(), null, null);
+    }
+}
@@ -0,0 +1,119 @@
+package br.gov.pe.brokerconecta.service;
+
+import br.gov.pe.brokerconecta.config.ApiConfig;
+import br.gov.pe.brokerconecta.exception.GlobalExceptionHandler;
+import io.github.resilience4j.bulkhead.BulkheadFullException;
+import io.github.resilience4j.bulkhead.BulkheadRegistry;
+import io.github.resilience4j.circuitbreaker.CallNotPermittedException;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.reactive.function.client.WebClientRequestException;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+
+import java.io.IOException;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class UpstreamResilienceRegistryTest {
+
+    private final CircuitBreakerRegistry circuitBreakerRegistry = CircuitBreakerRegistry.ofDefaults();
+    private final BulkheadRegistry bulkheadRegistry = BulkheadRegistry.ofDefaults();
+    private final UpstreamResilienceRegistry registry = new UpstreamResilienceRegistry(circuitBreakerRegistry, bulkheadRegistry);
+    private final ApiConfig api = new ApiConfig();
+    private final AtomicInteger calls = new AtomicInteger();
+
+    @Test
+    void onlyServerErrorsConnectionFailuresAndTimeoutsAreUpstreamFailures() {
+        assertTrue(UpstreamResilienceRegistry.isUpstreamFailure(responseError(500)));
+        assertTrue(UpstreamResilienceRegistry.isUpstreamFailure(responseError(503)));
+        assertTrue(UpstreamResilienceRegistry.isUpstreamFailure(new WebClientRequestException(new IOException("Connection refused"),
+                HttpMethod.POST, URI.create("https://cpf/consulta"), new HttpHeaders())));
+        assertTrue(UpstreamResilienceRegistry.isUpstreamFailure(new TimeoutException()));
+        assertFalse(UpstreamResilienceRegistry.isUpstreamFailure(responseError(400)));
+        assertFalse(UpstreamResilienceRegistry.isUpstreamFailure(responseError(404)));
+        assertFalse(UpstreamResilienceRegistry.isUpstreamFailure(new IllegalStateException()));
+    }
+
+    @Test
+    void clientErrorsDoNotOpenTheCircuit() {
+        api.getResilience().setMinimumNumberOfCalls(2);
+
+        for (int i = 0; i < 5; i++) {
+            assertThrows(WebClientResponseException.class, () -> call(Mono.error(responseError(404))));
+        }
+
+        CircuitBreaker circuitBreaker = circuitBreakerRegistry.circuitBreaker("cpf-light-api");
+        assertEquals(CircuitBreaker.State.CLOSED, circuitBreaker.getState());
+        assertEquals(0, circuitBreaker.getMetrics().getNumberOfFailedCalls());
+    }
+
+    @Test
+    void openCircuitFailsFastWithoutCallingTheApi() {
+        api.getResilience().setMinimumNumberOfCalls(2);
+
+        assertThrows(WebClientResponseException.class, () -> call(Mono.error(responseError(502))));
+        assertThrows(WebClientResponseException.class, () -> call(Mono.error(responseError(500))));
+        calls.set(0);
+        CallNotPermittedException rejected = assertThrows(CallNotPermittedException.class, () -> call(Mono.just("ok")));
+
+        assertEquals(0, calls.get());
+        assertEquals(HttpStatus.SERVICE_UNAVAILABLE, new GlobalExceptionHandler().handleUpstreamUnavailable(rejected).getStatusCode());
+    }
+
+    @Test
+    void bulkheadIsOptIn() {
+        // Sem max-concurrent-calls, nenhuma chamada simultânea é recusada
+        List<Disposable> inFlight = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            inFlight.add(registry.protect("cpf-light-api", api, Mono.never()).subscribe());
+        }
+
+        assertEquals("ok", call(Mono.just("ok")));
+        assertTrue(bulkheadRegistry.find("cpf-light-api").isEmpty());
+        inFlight.forEach(Disposable::dispose);
+    }
+
+    @Test
+    void fullBulkheadFailsFastWith503() {
+        api.getResilience().setMaxConcurrentCalls(1);
+        Disposable inFlight = registry.protect("cpf-light-api", api, Mono.never()).subscribe();
+
+        calls.set(0);
+        BulkheadFullException rejected = assertThrows(BulkheadFullException.class, () -> call(Mono.just("ok")));
+        ResponseEntity<Map<String, String>> response = new GlobalExceptionHandler().handleUpstreamUnavailable(rejected);
+        inFlight.dispose();
+
+        assertEquals(0, calls.get());
+        assertEquals(HttpStatus.SERVICE_UNAVAILABLE, response.getStatusCode());
+        // Recusa do bulkhead não conta como falha da API
+        assertEquals(0, circuitBreakerRegistry.circuitBreaker("cpf-light-api").getMetrics().getNumberOfFailedCalls());
+        assertEquals("ok", call(Mono.just("ok")));
+    }
+
+    private String call(Mono<String> upstream) {
+        return registry.protect("cpf-light-api", api, Mono.defer(() -> {
+            calls.incrementAndGet();
+            return upstream;
+        })).block();
+    }
+
+    private static WebClientResponseException responseError(int status) {
+        return WebClientResponseException.create(status, "erro", new HttpHeaders(), new byte[0], null);
+    }
+}
@@ -0,0 +1,118 @@
+package br.gov.pe.brokerconecta.snapshot;
+
+import br.gov.pe.brokerconecta.config.BrokerProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.http.HttpMethod;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BrokerConfigWatcherTest {
+
+    private static final String CONFIG = """
+            broker:
+              routes:
+                - id: "consulta-cpf"
+                  path: "%s"
+                  method: "POST"
+                  api: "cpf-light-api"
+              apis:
+                cpf-light-api:
+                  target-url: "http://localhost/cpf"
+                  token-url: "http://localhost/token"
+              clients:
+                portal:
+                  xRoadId: "SAD/PortalPEGOV"
+                  authorizedApis:
+                    cpf-light-api:
+                      clientId: "portal-id"
+                      clientSecret: "%s"
+                sgppe:
+                  xRoadId: "SEE/SGPPE"
+                  authorizedApis:
+                    cpf-light-api:
+                      clientId: "sgppe-id"
+                      clientSecret: "segredo-sgppe"
+            """;
+
+    @TempDir
+    Path directory;
+
+    private final List<BrokerSnapshotChangedEvent> events = new ArrayList<>();
+    private Path file;
+    private BrokerSnapshotHolder holder;
+    private BrokerConfigWatcher watcher;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        file = directory.resolve("broker.yml");
+        Files.writeString(file, CONFIG.formatted("/api/v1/cpf", "segredo-1"));
+
+        BrokerProperties properties = new BrokerProperties();
+        properties.getReload().setFile(file.toString());
+        properties.getReload().setPollInterval(Duration.ofHours(1));
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        holder = new BrokerSnapshotHolder(properties, event -> events.add((BrokerSnapshotChangedEvent) event), meterRegistry);
+        watcher = new BrokerConfigWatcher(properties, holder, meterRegistry);
+        events.clear();
+    }
+
+    @AfterEach
+    void tearDown() {
+        watcher.stop();
+    }
+
+    @Test
+    void publishesNewRoutesAndEvictsOnlyRotatedCredentials() throws Exception {
+        Files.writeString(file, CONFIG.formatted("/api/v2/cpf", "segredo-2"));
+        watcher.poll();
+
+        BrokerSnapshot current = holder.current();
+        assertEquals(3, current.version());
+        assertTrue(current.routeIndex().match(HttpMethod.POST, "/api/v2/cpf").isPresent());
+        assertTrue(current.routeIndex().match(HttpMethod.POST, "/api/v1/cpf").isEmpty());
+        assertEquals(1, events.size());
+        assertEquals(Set.of("portal-id"), events.get(0).changedCredentials());
+    }
+
+    @Test
+    void invalidConfigIsRejectedAndCurrentSnapshotIsKept() throws Exception {
+        BrokerSnapshot before = holder.current();
+        Files.writeString(file, CONFIG.formatted("/api/v2/cpf", "segredo-2").replace("api: \"cpf-light-api\"", "api: \"inexistente\""));
+        watcher.poll();
+
+        assertSame(before, holder.current());
+        assertTrue(events.isEmpty());
+    }
+
+    @Test
+    void unchangedContentIsNotRepublished() {
+        watcher.poll();
+
+        assertEquals(2, holder.current().version());
+        assertTrue(events.isEmpty());
+    }
+
+    @Test
+    void invalidConfigOnStartupFails() throws Exception {
+        Files.writeString(file, "broker:\n  routes:\n    - id: \"sem-api\"\n      path: \"/x\"\n      method: \"GET\"\n");
+        BrokerProperties properties = new BrokerProperties();
+        properties.getReload().setFile(file.toString());
+
+        assertThrows(IllegalArgumentException.class,
+                () -> new BrokerConfigWatcher(properties, holder, new SimpleMeterRegistry()));
+    }
+}
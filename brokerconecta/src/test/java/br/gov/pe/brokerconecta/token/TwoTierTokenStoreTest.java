@@ -0,0 +1,128 @@
+package br.gov.pe.brokerconecta.token;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.concurrent.ConcurrentMapCache;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+/**
+ * Duas instâncias de {@link TwoTierTokenStore} sobre o mesmo {@link InMemoryTokenBackend} simulam
+ * duas réplicas do broker compartilhando um Redis.
+ */
+class TwoTierTokenStoreTest {
+
+    private static final String CLIENT_ID = "client-a";
+
+    private final InMemoryTokenBackend backend = new InMemoryTokenBackend();
+    private final AtomicInteger fetches = new AtomicInteger();
+    private TwoTierTokenStore replicaA;
+    private TwoTierTokenStore replicaB;
+
+    @BeforeEach
+    void setUp() {
+        replicaA = newReplica();
+        replicaB = newReplica();
+    }
+
+    @AfterEach
+    void tearDown() {
+        replicaA.destroy();
+        replicaB.destroy();
+    }
+
+    @Test
+    void concurrentAcquireFromAllReplicasFetchesOnce() {
+        Supplier<Mono<CachedToken>> slowFetcher = () -> Mono.delay(Duration.ofMillis(200)).map(tick -> newToken());
+
+        List<CachedToken> tokens = Flux.merge(
+                        replicaA.acquire(CLIENT_ID, null, slowFetcher),
+                        replicaB.acquire(CLIENT_ID, null, slowFetcher),
+                        replicaA.acquire(CLIENT_ID, null, slowFetcher),
+                        replicaB.acquire(CLIENT_ID, null, slowFetcher))
+                .collectList()
+                .block(Duration.ofSeconds(5));
+
+        assertEquals(1, fetches.get());
+        assertEquals(1, tokens.stream().map(CachedToken::accessToken).distinct().count());
+        assertEquals(tokens.get(0).accessToken(), replicaB.getLocal(CLIENT_ID).accessToken());
+    }
+
+    @Test
+    void sharedTokenIsReusedByOtherReplica() {
+        CachedToken issued = replicaA.acquire(CLIENT_ID, null, this::fetch).block();
+
+        assertNull(replicaB.getLocal(CLIENT_ID));
+        CachedToken shared = replicaB.acquire(CLIENT_ID, null, this::fetch).block();
+
+        assertEquals(1, fetches.get());
+        assertEquals(issued.accessToken(), shared.accessToken());
+        assertEquals(issued.accessToken(), replicaB.getLocal(CLIENT_ID).accessToken());
+    }
+
+    @Test
+    void replacingTokenForcesNewFetch() {
+        CachedToken current = replicaA.acquire(CLIENT_ID, null, this::fetch).block();
+
+        CachedToken renewed = replicaB.acquire(CLIENT_ID, current, this::fetch).block();
+
+        assertEquals(2, fetches.get());
+        assertNotEquals(current.accessToken(), renewed.accessToken());
+    }
+
+    @Test
+    void invalidationReachesOtherReplicas() throws InterruptedException {
+        CachedToken rejected = replicaA.acquire(CLIENT_ID, null, this::fetch).block();
+        replicaB.acquire(CLIENT_ID, null, this::fetch).block();
+
+        replicaA.invalidate(CLIENT_ID, rejected);
+
+        long deadline = System.nanoTime() + Duration.ofSeconds(2).toNanos();
+        while (replicaB.getLocal(CLIENT_ID) != null && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertNull(replicaA.getLocal(CLIENT_ID));
+        assertNull(replicaB.getLocal(CLIENT_ID));
+
+        replicaB.acquire(CLIENT_ID, null, this::fetch).block();
+        assertEquals(2, fetches.get());
+    }
+
+    @Test
+    void invalidatingAnOldTokenKeepsTheNewOne() {
+        CachedToken rejected = replicaA.acquire(CLIENT_ID, null, this::fetch).block();
+        CachedToken renewed = replicaB.acquire(CLIENT_ID, rejected, this::fetch).block();
+
+        replicaA.invalidate(CLIENT_ID, rejected);
+        CachedToken afterInvalidation = replicaA.acquire(CLIENT_ID, rejected, this::fetch).block();
+
+        assertEquals(2, fetches.get());
+        assertEquals(renewed.accessToken(), afterInvalidation.accessToken());
+    }
+
+    private TwoTierTokenStore newReplica() {
+        return new TwoTierTokenStore(new ConcurrentMapCache("tokens"), backend,
+                Duration.ofSeconds(10), Duration.ofSeconds(2), Duration.ofMillis(20));
+    }
+
+    private Mono<CachedToken> fetch() {
+        return Mono.fromSupplier(this::newToken);
+    }
+
+    private CachedToken newToken() {
+        int n = fetches.incrementAndGet();
+        Instant now = Instant.now();
+        return new CachedToken("token-" + n, now.plus(Duration.ofMinutes(10)), now.plus(Duration.ofMinutes(5)));
+    }
+}